@@ -61,8 +61,13 @@ class _CorpusCleaner:
 class WordAligner:
     available_types = ['FastAlign', 'mgizapp']
 
+    injector_section = 'aligner'
+    injectable_fields = {
+        'text_models': ('train FastAlign models in text format, as needed by the in-process aligner', bool, False),
+    }
+
     def __init__(self):
-        pass
+        self._text_models = None  # Injected
 
     @staticmethod
     def instantiate(type_name):
@@ -189,6 +194,9 @@ class SuffixArraysPhraseTable(MosesFeature):
 
 
 class FastAlign(WordAligner):
+    # fast_align default, training does not optimize it
+    NULL_PROBABILITY = 0.08
+
     def __init__(self):
         WordAligner.__init__(self)
 
@@ -228,18 +236,11 @@ class FastAlign(WordAligner):
 
             # Forward alignments
             fwd_model = os.path.join(model_dir, 'model.align.fwd')
-            command = [self._align_bin, '-d', '-v', '-o', '-n', str(cpus), '-B', '-p', fwd_model, '-i',
-                       aligned_file_path]
-            with open(fwd_file, 'w') as stdout:
-                shell.execute(command, stdout=stdout, stderr=log, env=env)
+            self._train(fwd_model, aligned_file_path, fwd_file, False, cpus, env, log)
 
             # Backward alignments
             bwd_model = os.path.join(model_dir, 'model.align.bwd')
-            command = [self._align_bin, '-d', '-v', '-o', '-n', str(cpus), '-B', '-p', bwd_model, '-r', '-i',
-                       aligned_file_path]
-            with open(bwd_file, 'w') as stdout:
-                shell.execute(command, stdout=stdout, stderr=log, env=env)
-
+            self._train(bwd_model, aligned_file_path, bwd_file, True, cpus, env, log)
         finally:
             if log_file is not None:
                 log.close()
@@ -249,6 +250,50 @@ class FastAlign(WordAligner):
 
         return bal_file
 
+    # Trains the model and writes the alignments of the corpus. Text models are written as the
+    # lexical table (model.txt) and the trained diagonal tension and null probability (model.params)
+    def _train(self, model, aligned_file_path, alignments_file, reverse, cpus, env, log):
+        command = [self._align_bin, '-d', '-v', '-o', '-n', str(cpus)]
+        if self._text_models:
+            command += ['-p', model + '.txt']
+        else:
+            command += ['-B', '-p', model]
+        command += ['-i', aligned_file_path]
+        if reverse:
+            command.append('-r')
+
+        if not self._text_models:
+            with open(alignments_file, 'w') as stdout:
+                shell.execute(command, stdout=stdout, stderr=log, env=env)
+            return
+
+        err_file = model + '.err'
+
+        try:
+            with open(alignments_file, 'w') as stdout:
+                with open(err_file, 'w') as stderr:
+                    shell.execute(command, stdout=stdout, stderr=stderr, env=env)
+
+            tension = None
+            with open(err_file) as stderr:
+                for line in stderr:
+                    log.write(line)
+
+                    line = line.strip()
+                    if line.startswith('final tension:'):
+                        tension = float(line[len('final tension:'):])
+
+            if tension is None:
+                raise Exception('Unable to find the diagonal tension in FastAlign output')
+
+            with open(model + '.params', 'w') as params:
+                params.write('diagonal_tension=%f\n' % tension)
+                params.write('null_probability=%f\n' % FastAlign.NULL_PROBABILITY)
+        finally:
+            if os.path.isfile(err_file):
+                os.remove(err_file)
+
+
 class _FastAlignBALEncoder:
     def __init__(self, corpus, langs, fwd, bwd):
         self._corpus_l1 = corpus.get_file(langs[0])
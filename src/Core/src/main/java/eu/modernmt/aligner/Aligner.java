@@ -1,8 +1,11 @@
 package eu.modernmt.aligner;
 
+import eu.modernmt.model.Alignment;
 import eu.modernmt.model.Sentence;
 
 import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Created by lucamastrostefano on 14/03/16.
@@ -11,26 +14,17 @@ public interface Aligner extends Closeable {
 
     void load() throws AlignerException;
 
-    int[][] getAlignments(Sentence sentence, Sentence translation) throws AlignerException;
-
-    static String toString(int[][] alignments) {
-        StringBuilder result = new StringBuilder();
-        for (int[] alignment : alignments) {
-            result.append(alignment[0]);
-            result.append("-");
-            result.append(alignment[1]);
-            result.append(" ");
-        }
-        return result.deleteCharAt(result.length() - 1).toString();
-    }
+    Alignment getAlignments(Sentence sentence, Sentence translation) throws AlignerException;
+
+    default List<Alignment> getAlignments(List<Sentence> sentences, List<Sentence> translations) throws AlignerException {
+        if (sentences.size() != translations.size())
+            throw new IllegalArgumentException("Sentences and translations have different sizes");
+
+        ArrayList<Alignment> result = new ArrayList<>(sentences.size());
+        for (int i = 0; i < sentences.size(); i++)
+            result.add(getAlignments(sentences.get(i), translations.get(i)));
 
-    static void invertAlignments(int[][] alignments) {
-        int tmp;
-        for (int[] alignment : alignments) {
-            tmp = alignment[0];
-            alignment[0] = alignment[1];
-            alignment[1] = tmp;
-        }
+        return result;
     }
 
 }
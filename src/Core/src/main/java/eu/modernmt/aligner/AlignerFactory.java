@@ -25,11 +25,20 @@ public abstract class AlignerFactory {
     }
 
     protected File enginePath;
+    protected int poolSize = 2;
 
     public void setEnginePath(File enginePath) {
         this.enginePath = enginePath;
     }
 
+    /**
+     * Sets the number of concurrent queries each alignment model can serve,
+     * for implementations that need one instance of the model per query.
+     */
+    public void setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+    }
+
     public abstract Aligner create() throws AlignerException;
 
 }
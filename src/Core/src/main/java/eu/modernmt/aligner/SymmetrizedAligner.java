@@ -2,12 +2,16 @@ package eu.modernmt.aligner;
 
 import eu.modernmt.aligner.symal.GrowDiagonalFinalAndStrategy;
 import eu.modernmt.aligner.symal.SymmetrizationStrategy;
+import eu.modernmt.model.Alignment;
 import eu.modernmt.model.Sentence;
 import eu.modernmt.processing.AlignmentsInterpolator;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.*;
 
 /**
@@ -18,12 +22,18 @@ public class SymmetrizedAligner implements Aligner {
     private final Logger logger = LogManager.getLogger(getClass());
     private final Aligner forwardModel;
     private final Aligner backwardModel;
+    private final ExecutorService executor;
     private SymmetrizationStrategy strategy;
 
     public SymmetrizedAligner(Aligner forwardModel, Aligner backwardModel) {
         this.forwardModel = forwardModel;
         this.backwardModel = backwardModel;
         this.strategy = new GrowDiagonalFinalAndStrategy();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "SymmetrizedAligner-Worker");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     @Override
@@ -51,17 +61,98 @@ public class SymmetrizedAligner implements Aligner {
     }
 
     @Override
-    public int[][] getAlignments(Sentence sentence, Sentence translation) throws AlignerException {
-        int[][] forwardAlignments = forwardModel.getAlignments(sentence, translation);
-        int[][] backwardAlignments = backwardModel.getAlignments(sentence, translation);
+    public Alignment getAlignments(Sentence sentence, Sentence translation) throws AlignerException {
+        // Query the backward model in background while the forward model runs in the calling thread
+        Future<Alignment> backward = executor.submit(() -> backwardModel.getAlignments(sentence, translation));
 
-        int[][] alignments = strategy.symmetrize(forwardAlignments, backwardAlignments);
+        Alignment forwardAlignments;
+        try {
+            forwardAlignments = forwardModel.getAlignments(sentence, translation);
+        } catch (AlignerException | RuntimeException e) {
+            backward.cancel(false);
+            throw e;
+        }
+
+        Alignment backwardAlignments = await(backward);
+
+        return symmetrize(strategy, forwardAlignments, backwardAlignments, sentence, translation);
+    }
+
+    @Override
+    public List<Alignment> getAlignments(List<Sentence> sentences, List<Sentence> translations) throws AlignerException {
+        if (sentences.size() != translations.size())
+            throw new IllegalArgumentException("Sentences and translations have different sizes");
+
+        int size = sentences.size();
+        SymmetrizationStrategy strategy = this.strategy;
+
+        Future<List<Alignment>> backward = executor.submit(() -> backwardModel.getAlignments(sentences, translations));
+
+        List<Alignment> forwardAlignments;
+        try {
+            forwardAlignments = forwardModel.getAlignments(sentences, translations);
+        } catch (AlignerException | RuntimeException e) {
+            backward.cancel(false);
+            throw e;
+        }
+
+        List<Alignment> backwardAlignments = await(backward);
+
+        // Symmetrize in parallel, the calling thread takes care of the first chunk
+        Alignment[] result = new Alignment[size];
+        int chunks = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), size / 64));
+        int chunkSize = (size + chunks - 1) / chunks;
+
+        ArrayList<Future<Void>> futures = new ArrayList<>(chunks - 1);
+        for (int start = chunkSize; start < size; start += chunkSize) {
+            int from = start;
+            int to = Math.min(size, start + chunkSize);
+
+            futures.add(executor.submit(() -> {
+                for (int i = from; i < to; i++)
+                    result[i] = symmetrize(strategy, forwardAlignments.get(i), backwardAlignments.get(i), sentences.get(i), translations.get(i));
+                return null;
+            }));
+        }
+
+        try {
+            for (int i = 0; i < Math.min(size, chunkSize); i++)
+                result[i] = symmetrize(strategy, forwardAlignments.get(i), backwardAlignments.get(i), sentences.get(i), translations.get(i));
+
+            for (Future<Void> future : futures)
+                await(future);
+        } finally {
+            for (Future<Void> future : futures)
+                future.cancel(true);
+        }
+
+        return Arrays.asList(result);
+    }
+
+    private Alignment symmetrize(SymmetrizationStrategy strategy, Alignment forwardAlignments, Alignment backwardAlignments,
+                               Sentence sentence, Sentence translation) {
+        Alignment alignments = strategy.symmetrize(forwardAlignments, backwardAlignments);
         if (logger.isDebugEnabled()) {
-            logger.debug("Symmetrised alignments: " + Aligner.toString(alignments));
+            logger.debug("Symmetrised alignments: " + alignments);
         }
         return AlignmentsInterpolator.interpolateAlignments(alignments, sentence.getWords().length, translation.getWords().length);
     }
 
+    private static <T> T await(Future<T> future) throws AlignerException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw new AlignerException("Alignment interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof AlignerException)
+                throw (AlignerException) cause;
+            else
+                throw new AlignerException("Unexpected exception while computing alignments", cause);
+        }
+    }
+
     public void setSymmetrizationStrategy(SymmetrizationStrategy strategy) {
         if (strategy == null)
             throw new NullPointerException();
@@ -71,6 +162,8 @@ public class SymmetrizedAligner implements Aligner {
 
     @Override
     public void close() throws IOException {
+        executor.shutdownNow();
+
         try {
             forwardModel.close();
         } finally {
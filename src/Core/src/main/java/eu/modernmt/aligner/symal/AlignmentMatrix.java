@@ -1,8 +1,6 @@
 package eu.modernmt.aligner.symal;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Comparator;
+import eu.modernmt.model.Alignment;
 
 /**
  * Created by davide on 20/05/16.
@@ -13,17 +11,17 @@ class AlignmentMatrix {
     private int forwardSize;
     private int backwardSize;
 
-    public static AlignmentMatrix build(int[][] forward, int[][] backward) {
+    public static AlignmentMatrix build(Alignment forward, Alignment backward) {
         int maxForward = -1;
         int maxBackward = -1;
 
-        for (int[] el : forward) {
-            if (el[0] > maxForward) maxForward = el[0];
-            if (el[1] > maxBackward) maxBackward = el[1];
+        for (int i = 0; i < forward.size(); i++) {
+            if (forward.getSource(i) > maxForward) maxForward = forward.getSource(i);
+            if (forward.getTarget(i) > maxBackward) maxBackward = forward.getTarget(i);
         }
-        for (int[] el : backward) {
-            if (el[0] > maxForward) maxForward = el[0];
-            if (el[1] > maxBackward) maxBackward = el[1];
+        for (int i = 0; i < backward.size(); i++) {
+            if (backward.getSource(i) > maxForward) maxForward = backward.getSource(i);
+            if (backward.getTarget(i) > maxBackward) maxBackward = backward.getTarget(i);
         }
 
         return new AlignmentMatrix(maxForward + 1, maxBackward + 1);
@@ -35,13 +33,12 @@ class AlignmentMatrix {
         this.backwardSize = backwardSize;
     }
 
-    public AlignmentMatrix and(int[][] alignments) {
-        Arrays.sort(alignments, Sorter.instance);
-
+    public AlignmentMatrix and(Alignment alignments) {
+        // Links are sorted by source and target, so matrix indexes are increasing
         int lastIndex = -1;
 
-        for (int[] el : alignments) {
-            int i = el[0] * backwardSize + el[1];
+        for (int k = 0; k < alignments.size(); k++) {
+            int i = alignments.getSource(k) * backwardSize + alignments.getTarget(k);
 
             for (int j = lastIndex + 1; j < i; j++)
                 matrix[j] = false;
@@ -67,9 +64,9 @@ class AlignmentMatrix {
         return this;
     }
 
-    public AlignmentMatrix or(int[][] alignments) {
-        for (int[] el : alignments) {
-            int i = el[0] * backwardSize + el[1];
+    public AlignmentMatrix or(Alignment alignments) {
+        for (int k = 0; k < alignments.size(); k++) {
+            int i = alignments.getSource(k) * backwardSize + alignments.getTarget(k);
             matrix[i] = true;
         }
 
@@ -123,30 +120,24 @@ class AlignmentMatrix {
         return false;
     }
 
-    public int[][] toArray() {
-        ArrayList<int[]> list = new ArrayList<>();
-        for (int f = 0; f < forwardSize; f++) {
-            for (int b = 0; b < backwardSize; b++) {
-                int i = f * backwardSize + b;
-
-                if (matrix[i])
-                    list.add(new int[]{f, b});
-            }
+    public Alignment toAlignment() {
+        int size = 0;
+        for (boolean value : matrix) {
+            if (value)
+                size++;
         }
 
-        return list.toArray(new int[list.size()][]);
-    }
+        long[] links = new long[size];
+        int count = 0;
 
-    static class Sorter implements Comparator<int[]> {
-
-        static Sorter instance = new Sorter();
-
-        @Override
-        public int compare(int[] o1, int[] o2) {
-            int c = Integer.compare(o1[0], o2[0]);
-            return c == 0 ? Integer.compare(o1[1], o2[1]) : c;
+        for (int f = 0; f < forwardSize; f++) {
+            for (int b = 0; b < backwardSize; b++) {
+                if (matrix[f * backwardSize + b])
+                    links[count++] = Alignment.pack(f, b);
+            }
         }
 
+        return new Alignment(links, count);
     }
 
 }
@@ -1,6 +1,6 @@
 package eu.modernmt.aligner.symal;
 
-import java.util.Arrays;
+import eu.modernmt.model.Alignment;
 
 /**
  * Created by davide on 20/05/16.
@@ -9,10 +9,7 @@ public class GrowDiagonalFinalAndStrategy implements SymmetrizationStrategy {
 
 
     @Override
-    public int[][] symmetrize(int[][] forward, int[][] backward) {
-        Arrays.sort(forward, AlignmentMatrix.Sorter.instance);
-        Arrays.sort(backward, AlignmentMatrix.Sorter.instance);
-
+    public Alignment symmetrize(Alignment forward, Alignment backward) {
         AlignmentMatrix intersect = AlignmentMatrix.build(forward, backward)
                 .or(forward)
                 .and(backward);
@@ -24,12 +21,11 @@ public class GrowDiagonalFinalAndStrategy implements SymmetrizationStrategy {
 
         // Forward final and
         for (int f = 0; f < intersect.getForwardSize(); f++) {
-            for (int[] el : forward) {
-                if (el[0] != f)
-                    continue;
+            for (int i = forward.getLinksBegin(f); i < forward.getLinksEnd(f); i++) {
+                int b = forward.getTarget(i);
 
-                if (!intersect.get(f, el[1]) && !intersect.isSourceWordAligned(f) && !intersect.isTargetWordAligned(el[1])) {
-                    intersect.set(f, el[1]);
+                if (!intersect.get(f, b) && !intersect.isSourceWordAligned(f) && !intersect.isTargetWordAligned(b)) {
+                    intersect.set(f, b);
                     break;
                 }
             }
@@ -37,18 +33,20 @@ public class GrowDiagonalFinalAndStrategy implements SymmetrizationStrategy {
 
         // Backward final and
         for (int b = 0; b < intersect.getBackwardSize(); b++) {
-            for (int[] el : backward) {
-                if (el[1] != b)
+            for (int i = 0; i < backward.size(); i++) {
+                if (backward.getTarget(i) != b)
                     continue;
 
-                if (!intersect.get(el[0], b) && !intersect.isSourceWordAligned(el[0]) && !intersect.isTargetWordAligned(b)) {
-                    intersect.set(el[0], b);
+                int f = backward.getSource(i);
+
+                if (!intersect.get(f, b) && !intersect.isSourceWordAligned(f) && !intersect.isTargetWordAligned(b)) {
+                    intersect.set(f, b);
                     break;
                 }
             }
         }
 
-        return intersect.toArray();
+        return intersect.toAlignment();
     }
 
 }
@@ -1,16 +1,18 @@
 package eu.modernmt.aligner.symal;
 
+import eu.modernmt.model.Alignment;
+
 /**
  * Created by davide on 20/05/16.
  */
 public class UnionStrategy implements SymmetrizationStrategy {
 
     @Override
-    public int[][] symmetrize(int[][] forward, int[][] backward) {
+    public Alignment symmetrize(Alignment forward, Alignment backward) {
         return AlignmentMatrix.build(forward, backward)
                 .or(forward)
                 .or(backward)
-                .toArray();
+                .toAlignment();
     }
 
 }
@@ -9,8 +9,10 @@ import java.io.Closeable;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 /**
  * Created by davide on 02/12/15.
@@ -27,6 +29,24 @@ public abstract class ContextAnalyzer implements Closeable, AutoCloseable {
 
     public abstract void rebuild(Collection<? extends Corpus> documents) throws ContextAnalyzerException;
 
+    public abstract void add(Collection<? extends Corpus> documents) throws ContextAnalyzerException;
+
+    public abstract void update(Collection<? extends Corpus> documents) throws ContextAnalyzerException;
+
+    public abstract void delete(Collection<String> names) throws ContextAnalyzerException;
+
+    public void add(Corpus document) throws ContextAnalyzerException {
+        add(Collections.singleton(document));
+    }
+
+    public void update(Corpus document) throws ContextAnalyzerException {
+        update(Collections.singleton(document));
+    }
+
+    public void delete(String name) throws ContextAnalyzerException {
+        delete(Collections.singleton(name));
+    }
+
     public List<ContextDocument> getContext(String query, Locale lang, int limit) throws ContextAnalyzerException {
         return getContext(new StringCorpus(null, lang, query), limit);
     }
@@ -35,6 +55,38 @@ public abstract class ContextAnalyzer implements Closeable, AutoCloseable {
         return getContext(new FileCorpus(source, null, lang), limit);
     }
 
+    public ContextResult getContext(String query, Locale lang, int limit, long timeout) throws ContextAnalyzerException {
+        return getContext(new StringCorpus(null, lang, query), limit, timeout);
+    }
+
+    public ContextResult getContext(File source, Locale lang, int limit, long timeout) throws ContextAnalyzerException {
+        return getContext(new FileCorpus(source, null, lang), limit, timeout);
+    }
+
     public abstract List<ContextDocument> getContext(Corpus query, int limit) throws ContextAnalyzerException;
 
+    /**
+     * Same as getContext(query, limit), but the analyzer spends at most timeout milliseconds
+     * scoring the documents (0 for no limit); documents not scored in time get a zero score
+     * and the result is not complete. Analyzers that do not support timeouts ignore it.
+     */
+    public ContextResult getContext(Corpus query, int limit, long timeout) throws ContextAnalyzerException {
+        return new ContextResult(getContext(query, limit), true);
+    }
+
+    /**
+     * Returns a number that changes every time the content of the analyzer changes,
+     * results of getContext() are valid only for the generation they have been computed for.
+     */
+    public long getGeneration() throws ContextAnalyzerException {
+        return 0L;
+    }
+
+    /**
+     * Returns the runtime statistics of the analyzer, if any.
+     */
+    public Map<String, Number> getStatistics() {
+        return Collections.emptyMap();
+    }
+
 }
@@ -0,0 +1,29 @@
+package eu.modernmt.context;
+
+import java.util.List;
+
+/**
+ * Created by davide on 20/07/16.
+ * <p>
+ * Result of a context request with a scoring timeout: a result is partial if the
+ * timeout expired before all the candidate documents were scored.
+ */
+public class ContextResult {
+
+    private final List<ContextDocument> documents;
+    private final boolean complete;
+
+    public ContextResult(List<ContextDocument> documents, boolean complete) {
+        this.documents = documents;
+        this.complete = complete;
+    }
+
+    public List<ContextDocument> getDocuments() {
+        return documents;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+}
@@ -22,6 +22,18 @@ public class OracleAnalyzer extends ContextAnalyzer implements AutoCloseable {
     public void rebuild(Collection<? extends Corpus> documents) throws ContextAnalyzerException {
     }
 
+    @Override
+    public void add(Collection<? extends Corpus> documents) throws ContextAnalyzerException {
+    }
+
+    @Override
+    public void update(Collection<? extends Corpus> documents) throws ContextAnalyzerException {
+    }
+
+    @Override
+    public void delete(Collection<String> names) throws ContextAnalyzerException {
+    }
+
     @Override
     public List<ContextDocument> getContext(Corpus query, int limit) throws ContextAnalyzerException {
         // return 1.0 score for the training domain of the same name as the one queried.
@@ -7,12 +7,16 @@ import eu.modernmt.constants.Const;
 import eu.modernmt.context.ContextAnalyzer;
 import eu.modernmt.context.ContextAnalyzerException;
 import eu.modernmt.context.ContextAnalyzerFactory;
+import eu.modernmt.core.config.DecoderConfig;
 import eu.modernmt.core.config.EngineConfig;
 import eu.modernmt.decoder.Decoder;
 import eu.modernmt.decoder.DecoderFactory;
+import eu.modernmt.decoder.cache.CachedDecoder;
+import eu.modernmt.decoder.cache.TranslationCache;
 import eu.modernmt.processing.Postprocessor;
 import eu.modernmt.processing.Preprocessor;
 import eu.modernmt.processing.framework.ProcessingException;
+import eu.modernmt.processing.framework.concurrent.ProcessingScheduler;
 import org.apache.commons.io.FileUtils;
 
 import java.io.File;
@@ -53,6 +57,9 @@ public class Engine {
         this.name = config.getName();
         this.root = new File(Const.fs.engines, config.getName());
         this.runtime = new File(Const.fs.runtime, name);
+
+        if (config.getProcessingThreads() > 0)
+            ProcessingScheduler.getInstance().setThreads(config.getProcessingThreads());
     }
 
     public EngineConfig getConfig() {
@@ -67,15 +74,25 @@ public class Engine {
         if (decoder == null) {
             synchronized (this) {
                 if (decoder == null) {
+                    DecoderConfig decoderConfig = config.getDecoderConfig();
+
                     DecoderFactory factory = DecoderFactory.getInstance();
                     factory.setEnginePath(root);
                     factory.setRuntimePath(runtime);
-                    factory.setFeatureWeights(config.getDecoderConfig().getWeights());
+                    factory.setFeatureWeights(decoderConfig.getWeights());
                     factory.setDecoderThreads(threads);
 
                     try {
-                        decoder = factory.create();
+                        Decoder decoder = factory.create();
                         decoder.load();
+
+                        if (decoderConfig.getTranslationCacheSize() > 0) {
+                            TranslationCache cache = new TranslationCache(decoderConfig.getTranslationCacheSize(),
+                                    decoderConfig.isTranslationCacheOffHeap());
+                            decoder = new CachedDecoder(decoder, cache);
+                        }
+
+                        this.decoder = decoder;
                     } catch (IOException e) {
                         throw new LazyLoadException(e);
                     }
@@ -92,6 +109,7 @@ public class Engine {
                 if (aligner == null) {
                     AlignerFactory factory = AlignerFactory.getInstance();
                     factory.setEnginePath(root);
+                    factory.setPoolSize(config.getAlignerConfig().getPoolSize());
 
                     try {
                         aligner = factory.create();
@@ -111,7 +129,9 @@ public class Engine {
             synchronized (this) {
                 if (preprocessor == null) {
                     try {
-                        preprocessor = new Preprocessor(config.getSourceLanguage(), config.getTargetLanguage());
+                        Preprocessor preprocessor = new Preprocessor(config.getSourceLanguage(), config.getTargetLanguage());
+                        preprocessor.setCallerRuns(true);
+                        this.preprocessor = preprocessor;
                     } catch (ProcessingException e) {
                         throw new LazyLoadException(e);
                     }
@@ -127,7 +147,9 @@ public class Engine {
             synchronized (this) {
                 if (postprocessor == null) {
                     try {
-                        postprocessor = new Postprocessor(config.getSourceLanguage(), config.getTargetLanguage());
+                        Postprocessor postprocessor = new Postprocessor(config.getSourceLanguage(), config.getTargetLanguage());
+                        postprocessor.setCallerRuns(true);
+                        this.postprocessor = postprocessor;
                     } catch (ProcessingException e) {
                         throw new LazyLoadException(e);
                     }
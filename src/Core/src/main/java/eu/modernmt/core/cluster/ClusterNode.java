@@ -15,6 +15,7 @@ import eu.modernmt.core.cluster.executor.DistributedCallable;
 import eu.modernmt.core.cluster.executor.DistributedExecutor;
 import eu.modernmt.core.cluster.executor.ExecutorDaemon;
 import eu.modernmt.core.cluster.storage.StorageService;
+import eu.modernmt.core.config.ContextAnalyzerConfig;
 import eu.modernmt.core.config.EngineConfig;
 import eu.modernmt.core.config.INIEngineConfigWriter;
 import eu.modernmt.decoder.Decoder;
@@ -26,6 +27,10 @@ import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
@@ -54,6 +59,10 @@ public class ClusterNode {
                 executor.shutdown();
             if (executorDaemon != null)
                 executorDaemon.shutdown();
+            if (batchExecutor != null)
+                batchExecutor.shutdown();
+            if (asyncExecutor != null)
+                asyncExecutor.shutdown();
             hazelcast.shutdown();
 
             try {
@@ -70,6 +79,20 @@ public class ClusterNode {
                 // Ignore exception
             }
 
+            try {
+                if (batchExecutor != null)
+                    batchExecutor.awaitTermination(1, TimeUnit.DAYS);
+            } catch (InterruptedException e) {
+                // Ignore exception
+            }
+
+            try {
+                if (asyncExecutor != null)
+                    asyncExecutor.awaitTermination(1, TimeUnit.DAYS);
+            } catch (InterruptedException e) {
+                // Ignore exception
+            }
+
             shutdownState = SHUTDOWN_COMPLETED;
         }
     };
@@ -83,8 +106,12 @@ public class ClusterNode {
 
     private HazelcastInstance hazelcast;
     private ExecutorDaemon executorDaemon;
+    private ExecutorService batchExecutor;
+    private ExecutorService asyncExecutor;
+    private Semaphore decoderPermits;
     private DistributedExecutor executor;
     private SessionManager sessionManager;
+    private ContextCache contextCache;
     private ITopic<Map<String, float[]>> decoderWeightsTopic;
 
     public ClusterNode(int controlPort, int dataPort) {
@@ -165,7 +192,15 @@ public class ClusterNode {
 
         executor = new DistributedExecutor(hazelcast, ClusterConstants.TRANSLATION_EXECUTOR_NAME);
         executorDaemon = new ExecutorDaemon(hazelcast, this, ClusterConstants.TRANSLATION_EXECUTOR_NAME, capacity);
+        batchExecutor = Executors.newFixedThreadPool(capacity);
+        decoderPermits = new Semaphore(capacity, true);
+        asyncExecutor = Executors.newFixedThreadPool(capacity);
         sessionManager = new SessionManager(hazelcast, event -> engine.getDecoder().closeSession(event.getOldValue()));
+
+        ContextAnalyzerConfig contextConfig = config.getContextAnalyzerConfig();
+        if (contextConfig.getCacheSize() > 0)
+            contextCache = new ContextCache(contextConfig.getCacheSize(), contextConfig.getCacheTTL());
+
         decoderWeightsTopic = hazelcast.getTopic(ClusterConstants.DECODER_WEIGHTS_TOPIC_NAME);
         decoderWeightsTopic.addMessageListener(this::onDecoderWeightsChanged);
 
@@ -206,6 +241,30 @@ public class ClusterNode {
         return sessionManager;
     }
 
+    public ContextCache getContextCache() {
+        return contextCache;
+    }
+
+    public ExecutorService getBatchExecutor() {
+        return batchExecutor;
+    }
+
+    /**
+     * Permits that every translation must hold while decoding, so that single and
+     * batch translations together never exceed the capacity of the node.
+     */
+    public Semaphore getDecoderPermits() {
+        return decoderPermits;
+    }
+
+    /**
+     * Executor for the continuations of asynchronous operations, that must not
+     * run on the cluster thread that completes the operation's future.
+     */
+    public ExecutorService getAsyncExecutor() {
+        return asyncExecutor;
+    }
+
     public void notifyDecoderWeightsChanged(Map<String, float[]> weights) {
         this.decoderWeightsTopic.publish(weights);
     }
@@ -214,6 +273,10 @@ public class ClusterNode {
         return executor.submit(callable);
     }
 
+    public <V> CompletableFuture<V> submitAsync(DistributedCallable<V> callable) {
+        return executor.submitAsync(callable);
+    }
+
     public synchronized void shutdown() {
         if (shutdownState == SHUTDOWN_NOT_INVOKED) {
             shutdownState = SHUTDOWN_INVOKED;
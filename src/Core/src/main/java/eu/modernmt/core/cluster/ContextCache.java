@@ -0,0 +1,181 @@
+package eu.modernmt.core.cluster;
+
+import eu.modernmt.context.ContextDocument;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Created by davide on 17/06/16.
+ * <p>
+ * Node-local LRU cache of context analysis results. Entries are keyed by a digest of the
+ * normalized context text, the result limit and the generation of the local context
+ * analyzer index, so that any index change makes older entries unreachable; they are then
+ * removed by the LRU policy or when their time-to-live expires.
+ */
+public class ContextCache {
+
+    private final int maxSize;
+    private final long ttl;
+    private final LinkedHashMap<Key, Entry> cache;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * Creates a cache of at most maxSize entries, each one valid for ttl seconds (0 for no expiration).
+     */
+    ContextCache(int maxSize, long ttl) {
+        this.maxSize = maxSize;
+        this.ttl = ttl * 1000L;
+        this.cache = new LinkedHashMap<Key, Entry>(16, .75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > ContextCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+
+                return false;
+            }
+
+        };
+    }
+
+    public synchronized List<ContextDocument> get(String context, int limit, long generation) {
+        Key key = new Key(context, limit, generation);
+        Entry entry = cache.get(key);
+
+        if (entry != null && entry.isExpired()) {
+            cache.remove(key);
+            evictions++;
+            entry = null;
+        }
+
+        if (entry == null) {
+            misses++;
+            return null;
+        } else {
+            hits++;
+            return entry.value;
+        }
+    }
+
+    public synchronized void put(String context, int limit, long generation, List<ContextDocument> result) {
+        long expiration = ttl > 0 ? System.currentTimeMillis() + ttl : Long.MAX_VALUE;
+        cache.put(new Key(context, limit, generation), new Entry(new ArrayList<>(result), expiration));
+    }
+
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of entries evicted or expired from the cache.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    static String normalize(String context) {
+        StringBuilder builder = new StringBuilder(context.length());
+        boolean whitespace = false;
+
+        for (int i = 0; i < context.length(); i++) {
+            char c = context.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+                whitespace = builder.length() > 0;
+            } else {
+                if (whitespace)
+                    builder.append(' ');
+                builder.append(c);
+                whitespace = false;
+            }
+        }
+
+        return builder.toString();
+    }
+
+    private static String digest(String text) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new Error("SHA-1 not supported", e);
+        }
+
+        byte[] hash = digest.digest(text.getBytes(StandardCharsets.UTF_8));
+
+        StringBuilder builder = new StringBuilder(hash.length * 2);
+        for (byte b : hash)
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+
+        return builder.toString();
+    }
+
+    private static class Entry {
+
+        private final ArrayList<ContextDocument> value;
+        private final long expiration;
+
+        public Entry(ArrayList<ContextDocument> value, long expiration) {
+            this.value = value;
+            this.expiration = expiration;
+        }
+
+        public boolean isExpired() {
+            return System.currentTimeMillis() > expiration;
+        }
+    }
+
+    private static class Key {
+
+        private final String hash;
+        private final int limit;
+        private final long generation;
+
+        public Key(String context, int limit, long generation) {
+            this.hash = digest(normalize(context));
+            this.limit = limit;
+            this.generation = generation;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key key = (Key) o;
+            return limit == key.limit && generation == key.generation && hash.equals(key.hash);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = hash.hashCode();
+            result = 31 * result + limit;
+            result = 31 * result + (int) (generation ^ (generation >>> 32));
+            return result;
+        }
+    }
+
+}
@@ -6,7 +6,6 @@ import com.hazelcast.core.Message;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
@@ -20,7 +19,7 @@ public class DistributedExecutor extends AbstractExecutorService {
     private static final String OUTCOME_TOPIC_NAME_PREFIX = "cluster.DistributedExecutor.Topic#";
     private static final String ID_GENERATOR_NAME_PREFIX = "cluster.DistributedExecutor.IdGenerator";
 
-    private final HashMap<Long, RemoteFutureTask<?>> pendingTasks = new HashMap<>();
+    private final ConcurrentHashMap<Long, RemoteFutureTask<?>> pendingTasks = new ConcurrentHashMap<>();
     private final AtomicLong taskIdGenerator = new AtomicLong(0L);
     private final String outcomeTopicId;
     private final BlockingQueue<Task> taskQueue;
@@ -85,6 +84,18 @@ public class DistributedExecutor extends AbstractExecutorService {
         return new RemoteFutureTask<>(task, this);
     }
 
+    // The returned future is completed by onTaskOutcome() as soon as
+    // the outcome is received: no thread is blocked waiting for it.
+    public <T> CompletableFuture<T> submitAsync(Callable<T> callable) {
+        if (callable == null)
+            throw new NullPointerException();
+
+        RemoteFutureTask<T> future = newTaskFor(callable);
+        CompletableFuture<T> result = future.getCompletableFuture();
+        execute(future);
+        return result;
+    }
+
     @Override
     public void execute(Runnable command) {
         if (command == null)
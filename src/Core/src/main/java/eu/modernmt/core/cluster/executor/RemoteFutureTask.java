@@ -1,5 +1,7 @@
 package eu.modernmt.core.cluster.executor;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
 
 /**
@@ -9,6 +11,7 @@ class RemoteFutureTask<V> extends FutureTask<V> {
 
     private final DistributedExecutor executor;
     private final Task<V> task;
+    private volatile CompletableFuture<V> listener = null;
 
     public RemoteFutureTask(Task<V> task, DistributedExecutor executor) {
         super(task.callable);
@@ -20,6 +23,54 @@ class RemoteFutureTask<V> extends FutureTask<V> {
         return task;
     }
 
+    public CompletableFuture<V> getCompletableFuture() {
+        if (listener == null) {
+            synchronized (this) {
+                if (listener == null) {
+                    CompletableFuture<V> listener = new CompletableFuture<>();
+                    listener.whenComplete((value, error) -> {
+                        if (listener.isCancelled())
+                            this.cancel(false);
+                    });
+
+                    this.listener = listener;
+
+                    // The outcome could have been received before the listener was created
+                    if (isDone())
+                        notifyListener(listener);
+                }
+            }
+        }
+
+        return listener;
+    }
+
+    @Override
+    protected void done() {
+        CompletableFuture<V> listener;
+        synchronized (this) {
+            listener = this.listener;
+        }
+
+        if (listener != null)
+            notifyListener(listener);
+    }
+
+    private void notifyListener(CompletableFuture<V> listener) {
+        if (isCancelled()) {
+            listener.cancel(false);
+        } else {
+            try {
+                listener.complete(get());
+            } catch (ExecutionException e) {
+                listener.completeExceptionally(e.getCause());
+            } catch (InterruptedException e) {
+                // Cannot happen: the task is already done
+                listener.completeExceptionally(e);
+            }
+        }
+    }
+
     @Override
     public boolean cancel(boolean mayInterruptIfRunning) {
         boolean result = super.cancel(mayInterruptIfRunning);
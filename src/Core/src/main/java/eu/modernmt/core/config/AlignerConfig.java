@@ -6,6 +6,7 @@ package eu.modernmt.core.config;
 public class AlignerConfig {
 
     private boolean enabled = true;
+    private int poolSize = 2;
 
     public boolean isEnabled() {
         return enabled;
@@ -15,4 +16,16 @@ public class AlignerConfig {
         this.enabled = enabled;
     }
 
+    /**
+     * Number of aligner instances per direction, i.e. the number of
+     * alignment queries that can be served concurrently.
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public void setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+    }
+
 }
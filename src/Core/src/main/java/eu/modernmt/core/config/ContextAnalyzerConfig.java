@@ -0,0 +1,46 @@
+package eu.modernmt.core.config;
+
+/**
+ * Created by davide on 06/07/16.
+ */
+public class ContextAnalyzerConfig {
+
+    private long scoringTimeout = 0L;
+    private int cacheSize = 10000;
+    private long cacheTTL = 3600L;
+
+    /**
+     * Maximum time in milliseconds spent scoring the documents of a single
+     * context request, 0 for no limit.
+     */
+    public long getScoringTimeout() {
+        return scoringTimeout;
+    }
+
+    public void setScoringTimeout(long scoringTimeout) {
+        this.scoringTimeout = scoringTimeout;
+    }
+
+    /**
+     * Maximum number of context results cached by each node, 0 to disable the cache.
+     */
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * Time in seconds a cached context result is valid for, 0 for no expiration.
+     */
+    public long getCacheTTL() {
+        return cacheTTL;
+    }
+
+    public void setCacheTTL(long cacheTTL) {
+        this.cacheTTL = cacheTTL;
+    }
+
+}
@@ -8,6 +8,8 @@ import java.util.Map;
 public class DecoderConfig {
 
     private Map<String, float[]> weights;
+    private long translationCacheSize = 0L;
+    private boolean translationCacheOffHeap = false;
 
     public Map<String, float[]> getWeights() {
         return weights;
@@ -17,4 +19,20 @@ public class DecoderConfig {
         this.weights = weights;
     }
 
+    public long getTranslationCacheSize() {
+        return translationCacheSize;
+    }
+
+    public void setTranslationCacheSize(long translationCacheSize) {
+        this.translationCacheSize = translationCacheSize;
+    }
+
+    public boolean isTranslationCacheOffHeap() {
+        return translationCacheOffHeap;
+    }
+
+    public void setTranslationCacheOffHeap(boolean translationCacheOffHeap) {
+        this.translationCacheOffHeap = translationCacheOffHeap;
+    }
+
 }
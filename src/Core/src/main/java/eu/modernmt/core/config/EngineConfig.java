@@ -14,8 +14,10 @@ public class EngineConfig {
     private String name;
     private Locale sourceLanguage;
     private Locale targetLanguage;
+    private int processingThreads = 0;
     private final DecoderConfig decoderConfig = new DecoderConfig();
     private final AlignerConfig alignerConfig = new AlignerConfig();
+    private final ContextAnalyzerConfig contextAnalyzerConfig = new ContextAnalyzerConfig();
 
     public Locale getSourceLanguage() {
         return sourceLanguage;
@@ -41,6 +43,17 @@ public class EngineConfig {
         this.name = name;
     }
 
+    /**
+     * Total number of text processing threads of the node, 0 for the default.
+     */
+    public int getProcessingThreads() {
+        return processingThreads;
+    }
+
+    public void setProcessingThreads(int processingThreads) {
+        this.processingThreads = processingThreads;
+    }
+
     public DecoderConfig getDecoderConfig() {
         return decoderConfig;
     }
@@ -48,4 +61,8 @@ public class EngineConfig {
     public AlignerConfig getAlignerConfig() {
         return alignerConfig;
     }
+
+    public ContextAnalyzerConfig getContextAnalyzerConfig() {
+        return contextAnalyzerConfig;
+    }
 }
@@ -36,6 +36,8 @@ public class INIEngineConfigBuilder {
         readEngineConfig(engineConfig, getSection(config, "engine"));
         readAlignerConfig(engineConfig.getAlignerConfig(), getSection(config, "engine"));
         readDecoderConfig(engineConfig.getDecoderConfig(), getSection(config, "weights", null));
+        readTranslationCacheConfig(engineConfig.getDecoderConfig(), getSection(config, "engine"));
+        readContextAnalyzerConfig(engineConfig.getContextAnalyzerConfig(), getSection(config, "engine"));
 
         return engineConfig;
     }
@@ -62,10 +64,27 @@ public class INIEngineConfigBuilder {
 
         config.setSourceLanguage(source);
         config.setTargetLanguage(target);
+        config.setProcessingThreads(section.getInt("processing_threads", 0));
     }
 
     private static void readAlignerConfig(AlignerConfig alignerConfig, SubnodeConfiguration section) {
         alignerConfig.setEnabled(section.getBoolean("enable_tag_projection", true));
+        alignerConfig.setPoolSize(section.getInt("aligner_pool_size", alignerConfig.getPoolSize()));
+    }
+
+    private static void readTranslationCacheConfig(DecoderConfig config, SubnodeConfiguration section) {
+        // Size in MB, 0 disables the cache
+        config.setTranslationCacheSize(section.getLong("translation_cache_size", 0L) * 1024L * 1024L);
+        config.setTranslationCacheOffHeap(section.getBoolean("translation_cache_off_heap", false));
+    }
+
+    private static void readContextAnalyzerConfig(ContextAnalyzerConfig config, SubnodeConfiguration section) {
+        // Time in milliseconds, 0 for no limit
+        config.setScoringTimeout(section.getLong("context_scoring_timeout", 0L));
+        // Entries per node, 0 to disable the cache
+        config.setCacheSize(section.getInt("context_cache_size", config.getCacheSize()));
+        // Time in seconds, 0 for no expiration
+        config.setCacheTTL(section.getLong("context_cache_ttl", config.getCacheTTL()));
     }
 
     private static void readDecoderConfig(DecoderConfig config, SubnodeConfiguration section) {
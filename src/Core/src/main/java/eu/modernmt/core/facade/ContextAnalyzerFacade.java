@@ -4,12 +4,16 @@ import eu.modernmt.context.ContextAnalyzer;
 import eu.modernmt.context.ContextAnalyzerException;
 import eu.modernmt.context.ContextDocument;
 import eu.modernmt.core.Engine;
+import eu.modernmt.core.cluster.ContextCache;
 import eu.modernmt.core.cluster.error.SystemShutdownException;
 import eu.modernmt.core.facade.operations.GetContextOperation;
 
 import java.io.File;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 
 /**
@@ -23,8 +27,9 @@ public class ContextAnalyzerFacade {
         Engine engine = ModernMT.node.getEngine();
         Locale lang = engine.getSourceLanguage();
         ContextAnalyzer analyzer = engine.getContextAnalyzer();
+        long timeout = engine.getConfig().getContextAnalyzerConfig().getScoringTimeout();
 
-        return analyzer.getContext(context, lang, limit);
+        return analyzer.getContext(context, lang, limit, timeout).getDocuments();
     }
 
     public List<ContextDocument> get(String context, int limit) throws ContextAnalyzerException {
@@ -39,8 +44,38 @@ public class ContextAnalyzerFacade {
         }
     }
 
+    public CompletableFuture<List<ContextDocument>> getAsync(String context, int limit) {
+        GetContextOperation operation = new GetContextOperation(context, limit);
+
+        return ModernMT.node.submitAsync(operation).handle((result, error) -> {
+            if (error != null)
+                throw new CompletionException(unwrap(error));
+
+            return result;
+        });
+    }
+
+    /**
+     * Returns the runtime statistics of the local context analyzer.
+     */
+    public Map<String, Number> getStatistics() {
+        return ModernMT.node.getEngine().getContextAnalyzer().getStatistics();
+    }
+
+    /**
+     * Returns the context cache of the local node, or null if the cache is disabled.
+     */
+    public ContextCache getCache() {
+        return ModernMT.node.getContextCache();
+    }
+
     private static ContextAnalyzerException unwrap(ExecutionException e) {
-        Throwable cause = e.getCause();
+        return unwrap(e.getCause());
+    }
+
+    private static ContextAnalyzerException unwrap(Throwable cause) {
+        if (cause instanceof CompletionException && cause.getCause() != null)
+            cause = cause.getCause();
 
         if (cause instanceof ContextAnalyzerException)
             return new ContextAnalyzerException("Problem in context analyzer", cause);
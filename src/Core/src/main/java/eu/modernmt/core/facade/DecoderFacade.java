@@ -3,17 +3,24 @@ package eu.modernmt.core.facade;
 import eu.modernmt.context.ContextDocument;
 import eu.modernmt.core.cluster.SessionManager;
 import eu.modernmt.core.cluster.error.SystemShutdownException;
+import eu.modernmt.core.facade.operations.TranslateBatchOperation;
 import eu.modernmt.core.facade.operations.TranslateOperation;
 import eu.modernmt.decoder.*;
+import eu.modernmt.decoder.cache.CachedDecoder;
+import eu.modernmt.decoder.cache.TranslationCache;
 import eu.modernmt.model.MultiOptionsToken;
 import eu.modernmt.model.Token;
 import eu.modernmt.model.Translation;
 import eu.modernmt.processing.framework.ProcessingException;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
 /**
  * Created by davide on 20/04/16.
@@ -42,6 +49,15 @@ public class DecoderFacade {
         ModernMT.node.notifyDecoderWeightsChanged(weights);
     }
 
+    // =============================
+    //  Translation cache
+    // =============================
+
+    public TranslationCache getTranslationCache() {
+        Decoder decoder = ModernMT.node.getEngine().getDecoder();
+        return decoder instanceof CachedDecoder ? ((CachedDecoder) decoder).getCache() : null;
+    }
+
     // =============================
     //  Translation session
     // =============================
@@ -85,33 +101,162 @@ public class DecoderFacade {
     }
 
     private DecoderTranslation translate(String text, List<ContextDocument> translationContext, long session, boolean textProcessing, int nbest) throws TranslationException {
-        TranslateOperation operation;
+        TranslateOperation operation = newTranslateOperation(text, translationContext, session, textProcessing, nbest);
+        DecoderTranslation rootTranslation;
+
+        try {
+            rootTranslation = ModernMT.node.submit(operation).get();
+        } catch (InterruptedException e) {
+            throw new SystemShutdownException(e);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+
+        translateOptions(rootTranslation, translationContext, session, textProcessing);
+
+        return rootTranslation;
+    }
+
+    private static TranslateOperation newTranslateOperation(String text, List<ContextDocument> translationContext, long session, boolean textProcessing, int nbest) {
+        if (translationContext != null)
+            return new TranslateOperation(text, translationContext, textProcessing, nbest);
+        else if (session > 0)
+            return new TranslateOperation(text, session, textProcessing, nbest);
+        else
+            return new TranslateOperation(text, textProcessing, nbest);
+    }
+
+    // =============================
+    //  TranslateOperation (async)
+    // =============================
+
+    public CompletableFuture<DecoderTranslation> translateAsync(String sentence, boolean textProcessing) {
+        return translateAsync(sentence, null, 0L, textProcessing, 0);
+    }
+
+    public CompletableFuture<DecoderTranslation> translateAsync(String sentence, long sessionId, boolean textProcessing) {
+        return translateAsync(sentence, null, sessionId, textProcessing, 0);
+    }
+
+    public CompletableFuture<DecoderTranslation> translateAsync(String sentence, List<ContextDocument> translationContext, boolean textProcessing) {
+        return translateAsync(sentence, translationContext, 0L, textProcessing, 0);
+    }
+
+    public CompletableFuture<DecoderTranslation> translateAsync(String sentence, boolean textProcessing, int nbest) {
+        return translateAsync(sentence, null, 0L, textProcessing, nbest);
+    }
+
+    public CompletableFuture<DecoderTranslation> translateAsync(String sentence, long sessionId, boolean textProcessing, int nbest) {
+        return translateAsync(sentence, null, sessionId, textProcessing, nbest);
+    }
+
+    public CompletableFuture<DecoderTranslation> translateAsync(String sentence, List<ContextDocument> translationContext, boolean textProcessing, int nbest) {
+        return translateAsync(sentence, translationContext, 0L, textProcessing, nbest);
+    }
+
+    private CompletableFuture<DecoderTranslation> translateAsync(String text, List<ContextDocument> translationContext, long session, boolean textProcessing, int nbest) {
+        TranslateOperation operation = newTranslateOperation(text, translationContext, session, textProcessing, nbest);
+
+        Executor executor = ModernMT.node.getAsyncExecutor();
+
+        return ModernMT.node.submitAsync(operation)
+                .handle((translation, error) -> {
+                    if (error != null)
+                        throw new CompletionException(unwrap(error));
+                    return translation;
+                })
+                .thenComposeAsync(translation -> translateOptionsAsync(translation, translationContext, session, textProcessing), executor);
+    }
+
+    private CompletableFuture<DecoderTranslation> translateOptionsAsync(DecoderTranslation rootTranslation, List<ContextDocument> translationContext, long session, boolean textProcessing) {
+        ArrayList<CompletableFuture<?>> pending = new ArrayList<>();
+
+        for (Token token : rootTranslation) {
+            if (token instanceof MultiOptionsToken) {
+                MultiOptionsToken mop = (MultiOptionsToken) token;
+
+                if (!mop.hasTranslatedOptions()) {
+                    String[] options = mop.getSourceOptions();
+                    Translation[] translations = new Translation[options.length];
+                    CompletableFuture<?>[] futures = new CompletableFuture<?>[options.length];
+
+                    for (int i = 0; i < translations.length; i++) {
+                        final int index = i;
+                        futures[i] = translateAsync(options[i], translationContext, session, textProcessing, 0)
+                                .thenAccept(translation -> translations[index] = translation);
+                    }
+
+                    pending.add(CompletableFuture.allOf(futures).thenRun(() -> mop.setTranslatedOptions(translations)));
+                }
+            }
+        }
+
+        if (pending.isEmpty())
+            return CompletableFuture.completedFuture(rootTranslation);
+        else
+            return CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[pending.size()]))
+                    .thenApplyAsync(aVoid -> rootTranslation, ModernMT.node.getAsyncExecutor());
+    }
+
+    // =============================
+    //  TranslateBatchOperation
+    // =============================
+
+    public List<DecoderTranslation> translate(List<String> sentences, boolean textProcessing) throws TranslationException {
+        return translate(sentences, null, 0L, textProcessing, 0);
+    }
+
+    public List<DecoderTranslation> translate(List<String> sentences, long sessionId, boolean textProcessing) throws TranslationException {
+        return translate(sentences, null, sessionId, textProcessing, 0);
+    }
+
+    public List<DecoderTranslation> translate(List<String> sentences, List<ContextDocument> translationContext, boolean textProcessing) throws TranslationException {
+        return translate(sentences, translationContext, 0L, textProcessing, 0);
+    }
+
+    public List<DecoderTranslation> translate(List<String> sentences, boolean textProcessing, int nbest) throws TranslationException {
+        return translate(sentences, null, 0L, textProcessing, nbest);
+    }
+
+    public List<DecoderTranslation> translate(List<String> sentences, long sessionId, boolean textProcessing, int nbest) throws TranslationException {
+        return translate(sentences, null, sessionId, textProcessing, nbest);
+    }
+
+    public List<DecoderTranslation> translate(List<String> sentences, List<ContextDocument> translationContext, boolean textProcessing, int nbest) throws TranslationException {
+        return translate(sentences, translationContext, 0L, textProcessing, nbest);
+    }
+
+    private List<DecoderTranslation> translate(List<String> texts, List<ContextDocument> translationContext, long session, boolean textProcessing, int nbest) throws TranslationException {
+        if (texts.isEmpty())
+            return new ArrayList<>(0);
+
+        TranslateBatchOperation operation;
 
         if (translationContext != null) {
-            operation = new TranslateOperation(text, translationContext, textProcessing, nbest);
+            operation = new TranslateBatchOperation(texts, translationContext, textProcessing, nbest);
         } else if (session > 0) {
-            operation = new TranslateOperation(text, session, textProcessing, nbest);
+            operation = new TranslateBatchOperation(texts, session, textProcessing, nbest);
         } else {
-            operation = new TranslateOperation(text, textProcessing, nbest);
+            operation = new TranslateBatchOperation(texts, textProcessing, nbest);
         }
 
-        DecoderTranslation rootTranslation;
+        List<DecoderTranslation> translations;
 
         try {
-            rootTranslation = ModernMT.node.submit(operation).get();
+            translations = ModernMT.node.submit(operation).get();
         } catch (InterruptedException e) {
             throw new SystemShutdownException(e);
         } catch (ExecutionException e) {
-            Throwable cause = e.getCause();
-
-            if (cause instanceof ProcessingException)
-                throw new TranslationException("Problem while processing translation", cause);
-            else if (cause instanceof RuntimeException)
-                throw new TranslationException("Unexpected exceptions while translating", cause);
-            else
-                throw new Error("Unexpected exception: " + cause.getMessage(), cause);
+            throw unwrap(e);
         }
 
+        for (DecoderTranslation translation : translations)
+            translateOptions(translation, translationContext, session, textProcessing);
+
+        return translations;
+    }
+
+    private void translateOptions(Translation rootTranslation, List<ContextDocument> translationContext, long session, boolean textProcessing) throws TranslationException {
         for (Token token : rootTranslation) {
             if (token instanceof MultiOptionsToken) {
                 MultiOptionsToken mop = (MultiOptionsToken) token;
@@ -128,8 +273,24 @@ public class DecoderFacade {
                 }
             }
         }
+    }
 
-        return rootTranslation;
+    private static TranslationException unwrap(ExecutionException e) {
+        return unwrap(e.getCause());
+    }
+
+    private static TranslationException unwrap(Throwable cause) {
+        if (cause instanceof CompletionException && cause.getCause() != null)
+            cause = cause.getCause();
+
+        if (cause instanceof TranslationException)
+            return (TranslationException) cause;
+        else if (cause instanceof ProcessingException)
+            return new TranslationException("Problem while processing translation", cause);
+        else if (cause instanceof RuntimeException)
+            return new TranslationException("Unexpected exceptions while translating", cause);
+        else
+            throw new Error("Unexpected exception: " + cause.getMessage(), cause);
     }
 
 }
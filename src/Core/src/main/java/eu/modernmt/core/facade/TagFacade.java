@@ -5,12 +5,15 @@ import eu.modernmt.aligner.symal.SymmetrizationStrategy;
 import eu.modernmt.core.Engine;
 import eu.modernmt.core.cluster.error.SystemShutdownException;
 import eu.modernmt.core.facade.exceptions.validation.LanguagePairNotSupportedException;
+import eu.modernmt.core.facade.operations.ProjectTagsBatchOperation;
 import eu.modernmt.core.facade.operations.ProjectTagsOperation;
 import eu.modernmt.decoder.TranslationException;
 import eu.modernmt.model.Translation;
 import eu.modernmt.processing.Languages;
 import eu.modernmt.processing.framework.ProcessingException;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.ExecutionException;
 
@@ -31,19 +34,40 @@ public class TagFacade {
         } catch (InterruptedException e) {
             throw new SystemShutdownException();
         } catch (ExecutionException e) {
-            Throwable cause = e.getCause();
+            throw unwrap(e.getCause());
+        }
+    }
+
+    public List<Translation> project(List<String> sentences, List<String> translations, Locale sourceLanguage, Locale targetLanguage) throws TranslationException, LanguagePairNotSupportedException {
+        return project(sentences, translations, sourceLanguage, targetLanguage, null);
+    }
 
-            if (cause instanceof ProcessingException)
-                throw new TranslationException("Problem while processing translation", cause);
-            else if (cause instanceof AlignerException)
-                throw new TranslationException("Problem while computing alignments", cause);
-            else if (cause instanceof RuntimeException)
-                throw new TranslationException("Unexpected exceptions while projecting tags", cause);
-            else
-                throw new Error("Unexpected exception: " + cause.getMessage(), cause);
+    public List<Translation> project(List<String> sentences, List<String> translations, Locale sourceLanguage, Locale targetLanguage, SymmetrizationStrategy strategy) throws TranslationException, LanguagePairNotSupportedException {
+        if (sentences.isEmpty())
+            return new ArrayList<>(0);
+
+        boolean inverted = isLanguagesInverted(sourceLanguage, targetLanguage);
+        ProjectTagsBatchOperation operation = new ProjectTagsBatchOperation(sentences, translations, inverted, strategy);
+        try {
+            return ModernMT.node.submit(operation).get();
+        } catch (InterruptedException e) {
+            throw new SystemShutdownException();
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
         }
     }
 
+    private static TranslationException unwrap(Throwable cause) {
+        if (cause instanceof ProcessingException)
+            return new TranslationException("Problem while processing translation", cause);
+        else if (cause instanceof AlignerException)
+            return new TranslationException("Problem while computing alignments", cause);
+        else if (cause instanceof RuntimeException)
+            return new TranslationException("Unexpected exceptions while projecting tags", cause);
+        else
+            throw new Error("Unexpected exception: " + cause.getMessage(), cause);
+    }
+
     public boolean isLanguagesSupported(Locale sourceLanguage, Locale targetLanguage)
             throws LanguagePairNotSupportedException {
         isLanguagesInverted(sourceLanguage, targetLanguage);
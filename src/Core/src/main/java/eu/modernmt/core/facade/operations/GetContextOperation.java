@@ -3,7 +3,9 @@ package eu.modernmt.core.facade.operations;
 import eu.modernmt.context.ContextAnalyzer;
 import eu.modernmt.context.ContextAnalyzerException;
 import eu.modernmt.context.ContextDocument;
+import eu.modernmt.context.ContextResult;
 import eu.modernmt.core.Engine;
+import eu.modernmt.core.cluster.ContextCache;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -36,8 +38,32 @@ public class GetContextOperation extends Operation<ArrayList<ContextDocument>> {
         Engine engine = getEngine();
         ContextAnalyzer analyzer = engine.getContextAnalyzer();
         Locale lang = engine.getSourceLanguage();
+        long timeout = engine.getConfig().getContextAnalyzerConfig().getScoringTimeout();
 
-        List<ContextDocument> result = (file == null) ? analyzer.getContext(text, lang, limit) : analyzer.getContext(file, lang, limit);
+        if (file != null)
+            return wrap(analyzer.getContext(file, lang, limit, timeout).getDocuments());
+
+        // The cache is local to the node running the operation, like the analyzer generation
+        ContextCache cache = getLocalNode().getContextCache();
+        if (cache == null)
+            return wrap(analyzer.getContext(text, lang, limit, timeout).getDocuments());
+
+        long generation = analyzer.getGeneration();
+
+        List<ContextDocument> documents = cache.get(text, limit, generation);
+        if (documents == null) {
+            ContextResult result = analyzer.getContext(text, lang, limit, timeout);
+            documents = result.getDocuments();
+
+            // Results cut short by the scoring timeout are not cached
+            if (result.isComplete())
+                cache.put(text, limit, generation, documents);
+        }
+
+        return wrap(documents);
+    }
+
+    private static ArrayList<ContextDocument> wrap(List<ContextDocument> result) {
 
         if (result instanceof ArrayList)
             return (ArrayList<ContextDocument>) result;
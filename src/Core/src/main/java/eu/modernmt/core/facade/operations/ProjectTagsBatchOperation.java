@@ -0,0 +1,84 @@
+package eu.modernmt.core.facade.operations;
+
+import eu.modernmt.aligner.Aligner;
+import eu.modernmt.aligner.AlignerException;
+import eu.modernmt.aligner.symal.SymmetrizationStrategy;
+import eu.modernmt.core.Engine;
+import eu.modernmt.model.Alignment;
+import eu.modernmt.model.Sentence;
+import eu.modernmt.model.Translation;
+import eu.modernmt.processing.framework.ProcessingException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Created by davide on 23/06/16.
+ * <p>
+ * Projects the tags of a whole list of sentence pairs with a single distributed task:
+ * sentences and translations are preprocessed with one pipeline call each and aligned
+ * with one batch request to the aligner.
+ */
+public class ProjectTagsBatchOperation extends Operation<ArrayList<Translation>> {
+
+    private static final Logger logger = LogManager.getLogger(ProjectTagsBatchOperation.class);
+
+    private ArrayList<String> sentences;
+    private ArrayList<String> translations;
+    private final SymmetrizationStrategy strategy;
+    private final boolean inverted;
+
+    public ProjectTagsBatchOperation(List<String> sentences, List<String> translations, boolean inverted, SymmetrizationStrategy strategy) {
+        if (sentences.size() != translations.size())
+            throw new IllegalArgumentException("Sentences and translations have different sizes");
+
+        this.sentences = new ArrayList<>(sentences);
+        this.translations = new ArrayList<>(translations);
+        this.strategy = strategy;
+        this.inverted = inverted;
+    }
+
+    @Override
+    public ArrayList<Translation> call() throws ProcessingException, AlignerException {
+        Engine engine = getEngine();
+        Aligner aligner = engine.getAligner();
+
+        long beginTime = System.currentTimeMillis();
+
+        List<String> sentenceStrings = this.inverted ? this.translations : this.sentences;
+        List<String> translationStrings = this.inverted ? this.sentences : this.translations;
+
+        List<Sentence> sentences = engine.getPreprocessor().process(sentenceStrings, true);
+        List<Sentence> translations = ProjectTagsOperation.getTargetPreprocessor(engine).process(translationStrings, true);
+
+        ProjectTagsOperation.setSymmetrizationStrategy(aligner, this.strategy);
+
+        List<Alignment> alignments = aligner.getAlignments(sentences, translations);
+
+        ArrayList<Translation> result = new ArrayList<>(alignments.size());
+        for (int i = 0; i < alignments.size(); i++) {
+            Sentence sentence = sentences.get(i);
+            Sentence translation = translations.get(i);
+            Alignment alignment = alignments.get(i);
+
+            if (this.inverted) {
+                alignment = alignment.invert();
+                Sentence tmp = sentence;
+                sentence = translation;
+                translation = tmp;
+            }
+
+            result.add(ProjectTagsOperation.project(sentence, translation, alignment));
+        }
+
+        if (logger.isDebugEnabled()) {
+            long elapsed = System.currentTimeMillis() - beginTime;
+            logger.debug("Total time for tags projection of " + result.size() + " sentences: " + elapsed + " [ms]");
+        }
+
+        return result;
+    }
+
+}
@@ -5,6 +5,7 @@ import eu.modernmt.aligner.AlignerException;
 import eu.modernmt.aligner.SymmetrizedAligner;
 import eu.modernmt.aligner.symal.SymmetrizationStrategy;
 import eu.modernmt.core.Engine;
+import eu.modernmt.model.Alignment;
 import eu.modernmt.model.Sentence;
 import eu.modernmt.model.Translation;
 import eu.modernmt.processing.Preprocessor;
@@ -50,14 +51,6 @@ public class ProjectTagsOperation extends Operation<Translation> {
         Aligner aligner = engine.getAligner();
         Preprocessor preprocessor = engine.getPreprocessor();
 
-        if (targetPreprocessor == null) {
-            synchronized (ProjectTagsOperation.class) {
-                if (targetPreprocessor == null) {
-                    targetPreprocessor = new Preprocessor(engine.getTargetLanguage());
-                }
-            }
-        }
-
         long beginTime = System.currentTimeMillis();
         long endTime;
 
@@ -65,27 +58,20 @@ public class ProjectTagsOperation extends Operation<Translation> {
         String translationString = this.inverted ? this.sentenceString : this.translationString;
 
         Sentence sentence = preprocessor.process(sentenceString, true);
-        Sentence translation = targetPreprocessor.process(translationString, true);
+        Sentence translation = getTargetPreprocessor(engine).process(translationString, true);
 
-        if (this.strategy != null) {
-            if (aligner instanceof SymmetrizedAligner)
-                ((SymmetrizedAligner) aligner).setSymmetrizationStrategy(this.strategy);
-            else
-                throw new AlignerException("Symmetrization strategy specified but aligner is not an instance of " +
-                        "SymmetrizedAligner: " + aligner.getClass());
-        }
+        setSymmetrizationStrategy(aligner, this.strategy);
 
-        int[][] alignments = aligner.getAlignments(sentence, translation);
+        Alignment alignments = aligner.getAlignments(sentence, translation);
 
         if (this.inverted) {
-            Aligner.invertAlignments(alignments);
+            alignments = alignments.invert();
             Sentence tmp = sentence;
             sentence = translation;
             translation = tmp;
         }
 
-        Translation taggedTranslation = new Translation(translation.getWords(), sentence, alignments);
-        tagProjector.call(taggedTranslation, null);
+        Translation taggedTranslation = project(sentence, translation, alignments);
 
         endTime = System.currentTimeMillis();
         if (logger.isDebugEnabled()) {
@@ -95,4 +81,34 @@ public class ProjectTagsOperation extends Operation<Translation> {
         return taggedTranslation;
     }
 
+    static Preprocessor getTargetPreprocessor(Engine engine) throws ProcessingException {
+        if (targetPreprocessor == null) {
+            synchronized (ProjectTagsOperation.class) {
+                if (targetPreprocessor == null) {
+                    Preprocessor preprocessor = new Preprocessor(engine.getTargetLanguage());
+                    preprocessor.setCallerRuns(true);
+                    targetPreprocessor = preprocessor;
+                }
+            }
+        }
+
+        return targetPreprocessor;
+    }
+
+    static void setSymmetrizationStrategy(Aligner aligner, SymmetrizationStrategy strategy) throws AlignerException {
+        if (strategy != null) {
+            if (aligner instanceof SymmetrizedAligner)
+                ((SymmetrizedAligner) aligner).setSymmetrizationStrategy(strategy);
+            else
+                throw new AlignerException("Symmetrization strategy specified but aligner is not an instance of " +
+                        "SymmetrizedAligner: " + aligner.getClass());
+        }
+    }
+
+    static Translation project(Sentence sentence, Sentence translation, Alignment alignments) throws ProcessingException {
+        Translation taggedTranslation = new Translation(translation.getWords(), sentence, alignments);
+        tagProjector.call(taggedTranslation, null);
+        return taggedTranslation;
+    }
+
 }
@@ -0,0 +1,146 @@
+package eu.modernmt.core.facade.operations;
+
+import eu.modernmt.context.ContextDocument;
+import eu.modernmt.core.Engine;
+import eu.modernmt.core.cluster.SessionManager;
+import eu.modernmt.decoder.Decoder;
+import eu.modernmt.decoder.DecoderTranslation;
+import eu.modernmt.decoder.TranslationHypothesis;
+import eu.modernmt.decoder.TranslationSession;
+import eu.modernmt.model.Sentence;
+import eu.modernmt.processing.Postprocessor;
+import eu.modernmt.processing.Preprocessor;
+import eu.modernmt.processing.framework.ProcessingException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Created by davide on 10/06/16.
+ * <p>
+ * Translates a whole list of sentences with a single distributed task: all the sentences are
+ * preprocessed with one pipeline call, decoded concurrently on the local node (sharing the
+ * node's decoder permits with single translations) and finally postprocessed in one pass.
+ */
+public class TranslateBatchOperation extends Operation<ArrayList<DecoderTranslation>> {
+
+    private ArrayList<String> texts;
+    private List<ContextDocument> translationContext;
+    private Long session;
+    private boolean processing;
+    private int nbest;
+
+    public TranslateBatchOperation(List<String> texts, boolean processing, int nbest) {
+        this.texts = new ArrayList<>(texts);
+        this.processing = processing;
+        this.nbest = nbest;
+    }
+
+    public TranslateBatchOperation(List<String> texts, List<ContextDocument> translationContext, boolean processing, int nbest) {
+        this.texts = new ArrayList<>(texts);
+        this.translationContext = translationContext;
+        this.processing = processing;
+        this.nbest = nbest;
+    }
+
+    public TranslateBatchOperation(List<String> texts, long session, boolean processing, int nbest) {
+        this.texts = new ArrayList<>(texts);
+        this.session = session;
+        this.translationContext = null;
+        this.processing = processing;
+        this.nbest = nbest;
+    }
+
+    @Override
+    public ArrayList<DecoderTranslation> call() throws ProcessingException, InterruptedException {
+        Engine engine = getEngine();
+        Decoder decoder = engine.getDecoder();
+        Preprocessor preprocessor = engine.getPreprocessor();
+        Postprocessor postprocessor = engine.getPostprocessor();
+        ExecutorService executor = getLocalNode().getBatchExecutor();
+        Semaphore permits = getLocalNode().getDecoderPermits();
+
+        TranslationSession session = null;
+        if (this.session != null) {
+            SessionManager sessionManager = getLocalNode().getSessionManager();
+            session = sessionManager.get(this.session);
+
+            if (session == null)
+                throw new IllegalArgumentException("Session not found: " + this.session);
+        }
+
+        List<Sentence> sentences = preprocessor.process(texts, processing);
+
+        ArrayList<Future<DecoderTranslation>> futures = new ArrayList<>(sentences.size());
+        for (Sentence sentence : sentences)
+            futures.add(executor.submit(new DecodeTask(decoder, permits, sentence, session)));
+
+        ArrayList<DecoderTranslation> translations = new ArrayList<>(futures.size());
+
+        try {
+            for (Future<DecoderTranslation> future : futures)
+                translations.add(future.get());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            else
+                throw new RuntimeException("Unexpected exception", cause);
+        } finally {
+            for (Future<DecoderTranslation> future : futures)
+                future.cancel(true);
+        }
+
+        postprocessor.process(translations);
+
+        if (nbest > 0) {
+            ArrayList<TranslationHypothesis> hypotheses = new ArrayList<>(translations.size() * nbest);
+            for (DecoderTranslation translation : translations) {
+                if (translation.hasNbest())
+                    hypotheses.addAll(translation.getNbest());
+            }
+
+            if (!hypotheses.isEmpty())
+                postprocessor.process(hypotheses);
+        }
+
+        return translations;
+    }
+
+    private class DecodeTask implements Callable<DecoderTranslation> {
+
+        private final Decoder decoder;
+        private final Semaphore permits;
+        private final Sentence sentence;
+        private final TranslationSession session;
+
+        private DecodeTask(Decoder decoder, Semaphore permits, Sentence sentence, TranslationSession session) {
+            this.decoder = decoder;
+            this.permits = permits;
+            this.sentence = sentence;
+            this.session = session;
+        }
+
+        @Override
+        public DecoderTranslation call() throws InterruptedException {
+            permits.acquire();
+            try {
+                if (session != null)
+                    return nbest > 0 ? decoder.translate(sentence, session, nbest) : decoder.translate(sentence, session);
+                else if (translationContext != null)
+                    return nbest > 0 ? decoder.translate(sentence, translationContext, nbest) : decoder.translate(sentence, translationContext);
+                else
+                    return nbest > 0 ? decoder.translate(sentence, nbest) : decoder.translate(sentence);
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+}
@@ -12,6 +12,7 @@ import eu.modernmt.processing.Preprocessor;
 import eu.modernmt.processing.framework.ProcessingException;
 
 import java.util.List;
+import java.util.concurrent.Semaphore;
 
 /**
  * Created by davide on 21/04/16.
@@ -46,27 +47,37 @@ public class TranslateOperation extends Operation<DecoderTranslation> {
     }
 
     @Override
-    public DecoderTranslation call() throws ProcessingException {
+    public DecoderTranslation call() throws ProcessingException, InterruptedException {
         Engine engine = getEngine();
         Decoder decoder = engine.getDecoder();
         Preprocessor preprocessor = engine.getPreprocessor();
         Postprocessor postprocessor = engine.getPostprocessor();
 
+        Semaphore permits = getLocalNode().getDecoderPermits();
+
         Sentence sentence = preprocessor.process(text, processing);
 
-        DecoderTranslation translation;
-        if (session != null) {
+        TranslationSession session = null;
+        if (this.session != null) {
             SessionManager sessionManager = getLocalNode().getSessionManager();
-            TranslationSession session = sessionManager.get(this.session);
+            session = sessionManager.get(this.session);
 
             if (session == null)
                 throw new IllegalArgumentException("Session not found: " + this.session);
+        }
+
+        DecoderTranslation translation;
 
-            translation = nbest > 0 ? decoder.translate(sentence, session, nbest) : decoder.translate(sentence, session);
-        } else if (translationContext != null) {
-            translation = nbest > 0 ? decoder.translate(sentence, translationContext, nbest) : decoder.translate(sentence, translationContext);
-        } else {
-            translation = nbest > 0 ? decoder.translate(sentence, nbest) : decoder.translate(sentence);
+        permits.acquire();
+        try {
+            if (session != null)
+                translation = nbest > 0 ? decoder.translate(sentence, session, nbest) : decoder.translate(sentence, session);
+            else if (translationContext != null)
+                translation = nbest > 0 ? decoder.translate(sentence, translationContext, nbest) : decoder.translate(sentence, translationContext);
+            else
+                translation = nbest > 0 ? decoder.translate(sentence, nbest) : decoder.translate(sentence);
+        } finally {
+            permits.release();
         }
 
         postprocessor.process(translation);
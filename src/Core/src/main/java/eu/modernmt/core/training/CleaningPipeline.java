@@ -1,8 +1,12 @@
 package eu.modernmt.core.training;
 
+import eu.modernmt.core.training.cleaning.CrossCorpusDeduplicator;
 import eu.modernmt.core.training.cleaning.DraftFilter;
 import eu.modernmt.core.training.cleaning.FilteredBilingualCorpus;
+import eu.modernmt.core.training.cleaning.MemoryBudget;
 import eu.modernmt.model.BilingualCorpus;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -22,23 +26,35 @@ public class CleaningPipeline {
 
     private static final int MAX_IO_THREADS = 10;
 
-    private ArrayList<BilingualCorpus> bilingualCorpora = new ArrayList<>();
+    private final Logger logger = LogManager.getLogger(getClass());
+
+    private ArrayList<FilteredBilingualCorpus> bilingualCorpora = new ArrayList<>();
+
+    // Filters of all the corpora are initialized concurrently and share the same budget
+    private final MemoryBudget memoryBudget;
 
     private final OutputCorpusFactory outputFactory;
     private final Locale sourceLanguage;
     private final Locale targetLanguage;
 
     private int ioThreads = MAX_IO_THREADS;
+    private boolean removeNearDuplicates = true;
+    private double nearDuplicatesThreshold = CrossCorpusDeduplicator.DEFAULT_THRESHOLD;
 
     public CleaningPipeline(OutputCorpusFactory outputFactory, Locale source, Locale target) {
+        this(outputFactory, source, target, new MemoryBudget());
+    }
+
+    public CleaningPipeline(OutputCorpusFactory outputFactory, Locale source, Locale target, MemoryBudget memoryBudget) {
         this.outputFactory = outputFactory;
         this.sourceLanguage = source;
         this.targetLanguage = target;
+        this.memoryBudget = memoryBudget;
     }
 
     public void add(BilingualCorpus corpus) {
         FilteredBilingualCorpus filteredCorpus = new FilteredBilingualCorpus(corpus);
-        filteredCorpus.addFilter(new DraftFilter());
+        filteredCorpus.addFilter(new DraftFilter(memoryBudget));
 
         this.bilingualCorpora.add(filteredCorpus);
     }
@@ -62,24 +78,78 @@ public class CleaningPipeline {
         this.ioThreads = ioThreads;
     }
 
+    public boolean isRemoveNearDuplicates() {
+        return removeNearDuplicates;
+    }
+
+    /**
+     * If false, only exact duplicates are removed across corpora.
+     */
+    public void setRemoveNearDuplicates(boolean removeNearDuplicates) {
+        this.removeNearDuplicates = removeNearDuplicates;
+    }
+
+    public double getNearDuplicatesThreshold() {
+        return nearDuplicatesThreshold;
+    }
+
+    /**
+     * Sets the similarity of the words of two pairs, between 0 and 1 (exclusive), from
+     * which they are considered near duplicates; see CrossCorpusDeduplicator.
+     */
+    public void setNearDuplicatesThreshold(double nearDuplicatesThreshold) {
+        if (nearDuplicatesThreshold <= 0 || nearDuplicatesThreshold >= 1)
+            throw new IllegalArgumentException();
+
+        this.nearDuplicatesThreshold = nearDuplicatesThreshold;
+    }
+
     public void process() throws InterruptedException, IOException {
         int totalCorporaCount = this.bilingualCorpora.size();
         int ioThreads = Math.min(Math.min(this.ioThreads, MAX_IO_THREADS), totalCorporaCount);
 
+        CrossCorpusDeduplicator deduplicator = removeNearDuplicates ?
+                new CrossCorpusDeduplicator(memoryBudget, nearDuplicatesThreshold) : new CrossCorpusDeduplicator(memoryBudget);
+        for (FilteredBilingualCorpus corpus : bilingualCorpora)
+            corpus.addFilter(deduplicator.newFilter());
+
         ExecutorService executor = Executors.newFixedThreadPool(ioThreads);
         ExecutorCompletionService<Void> ecs = new ExecutorCompletionService<>(executor);
 
-        int pendingTasks = 0;
+        try {
+            // Duplicates across corpora can be resolved only once all the corpora
+            // have been read, so filters are initialized before cleaning starts
+            for (FilteredBilingualCorpus corpus : bilingualCorpora) {
+                ecs.submit(() -> {
+                    corpus.initialize();
+                    return null;
+                });
+            }
+
+            await(ecs, totalCorporaCount);
 
-        // Enqueue bilingual corpora tasks
-        for (BilingualCorpus corpus : bilingualCorpora) {
-            CleaningCorpusTask task = new CleaningCorpusTask(corpus, outputFactory.getOutput(corpus));
-            ecs.submit(task);
-            pendingTasks++;
+            deduplicator.resolve();
+            logger.info(String.format("Removed %d duplicate pairs out of %d",
+                    deduplicator.getDroppedCount(), deduplicator.getPairsCount()));
+
+            // Enqueue bilingual corpora tasks
+            for (BilingualCorpus corpus : bilingualCorpora)
+                ecs.submit(new CleaningCorpusTask(corpus, outputFactory.getOutput(corpus)));
+
+            await(ecs, totalCorporaCount);
+        } finally {
+            try {
+                executor.shutdownNow();
+                executor.awaitTermination(1, TimeUnit.SECONDS);
+            } finally {
+                deduplicator.close();
+            }
         }
+    }
 
+    private static void await(ExecutorCompletionService<Void> ecs, int tasks) throws InterruptedException, IOException {
         try {
-            for (int i = 0; i < pendingTasks; i++) {
+            for (int i = 0; i < tasks; i++) {
                 ecs.take().get();
             }
         } catch (ExecutionException e) {
@@ -93,9 +163,6 @@ public class CleaningPipeline {
                 throw (RuntimeException) cause;
             else
                 throw new Error("Unexpected exception", cause);
-        } finally {
-            executor.shutdownNow();
-            executor.awaitTermination(1, TimeUnit.SECONDS);
         }
     }
 
@@ -0,0 +1,77 @@
+package eu.modernmt.core.training;
+
+import eu.modernmt.io.LineIndex;
+import eu.modernmt.io.MappedLineReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Created by davide on 28/06/16.
+ * <p>
+ * A byte range of a corpus file that starts at the beginning of a line and ends right
+ * after a newline (or at the end of the file), so that it can be read independently
+ * from the rest of the file.
+ */
+class CorpusChunk {
+
+    private final File file;
+    private final long start;
+    private final long end;
+    private final int firstLine;
+
+    /**
+     * Splits the file in at most count chunks, each one of at least minSize bytes;
+     * chunk boundaries are taken from the file line index.
+     */
+    public static List<CorpusChunk> split(File file, int count, long minSize) throws IOException {
+        long size = file.length();
+        count = (int) Math.max(1, Math.min(count, size / Math.max(1, minSize)));
+
+        LineIndex index = LineIndex.get(file);
+        long[] lines = index.split(count);
+
+        ArrayList<CorpusChunk> chunks = new ArrayList<>(lines.length - 1);
+
+        for (int i = 0; i < lines.length - 1; i++) {
+            long start = index.getOffset(lines[i]);
+            long end = i + 2 == lines.length ? size : index.getOffset(lines[i + 1]);
+
+            chunks.add(new CorpusChunk(file, start, end, (int) lines[i]));
+        }
+
+        return chunks;
+    }
+
+    private CorpusChunk(File file, long start, long end, int firstLine) {
+        this.file = file;
+        this.start = start;
+        this.end = end;
+        this.firstLine = firstLine;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public int getFirstLine() {
+        return firstLine;
+    }
+
+    public Reader getContentReader() throws IOException {
+        return new MappedLineReader(file, start, end);
+    }
+
+    @Override
+    public String toString() {
+        return file + "[" + start + ", " + end + ")";
+    }
+
+}
@@ -1,34 +1,58 @@
 package eu.modernmt.core.training;
 
+import eu.modernmt.constants.Const;
 import eu.modernmt.core.training.partitioning.CorporaPartition;
+import eu.modernmt.core.training.partitioning.CorpusSample;
 import eu.modernmt.core.training.partitioning.PartitionWriter;
 import eu.modernmt.core.training.partitioning.PartitionedInputStream;
+import eu.modernmt.core.training.partitioning.SampledInputStream;
 import eu.modernmt.model.Corpus;
 import eu.modernmt.model.Sentence;
+import eu.modernmt.model.impl.FileCorpus;
 import eu.modernmt.processing.Preprocessor;
 import eu.modernmt.processing.framework.PipelineInputStream;
 import eu.modernmt.processing.framework.PipelineOutputStream;
 import eu.modernmt.processing.framework.ProcessingException;
 import eu.modernmt.processing.util.TokensOutputter;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 
-import java.io.IOException;
+import java.io.*;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Created by davide on 24/02/16.
+ * <p>
+ * Large file corpora are split in chunks at line boundaries that are preprocessed
+ * concurrently in the chunk executor: every chunk is written to a temporary shard and
+ * shards are then concatenated in order. Lines selected for the extra partitions are
+ * written once all chunks are done, so that the partitions content is the same as
+ * with a sequential read.
+ * <p>
+ * If the task has a sample, the corpus is read only once: the sample candidates are held
+ * back and the ones that can no longer be part of the sample are appended to the main
+ * partition at the end. Once the sizes of the extra partitions are known, writeSample()
+ * writes the sampled lines to the extra partitions and appends the remaining candidates.
  */
 class TrainingCorpusTask implements Callable<Void> {
 
     private Preprocessor preprocessor;
+    private ExecutorService chunkExecutor = null;
+    private int chunkCount = 1;
+    private long minChunkSize = Long.MAX_VALUE;
 
     private Corpus corpus;
     private int corpusLines;
 
     private CorporaPartition mainPartition;
     private List<PartitionWriter> extraPartitions = new ArrayList<>();
+    private CorpusSample sample = null;
 
     public TrainingCorpusTask(Preprocessor preprocessor, Corpus corpus, int corpusLines, CorporaPartition mainPartition) {
         this.preprocessor = preprocessor;
@@ -41,15 +65,49 @@ class TrainingCorpusTask implements Callable<Void> {
         extraPartitions.add(new PartitionWriter(partition, corpus, size));
     }
 
+    public void setSample(CorpusSample sample) {
+        this.sample = sample;
+    }
+
+    public CorpusSample getSample() {
+        return sample;
+    }
+
+    public void setChunkExecutor(ExecutorService chunkExecutor, int chunkCount, long minChunkSize) {
+        this.chunkExecutor = chunkExecutor;
+        this.chunkCount = chunkCount;
+        this.minChunkSize = minChunkSize;
+    }
+
     @Override
     public Void call() throws ProcessingException, InterruptedException {
+        if (chunkExecutor != null && chunkCount > 1 && corpus instanceof FileCorpus) {
+            File file = ((FileCorpus) corpus).getFile();
+
+            if (file.length() >= minChunkSize * 2) {
+                List<CorpusChunk> chunks;
+                try {
+                    chunks = CorpusChunk.split(file, chunkCount, minChunkSize);
+                } catch (IOException e) {
+                    throw new ProcessingException("Failed to split corpus '" + corpus.getName() + "'", e);
+                }
+
+                if (chunks.size() > 1) {
+                    processChunks(chunks);
+                    return null;
+                }
+            }
+        }
+
         PipelineInputStream<String> input = null;
         PipelineOutputStream<Sentence> output = null;
 
         try {
             Corpus outCorpus = mainPartition.getDestinationCorpus(this.corpus);
 
-            if (extraPartitions.size() > 0)
+            if (sample != null)
+                input = new SampledInputStream(corpus.getContentReader(), 0, sample);
+            else if (extraPartitions.size() > 0)
                 input = new PartitionedInputStream(corpus, corpusLines, extraPartitions);
             else
                 input = PipelineInputStream.fromReader(corpus.getContentReader());
@@ -57,6 +115,13 @@ class TrainingCorpusTask implements Callable<Void> {
             output = new TokensOutputter(outCorpus.getContentWriter(false), false, true);
 
             preprocessor.process(input, output, true);
+
+            if (sample != null) {
+                IOUtils.closeQuietly(output);
+                output = null;
+
+                append(sample.trim(sample.getCapacity()), outCorpus);
+            }
         } catch (IOException | ProcessingException e) {
             throw new ProcessingException("Failed to process corpus '" + corpus.getName() + "'", e);
         } finally {
@@ -68,4 +133,173 @@ class TrainingCorpusTask implements Callable<Void> {
 
         return null;
     }
+
+    /**
+     * Writes the sampled lines to the extra partitions added after the task has been
+     * executed, and appends the remaining sample candidates to the main partition.
+     */
+    public void writeSample() throws ProcessingException {
+        try {
+            Corpus outCorpus = mainPartition.getDestinationCorpus(this.corpus);
+
+            append(sample.trim(PartitionedInputStream.getExtraLines(extraPartitions)), outCorpus);
+            PartitionedInputStream.writeToPartitions(extraPartitions, sample.getLines());
+        } catch (IOException | ProcessingException e) {
+            throw new ProcessingException("Failed to write partitions of corpus '" + corpus.getName() + "'", e);
+        } finally {
+            extraPartitions.forEach(IOUtils::closeQuietly);
+        }
+    }
+
+    private void append(List<String> lines, Corpus outCorpus) throws IOException, ProcessingException {
+        if (lines.isEmpty())
+            return;
+
+        List<Sentence> sentences = preprocessor.process(lines, true);
+        PipelineOutputStream<Sentence> output = null;
+
+        try {
+            output = new TokensOutputter(outCorpus.getContentWriter(true), false, true);
+
+            for (Sentence sentence : sentences)
+                output.write(sentence);
+        } finally {
+            IOUtils.closeQuietly(output);
+        }
+    }
+
+    private void processChunks(List<CorpusChunk> chunks) throws ProcessingException, InterruptedException {
+        int extraLines = PartitionedInputStream.getExtraLines(extraPartitions);
+
+        ArrayList<File> shards = new ArrayList<>(chunks.size());
+        ArrayList<List<String>> extractedLines = new ArrayList<>(chunks.size());
+        ArrayList<Future<Void>> futures = new ArrayList<>(chunks.size());
+
+        try {
+            Corpus outCorpus = mainPartition.getDestinationCorpus(this.corpus);
+            File shardsDirectory = outCorpus instanceof FileCorpus ? ((FileCorpus) outCorpus).getFile().getParentFile() : null;
+
+            for (int i = 0; i < chunks.size(); i++) {
+                CorpusChunk chunk = chunks.get(i);
+                File shard = File.createTempFile(corpus.getName() + ".", ".shard", shardsDirectory);
+                List<String> extracted = new ArrayList<>();
+                int firstLine = chunk.getFirstLine();
+
+                shards.add(shard);
+                extractedLines.add(extracted);
+
+                futures.add(chunkExecutor.submit(() -> {
+                    PipelineInputStream<String> input = null;
+                    PipelineOutputStream<Sentence> output = null;
+
+                    try {
+                        if (sample != null)
+                            input = new SampledInputStream(chunk.getContentReader(), firstLine, sample);
+                        else
+                            input = new PartitionedInputStream(chunk.getContentReader(), corpusLines, extraLines, firstLine, extracted);
+                        output = new TokensOutputter(new OutputStreamWriter(new FileOutputStream(shard), Const.charset.get()), false, true);
+
+                        preprocessor.process(input, output, true);
+                    } finally {
+                        IOUtils.closeQuietly(input);
+                        IOUtils.closeQuietly(output);
+                    }
+
+                    return null;
+                }));
+            }
+
+            await(futures);
+
+            concatenate(shards, outCorpus);
+
+            if (sample != null)
+                append(sample.trim(sample.getCapacity()), outCorpus);
+
+            if (extraLines > 0) {
+                ArrayList<String> lines = new ArrayList<>();
+                extractedLines.forEach(lines::addAll);
+
+                PartitionedInputStream.writeToPartitions(extraPartitions, lines);
+            }
+        } catch (IOException | ProcessingException e) {
+            throw new ProcessingException("Failed to process corpus '" + corpus.getName() + "'", e);
+        } finally {
+            for (Future<Void> future : futures)
+                future.cancel(true);
+
+            shards.forEach(FileUtils::deleteQuietly);
+            extraPartitions.forEach(IOUtils::closeQuietly);
+        }
+    }
+
+    private static void concatenate(List<File> shards, Corpus outCorpus) throws IOException {
+        if (outCorpus instanceof FileCorpus) {
+            FileOutputStream output = null;
+
+            try {
+                output = new FileOutputStream(((FileCorpus) outCorpus).getFile(), false);
+                FileChannel channel = output.getChannel();
+
+                for (File shard : shards) {
+                    FileInputStream input = null;
+
+                    try {
+                        input = new FileInputStream(shard);
+                        FileChannel shardChannel = input.getChannel();
+
+                        long position = 0;
+                        long size = shardChannel.size();
+                        while (position < size)
+                            position += shardChannel.transferTo(position, size - position, channel);
+                    } finally {
+                        IOUtils.closeQuietly(input);
+                    }
+                }
+            } finally {
+                IOUtils.closeQuietly(output);
+            }
+        } else {
+            Writer writer = null;
+
+            try {
+                writer = outCorpus.getContentWriter(false);
+
+                for (File shard : shards) {
+                    Reader reader = null;
+
+                    try {
+                        reader = new InputStreamReader(new FileInputStream(shard), Const.charset.get());
+                        IOUtils.copy(reader, writer);
+                    } finally {
+                        IOUtils.closeQuietly(reader);
+                    }
+                }
+            } finally {
+                IOUtils.closeQuietly(writer);
+            }
+        }
+    }
+
+    private static void await(List<Future<Void>> futures) throws IOException, ProcessingException, InterruptedException {
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+
+                if (cause instanceof IOException)
+                    throw (IOException) cause;
+                else if (cause instanceof ProcessingException)
+                    throw (ProcessingException) cause;
+                else if (cause instanceof InterruptedException)
+                    throw (InterruptedException) cause;
+                else if (cause instanceof RuntimeException)
+                    throw (RuntimeException) cause;
+                else
+                    throw new Error("Unexpected exception", cause);
+            }
+        }
+    }
+
 }
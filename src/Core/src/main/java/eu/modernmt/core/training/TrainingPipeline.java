@@ -1,25 +1,38 @@
 package eu.modernmt.core.training;
 
 import eu.modernmt.core.training.partitioning.CorporaPartition;
+import eu.modernmt.core.training.partitioning.CorpusSample;
 import eu.modernmt.model.BilingualCorpus;
 import eu.modernmt.model.Corpus;
 import eu.modernmt.processing.Preprocessor;
 import eu.modernmt.processing.framework.ProcessingException;
 import org.apache.commons.io.IOUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.*;
 
 /**
  * Created by davide on 24/02/16.
+ * <p>
+ * By default, the size of every corpus is counted before the extra partitions are filled
+ * with lines picked at regular intervals. In single pass mode, every corpus is read once:
+ * the extra partitions get a seeded random sample of its lines (see CorpusSample) that is
+ * written when all the corpora have been read and their sizes are known.
  */
 public class TrainingPipeline {
 
     private static final int MAX_IO_THREADS = 10;
     private static final double MAX_CORPUS_PARTITION_RATIO = 0.01;
+    private static final long MIN_CHUNK_SIZE = 64L * 1024L * 1024L;
+    private static final long DEFAULT_PARTITIONING_SEED = 0x4D4D54L;
+
+    private final Logger logger = LogManager.getLogger(getClass());
 
     private CorporaPartition mainPartition;
     private ArrayList<CorporaPartition> extraPartitions = new ArrayList<>();
@@ -32,6 +45,8 @@ public class TrainingPipeline {
 
     private int ioThreads = MAX_IO_THREADS;
     private int processingThreads = Runtime.getRuntime().availableProcessors();
+    private boolean singlePassPartitioning = false;
+    private long partitioningSeed = DEFAULT_PARTITIONING_SEED;
 
     public TrainingPipeline(CorporaPartition mainPartition, Locale source, Locale target) {
         this.mainPartition = mainPartition;
@@ -89,6 +104,22 @@ public class TrainingPipeline {
         this.processingThreads = processingThreads;
     }
 
+    public boolean isSinglePassPartitioning() {
+        return singlePassPartitioning;
+    }
+
+    public void setSinglePassPartitioning(boolean singlePassPartitioning) {
+        this.singlePassPartitioning = singlePassPartitioning;
+    }
+
+    public long getPartitioningSeed() {
+        return partitioningSeed;
+    }
+
+    public void setPartitioningSeed(long partitioningSeed) {
+        this.partitioningSeed = partitioningSeed;
+    }
+
     public void process() throws InterruptedException, ProcessingException {
         int totalCorporaCount = this.bilingualCorpora.size() * 2 + this.monolingualCorpora.size();
         int ioThreads = Math.min(Math.min(this.ioThreads, MAX_IO_THREADS), totalCorporaCount);
@@ -97,6 +128,10 @@ public class TrainingPipeline {
         ExecutorService executor = Executors.newFixedThreadPool(ioThreads);
         ExecutorCompletionService<Void> ecs = new ExecutorCompletionService<>(executor);
 
+        // Large corpora are split in chunks read by a separate pool, so that a
+        // dominating corpus does not serialize on a single reader
+        ExecutorService chunkExecutor = Executors.newFixedThreadPool(this.processingThreads);
+
         // Init pipelines
         Preprocessor sourcePreprocessor = new Preprocessor(sourceLanguage, null, processingThreads);
         Preprocessor targetPreprocessor = new Preprocessor(targetLanguage, null, processingThreads);
@@ -104,28 +139,39 @@ public class TrainingPipeline {
         int pendingTasks = 0;
 
         // Enqueue bilingual corpora tasks
-        long bilingualCorporaLines = getCorporaLineCount(bilingualCorpora, ioThreads);
         long extraPartitionsLines = getPartitionsLines(extraPartitions);
+        boolean sampling = singlePassPartitioning && extraPartitionsLines > 0;
+
+        long bilingualCorporaLines = sampling ? 0 : getCorporaLineCount(bilingualCorpora, ioThreads);
+        ArrayList<TrainingCorpusTask> sampledTasks = new ArrayList<>();
 
-        for (BilingualCorpus corpus : bilingualCorpora) {
-            double weight = getAdjustedWeight(corpus, extraPartitionsLines, bilingualCorporaLines);
+        for (int i = 0; i < bilingualCorpora.size(); i++) {
+            BilingualCorpus corpus = bilingualCorpora.get(i);
 
-            int lineCount;
-            try {
-                lineCount = corpus.getLineCount();
-            } catch (IOException e) {
-                throw new ProcessingException("Could not read corpus " + corpus, e);
+            int lineCount = 0;
+            if (!sampling) {
+                try {
+                    lineCount = corpus.getLineCount();
+                } catch (IOException e) {
+                    throw new ProcessingException("Could not read corpus " + corpus, e);
+                }
             }
 
             TrainingCorpusTask sourceTask = new TrainingCorpusTask(sourcePreprocessor, corpus.getSourceCorpus(), lineCount, mainPartition);
             TrainingCorpusTask targetTask = new TrainingCorpusTask(targetPreprocessor, corpus.getTargetCorpus(), lineCount, mainPartition);
-
-            for (CorporaPartition partition : extraPartitions) {
-                int size = (int) Math.round(weight * partition.getSize());
-                if (size > 0) {
-                    sourceTask.addExtraPartition(partition, size);
-                    targetTask.addExtraPartition(partition, size);
-                }
+            sourceTask.setChunkExecutor(chunkExecutor, this.processingThreads, MIN_CHUNK_SIZE);
+            targetTask.setChunkExecutor(chunkExecutor, this.processingThreads, MIN_CHUNK_SIZE);
+
+            if (sampling) {
+                // Both sides must be sampled with the same seed in order to select the same lines
+                long seed = partitioningSeed + i * 0x9E3779B97F4A7C15L;
+                sourceTask.setSample(new CorpusSample(seed, (int) extraPartitionsLines));
+                targetTask.setSample(new CorpusSample(seed, (int) extraPartitionsLines));
+
+                sampledTasks.add(sourceTask);
+                sampledTasks.add(targetTask);
+            } else {
+                addExtraPartitions(sourceTask, targetTask, lineCount, extraPartitionsLines, bilingualCorporaLines);
             }
 
             ecs.submit(sourceTask);
@@ -136,6 +182,7 @@ public class TrainingPipeline {
         // Enqueue monolingual corpora tasks
         for (Corpus corpus : monolingualCorpora) {
             TrainingCorpusTask task = new TrainingCorpusTask(targetPreprocessor, corpus, 0, mainPartition);
+            task.setChunkExecutor(chunkExecutor, this.processingThreads, MIN_CHUNK_SIZE);
             ecs.submit(task);
             pendingTasks += 1;
         }
@@ -144,6 +191,13 @@ public class TrainingPipeline {
             for (int i = 0; i < pendingTasks; i++) {
                 ecs.take().get();
             }
+
+            if (sampling)
+                writeSamples(sampledTasks, extraPartitionsLines);
+
+            logger.info(String.format("Preprocessed %d source lines (%.0f lines/s) and %d target lines (%.0f lines/s)",
+                    sourcePreprocessor.getProcessedCount(), sourcePreprocessor.getThroughput(),
+                    targetPreprocessor.getProcessedCount(), targetPreprocessor.getThroughput()));
         } catch (ExecutionException e) {
             Throwable cause = e.getCause();
 
@@ -160,18 +214,44 @@ public class TrainingPipeline {
             IOUtils.closeQuietly(targetPreprocessor);
 
             executor.shutdownNow();
+            chunkExecutor.shutdownNow();
             executor.awaitTermination(1, TimeUnit.SECONDS);
+            chunkExecutor.awaitTermination(1, TimeUnit.SECONDS);
         }
     }
 
-    private static double getAdjustedWeight(BilingualCorpus corpus, long extraPartitionsLines, long corporaLines) {
-        int corpusLines;
-        try {
-            corpusLines = corpus.getLineCount();
-        } catch (IOException e) {
-            throw new Error("This cannot happen", e);
+    private void addExtraPartitions(TrainingCorpusTask sourceTask, TrainingCorpusTask targetTask,
+                                    long corpusLines, long extraPartitionsLines, long corporaLines) {
+        double weight = getAdjustedWeight(corpusLines, extraPartitionsLines, corporaLines);
+
+        for (CorporaPartition partition : extraPartitions) {
+            int size = (int) Math.round(weight * partition.getSize());
+            if (size > 0) {
+                sourceTask.addExtraPartition(partition, size);
+                targetTask.addExtraPartition(partition, size);
+            }
         }
+    }
+
+    // Sampled tasks come in pairs, source task first
+    private void writeSamples(List<TrainingCorpusTask> tasks, long extraPartitionsLines) throws ProcessingException {
+        long corporaLines = 0;
+        for (int i = 0; i < tasks.size(); i += 2)
+            corporaLines += tasks.get(i).getSample().getLineCount();
+
+        for (int i = 0; i < tasks.size(); i += 2) {
+            TrainingCorpusTask sourceTask = tasks.get(i);
+            TrainingCorpusTask targetTask = tasks.get(i + 1);
+
+            long corpusLines = sourceTask.getSample().getLineCount();
+            addExtraPartitions(sourceTask, targetTask, corpusLines, extraPartitionsLines, corporaLines);
+
+            sourceTask.writeSample();
+            targetTask.writeSample();
+        }
+    }
 
+    private static double getAdjustedWeight(long corpusLines, long extraPartitionsLines, long corporaLines) {
         double weight = ((double) corpusLines) / corporaLines;
         int expectedSize = (int) Math.round(weight * extraPartitionsLines);
         int maxAllowedLines = (int) Math.round(corpusLines * MAX_CORPUS_PARTITION_RATIO);
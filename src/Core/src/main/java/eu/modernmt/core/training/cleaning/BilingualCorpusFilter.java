@@ -2,6 +2,7 @@ package eu.modernmt.core.training.cleaning;
 
 import eu.modernmt.model.BilingualCorpus;
 
+import java.io.Closeable;
 import java.io.IOException;
 
 /**
@@ -9,14 +10,21 @@ import java.io.IOException;
  */
 public interface BilingualCorpusFilter {
 
-    interface FilterInitializer {
+    interface FilterInitializer extends Closeable {
 
-        void onPair(BilingualCorpus corpus, BilingualCorpus.StringPair pair) throws IOException;
+        void onPair(BilingualCorpus corpus, BilingualCorpus.StringPair pair, int index) throws IOException;
+
+        default void onEnd() throws IOException {
+        }
+
+        @Override
+        default void close() throws IOException {
+        }
 
     }
 
     FilterInitializer getInitializer();
 
-    boolean accept(BilingualCorpus.StringPair pair) throws IOException;
+    boolean accept(BilingualCorpus.StringPair pair, int index) throws IOException;
 
 }
@@ -0,0 +1,346 @@
+package eu.modernmt.core.training.cleaning;
+
+import eu.modernmt.model.BilingualCorpus;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.BitSet;
+
+/**
+ * Created by davide on 02/07/16.
+ * <p>
+ * Removes exact and, optionally, near duplicate pairs across a set of corpora. Pairs are
+ * compared on the words of their normalized source and target. For exact duplicates every pair
+ * gets a hash of its words; for near duplicates it gets a MinHash signature, split in bands, and
+ * two pairs are considered duplicates if they share at least one band. Among duplicates only the
+ * most recent pair is kept: pairs are ordered by timestamp, then by corpus (in order of filter
+ * creation) and then by line, so that within a corpus the pair kept is the same one a DraftFilter
+ * would keep. Pairs with no letters or digits at all are always kept.
+ * <p>
+ * The number of bands and rows is chosen so that pairs are considered near duplicates from
+ * about the given Jaccard similarity of their words: pairs right at the threshold are removed
+ * with a probability of about 70%, more similar pairs almost always and less similar ones rarely.
+ * <p>
+ * Every corpus gets its own filter from newFilter(); once all filters have been initialized,
+ * resolve() must be called before the filters can accept pairs. If initialization fails,
+ * close() releases the memory and the spilled files of the deduplicator.
+ */
+public class CrossCorpusDeduplicator implements Closeable {
+
+    public static final double DEFAULT_THRESHOLD = .9;
+
+    private static final int MAX_BANDS = 8;
+    private static final int MAX_ROWS = 16;
+    private static final int MAX_HASHES = 64;
+    private static final double THRESHOLD_TOLERANCE = .02;
+    private static final int BATCH_SIZE = 4096;
+
+    private static final long[] SEEDS = new long[MAX_HASHES];
+
+    static {
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < SEEDS.length; i++) {
+            seed = mix(seed + 0x9E3779B97F4A7C15L);
+            SEEDS[i] = seed;
+        }
+    }
+
+    private final int bands;
+    private final int rows;
+    private final ArrayList<Filter> filters = new ArrayList<>();
+    private final SignatureTable[] tables;
+    private volatile boolean resolved = false;
+    private long pairsCount = 0;
+    private long droppedCount = 0;
+
+    /**
+     * Creates a deduplicator that removes exact duplicates only.
+     */
+    public CrossCorpusDeduplicator(MemoryBudget budget) {
+        this(budget, 1, 0);
+    }
+
+    /**
+     * Creates a deduplicator that also removes near duplicates, from about the given similarity.
+     */
+    public CrossCorpusDeduplicator(MemoryBudget budget, double threshold) {
+        this(budget, getBanding(threshold));
+    }
+
+    private CrossCorpusDeduplicator(MemoryBudget budget, int[] banding) {
+        this(budget, banding[0], banding[1]);
+    }
+
+    private CrossCorpusDeduplicator(MemoryBudget budget, int bands, int rows) {
+        this.bands = bands;
+        this.rows = rows;
+        this.tables = new SignatureTable[bands];
+
+        for (int i = 0; i < bands; i++)
+            tables[i] = new SignatureTable(budget);
+    }
+
+    // Selects the number of bands and rows whose threshold (1/bands)^(1/rows) is close to the
+    // given one, preferring more hashes since they give a steeper step around the threshold
+    private static int[] getBanding(double threshold) {
+        if (threshold <= 0 || threshold >= 1)
+            throw new IllegalArgumentException("Invalid near duplicates threshold: " + threshold);
+
+        int[] banding = null;
+        double bandingError = Double.MAX_VALUE;
+
+        for (int bands = 2; bands <= MAX_BANDS; bands++) {
+            for (int rows = 1; rows <= MAX_ROWS && bands * rows <= MAX_HASHES; rows++) {
+                double error = Math.abs(Math.pow(1. / bands, 1. / rows) - threshold);
+
+                boolean better;
+                if (banding == null)
+                    better = true;
+                else if (error < THRESHOLD_TOLERANCE && bandingError < THRESHOLD_TOLERANCE)
+                    better = bands * rows > banding[0] * banding[1];
+                else
+                    better = error < bandingError;
+
+                if (better) {
+                    banding = new int[]{bands, rows};
+                    bandingError = error;
+                }
+            }
+        }
+
+        return banding;
+    }
+
+    public synchronized BilingualCorpusFilter newFilter() {
+        if (resolved)
+            throw new IllegalStateException("Deduplicator has already been resolved");
+
+        Filter filter = new Filter(filters.size());
+        filters.add(filter);
+
+        return filter;
+    }
+
+    public synchronized long getPairsCount() {
+        return pairsCount;
+    }
+
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * Selects the pairs to keep among all the pairs seen by the filters initializers.
+     */
+    public synchronized void resolve() throws IOException {
+        if (resolved)
+            return;
+
+        try {
+            for (SignatureTable table : tables) {
+                BitSet[] winners = new BitSet[filters.size()];
+                for (int i = 0; i < winners.length; i++)
+                    winners[i] = new BitSet();
+
+                table.forEachWinner(id -> winners[(int) (id >>> 32)].set((int) id));
+                table.close();
+
+                for (int i = 0; i < winners.length; i++) {
+                    Filter filter = filters.get(i);
+
+                    if (filter.accepted == null)
+                        filter.accepted = winners[i];
+                    else
+                        filter.accepted.and(winners[i]);
+                }
+            }
+        } finally {
+            close();
+        }
+
+        for (Filter filter : filters)
+            filter.accepted.or(filter.skipped);
+
+        long keptCount = 0;
+        for (Filter filter : filters)
+            keptCount += filter.accepted.cardinality();
+
+        droppedCount = pairsCount - keptCount;
+        resolved = true;
+    }
+
+    /**
+     * Releases the signature tables; pairs can still be filtered if the deduplicator has been resolved.
+     */
+    @Override
+    public void close() {
+        for (SignatureTable table : tables) {
+            // Initializers still running add pairs while holding the table lock
+            synchronized (table) {
+                table.close();
+            }
+        }
+    }
+
+    private synchronized void onCorpusEnd(int pairs) {
+        pairsCount += pairs;
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    // Words of a pair: the hash of their sequence, or their MinHash signature for near duplicates
+    private class Signature {
+
+        private final long[] minHashes = new long[bands * rows];
+        private long hash;
+        private int words;
+
+        /**
+         * Computes the band keys of the pair, returns false if the pair has no words.
+         */
+        public boolean getBandKeys(BilingualCorpus.StringPair pair, long[] keys) {
+            for (int j = 0; j < minHashes.length; j++)
+                minHashes[j] = Long.MAX_VALUE;
+            hash = 0;
+            words = 0;
+
+            addWords(pair.source, 0x5L << 32);
+            addWords(pair.target, 0x7L << 32);
+
+            if (words == 0)
+                return false;
+
+            if (rows == 0) {
+                keys[0] = mix(hash);
+            } else {
+                for (int band = 0; band < bands; band++) {
+                    long key = band;
+                    for (int row = 0; row < rows; row++)
+                        key = mix(key ^ minHashes[band * rows + row]) + row;
+
+                    keys[band] = key;
+                }
+            }
+
+            return true;
+        }
+
+        // Hashes the lowercase letters and digits sequences of the text
+        private void addWords(String text, long side) {
+            text = Normalizer.normalize(text, Normalizer.Form.NFKC);
+
+            int length = text.length();
+            int i = 0;
+
+            while (i < length) {
+                while (i < length && !Character.isLetterOrDigit(text.charAt(i)))
+                    i++;
+
+                if (i == length)
+                    break;
+
+                int wordHash = 0;
+                while (i < length && Character.isLetterOrDigit(text.charAt(i)))
+                    wordHash = 31 * wordHash + Character.toLowerCase(text.charAt(i++));
+
+                long word = mix(side ^ wordHash);
+                hash = mix(hash ^ word) + 1;
+                words++;
+
+                for (int j = 0; j < minHashes.length; j++) {
+                    long value = mix(word ^ SEEDS[j]);
+                    if (value < minHashes[j])
+                        minHashes[j] = value;
+                }
+            }
+        }
+
+    }
+
+    private class Filter implements BilingualCorpusFilter {
+
+        private final long corpusId;
+        private BitSet accepted = null;
+        private final BitSet skipped = new BitSet();
+
+        private Filter(int corpusIndex) {
+            this.corpusId = ((long) corpusIndex) << 32;
+        }
+
+        @Override
+        public FilterInitializer getInitializer() {
+            if (resolved)
+                throw new IllegalStateException("Deduplicator has already been resolved");
+
+            return new FilterInitializer() {
+
+                private final Signature signature = new Signature();
+                private final long[] bandKeys = new long[bands];
+
+                private final long[][] keys = new long[bands][BATCH_SIZE];
+                private final long[] times = new long[BATCH_SIZE];
+                private final long[] ids = new long[BATCH_SIZE];
+                private int size = 0;
+                private int pairs = 0;
+
+                @Override
+                public void onPair(BilingualCorpus corpus, BilingualCorpus.StringPair pair, int index) throws IOException {
+                    pairs++;
+
+                    if (!signature.getBandKeys(pair, bandKeys)) {
+                        skipped.set(index);
+                        return;
+                    }
+
+                    for (int band = 0; band < bands; band++)
+                        keys[band][size] = bandKeys[band];
+                    times[size] = pair.timestamp == null ? 0L : pair.timestamp.getTime();
+                    ids[size] = corpusId | index;
+
+                    if (++size == BATCH_SIZE)
+                        flush();
+                }
+
+                // Tables are shared by all the corpora, pairs are added in batches to reduce contention
+                private void flush() throws IOException {
+                    for (int band = 0; band < bands; band++) {
+                        SignatureTable table = tables[band];
+
+                        synchronized (table) {
+                            for (int i = 0; i < size; i++)
+                                table.put(keys[band][i], times[i], ids[i]);
+                        }
+                    }
+
+                    size = 0;
+                }
+
+                @Override
+                public void onEnd() throws IOException {
+                    flush();
+                    onCorpusEnd(pairs);
+                }
+
+            };
+        }
+
+        @Override
+        public boolean accept(BilingualCorpus.StringPair pair, int index) throws IOException {
+            if (accepted == null)
+                throw new IllegalStateException("Deduplicator has not been resolved");
+
+            return accepted.get(index);
+        }
+
+    }
+
+}
@@ -3,87 +3,82 @@ package eu.modernmt.core.training.cleaning;
 import eu.modernmt.model.BilingualCorpus;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.BitSet;
 
 /**
  * Created by davide on 14/03/16.
+ * <p>
+ * Keeps only the most recent translation of every source sentence: the one with the latest
+ * timestamp and, among those, the last one in the corpus. Signatures are collected in an
+ * off-heap table bounded by the memory budget, so that the filter state during cleaning is
+ * just the set of accepted line indexes.
  */
 public class DraftFilter implements BilingualCorpusFilter {
 
-    protected static class Signature {
-
-        private long signature;
-
-        public static Signature fromPair(BilingualCorpus.StringPair pair) {
-            //TODO: preprocess string?
+    private static long getSignature(BilingualCorpus.StringPair pair) {
+        //TODO: preprocess string?
 //            String source = NORMALIZER.call(pair.source);
-            String source = pair.source;
-            int length = source.length();
+        String source = pair.source;
+        int length = source.length();
 
-            String sx, dx;
+        String sx, dx;
 
-            if (length > 1) {
-                int hlen = length / 2;
+        if (length > 1) {
+            int hlen = length / 2;
 
-                sx = source.substring(0, hlen);
-                dx = source.substring(hlen, length);
-            } else {
-                sx = source;
-                dx = "";
-            }
-
-            return new Signature((long) (sx.hashCode()) << 32 | (dx.hashCode()) & 0xFFFFFFFFL);
+            sx = source.substring(0, hlen);
+            dx = source.substring(hlen, length);
+        } else {
+            sx = source;
+            dx = "";
         }
 
-        private Signature(long signature) {
-            this.signature = signature;
-        }
+        return (long) (sx.hashCode()) << 32 | (dx.hashCode()) & 0xFFFFFFFFL;
+    }
 
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
+    private final MemoryBudget budget;
+    private BitSet accepted = null;
 
-            Signature signature1 = (Signature) o;
+    public DraftFilter() {
+        this(new MemoryBudget());
+    }
 
-            return signature == signature1.signature;
+    public DraftFilter(MemoryBudget budget) {
+        this.budget = budget;
+    }
 
-        }
+    @Override
+    public FilterInitializer getInitializer() {
+        accepted = null;
 
-        @Override
-        public int hashCode() {
-            return (int) (signature ^ (signature >>> 32));
-        }
+        final SignatureTable table = new SignatureTable(budget);
 
-        @Override
-        public String toString() {
-            return Long.toString(signature);
-        }
-    }
+        return new FilterInitializer() {
 
-    private final HashMap<Signature, PseudoDate> filter = new HashMap<>();
+            @Override
+            public void onPair(BilingualCorpus corpus, BilingualCorpus.StringPair pair, int index) throws IOException {
+                long time = pair.timestamp == null ? 0L : pair.timestamp.getTime();
+                table.put(getSignature(pair), time, index);
+            }
 
-    @Override
-    public FilterInitializer getInitializer() {
-        filter.clear();
+            @Override
+            public void onEnd() throws IOException {
+                BitSet winners = new BitSet();
+                table.forEachWinner(line -> winners.set((int) line));
 
-        return (corpus, pair) -> {
-            Signature signature = Signature.fromPair(pair);
-            PseudoDate existent = filter.get(signature);
+                accepted = winners;
+            }
 
-            if (existent == null) {
-                filter.put(signature, new PseudoDate(pair.timestamp));
-            } else {
-                existent.registerUpdate(pair.timestamp);
+            @Override
+            public void close() {
+                table.close();
             }
+
         };
     }
 
     @Override
-    public boolean accept(BilingualCorpus.StringPair pair) throws IOException {
-        Signature signature = Signature.fromPair(pair);
-        PseudoDate timestamp = filter.get(signature);
-
-        return timestamp.match(pair.timestamp);
+    public boolean accept(BilingualCorpus.StringPair pair, int index) throws IOException {
+        return accepted.get(index);
     }
 }
@@ -14,7 +14,7 @@ import java.util.Locale;
 public class FilteredBilingualCorpus implements BilingualCorpus {
 
     private BilingualCorpus corpus;
-    private boolean initialized;
+    private volatile boolean initialized;
     private int lineCount;
     private ArrayList<BilingualCorpusFilter> filters;
 
@@ -45,20 +45,29 @@ public class FilteredBilingualCorpus implements BilingualCorpus {
         return this.lineCount;
     }
 
-    @Override
-    public BilingualStringReader getContentReader() throws IOException {
+    /**
+     * Reads the corpus once in order to initialize the filters; if not
+     * called explicitly, it is called by the first getContentReader().
+     */
+    public void initialize() throws IOException {
         if (!initialized) {
             synchronized (this) {
                 if (!initialized) {
-                    this.initialize();
+                    this.initializeFilters();
                     initialized = true;
                 }
             }
         }
+    }
+
+    @Override
+    public BilingualStringReader getContentReader() throws IOException {
+        initialize();
 
         return new BilingualStringReader() {
 
             private final BilingualStringReader reader = corpus.getContentReader();
+            private int index = 0;
 
             @Override
             public StringPair read() throws IOException {
@@ -68,9 +77,11 @@ public class FilteredBilingualCorpus implements BilingualCorpus {
                     boolean accept = true;
 
                     for (BilingualCorpusFilter filter : filters) {
-                        accept &= filter.accept(next);
+                        accept &= filter.accept(next, index);
                     }
 
+                    index++;
+
                     if (accept)
                         return next;
                 }
@@ -85,7 +96,7 @@ public class FilteredBilingualCorpus implements BilingualCorpus {
         };
     }
 
-    private void initialize() throws IOException {
+    private void initializeFilters() throws IOException {
         ArrayList<BilingualCorpusFilter.FilterInitializer> initializers = new ArrayList<>(filters.size());
         for (BilingualCorpusFilter filter : filters) {
             BilingualCorpusFilter.FilterInitializer initializer = filter.getInitializer();
@@ -100,12 +111,20 @@ public class FilteredBilingualCorpus implements BilingualCorpus {
                 reader = corpus.getContentReader();
 
                 StringPair pair;
+                int index = 0;
+
                 while ((pair = reader.read()) != null) {
                     for (BilingualCorpusFilter.FilterInitializer initializer : initializers)
-                        initializer.onPair(corpus, pair);
+                        initializer.onPair(corpus, pair, index);
+
+                    index++;
                 }
+
+                for (BilingualCorpusFilter.FilterInitializer initializer : initializers)
+                    initializer.onEnd();
             } finally {
                 IOUtils.closeQuietly(reader);
+                initializers.forEach(IOUtils::closeQuietly);
             }
         }
     }
@@ -0,0 +1,148 @@
+package eu.modernmt.core.training.cleaning;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Created by davide on 01/07/16.
+ * <p>
+ * Amount of off-heap memory that can be shared by filters running at the same time, and the
+ * directory where filters spill what does not fit in it. When possible, direct buffers are
+ * also freed as soon as they are returned to the budget, instead of waiting for the garbage collector.
+ */
+public class MemoryBudget {
+
+    public static final long DEFAULT_CAPACITY = Runtime.getRuntime().maxMemory() / 2;
+
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+    private static final Method CLEANER;
+    private static final Method CLEAN;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        Method cleaner = null;
+        Method clean = null;
+
+        try {
+            // Java 9+
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            invokeCleaner = null;
+
+            try {
+                // Java 8
+                cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+                clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            } catch (ReflectiveOperationException | RuntimeException e1) {
+                // Direct buffers are freed by the garbage collector
+                cleaner = null;
+                clean = null;
+            }
+        }
+
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+        CLEANER = cleaner;
+        CLEAN = clean;
+    }
+
+    private final long capacity;
+    private final File spillDirectory;
+    private long used = 0;
+
+    public MemoryBudget() {
+        this(DEFAULT_CAPACITY, null);
+    }
+
+    public MemoryBudget(long capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * Creates a budget of the given capacity in bytes; if spillDirectory
+     * is null, spilled data is written to the default temporary directory.
+     */
+    public MemoryBudget(long capacity, File spillDirectory) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Invalid memory budget: " + capacity);
+
+        this.capacity = capacity;
+        this.spillDirectory = spillDirectory;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public File getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    public synchronized long getUsed() {
+        return used;
+    }
+
+    /**
+     * Reserves the given amount of memory only if available.
+     */
+    public synchronized boolean tryReserve(long bytes) {
+        if (used + bytes > capacity)
+            return false;
+
+        used += bytes;
+        return true;
+    }
+
+    /**
+     * Reserves the given amount of memory even if the budget is exceeded; used
+     * for the minimum amount of memory a filter needs in order to work at all.
+     */
+    public synchronized void reserve(long bytes) {
+        used += bytes;
+    }
+
+    /**
+     * Allocates a direct buffer in memory previously reserved.
+     */
+    public ByteBuffer allocate(int bytes) {
+        return ByteBuffer.allocateDirect(bytes);
+    }
+
+    /**
+     * Returns a buffer obtained from allocate() to the budget, its memory must not be accessed anymore.
+     */
+    public void free(ByteBuffer buffer) {
+        synchronized (this) {
+            used -= buffer.capacity();
+        }
+
+        destroy(buffer);
+    }
+
+    private static void destroy(ByteBuffer buffer) {
+        if (!buffer.isDirect())
+            return;
+
+        try {
+            if (INVOKE_CLEANER != null) {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            } else if (CLEANER != null) {
+                Object cleaner = CLEANER.invoke(buffer);
+                if (cleaner != null)
+                    CLEAN.invoke(cleaner);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Left to the garbage collector
+        }
+    }
+
+}
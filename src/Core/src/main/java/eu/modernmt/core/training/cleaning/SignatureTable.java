@@ -0,0 +1,343 @@
+package eu.modernmt.core.training.cleaning;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+import java.util.function.LongConsumer;
+
+/**
+ * Created by davide on 01/07/16.
+ * <p>
+ * Off-heap open-addressing table from a sentence signature to the most recent line with that
+ * signature, where lines are compared by timestamp and then by id. When the table cannot grow
+ * within the memory budget its content is sorted by signature and spilled to a temporary file
+ * in the budget spill directory; spilled runs are merged back when the winning lines are requested.
+ */
+class SignatureTable implements Closeable {
+
+    private static final int INITIAL_CAPACITY = 1 << 16;
+    private static final int MAX_CAPACITY = 1 << 27;
+    private static final int SLOT_SIZE = 3 * 8;
+    private static final float LOAD_FACTOR = .7f;
+
+    private final MemoryBudget budget;
+    private final ArrayList<File> runs = new ArrayList<>();
+
+    // Line ids are stored incremented by one, zero marks an empty slot
+    private ByteBuffer[] memory;
+    private LongBuffer keys;
+    private LongBuffer times;
+    private LongBuffer lines;
+    private int capacity;
+    private int size = 0;
+
+    public SignatureTable(MemoryBudget budget) {
+        this.budget = budget;
+
+        budget.reserve(((long) INITIAL_CAPACITY) * SLOT_SIZE);
+        allocate(INITIAL_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        this.memory = new ByteBuffer[3];
+        for (int i = 0; i < memory.length; i++)
+            memory[i] = budget.allocate(capacity * 8).order(ByteOrder.nativeOrder());
+
+        this.capacity = capacity;
+        this.keys = memory[0].asLongBuffer();
+        this.times = memory[1].asLongBuffer();
+        this.lines = memory[2].asLongBuffer();
+        this.size = 0;
+    }
+
+    private void free(ByteBuffer[] memory) {
+        for (ByteBuffer buffer : memory)
+            budget.free(buffer);
+    }
+
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /**
+     * Adds a line with the given signature; line ids must be non-negative.
+     */
+    public void put(long key, long time, long line) throws IOException {
+        if (memory == null)
+            throw new IllegalStateException("Signature table has been closed");
+
+        insert(key, time, line + 1L);
+
+        if (size > capacity * LOAD_FACTOR)
+            grow();
+    }
+
+    private void insert(long key, long time, long line) {
+        int mask = capacity - 1;
+        int i = hash(key) & mask;
+
+        while (true) {
+            long storedLine = lines.get(i);
+
+            if (storedLine == 0) {
+                keys.put(i, key);
+                times.put(i, time);
+                lines.put(i, line);
+                size++;
+                return;
+            }
+
+            if (keys.get(i) == key) {
+                long storedTime = times.get(i);
+
+                if (time > storedTime || (time == storedTime && line > storedLine)) {
+                    times.put(i, time);
+                    lines.put(i, line);
+                }
+
+                return;
+            }
+
+            i = (i + 1) & mask;
+        }
+    }
+
+    private void grow() throws IOException {
+        int newCapacity = capacity * 2;
+
+        if (newCapacity > MAX_CAPACITY || !budget.tryReserve(((long) newCapacity) * SLOT_SIZE)) {
+            spill();
+            return;
+        }
+
+        ByteBuffer[] oldMemory = memory;
+        LongBuffer oldKeys = keys;
+        LongBuffer oldTimes = times;
+        LongBuffer oldLines = lines;
+        int oldCapacity = capacity;
+
+        allocate(newCapacity);
+
+        for (int i = 0; i < oldCapacity; i++) {
+            long line = oldLines.get(i);
+            if (line != 0)
+                insert(oldKeys.get(i), oldTimes.get(i), line);
+        }
+
+        free(oldMemory);
+    }
+
+    private void spill() throws IOException {
+        // Move entries to the front of the table and sort them by signature
+        int count = 0;
+        for (int i = 0; i < capacity; i++) {
+            long line = lines.get(i);
+
+            if (line != 0) {
+                if (i != count) {
+                    keys.put(count, keys.get(i));
+                    times.put(count, times.get(i));
+                    lines.put(count, line);
+                }
+
+                count++;
+            }
+        }
+
+        sort(0, count - 1);
+
+        File run = File.createTempFile("signatures.", ".run", budget.getSpillDirectory());
+        runs.add(run);
+
+        DataOutputStream output = null;
+
+        try {
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), 1024 * 1024));
+            output.writeInt(count);
+
+            for (int i = 0; i < count; i++) {
+                output.writeLong(keys.get(i));
+                output.writeLong(times.get(i));
+                output.writeLong(lines.get(i));
+            }
+        } finally {
+            IOUtils.closeQuietly(output);
+        }
+
+        for (int i = 0; i < capacity; i++)
+            lines.put(i, 0);
+
+        size = 0;
+    }
+
+    private void sort(int low, int high) {
+        while (high - low > 16) {
+            int middle = (low + high) >>> 1;
+            long pivot = keys.get(middle);
+
+            int i = low;
+            int j = high;
+
+            while (i <= j) {
+                while (keys.get(i) < pivot) i++;
+                while (keys.get(j) > pivot) j--;
+
+                if (i <= j)
+                    swap(i++, j--);
+            }
+
+            // Recurse on the smaller half to bound the stack depth
+            if (j - low < high - i) {
+                sort(low, j);
+                low = i;
+            } else {
+                sort(i, high);
+                high = j;
+            }
+        }
+
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low && keys.get(j - 1) > keys.get(j); j--)
+                swap(j, j - 1);
+        }
+    }
+
+    private void swap(int i, int j) {
+        long key = keys.get(i);
+        long time = times.get(i);
+        long line = lines.get(i);
+
+        keys.put(i, keys.get(j));
+        times.put(i, times.get(j));
+        lines.put(i, lines.get(j));
+
+        keys.put(j, key);
+        times.put(j, time);
+        lines.put(j, line);
+    }
+
+    /**
+     * Calls the consumer with the id of every line that is the most recent one for its signature.
+     */
+    public void forEachWinner(LongConsumer consumer) throws IOException {
+        if (runs.isEmpty()) {
+            for (int i = 0; i < capacity; i++) {
+                long line = lines.get(i);
+                if (line != 0)
+                    consumer.accept(line - 1);
+            }
+        } else {
+            if (size > 0)
+                spill();
+
+            merge(consumer);
+        }
+    }
+
+    private void merge(LongConsumer consumer) throws IOException {
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(runs.size(), (a, b) -> Long.compare(a.key, b.key));
+        ArrayList<RunReader> readers = new ArrayList<>(runs.size());
+
+        try {
+            for (File run : runs) {
+                RunReader reader = new RunReader(run);
+                readers.add(reader);
+
+                if (reader.next())
+                    queue.add(reader);
+            }
+
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+
+                long key = reader.key;
+                long time = reader.time;
+                long line = reader.line;
+
+                if (reader.next())
+                    queue.add(reader);
+
+                while (!queue.isEmpty() && queue.peek().key == key) {
+                    reader = queue.poll();
+
+                    if (reader.time > time || (reader.time == time && reader.line > line)) {
+                        time = reader.time;
+                        line = reader.line;
+                    }
+
+                    if (reader.next())
+                        queue.add(reader);
+                }
+
+                consumer.accept(line - 1);
+            }
+        } finally {
+            readers.forEach(IOUtils::closeQuietly);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (memory != null) {
+            free(memory);
+
+            memory = null;
+            keys = null;
+            times = null;
+            lines = null;
+        }
+
+        runs.forEach(FileUtils::deleteQuietly);
+        runs.clear();
+    }
+
+    private static class RunReader implements Closeable {
+
+        private final DataInputStream input;
+        private int remaining;
+
+        private long key;
+        private long time;
+        private long line;
+
+        public RunReader(File run) throws IOException {
+            this.input = new DataInputStream(new BufferedInputStream(new FileInputStream(run), 64 * 1024));
+
+            try {
+                this.remaining = input.readInt();
+            } catch (IOException e) {
+                IOUtils.closeQuietly(input);
+                throw e;
+            }
+        }
+
+        public boolean next() throws IOException {
+            if (remaining == 0)
+                return false;
+
+            remaining--;
+            key = input.readLong();
+            time = input.readLong();
+            line = input.readLong();
+
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+
+}
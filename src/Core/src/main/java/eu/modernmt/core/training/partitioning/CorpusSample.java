@@ -0,0 +1,117 @@
+package eu.modernmt.core.training.partitioning;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Created by davide on 05/07/16.
+ * <p>
+ * Bottom-k sample of the lines of a corpus: every line gets a pseudo-random key that only
+ * depends on the seed and on the line index, and the sample is made of the lines with the
+ * smallest keys. Since keys do not depend on the content, the source and the target side
+ * of a bilingual corpus sampled with the same seed select the same lines.
+ * <p>
+ * While reading, a line is kept as a candidate if its key is among the smallest "capacity"
+ * keys seen so far (see SampledInputStream); the candidates always contain the sample
+ * of any size up to capacity, whatever the final number of lines is.
+ */
+public class CorpusSample {
+
+    private static final Comparator<Candidate> BY_KEY = (a, b) -> compare(a.key, a.line, b.key, b.line);
+    private static final Comparator<Candidate> BY_LINE = (a, b) -> Long.compare(a.line, b.line);
+
+    private final long seed;
+    private final int capacity;
+
+    private final ArrayList<Candidate> candidates = new ArrayList<>();
+    private long lineCount = 0;
+
+    public CorpusSample(long seed, int capacity) {
+        this.seed = seed;
+        this.capacity = capacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    long getKey(long line) {
+        long key = seed + line * 0x9E3779B97F4A7C15L;
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    synchronized void add(long line, long key, String text) {
+        candidates.add(new Candidate(line, key, text));
+    }
+
+    synchronized void addLineCount(long count) {
+        lineCount += count;
+    }
+
+    /**
+     * Returns the number of lines read so far by the streams of this sample.
+     */
+    public synchronized long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Keeps only the "size" candidates with the smallest keys and returns
+     * the content of the discarded ones in corpus order.
+     */
+    public synchronized List<String> trim(int size) {
+        if (candidates.size() <= size)
+            return new ArrayList<>(0);
+
+        candidates.sort(BY_KEY);
+
+        List<Candidate> discarded = new ArrayList<>(candidates.subList(size, candidates.size()));
+        candidates.subList(size, candidates.size()).clear();
+
+        return getText(discarded);
+    }
+
+    /**
+     * Returns the content of the candidates in corpus order.
+     */
+    public synchronized List<String> getLines() {
+        return getText(candidates);
+    }
+
+    private static List<String> getText(List<Candidate> candidates) {
+        ArrayList<Candidate> sorted = new ArrayList<>(candidates);
+        sorted.sort(BY_LINE);
+
+        ArrayList<String> lines = new ArrayList<>(sorted.size());
+        for (Candidate candidate : sorted)
+            lines.add(candidate.text);
+
+        return lines;
+    }
+
+    static int compare(long key1, long line1, long key2, long line2) {
+        int c = Long.compare(key1, key2);
+        return c == 0 ? Long.compare(line1, line2) : c;
+    }
+
+    private static class Candidate {
+
+        private final long line;
+        private final long key;
+        private final String text;
+
+        private Candidate(long line, long key, String text) {
+            this.line = line;
+            this.key = key;
+            this.text = text;
+        }
+
+    }
+
+}
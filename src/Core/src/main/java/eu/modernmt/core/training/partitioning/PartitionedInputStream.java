@@ -1,10 +1,11 @@
 package eu.modernmt.core.training.partitioning;
 
-import eu.modernmt.io.UnixLineReader;
+import eu.modernmt.io.LineReader;
 import eu.modernmt.model.Corpus;
 import eu.modernmt.processing.framework.PipelineInputStream;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.util.List;
 
 /**
@@ -13,23 +14,49 @@ import java.util.List;
 public class PartitionedInputStream implements PipelineInputStream<String> {
 
     private List<PartitionWriter> partitions;
-    private UnixLineReader reader;
+    private List<String> extractedLines;
+    private LineReader reader;
 
     private int windowSize;
     private int lineIndex;
     private int partitionIndex;
 
     public PartitionedInputStream(Corpus corpus, int lines, List<PartitionWriter> partitions) throws IOException {
-        this.reader = new UnixLineReader(corpus.getContentReader());
+        this(corpus.getContentReader(), lines, getExtraLines(partitions), 0);
         this.partitions = partitions;
+    }
+
+    /**
+     * Creates a stream over a portion of a corpus starting at line firstLine: the lines
+     * selected for the extra partitions are collected in extractedLines instead of being
+     * written, so that portions can be read concurrently and their lines written in
+     * order with writeToPartitions() once they are all done.
+     */
+    public PartitionedInputStream(Reader reader, int lines, int extraLines, int firstLine, List<String> extractedLines) {
+        this(reader, lines, extraLines, firstLine);
+        this.extractedLines = extractedLines;
+    }
+
+    private PartitionedInputStream(Reader reader, int lines, int extraLines, int firstLine) {
+        this.reader = LineReader.wrap(reader);
+        this.windowSize = extraLines > 0 ? lines / extraLines : Integer.MAX_VALUE;
+        this.lineIndex = firstLine;
+        this.partitionIndex = 0;
+    }
 
+    public static int getExtraLines(List<PartitionWriter> partitions) {
         int extraLines = 0;
         for (PartitionWriter partition : partitions)
             extraLines += partition.size();
 
-        this.windowSize = extraLines > 0 ? lines / extraLines : Integer.MAX_VALUE;
-        this.lineIndex = 0;
-        this.partitionIndex = 0;
+        return extraLines;
+    }
+
+    public static void writeToPartitions(List<PartitionWriter> partitions, List<String> lines) throws IOException {
+        int partitionIndex = 0;
+
+        for (String line : lines)
+            partitionIndex = writeToPartition(partitions, partitionIndex, line);
     }
 
     private String getLine() throws IOException {
@@ -37,7 +64,7 @@ public class PartitionedInputStream implements PipelineInputStream<String> {
         return reader.readLine();
     }
 
-    private void writeToPartition(String line) throws IOException {
+    private static int writeToPartition(List<PartitionWriter> partitions, int partitionIndex, String line) throws IOException {
         for (int i = 0; i < partitions.size(); i++) {
             partitionIndex = (partitionIndex + 1) % partitions.size();
 
@@ -45,6 +72,8 @@ public class PartitionedInputStream implements PipelineInputStream<String> {
             if (partition.write(line))
                 break;
         }
+
+        return partitionIndex;
     }
 
     @Override
@@ -52,7 +81,10 @@ public class PartitionedInputStream implements PipelineInputStream<String> {
         String line;
 
         while ((line = getLine()) != null && (lineIndex % windowSize == 0)) {
-            writeToPartition(line);
+            if (extractedLines != null)
+                extractedLines.add(line);
+            else
+                partitionIndex = writeToPartition(partitions, partitionIndex, line);
         }
 
         return line;
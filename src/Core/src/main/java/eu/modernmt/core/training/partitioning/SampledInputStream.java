@@ -0,0 +1,119 @@
+package eu.modernmt.core.training.partitioning;
+
+import eu.modernmt.io.LineReader;
+import eu.modernmt.processing.framework.PipelineInputStream;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Created by davide on 05/07/16.
+ * <p>
+ * Stream over a portion of a corpus starting at line firstLine that holds back the sample
+ * candidates (see CorpusSample) and returns all the other lines. The keys of the lines
+ * before firstLine are replayed without reading them, so that a corpus read in portions
+ * holds back the same lines as a corpus read at once.
+ */
+public class SampledInputStream implements PipelineInputStream<String> {
+
+    private final LineReader reader;
+    private final CorpusSample sample;
+    private final long firstLine;
+    private long lineIndex;
+    private boolean ended = false;
+
+    // Max-heap of the smallest keys seen so far, with the index of their lines
+    private final long[] keys;
+    private final long[] lines;
+    private int size = 0;
+
+    public SampledInputStream(Reader reader, long firstLine, CorpusSample sample) {
+        this.reader = LineReader.wrap(reader);
+        this.sample = sample;
+        this.firstLine = firstLine;
+        this.lineIndex = firstLine;
+
+        this.keys = new long[sample.getCapacity()];
+        this.lines = new long[sample.getCapacity()];
+
+        for (long line = 0; line < firstLine; line++)
+            offer(sample.getKey(line), line);
+    }
+
+    private boolean offer(long key, long line) {
+        if (keys.length == 0)
+            return false;
+
+        if (size < keys.length) {
+            int i = size++;
+
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (CorpusSample.compare(keys[parent], lines[parent], key, line) >= 0)
+                    break;
+
+                keys[i] = keys[parent];
+                lines[i] = lines[parent];
+                i = parent;
+            }
+
+            keys[i] = key;
+            lines[i] = line;
+            return true;
+        }
+
+        if (CorpusSample.compare(key, line, keys[0], lines[0]) >= 0)
+            return false;
+
+        // Replace the largest key and sift it down
+        int i = 0;
+
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size)
+                break;
+
+            if (child + 1 < size && CorpusSample.compare(keys[child + 1], lines[child + 1], keys[child], lines[child]) > 0)
+                child++;
+
+            if (CorpusSample.compare(keys[child], lines[child], key, line) <= 0)
+                break;
+
+            keys[i] = keys[child];
+            lines[i] = lines[child];
+            i = child;
+        }
+
+        keys[i] = key;
+        lines[i] = line;
+        return true;
+    }
+
+    @Override
+    public String read() throws IOException {
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+            long index = lineIndex++;
+            long key = sample.getKey(index);
+
+            if (offer(key, index))
+                sample.add(index, key, line);
+            else
+                return line;
+        }
+
+        if (!ended) {
+            ended = true;
+            sample.addLineCount(lineIndex - firstLine);
+        }
+
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.reader.close();
+    }
+
+}
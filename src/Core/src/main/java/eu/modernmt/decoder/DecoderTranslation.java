@@ -1,5 +1,6 @@
 package eu.modernmt.decoder;
 
+import eu.modernmt.model.Alignment;
 import eu.modernmt.model.Sentence;
 import eu.modernmt.model.Tag;
 import eu.modernmt.model.Translation;
@@ -14,11 +15,11 @@ public class DecoderTranslation extends Translation {
 
     protected List<TranslationHypothesis> nbest;
 
-    public DecoderTranslation(Word[] words, Sentence source, int[][] alignment) {
+    public DecoderTranslation(Word[] words, Sentence source, Alignment alignment) {
         super(words, source, alignment);
     }
 
-    public DecoderTranslation(Word[] words, Tag[] tags, Sentence source, int[][] alignment) {
+    public DecoderTranslation(Word[] words, Tag[] tags, Sentence source, Alignment alignment) {
         super(words, tags, source, alignment);
     }
 
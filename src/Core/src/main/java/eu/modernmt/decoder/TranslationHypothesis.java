@@ -1,5 +1,6 @@
 package eu.modernmt.decoder;
 
+import eu.modernmt.model.Alignment;
 import eu.modernmt.model.Sentence;
 import eu.modernmt.model.Tag;
 import eu.modernmt.model.Translation;
@@ -15,13 +16,13 @@ public class TranslationHypothesis extends Translation implements Comparable<Tra
     private float totalScore;
     private Map<String, float[]> scores;
 
-    public TranslationHypothesis(Word[] words, Sentence source, int[][] alignment, float totalScore, Map<String, float[]> scores) {
+    public TranslationHypothesis(Word[] words, Sentence source, Alignment alignment, float totalScore, Map<String, float[]> scores) {
         super(words, source, alignment);
         this.totalScore = totalScore;
         this.scores = scores;
     }
 
-    public TranslationHypothesis(Word[] words, Tag[] tags, Sentence source, int[][] alignment, float totalScore, Map<String, float[]> scores) {
+    public TranslationHypothesis(Word[] words, Tag[] tags, Sentence source, Alignment alignment, float totalScore, Map<String, float[]> scores) {
         super(words, tags, source, alignment);
         this.totalScore = totalScore;
         this.scores = scores;
@@ -0,0 +1,169 @@
+package eu.modernmt.decoder.cache;
+
+import eu.modernmt.context.ContextDocument;
+import eu.modernmt.decoder.*;
+import eu.modernmt.model.Sentence;
+import eu.modernmt.model.Word;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Created by davide on 20/06/16.
+ * <p>
+ * Decoder wrapper that serves repeated translation requests from a TranslationCache.
+ * Entries are keyed by the sentence placeholders, the translation context or session,
+ * the n-best list size and the version of the feature weights: any weights change
+ * invalidates the whole cache. Cached translations skip the decoder entirely and
+ * report an elapsed time of zero.
+ */
+public class CachedDecoder implements Decoder {
+
+    private final Decoder decoder;
+    private final TranslationCache cache;
+    private final AtomicLong weightsVersion = new AtomicLong(0);
+
+    public CachedDecoder(Decoder decoder, TranslationCache cache) {
+        this.decoder = decoder;
+        this.cache = cache;
+    }
+
+    public Decoder getDecoder() {
+        return decoder;
+    }
+
+    public TranslationCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public void load() throws IOException {
+        decoder.load();
+    }
+
+    // Features
+
+    @Override
+    public DecoderFeature[] getFeatures() {
+        return decoder.getFeatures();
+    }
+
+    @Override
+    public float[] getFeatureWeights(DecoderFeature feature) {
+        return decoder.getFeatureWeights(feature);
+    }
+
+    @Override
+    public void setDefaultFeatureWeights(Map<DecoderFeature, float[]> weights) {
+        weightsVersion.incrementAndGet();
+        cache.clear();
+
+        decoder.setDefaultFeatureWeights(weights);
+    }
+
+    // Translation session
+
+    @Override
+    public void closeSession(TranslationSession session) {
+        decoder.closeSession(session);
+    }
+
+    // Translate
+
+    @Override
+    public DecoderTranslation translate(Sentence text) {
+        return translate(text, 0);
+    }
+
+    @Override
+    public DecoderTranslation translate(Sentence text, List<ContextDocument> translationContext) {
+        return translate(text, translationContext, 0);
+    }
+
+    @Override
+    public DecoderTranslation translate(Sentence text, TranslationSession session) {
+        return translate(text, session, 0);
+    }
+
+    @Override
+    public DecoderTranslation translate(Sentence text, int nbestListSize) {
+        String key = key(text, null, null, nbestListSize);
+        DecoderTranslation translation = cache.get(key, text);
+
+        if (translation == null) {
+            translation = decoder.translate(text, nbestListSize);
+            cache.put(key, translation);
+        }
+
+        return translation;
+    }
+
+    @Override
+    public DecoderTranslation translate(Sentence text, List<ContextDocument> translationContext, int nbestListSize) {
+        String key = key(text, translationContext, null, nbestListSize);
+        DecoderTranslation translation = cache.get(key, text);
+
+        if (translation == null) {
+            translation = decoder.translate(text, translationContext, nbestListSize);
+            cache.put(key, translation);
+        }
+
+        return translation;
+    }
+
+    @Override
+    public DecoderTranslation translate(Sentence text, TranslationSession session, int nbestListSize) {
+        String key = key(text, null, session, nbestListSize);
+        DecoderTranslation translation = cache.get(key, text);
+
+        if (translation == null) {
+            translation = decoder.translate(text, session, nbestListSize);
+            cache.put(key, translation);
+        }
+
+        return translation;
+    }
+
+    private String key(Sentence text, List<ContextDocument> translationContext, TranslationSession session, int nbestListSize) {
+        StringBuilder key = new StringBuilder();
+        key.append(weightsVersion.get());
+        key.append('|');
+        key.append(nbestListSize);
+        key.append('|');
+
+        if (session != null) {
+            key.append('s');
+            key.append(session.getId());
+        } else if (translationContext != null) {
+            key.append('c');
+            for (ContextDocument document : translationContext) {
+                key.append(document.getId());
+                key.append(':');
+                key.append(document.getScore());
+                key.append(',');
+            }
+        } else {
+            key.append('-');
+        }
+
+        key.append('|');
+
+        Word[] words = text.getWords();
+        for (int i = 0; i < words.length; i++) {
+            if (i > 0)
+                key.append(' ');
+            key.append(words[i].getPlaceholder());
+        }
+
+        return key.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        cache.clear();
+        decoder.close();
+    }
+
+}
@@ -0,0 +1,120 @@
+package eu.modernmt.decoder.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Created by davide on 20/06/16.
+ * <p>
+ * Off-heap storage for the TranslationCache: memory is allocated in a few large direct
+ * slabs, created on demand and never released, and split in fixed-size blocks. A value
+ * is stored in as many blocks as needed, and freed blocks are reused by the next values.
+ * The arena is not thread-safe, access must be synchronized by the caller.
+ */
+class OffHeapArena {
+
+    static final int BLOCK_SIZE = 512;
+    private static final int SLAB_SIZE = 16 * 1024 * 1024;
+    private static final int BLOCKS_PER_SLAB = SLAB_SIZE / BLOCK_SIZE;
+
+    private final long blockCount;
+    private final ByteBuffer[] slabs;
+
+    private long nextBlock = 0;
+    private long[] freeBlocks = new long[1024];
+    private int freeCount = 0;
+
+    /**
+     * Creates an arena that can hold up to capacity bytes, rounded down to the block size.
+     */
+    public OffHeapArena(long capacity) {
+        this.blockCount = capacity / BLOCK_SIZE;
+        this.slabs = new ByteBuffer[(int) ((blockCount + BLOCKS_PER_SLAB - 1) / BLOCKS_PER_SLAB)];
+    }
+
+    public static int getBlockCount(int length) {
+        return (length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
+    /**
+     * Returns the number of bytes of the blocks currently in use.
+     */
+    public long getUsedSize() {
+        return (nextBlock - freeCount) * BLOCK_SIZE;
+    }
+
+    /**
+     * Returns the number of bytes allocated off-heap so far.
+     */
+    public long getAllocatedSize() {
+        long size = 0;
+        for (ByteBuffer slab : slabs) {
+            if (slab != null)
+                size += slab.capacity();
+        }
+
+        return size;
+    }
+
+    /**
+     * Stores the value and returns its blocks, or null if there are not enough free blocks.
+     */
+    public long[] store(byte[] value) {
+        int count = getBlockCount(value.length);
+        if (count > freeCount + (blockCount - nextBlock))
+            return null;
+
+        long[] blocks = new long[count];
+        for (int i = 0; i < count; i++)
+            blocks[i] = freeCount > 0 ? freeBlocks[--freeCount] : nextBlock++;
+
+        for (int i = 0; i < count; i++) {
+            int offset = i * BLOCK_SIZE;
+            getBlock(blocks[i]).put(value, offset, Math.min(BLOCK_SIZE, value.length - offset));
+        }
+
+        return blocks;
+    }
+
+    public byte[] load(long[] blocks, int length) {
+        byte[] value = new byte[length];
+
+        for (int i = 0; i < blocks.length; i++) {
+            int offset = i * BLOCK_SIZE;
+            getBlock(blocks[i]).get(value, offset, Math.min(BLOCK_SIZE, length - offset));
+        }
+
+        return value;
+    }
+
+    public void free(long[] blocks) {
+        if (freeCount + blocks.length > freeBlocks.length)
+            freeBlocks = Arrays.copyOf(freeBlocks, Math.max(freeBlocks.length * 2, freeCount + blocks.length));
+
+        for (long block : blocks)
+            freeBlocks[freeCount++] = block;
+    }
+
+    /**
+     * Marks all blocks as free, slabs are kept for later use.
+     */
+    public void clear() {
+        nextBlock = 0;
+        freeCount = 0;
+    }
+
+    private ByteBuffer getBlock(long block) {
+        int index = (int) (block / BLOCKS_PER_SLAB);
+
+        ByteBuffer slab = slabs[index];
+        if (slab == null) {
+            long remaining = (blockCount - (long) index * BLOCKS_PER_SLAB) * BLOCK_SIZE;
+            slab = slabs[index] = ByteBuffer.allocateDirect((int) Math.min(SLAB_SIZE, remaining));
+        }
+
+        ByteBuffer buffer = slab.duplicate();
+        buffer.position((int) (block % BLOCKS_PER_SLAB) * BLOCK_SIZE);
+        return buffer;
+    }
+
+}
@@ -0,0 +1,301 @@
+package eu.modernmt.decoder.cache;
+
+import eu.modernmt.decoder.DecoderTranslation;
+import eu.modernmt.decoder.TranslationHypothesis;
+import eu.modernmt.model.Alignment;
+import eu.modernmt.model.Sentence;
+import eu.modernmt.model.Word;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Created by davide on 20/06/16.
+ * <p>
+ * LRU cache of raw decoder outputs bounded by the total size in bytes of its entries.
+ * Values are stored serialized, either in heap byte arrays or in the blocks of an OffHeapArena,
+ * and they are rebuilt for the requesting source sentence at every hit. Off-heap entries are
+ * accounted for the size of their blocks, so the arena never grows beyond the cache size.
+ */
+public class TranslationCache {
+
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private final long maxSize;
+    private final OffHeapArena arena;
+    private final LinkedHashMap<String, Object> entries = new LinkedHashMap<>(1024, .75f, true);
+
+    private long size = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    public TranslationCache(long maxSize, boolean offHeap) {
+        this.maxSize = maxSize;
+        this.arena = offHeap ? new OffHeapArena(maxSize) : null;
+    }
+
+    public DecoderTranslation get(String key, Sentence source) {
+        byte[] bytes;
+
+        synchronized (this) {
+            Object value = entries.get(key);
+
+            if (value == null) {
+                misses++;
+                return null;
+            }
+
+            hits++;
+
+            // Blocks can be reused as soon as the entry is evicted, they must be read under lock
+            if (value instanceof OffHeapEntry) {
+                OffHeapEntry entry = (OffHeapEntry) value;
+                bytes = arena.load(entry.blocks, entry.length);
+            } else {
+                bytes = (byte[]) value;
+            }
+        }
+
+        try {
+            return deserialize(new DataInputStream(new ByteArrayInputStream(bytes)), source);
+        } catch (IOException e) {
+            throw new Error("Unable to deserialize cached translation", e);
+        }
+    }
+
+    public void put(String key, DecoderTranslation translation) {
+        byte[] bytes;
+
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            serialize(new DataOutputStream(buffer), translation);
+            bytes = buffer.toByteArray();
+        } catch (IOException e) {
+            throw new Error("Unable to serialize translation", e);
+        }
+
+        long entrySize = sizeOf(key, arena == null ? bytes.length : OffHeapArena.getBlockCount(bytes.length) * OffHeapArena.BLOCK_SIZE);
+        if (entrySize > maxSize)
+            return;
+
+        synchronized (this) {
+            Object old = entries.remove(key);
+            if (old != null)
+                release(key, old);
+
+            Iterator<Map.Entry<String, Object>> iterator = entries.entrySet().iterator();
+            while (size + entrySize > maxSize && iterator.hasNext()) {
+                Map.Entry<String, Object> eldest = iterator.next();
+                iterator.remove();
+                release(eldest.getKey(), eldest.getValue());
+                evictions++;
+            }
+
+            Object value = bytes;
+            if (arena != null) {
+                long[] blocks = arena.store(bytes);
+                if (blocks == null)
+                    return;
+
+                value = new OffHeapEntry(blocks, bytes.length);
+            }
+
+            entries.put(key, value);
+            size += entrySize;
+        }
+    }
+
+    private void release(String key, Object value) {
+        size -= sizeOf(key, value);
+
+        if (value instanceof OffHeapEntry)
+            arena.free(((OffHeapEntry) value).blocks);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+
+        if (arena != null)
+            arena.clear();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of bytes allocated off-heap, 0 if the cache is on-heap.
+     */
+    public synchronized long getOffHeapSize() {
+        return arena == null ? 0L : arena.getAllocatedSize();
+    }
+
+    private static long sizeOf(String key, Object value) {
+        long length = value instanceof OffHeapEntry ?
+                ((OffHeapEntry) value).blocks.length * (long) OffHeapArena.BLOCK_SIZE : ((byte[]) value).length;
+        return sizeOf(key, length);
+    }
+
+    private static long sizeOf(String key, long length) {
+        return ENTRY_OVERHEAD + 2L * key.length() + length;
+    }
+
+    private static class OffHeapEntry {
+
+        private final long[] blocks;
+        private final int length;
+
+        public OffHeapEntry(long[] blocks, int length) {
+            this.blocks = blocks;
+            this.length = length;
+        }
+
+    }
+
+    // Serialization
+
+    private static void serialize(DataOutputStream output, DecoderTranslation translation) throws IOException {
+        writeWords(output, translation.getWords());
+        writeAlignment(output, translation.getAlignment());
+
+        List<TranslationHypothesis> nbest = translation.getNbest();
+        if (nbest == null) {
+            output.writeInt(-1);
+        } else {
+            output.writeInt(nbest.size());
+
+            for (TranslationHypothesis hypothesis : nbest) {
+                writeWords(output, hypothesis.getWords());
+                writeAlignment(output, hypothesis.getAlignment());
+                output.writeFloat(hypothesis.getTotalScore());
+
+                Map<String, float[]> scores = hypothesis.getScores();
+                output.writeInt(scores.size());
+                for (Map.Entry<String, float[]> entry : scores.entrySet()) {
+                    output.writeUTF(entry.getKey());
+
+                    float[] values = entry.getValue();
+                    output.writeInt(values.length);
+                    for (float value : values)
+                        output.writeFloat(value);
+                }
+            }
+        }
+
+        output.flush();
+    }
+
+    private static DecoderTranslation deserialize(DataInputStream input, Sentence source) throws IOException {
+        Word[] words = readWords(input);
+        Alignment alignment = readAlignment(input);
+
+        DecoderTranslation translation = new DecoderTranslation(words, source, alignment);
+
+        int nbestSize = input.readInt();
+        if (nbestSize >= 0) {
+            ArrayList<TranslationHypothesis> nbest = new ArrayList<>(nbestSize);
+
+            for (int i = 0; i < nbestSize; i++) {
+                Word[] hypothesisWords = readWords(input);
+                Alignment hypothesisAlignment = readAlignment(input);
+                float totalScore = input.readFloat();
+
+                int count = input.readInt();
+                HashMap<String, float[]> scores = new HashMap<>(count);
+                for (int j = 0; j < count; j++) {
+                    String feature = input.readUTF();
+
+                    float[] values = new float[input.readInt()];
+                    for (int k = 0; k < values.length; k++)
+                        values[k] = input.readFloat();
+
+                    scores.put(feature, values);
+                }
+
+                nbest.add(new TranslationHypothesis(hypothesisWords, source, hypothesisAlignment, totalScore, scores));
+            }
+
+            translation.setNbest(nbest);
+        }
+
+        return translation;
+    }
+
+    private static void writeWords(DataOutputStream output, Word[] words) throws IOException {
+        output.writeInt(words.length);
+
+        for (Word word : words) {
+            writeNullableString(output, word.getText());
+            output.writeUTF(word.getPlaceholder());
+            writeNullableString(output, word.getRightSpace());
+        }
+    }
+
+    private static Word[] readWords(DataInputStream input) throws IOException {
+        Word[] words = new Word[input.readInt()];
+
+        for (int i = 0; i < words.length; i++) {
+            String text = readNullableString(input);
+            String placeholder = input.readUTF();
+            String rightSpace = readNullableString(input);
+
+            words[i] = new Word(text, placeholder, rightSpace);
+        }
+
+        return words;
+    }
+
+    private static void writeAlignment(DataOutputStream output, Alignment alignment) throws IOException {
+        if (alignment == null) {
+            output.writeInt(-1);
+        } else {
+            output.writeInt(alignment.size());
+
+            for (int i = 0; i < alignment.size(); i++) {
+                output.writeInt(alignment.getSource(i));
+                output.writeInt(alignment.getTarget(i));
+            }
+        }
+    }
+
+    private static Alignment readAlignment(DataInputStream input) throws IOException {
+        int size = input.readInt();
+        if (size < 0)
+            return null;
+
+        long[] links = new long[size];
+        for (int i = 0; i < size; i++)
+            links[i] = Alignment.pack(input.readInt(), input.readInt());
+
+        return new Alignment(links, size);
+    }
+
+    private static void writeNullableString(DataOutputStream output, String string) throws IOException {
+        output.writeBoolean(string != null);
+        if (string != null)
+            output.writeUTF(string);
+    }
+
+    private static String readNullableString(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+}
@@ -0,0 +1,122 @@
+package eu.modernmt.core.training.cleaning;
+
+import eu.modernmt.engine.training.mock.MockBilingualCorpus;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CrossCorpusDeduplicatorTest {
+
+    private static final String SOURCE = "the quick brown fox jumps over the lazy dog while the cat sleeps on the warm sofa near the window";
+    private static final String TARGET = "la rapida volpe marrone salta sopra il cane pigro mentre il gatto dorme sul divano caldo vicino alla finestra";
+
+    private static MockBilingualCorpus[] clean(CrossCorpusDeduplicator deduplicator, MockBilingualCorpus... corpora) throws IOException {
+        FilteredBilingualCorpus[] filtered = new FilteredBilingualCorpus[corpora.length];
+
+        for (int i = 0; i < corpora.length; i++) {
+            filtered[i] = new FilteredBilingualCorpus(corpora[i]);
+            filtered[i].addFilter(deduplicator.newFilter());
+        }
+
+        for (FilteredBilingualCorpus corpus : filtered)
+            corpus.initialize();
+
+        deduplicator.resolve();
+
+        MockBilingualCorpus[] outputs = new MockBilingualCorpus[corpora.length];
+        for (int i = 0; i < corpora.length; i++)
+            outputs[i] = MockBilingualCorpus.drain(filtered[i].getContentReader());
+
+        return outputs;
+    }
+
+    @Test
+    public void testExactDuplicatesAcrossCorpora() throws IOException {
+        MockBilingualCorpus a = new MockBilingualCorpus(new String[][]{
+                {"Hello world", "Ciao mondo"}, {"foo", "bar"},
+        });
+        MockBilingualCorpus b = new MockBilingualCorpus(new String[][]{
+                {"hello, WORLD!", "ciao mondo"},
+        });
+
+        MockBilingualCorpus[] outputs = clean(new CrossCorpusDeduplicator(new MemoryBudget()), a, b);
+
+        assertEquals(new MockBilingualCorpus(new String[][]{{"foo", "bar"}}), outputs[0]);
+        assertEquals(b, outputs[1]);
+    }
+
+    @Test
+    public void testExactModeKeepsNearDuplicates() throws IOException {
+        MockBilingualCorpus a = new MockBilingualCorpus(new String[][]{
+                {SOURCE, TARGET},
+        });
+        MockBilingualCorpus b = new MockBilingualCorpus(new String[][]{
+                {SOURCE.replace("cat", "dog"), TARGET},
+                {SOURCE.replace("quick", "slow"), TARGET},
+        });
+
+        MockBilingualCorpus[] outputs = clean(new CrossCorpusDeduplicator(new MemoryBudget()), a, b);
+
+        assertEquals(a, outputs[0]);
+        assertEquals(b, outputs[1]);
+    }
+
+    @Test
+    public void testNearDuplicates() throws IOException {
+        MockBilingualCorpus a = new MockBilingualCorpus(new String[][]{
+                {SOURCE, TARGET}, {"a completely different sentence", "una frase completamente diversa"},
+        });
+        MockBilingualCorpus b = new MockBilingualCorpus(new String[][]{
+                {SOURCE.replace("warm", "cold"), TARGET.replace("caldo", "freddo")},
+        });
+
+        MockBilingualCorpus[] outputs = clean(new CrossCorpusDeduplicator(new MemoryBudget(), .6), a, b);
+
+        assertEquals(new MockBilingualCorpus(new String[][]{
+                {"a completely different sentence", "una frase completamente diversa"},
+        }), outputs[0]);
+        assertEquals(b, outputs[1]);
+    }
+
+    @Test
+    public void testPairsWithoutWordsAreKept() throws IOException {
+        MockBilingualCorpus a = new MockBilingualCorpus(new String[][]{
+                {"...", "!!!"}, {"-", "--"}, {"", ""},
+        });
+        MockBilingualCorpus b = new MockBilingualCorpus(new String[][]{
+                {"?", "?"}, {"...", "!!!"},
+        });
+
+        MockBilingualCorpus[] outputs = clean(new CrossCorpusDeduplicator(new MemoryBudget(), .8), a, b);
+
+        assertEquals(a, outputs[0]);
+        assertEquals(b, outputs[1]);
+    }
+
+    @Test
+    public void testCloseWithoutResolve() throws IOException {
+        MemoryBudget budget = new MemoryBudget();
+        CrossCorpusDeduplicator deduplicator = new CrossCorpusDeduplicator(budget, .8);
+
+        FilteredBilingualCorpus corpus = new FilteredBilingualCorpus(new MockBilingualCorpus(new String[][]{
+                {SOURCE, TARGET}, {"Hello world", "Ciao mondo"},
+        }));
+        corpus.addFilter(deduplicator.newFilter());
+        corpus.initialize();
+
+        assertTrue(budget.getUsed() > 0);
+
+        deduplicator.close();
+
+        assertEquals(0, budget.getUsed());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidThreshold() {
+        new CrossCorpusDeduplicator(new MemoryBudget(), 1.);
+    }
+
+}
@@ -0,0 +1,129 @@
+package eu.modernmt.core.training.cleaning;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SignatureTableTest {
+
+    private static final int PAIRS = 300000;
+    private static final int SIGNATURES = 100000;
+
+    private File spillDirectory;
+
+    @Before
+    public void setup() throws IOException {
+        spillDirectory = Files.createTempDirectory("SignatureTableTest").toFile();
+    }
+
+    @After
+    public void teardown() throws IOException {
+        FileUtils.deleteDirectory(spillDirectory);
+    }
+
+    private static int getRunCount(File directory) {
+        String[] files = directory.list();
+        return files == null ? 0 : files.length;
+    }
+
+    // Fills the table and returns the expected winners, computed in memory
+    private static BitSet fill(SignatureTable table, long seed) throws IOException {
+        Random random = new Random(seed);
+        HashMap<Long, long[]> winners = new HashMap<>();
+
+        for (int line = 0; line < PAIRS; line++) {
+            long key = random.nextInt(SIGNATURES) * 0x9E3779B97F4A7C15L;
+            long time = random.nextInt(3) == 0 ? 0L : random.nextInt(10);
+
+            table.put(key, time, line);
+
+            long[] winner = winners.get(key);
+            if (winner == null || time > winner[0] || (time == winner[0] && line > winner[1]))
+                winners.put(key, new long[]{time, line});
+        }
+
+        BitSet expected = new BitSet(PAIRS);
+        for (long[] winner : winners.values())
+            expected.set((int) winner[1]);
+
+        return expected;
+    }
+
+    private static BitSet getWinners(SignatureTable table) throws IOException {
+        BitSet winners = new BitSet(PAIRS);
+        table.forEachWinner(line -> {
+            assertFalse("Duplicate winner " + line, winners.get((int) line));
+            winners.set((int) line);
+        });
+
+        return winners;
+    }
+
+    @Test
+    public void testInMemory() throws IOException {
+        MemoryBudget budget = new MemoryBudget(256L * 1024L * 1024L, spillDirectory);
+        SignatureTable table = new SignatureTable(budget);
+
+        try {
+            BitSet expected = fill(table, 1);
+
+            assertEquals(0, getRunCount(spillDirectory));
+            assertEquals(expected, getWinners(table));
+        } finally {
+            table.close();
+        }
+
+        assertEquals(0, budget.getUsed());
+    }
+
+    @Test
+    public void testSpilling() throws IOException {
+        // Only the initial table fits in the budget
+        MemoryBudget budget = new MemoryBudget(1, spillDirectory);
+        SignatureTable table = new SignatureTable(budget);
+
+        try {
+            BitSet expected = fill(table, 2);
+
+            assertTrue(getRunCount(spillDirectory) > 1);
+            assertEquals(expected, getWinners(table));
+        } finally {
+            table.close();
+        }
+
+        assertEquals(0, getRunCount(spillDirectory));
+        assertEquals(0, budget.getUsed());
+    }
+
+    @Test
+    public void testSharedBudget() throws IOException {
+        MemoryBudget budget = new MemoryBudget(8L * 1024L * 1024L, spillDirectory);
+        SignatureTable a = new SignatureTable(budget);
+        SignatureTable b = new SignatureTable(budget);
+
+        try {
+            BitSet expectedA = fill(a, 3);
+            BitSet expectedB = fill(b, 4);
+
+            assertTrue(budget.getUsed() <= budget.getCapacity());
+            assertEquals(expectedA, getWinners(a));
+            assertEquals(expectedB, getWinners(b));
+        } finally {
+            a.close();
+            b.close();
+        }
+
+        assertEquals(0, budget.getUsed());
+    }
+
+}
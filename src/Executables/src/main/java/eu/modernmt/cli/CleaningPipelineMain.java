@@ -2,6 +2,7 @@ package eu.modernmt.cli;
 
 import eu.modernmt.cli.init.Submodules;
 import eu.modernmt.core.training.CleaningPipeline;
+import eu.modernmt.core.training.cleaning.MemoryBudget;
 import eu.modernmt.model.BilingualCorpus;
 import eu.modernmt.model.impl.BilingualFileCorpus;
 import eu.modernmt.model.util.CorpusUtils;
@@ -30,18 +31,30 @@ public class CleaningPipelineMain {
             Option targetLanguage = Option.builder("t").hasArg().required().build();
             Option inputPath = Option.builder().longOpt("input").hasArgs().required().build();
             Option outputPath = Option.builder().longOpt("output").hasArg().required().build();
+            Option memoryBudget = Option.builder().longOpt("memory").hasArg().required(false).build();
+            Option spillPath = Option.builder().longOpt("spill").hasArg().required(false).build();
+            Option exactDuplicates = Option.builder().longOpt("exact-duplicates").hasArg(false).required(false).build();
+            Option nearDuplicatesThreshold = Option.builder().longOpt("near-duplicates-threshold").hasArg().required(false).build();
 
             cliOptions = new Options();
             cliOptions.addOption(sourceLanguage);
             cliOptions.addOption(targetLanguage);
             cliOptions.addOption(inputPath);
             cliOptions.addOption(outputPath);
+            cliOptions.addOption(memoryBudget);
+            cliOptions.addOption(spillPath);
+            cliOptions.addOption(exactDuplicates);
+            cliOptions.addOption(nearDuplicatesThreshold);
         }
 
         public final Locale sourceLanguage;
         public final Locale targetLanguage;
         public final File[] inputRoots;
         public final File outputRoot;
+        public final long memoryBudget;
+        public final File spillRoot;
+        public final boolean exactDuplicates;
+        public final Double nearDuplicatesThreshold;
 
         public Args(String[] args) throws ParseException {
             CommandLineParser parser = new DefaultParser();
@@ -56,6 +69,15 @@ public class CleaningPipelineMain {
                 inputRoots[i] = new File(roots[i]);
 
             outputRoot = new File(cli.getOptionValue("output"));
+
+            // Memory budget in megabytes
+            memoryBudget = cli.hasOption("memory") ?
+                    Long.parseLong(cli.getOptionValue("memory")) * 1024L * 1024L : MemoryBudget.DEFAULT_CAPACITY;
+            spillRoot = cli.hasOption("spill") ? new File(cli.getOptionValue("spill")) : null;
+
+            exactDuplicates = cli.hasOption("exact-duplicates");
+            nearDuplicatesThreshold = cli.hasOption("near-duplicates-threshold") ?
+                    Double.parseDouble(cli.getOptionValue("near-duplicates-threshold")) : null;
         }
 
     }
@@ -69,7 +91,14 @@ public class CleaningPipelineMain {
         if (bilingualCorpora.isEmpty())
             throw new ParseException("Input path does not contains valid bilingual data");
 
-        CleaningPipeline cleaningPipeline = new CleaningPipeline(corpus -> new BilingualFileCorpus(args.outputRoot, corpus.getName(), args.sourceLanguage, args.targetLanguage), args.sourceLanguage, args.targetLanguage);
+        if (args.spillRoot != null)
+            FileUtils.forceMkdir(args.spillRoot);
+
+        MemoryBudget memoryBudget = new MemoryBudget(args.memoryBudget, args.spillRoot);
+        CleaningPipeline cleaningPipeline = new CleaningPipeline(corpus -> new BilingualFileCorpus(args.outputRoot, corpus.getName(), args.sourceLanguage, args.targetLanguage), args.sourceLanguage, args.targetLanguage, memoryBudget);
+        cleaningPipeline.setRemoveNearDuplicates(!args.exactDuplicates);
+        if (args.nearDuplicatesThreshold != null)
+            cleaningPipeline.setNearDuplicatesThreshold(args.nearDuplicatesThreshold);
         bilingualCorpora.forEach(cleaningPipeline::add);
 
         FileUtils.deleteDirectory(args.outputRoot);
@@ -3,6 +3,7 @@ package eu.modernmt.cli;
 import eu.modernmt.cli.init.Submodules;
 import eu.modernmt.core.training.TrainingPipeline;
 import eu.modernmt.core.training.partitioning.FilesCorporaPartition;
+import eu.modernmt.io.LineIndex;
 import eu.modernmt.model.BilingualCorpus;
 import eu.modernmt.model.Corpus;
 import eu.modernmt.model.util.CorpusUtils;
@@ -35,6 +36,9 @@ public class TrainingPipelineMain {
             Option outputPath = Option.builder().longOpt("output").hasArg().required().build();
             Option devPath = Option.builder().longOpt("dev").hasArg().required(false).build();
             Option testPath = Option.builder().longOpt("test").hasArg().required(false).build();
+            Option singlePass = Option.builder().longOpt("single-pass").hasArg(false).required(false).build();
+            Option seed = Option.builder().longOpt("seed").hasArg().required(false).build();
+            Option indexCache = Option.builder().longOpt("index-cache").hasArg().required(false).build();
 
             cliOptions = new Options();
             cliOptions.addOption(sourceLanguage);
@@ -43,6 +47,9 @@ public class TrainingPipelineMain {
             cliOptions.addOption(outputPath);
             cliOptions.addOption(devPath);
             cliOptions.addOption(testPath);
+            cliOptions.addOption(singlePass);
+            cliOptions.addOption(seed);
+            cliOptions.addOption(indexCache);
         }
 
         public final Locale sourceLanguage;
@@ -51,6 +58,9 @@ public class TrainingPipelineMain {
         public final File outputRoot;
         public final File devRoot;
         public final File testRoot;
+        public final boolean singlePass;
+        public final Long seed;
+        public final File indexCache;
 
         public Args(String[] args) throws ParseException {
             CommandLineParser parser = new DefaultParser();
@@ -68,6 +78,10 @@ public class TrainingPipelineMain {
 
             devRoot = cli.hasOption("dev") ? new File(cli.getOptionValue("dev")) : null;
             testRoot = cli.hasOption("test") ? new File(cli.getOptionValue("test")) : null;
+
+            singlePass = cli.hasOption("single-pass");
+            seed = cli.hasOption("seed") ? Long.parseLong(cli.getOptionValue("seed")) : null;
+            indexCache = cli.hasOption("index-cache") ? new File(cli.getOptionValue("index-cache")) : null;
         }
 
     }
@@ -75,6 +89,9 @@ public class TrainingPipelineMain {
     public static void main(String[] _args) throws Throwable {
         Args args = new Args(_args);
 
+        if (args.indexCache != null)
+            LineIndex.setCacheDirectory(args.indexCache);
+
         ArrayList<Corpus> monolingualCorpora = new ArrayList<>();
         ArrayList<BilingualCorpus> bilingualCorpora = new ArrayList<>();
 
@@ -87,6 +104,9 @@ public class TrainingPipelineMain {
         TrainingPipeline trainingPipeline = new TrainingPipeline(mainPartition, args.sourceLanguage, args.targetLanguage);
 
         trainingPipeline.addBilingualCorpora(bilingualCorpora);
+        trainingPipeline.setSinglePassPartitioning(args.singlePass);
+        if (args.seed != null)
+            trainingPipeline.setPartitioningSeed(args.seed);
         if (!monolingualCorpora.isEmpty())
             trainingPipeline.addMonolingualCorpora(monolingualCorpora);
 
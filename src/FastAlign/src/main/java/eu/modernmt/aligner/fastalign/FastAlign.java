@@ -4,152 +4,233 @@ import eu.modernmt.aligner.Aligner;
 import eu.modernmt.aligner.AlignerException;
 import eu.modernmt.constants.Const;
 import eu.modernmt.io.Paths;
+import eu.modernmt.model.Alignment;
 import eu.modernmt.model.Sentence;
-import eu.modernmt.processing.util.TokensOutputter;
-import org.apache.commons.io.IOUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Created by lucamastrostefano on 15/03/16.
+ * <p>
+ * Pool of fast_align processes for one alignment direction: every query checks out a
+ * process, uses it exclusively and returns it to the pool. Processes failing while
+ * answering a query are replaced with new ones and the query is retried once.
  */
 public class FastAlign implements Aligner {
 
     private static final Logger logger = LogManager.getLogger(FastAlign.class);
-    private static final String SENTENCE_SEPARATOR = " ||| ";
-    private static final String LAST_LINE = "Loading ttable finished.";
-    private static final List<String> EXPECTED_OUTPUT;
-
-    static {
-        EXPECTED_OUTPUT = new ArrayList<>();
-        EXPECTED_OUTPUT.add("ARG=[a-zA-Z]");
-        EXPECTED_OUTPUT.add("\\s+DICT SIZE:\\s+[0-9]{1,11}");
-        EXPECTED_OUTPUT.add("Reading Lexical Translation Table");
-        EXPECTED_OUTPUT.add(LAST_LINE);
-    }
 
     private final boolean reverse;
-    private final String[] command;
-    private boolean init = false;
-    private OutputStream standardInput;
-    private BufferedReader standardOutput;
-    private BufferedReader standardError;
-    private Process process;
-
-    FastAlign(boolean reverse, File model) {
+    private final File model;
+    private String[] command = null;
+    private final int poolSize;
+    private final ExecutorService writers;
+    private BlockingQueue<FastAlignProcess> pool = null;
+    private volatile boolean closed = false;
+
+    FastAlign(boolean reverse, File model, int poolSize) {
         this.reverse = reverse;
-
-        String fastAlignPath = Paths.join(Const.fs.home.getAbsolutePath(), "opt", "bin", "fastalign-maurobuild", "fast_align");
-        if (reverse) {
-            this.command = new String[]{fastAlignPath, "-d", "-v", "-o", "-B", "-f", model.getAbsolutePath(),
-                    "-n", "1", "-b", "0", "-r"};
-        } else {
-            this.command = new String[]{fastAlignPath, "-d", "-v", "-o", "-B", "-f", model.getAbsolutePath(),
-                    "-n", "1", "-b", "0"};
-        }
+        this.model = model;
+        this.poolSize = Math.max(1, poolSize);
+
+        this.writers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "FastAlign-Writer");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
-    private static int[][] parseAlignments(String stringAlignments) {
+    private static Alignment parseAlignments(String stringAlignments) {
+        if (stringAlignments.isEmpty())
+            return new Alignment(new long[0], 0);
+
         String[] links_str = stringAlignments.split(" ");
-        int[][] alignments = new int[links_str.length][];
+        long[] links = new long[links_str.length];
         for (int i = 0; i < links_str.length; i++) {
             String[] alignment = links_str[i].split("-");
-            alignments[i] = new int[]{Integer.parseInt(alignment[0]), Integer.parseInt(alignment[1])};
+            links[i] = Alignment.pack(Integer.parseInt(alignment[0]), Integer.parseInt(alignment[1]));
+        }
+        return new Alignment(links, links.length);
+    }
+
+    // Models trained in text format do not store their parameters, they are passed on the command line
+    private String[] getCommand() throws IOException {
+        String fastAlignPath = Paths.join(Const.fs.home.getAbsolutePath(), "opt", "bin", "fastalign-maurobuild", "fast_align");
+        ArrayList<String> command = new ArrayList<>(Arrays.asList(fastAlignPath, "-d", "-v", "-o"));
+
+        if (!model.isFile() && TextModel.getTableFile(model).isFile()) {
+            TextModel textModel = TextModel.load(model);
+            command.addAll(Arrays.asList("-f", textModel.getTable().getAbsolutePath(),
+                    "-T", Double.toString(textModel.getDiagonalTension()),
+                    "-q", Double.toString(textModel.getNullProbability())));
+        } else {
+            command.addAll(Arrays.asList("-B", "-f", model.getAbsolutePath()));
         }
-        return alignments;
+
+        command.addAll(Arrays.asList("-n", "1", "-b", "0"));
+        if (reverse)
+            command.add("-r");
+
+        return command.toArray(new String[command.size()]);
     }
 
     @Override
     public void load() throws AlignerException {
-        if (this.init)
+        if (this.pool != null)
             throw new IllegalStateException("Fast Align is already initialized");
 
         try {
-            Runtime rt = Runtime.getRuntime();
-            this.process = rt.exec(this.command, new String[]{
-                    "LD_LIBRARY_PATH=" + Const.fs.lib
-            });
-
-            standardOutput = new BufferedReader(new
-                    InputStreamReader(process.getInputStream()));
-            standardInput = process.getOutputStream();
-            standardError = new BufferedReader(new
-                    InputStreamReader(process.getErrorStream()));
-
-            this.checkRun(standardError);
+            this.command = getCommand();
+        } catch (IOException e) {
+            throw new AlignerException("Unable to load model " + model, e);
+        }
+
+        // Launch all processes first, so that models are loaded concurrently
+        ArrayList<FastAlignProcess> processes = new ArrayList<>(poolSize);
+
+        try {
+            for (int i = 0; i < poolSize; i++)
+                processes.add(new FastAlignProcess(command, reverse));
+
+            for (FastAlignProcess process : processes)
+                process.waitForReady();
         } catch (IOException e) {
+            processes.forEach(FastAlignProcess::close);
             throw new AlignerException("Failed to start FastAlign process", e);
         }
 
-        this.init = true;
+        this.pool = new ArrayBlockingQueue<>(poolSize, false, processes);
     }
 
-    private void checkRun(BufferedReader standardError) throws IOException {
-        // Consume and check the standard exceptions of the process
-        int expectedOutputIndex = 0;
-        int lineNumber = 0;
-        String line;
+    private FastAlignProcess checkout() throws AlignerException {
+        if (closed)
+            throw new IllegalStateException("Fast Align has been closed");
 
+        FastAlignProcess process;
         try {
-            while ((line = standardError.readLine()) != null) {
-                lineNumber++;
-                String expectedOutput = EXPECTED_OUTPUT.get(expectedOutputIndex);
-                if (!line.matches(expectedOutput)) {
-                    expectedOutputIndex++;
-                    expectedOutput = EXPECTED_OUTPUT.get(expectedOutputIndex);
-                    if (!line.matches(expectedOutput)) {
-                        logger.error("FOUND: \"" + line + "\" REGEX_EXPECTED: " + expectedOutput);
-                        throw new IOException("Cannot parse the standard exceptions of Fast Align, exceptions at line " + lineNumber);
-                    }
-                }
-                if (line.equals(LAST_LINE)) {
-                    break;
-                }
+            process = pool.take();
+        } catch (InterruptedException e) {
+            throw new AlignerException("Interrupted while waiting for a FastAlign process", e);
+        }
+
+        // A process is closed only after an I/O failure whose restart failed as well
+        if (process.isClosed()) {
+            try {
+                process = start();
+            } catch (IOException e) {
+                // Keep the pool size constant: the next checkout will try again
+                pool.offer(process);
+                throw new AlignerException("Failed to restart FastAlign process", e);
             }
-        } catch (IndexOutOfBoundsException e) {
-            throw new IOException("Fast Align has produced more lines then expected on the standard exceptions, exceptions at line " + lineNumber);
         }
+
+        return process;
+    }
+
+    private FastAlignProcess start() throws IOException {
+        FastAlignProcess process = new FastAlignProcess(command, reverse);
+
+        try {
+            process.waitForReady();
+        } catch (IOException e) {
+            process.close();
+            throw e;
+        }
+
+        return process;
     }
 
-    private String getStringAlignments(Sentence sentence, Sentence translation) throws IOException {
-        String sentence_str = TokensOutputter.toString(sentence, false, true);
-        String translation_str = TokensOutputter.toString(translation, false, true);
-        String query = sentence_str + SENTENCE_SEPARATOR + translation_str + "\n";
-        logger.debug("Sending query to Fast Align's models: " + query);
-        this.standardInput.write(query.getBytes(Const.charset.get()));
-        this.standardInput.flush();
-        logger.debug("Waiting for alignments");
-        String modelResponse = this.standardOutput.readLine();
-        logger.debug((this.reverse ? "Backward" : "Forward") + " alignments: " + modelResponse);
-        return modelResponse;
+    private void release(FastAlignProcess process) {
+        if (closed)
+            process.close();
+        else
+            pool.offer(process);
     }
 
-    @Override
-    public int[][] getAlignments(Sentence sentence, Sentence translation) throws AlignerException {
+    /**
+     * Runs the query on a process of the pool; if the process fails, it is replaced
+     * with a new one and the query is run once more before giving up.
+     */
+    private <T> T execute(Query<T> query) throws AlignerException {
+        FastAlignProcess process = checkout();
+
         try {
-            return parseAlignments(this.getStringAlignments(sentence, translation));
+            try {
+                return query.run(process);
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (IOException e) {
+                logger.warn("FastAlign process failed, restarting it", e);
+                process.close();
+                process = start();
+
+                return query.run(process);
+            }
         } catch (IOException e) {
+            process.close();
             throw new AlignerException("Problem while communicating to FastAlign process.", e);
+        } finally {
+            release(process);
+        }
+    }
+
+    @Override
+    public Alignment getAlignments(Sentence sentence, Sentence translation) throws AlignerException {
+        String response = execute(process -> process.query(sentence, translation));
+
+        try {
+            return parseAlignments(response);
+        } catch (RuntimeException e) {
+            throw new AlignerException("Invalid response from FastAlign process: " + response, e);
+        }
+    }
+
+    @Override
+    public List<Alignment> getAlignments(List<Sentence> sentences, List<Sentence> translations) throws AlignerException {
+        if (sentences.size() != translations.size())
+            throw new IllegalArgumentException("Sentences and translations have different sizes");
+
+        List<String> responses = execute(process -> process.query(sentences, translations, writers));
+
+        ArrayList<Alignment> result = new ArrayList<>(responses.size());
+        for (String response : responses) {
+            try {
+                result.add(parseAlignments(response));
+            } catch (RuntimeException e) {
+                throw new AlignerException("Invalid response from FastAlign process: " + response, e);
+            }
         }
+
+        return result;
     }
 
     @Override
-    public void close() throws IOException {
-        Closeable[] resources = new Closeable[]{
-                this.standardOutput,
-                this.standardInput,
-                this.standardError
-        };
-
-        for (Closeable resource : resources) {
-            IOUtils.closeQuietly(resource);
+    public void close() {
+        closed = true;
+        writers.shutdownNow();
+
+        if (pool != null) {
+            FastAlignProcess process;
+            while ((process = pool.poll()) != null)
+                process.close();
         }
+    }
+
+    private interface Query<T> {
+
+        T run(FastAlignProcess process) throws IOException;
 
-        process.destroy();
     }
 
 }
@@ -0,0 +1,175 @@
+package eu.modernmt.aligner.fastalign;
+
+import eu.modernmt.constants.Const;
+import eu.modernmt.model.Sentence;
+import eu.modernmt.processing.util.TokensOutputter;
+import org.apache.commons.io.IOUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Created by davide on 21/06/16.
+ * <p>
+ * A single fast_align process answering alignment queries over its standard input and output.
+ * It is not thread-safe: every instance must be used by one thread at a time.
+ */
+class FastAlignProcess implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger(FastAlignProcess.class);
+    private static final String SENTENCE_SEPARATOR = " ||| ";
+    private static final String LAST_LINE = "Loading ttable finished.";
+    private static final List<String> EXPECTED_OUTPUT;
+
+    static {
+        EXPECTED_OUTPUT = new ArrayList<>();
+        EXPECTED_OUTPUT.add("ARG=[a-zA-Z]");
+        EXPECTED_OUTPUT.add("\\s+DICT SIZE:\\s+[0-9]{1,11}");
+        EXPECTED_OUTPUT.add("Reading Lexical Translation Table");
+        EXPECTED_OUTPUT.add(LAST_LINE);
+    }
+
+    private final boolean reverse;
+    private final Process process;
+    private final OutputStream standardInput;
+    private final BufferedReader standardOutput;
+    private final BufferedReader standardError;
+    private boolean closed = false;
+
+    /**
+     * Launches the process without waiting for the model to be loaded; call
+     * {@link #waitForReady()} before sending any query.
+     */
+    FastAlignProcess(String[] command, boolean reverse) throws IOException {
+        this.reverse = reverse;
+        this.process = Runtime.getRuntime().exec(command, new String[]{
+                "LD_LIBRARY_PATH=" + Const.fs.lib
+        });
+
+        this.standardOutput = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        this.standardInput = process.getOutputStream();
+        this.standardError = new BufferedReader(new InputStreamReader(process.getErrorStream()));
+    }
+
+    void waitForReady() throws IOException {
+        // Consume and check the standard exceptions of the process
+        int expectedOutputIndex = 0;
+        int lineNumber = 0;
+        String line;
+
+        try {
+            while ((line = standardError.readLine()) != null) {
+                lineNumber++;
+                String expectedOutput = EXPECTED_OUTPUT.get(expectedOutputIndex);
+                if (!line.matches(expectedOutput)) {
+                    expectedOutputIndex++;
+                    expectedOutput = EXPECTED_OUTPUT.get(expectedOutputIndex);
+                    if (!line.matches(expectedOutput)) {
+                        logger.error("FOUND: \"" + line + "\" REGEX_EXPECTED: " + expectedOutput);
+                        throw new IOException("Cannot parse the standard exceptions of Fast Align, exceptions at line " + lineNumber);
+                    }
+                }
+                if (line.equals(LAST_LINE)) {
+                    return;
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Fast Align has produced more lines then expected on the standard exceptions, exceptions at line " + lineNumber);
+        }
+
+        throw new IOException("Fast Align process terminated while loading the model");
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    String query(Sentence sentence, Sentence translation) throws IOException {
+        String query = serialize(sentence, translation);
+        logger.debug("Sending query to Fast Align's models: " + query);
+        this.standardInput.write(query.getBytes(Const.charset.get()));
+        this.standardInput.flush();
+        logger.debug("Waiting for alignments");
+        String modelResponse = this.standardOutput.readLine();
+        logger.debug((this.reverse ? "Backward" : "Forward") + " alignments: " + modelResponse);
+
+        if (modelResponse == null)
+            throw new EOFException("Fast Align process closed its output stream");
+
+        return modelResponse;
+    }
+
+    /**
+     * Sends all the queries from a background task while reading the responses in the calling
+     * thread, so that neither side of the pipe can fill up and block the other.
+     */
+    List<String> query(List<Sentence> sentences, List<Sentence> translations, ExecutorService executor) throws IOException {
+        int size = sentences.size();
+
+        Future<Void> writing = executor.submit(() -> {
+            for (int i = 0; i < size; i++)
+                this.standardInput.write(serialize(sentences.get(i), translations.get(i)).getBytes(Const.charset.get()));
+            this.standardInput.flush();
+            return null;
+        });
+
+        ArrayList<String> responses = new ArrayList<>(size);
+
+        try {
+            for (int i = 0; i < size; i++) {
+                String modelResponse = this.standardOutput.readLine();
+                if (modelResponse == null)
+                    throw new EOFException("Fast Align process closed its output stream");
+
+                responses.add(modelResponse);
+            }
+
+            writing.get();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Interrupted while waiting for alignments");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            else
+                throw new IOException("Unexpected exception while sending queries", cause);
+        } finally {
+            writing.cancel(true);
+        }
+
+        logger.debug((this.reverse ? "Backward" : "Forward") + " alignments received for " + size + " sentences");
+
+        return responses;
+    }
+
+    private static String serialize(Sentence sentence, Sentence translation) {
+        String sentence_str = TokensOutputter.toString(sentence, false, true);
+        String translation_str = TokensOutputter.toString(translation, false, true);
+        return sentence_str + SENTENCE_SEPARATOR + translation_str + "\n";
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+
+        Closeable[] resources = new Closeable[]{
+                this.standardOutput,
+                this.standardInput,
+                this.standardError
+        };
+
+        for (Closeable resource : resources) {
+            IOUtils.closeQuietly(resource);
+        }
+
+        process.destroy();
+    }
+
+}
@@ -0,0 +1,137 @@
+package eu.modernmt.aligner.fastalign;
+
+import eu.modernmt.aligner.Aligner;
+import eu.modernmt.aligner.AlignerException;
+import eu.modernmt.model.Alignment;
+import eu.modernmt.model.Sentence;
+import eu.modernmt.model.Word;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Created by davide on 22/06/16.
+ * <p>
+ * Pure-JVM implementation of the fast_align Viterbi inference (IBM Model 2 with a diagonal
+ * distortion prior) for one alignment direction. The lexical table is memory-mapped and
+ * read-only, so a single instance aligns any number of sentence pairs concurrently.
+ * <p>
+ * The binary model used by the fast_align process cannot be read, the aligner loads models
+ * trained in text format instead (see TextModel). It has no factory yet: it can be selected
+ * only once its parity with the fast_align process has been verified (InProcessFastAlignTest).
+ */
+public class InProcessFastAlign implements Aligner {
+
+    private static final String TABLE_FILE_EXTENSION = ".ttable";
+    private static final float MIN_PROBABILITY = 1e-9f;
+
+    private final Logger logger = LogManager.getLogger(getClass());
+    private final boolean reverse;
+    private final File model;
+    private double diagonalTension = Double.NaN;
+    private double nullProbability = Double.NaN;
+    private LexicalTable table = null;
+
+    InProcessFastAlign(boolean reverse, File model) {
+        this.reverse = reverse;
+        this.model = model;
+    }
+
+    /**
+     * Creates an aligner with the given parameters instead of the trained ones.
+     */
+    InProcessFastAlign(boolean reverse, File model, double diagonalTension, double nullProbability) {
+        this(reverse, model);
+        this.diagonalTension = diagonalTension;
+        this.nullProbability = nullProbability;
+    }
+
+    @Override
+    public void load() throws AlignerException {
+        if (table != null)
+            throw new IllegalStateException("Aligner is already initialized");
+
+        File textModel = TextModel.getTableFile(model);
+        File tableFile = new File(model.getParentFile(), model.getName() + TABLE_FILE_EXTENSION);
+
+        if (!textModel.isFile())
+            throw new AlignerException("Missing text model " + textModel + ", enable \"aligner.text_models\" when training");
+
+        try {
+            if (Double.isNaN(diagonalTension) || Double.isNaN(nullProbability)) {
+                TextModel parameters = TextModel.load(model);
+                this.diagonalTension = parameters.getDiagonalTension();
+                this.nullProbability = parameters.getNullProbability();
+            }
+
+            if (!tableFile.isFile() || tableFile.lastModified() < textModel.lastModified()) {
+                logger.info("Building lexical table " + tableFile);
+                LexicalTable.build(textModel, tableFile);
+            }
+
+            table = LexicalTable.open(tableFile);
+        } catch (IOException e) {
+            throw new AlignerException("Unable to load model " + model, e);
+        }
+    }
+
+    @Override
+    public Alignment getAlignments(Sentence sentence, Sentence translation) throws AlignerException {
+        if (table == null)
+            throw new IllegalStateException("Aligner not initialized");
+
+        // The reverse model is trained on swapped pairs
+        Word[] source = (reverse ? translation : sentence).getWords();
+        Word[] target = (reverse ? sentence : translation).getWords();
+
+        int[] sourceIds = new int[source.length];
+        for (int i = 0; i < source.length; i++)
+            sourceIds[i] = table.getSourceId(source[i].getPlaceholder());
+
+        int nullId = table.getNullId();
+        int m = target.length;
+        int n = source.length;
+
+        long[] links = new long[m];
+        int count = 0;
+
+        double[] distortion = new double[n];
+
+        for (int j = 0; j < m; j++) {
+            int targetId = table.getTargetId(target[j].getPlaceholder());
+
+            double z = 0;
+            for (int i = 0; i < n; i++) {
+                distortion[i] = Math.exp(-Math.abs((i + 1) / (double) n - (j + 1) / (double) m) * diagonalTension);
+                z += distortion[i];
+            }
+
+            double best = nullProbability * table.getProbability(nullId, targetId, MIN_PROBABILITY);
+            int bestIndex = -1;
+
+            double scale = (1. - nullProbability) / z;
+            for (int i = 0; i < n; i++) {
+                double p = table.getProbability(sourceIds[i], targetId, MIN_PROBABILITY) * distortion[i] * scale;
+
+                if (p > best) {
+                    best = p;
+                    bestIndex = i;
+                }
+            }
+
+            if (bestIndex >= 0)
+                links[count++] = reverse ? Alignment.pack(j, bestIndex) : Alignment.pack(bestIndex, j);
+        }
+
+        return new Alignment(links, count);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (table != null)
+            table.close();
+    }
+
+}
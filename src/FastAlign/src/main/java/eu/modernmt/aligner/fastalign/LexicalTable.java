@@ -0,0 +1,440 @@
+package eu.modernmt.aligner.fastalign;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Created by davide on 22/06/16.
+ * <p>
+ * Memory-mapped lexical translation table t(target|source) of a fast_align model.
+ * Both vocabularies are stored as sorted UTF-8 strings, so that a word id is its position
+ * in the vocabulary; for every source word the table holds a row of (target id, probability)
+ * entries sorted by target id. Lookups are binary searches with no allocation, and the
+ * table can be safely shared among threads.
+ */
+public class LexicalTable implements Closeable {
+
+    public static final String NULL_WORD = "<eps>";
+
+    private static final int MAGIC = 0x4d4d4c54;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 48;
+    private static final int ENTRY_SIZE = 8;
+    private static final int CHUNK_BITS = 30;
+    private static final long CHUNK_SIZE = 1L << CHUNK_BITS;
+
+    private final RandomAccessFile file;
+    private final Vocabulary sourceVocabulary;
+    private final Vocabulary targetVocabulary;
+    private final ByteBuffer rows;
+    private final MappedByteBuffer[] entries;
+    private final int nullId;
+
+    public static LexicalTable open(File file) throws IOException {
+        return new LexicalTable(file);
+    }
+
+    private LexicalTable(File path) throws IOException {
+        this.file = new RandomAccessFile(path, "r");
+
+        try {
+            FileChannel channel = file.getChannel();
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+                throw new IOException("Invalid lexical table file: " + path);
+
+            int sourceCount = header.getInt(8);
+            int targetCount = header.getInt(12);
+            long entryCount = header.getLong(16);
+            long targetVocabularyOffset = header.getLong(24);
+            long rowsOffset = header.getLong(32);
+            long entriesOffset = header.getLong(40);
+
+            if (entriesOffset - HEADER_SIZE > Integer.MAX_VALUE)
+                throw new IOException("Lexical table vocabulary too large: " + path);
+
+            this.sourceVocabulary = new Vocabulary(channel.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_SIZE, targetVocabularyOffset - HEADER_SIZE), sourceCount);
+            this.targetVocabulary = new Vocabulary(channel.map(FileChannel.MapMode.READ_ONLY,
+                    targetVocabularyOffset, rowsOffset - targetVocabularyOffset), targetCount);
+            this.rows = channel.map(FileChannel.MapMode.READ_ONLY, rowsOffset, 8L * (sourceCount + 1));
+
+            long entriesSize = entryCount * ENTRY_SIZE;
+            int chunks = (int) ((entriesSize + CHUNK_SIZE - 1) >>> CHUNK_BITS);
+            this.entries = new MappedByteBuffer[chunks];
+            for (int i = 0; i < chunks; i++) {
+                long offset = i * CHUNK_SIZE;
+                this.entries[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        entriesOffset + offset, Math.min(CHUNK_SIZE, entriesSize - offset));
+            }
+
+            this.nullId = sourceVocabulary.getId(NULL_WORD.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            IOUtils.closeQuietly(file);
+            throw e;
+        }
+    }
+
+    public int getSourceId(String word) {
+        return sourceVocabulary.getId(word.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public int getTargetId(String word) {
+        return targetVocabulary.getId(word.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public int getNullId() {
+        return nullId;
+    }
+
+    /**
+     * Returns t(target|source), or the given default if either id is
+     * negative or the pair is not in the table.
+     */
+    public float getProbability(int sourceId, int targetId, float defaultValue) {
+        if (sourceId < 0 || targetId < 0)
+            return defaultValue;
+
+        long lo = rows.getLong(sourceId << 3);
+        long hi = rows.getLong((sourceId + 1) << 3) - 1;
+
+        while (lo <= hi) {
+            long mid = (lo + hi) >>> 1;
+            long position = mid * ENTRY_SIZE;
+            ByteBuffer chunk = entries[(int) (position >>> CHUNK_BITS)];
+            int offset = (int) (position & (CHUNK_SIZE - 1));
+            int id = chunk.getInt(offset);
+
+            if (id < targetId)
+                lo = mid + 1;
+            else if (id > targetId)
+                hi = mid - 1;
+            else
+                return chunk.getFloat(offset + 4);
+        }
+
+        return defaultValue;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private static class Vocabulary {
+
+        private final ByteBuffer buffer;
+        private final int size;
+        private final int bytesOffset;
+
+        // Layout: int[size + 1] offsets, followed by the words bytes
+        public Vocabulary(ByteBuffer buffer, int size) {
+            this.buffer = buffer;
+            this.size = size;
+            this.bytesOffset = 4 * (size + 1);
+        }
+
+        public int getId(byte[] word) {
+            int lo = 0;
+            int hi = size - 1;
+
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int cmp = compare(mid, word);
+
+                if (cmp < 0)
+                    lo = mid + 1;
+                else if (cmp > 0)
+                    hi = mid - 1;
+                else
+                    return mid;
+            }
+
+            return -1;
+        }
+
+        private int compare(int id, byte[] word) {
+            int start = buffer.getInt(id << 2);
+            int length = buffer.getInt((id + 1) << 2) - start;
+            int limit = Math.min(length, word.length);
+
+            start += bytesOffset;
+            for (int i = 0; i < limit; i++) {
+                int a = buffer.get(start + i) & 0xff;
+                int b = word[i] & 0xff;
+
+                if (a != b)
+                    return a - b;
+            }
+
+            return length - word.length;
+        }
+    }
+
+    // Builder
+
+    /**
+     * Compiles a fast_align text translation table, with one "source target log-probability"
+     * entry per line, into the memory-mapped binary format. Invalid lines and empty tables
+     * are rejected.
+     */
+    public static void build(File model, File output) throws IOException {
+        // First pass: vocabularies and row sizes
+
+        HashMap<String, Integer> sourceWords = new HashMap<>();
+        HashMap<String, Integer> targetWords = new HashMap<>();
+        long[] sourceCounts = new long[1024];
+        long entryCount = 0;
+
+        BufferedReader reader = null;
+        try {
+            reader = newReader(model);
+
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+
+                String[] fields = parse(line, lineNumber, model);
+                if (fields == null)
+                    continue;
+
+                Integer source = sourceWords.get(fields[0]);
+                if (source == null) {
+                    source = sourceWords.size();
+                    sourceWords.put(fields[0], source);
+                    if (source == sourceCounts.length)
+                        sourceCounts = Arrays.copyOf(sourceCounts, source * 2);
+                }
+                if (!targetWords.containsKey(fields[1]))
+                    targetWords.put(fields[1], targetWords.size());
+
+                sourceCounts[source]++;
+                entryCount++;
+            }
+        } finally {
+            IOUtils.closeQuietly(reader);
+        }
+
+        if (entryCount == 0)
+            throw new IOException("No entries found in model " + model);
+
+        byte[][] sourceVocabulary = sort(sourceWords);
+        byte[][] targetVocabulary = sort(targetWords);
+
+        int[] sourceIds = ids(sourceWords, sourceVocabulary);
+        int[] targetIds = ids(targetWords, targetVocabulary);
+
+        // Row starts, indexed by sorted source id
+
+        long[] rowStarts = new long[sourceVocabulary.length + 1];
+        for (int i = 0; i < sourceIds.length; i++)
+            rowStarts[sourceIds[i] + 1] = sourceCounts[i];
+        for (int i = 0; i < sourceVocabulary.length; i++)
+            rowStarts[i + 1] += rowStarts[i];
+
+        // Write header, vocabularies and rows
+
+        long targetVocabularyOffset = HEADER_SIZE + vocabularySize(sourceVocabulary);
+        long rowsOffset = targetVocabularyOffset + vocabularySize(targetVocabulary);
+        long entriesOffset = rowsOffset + 8L * rowStarts.length;
+
+        File tmpFile = new File(output.getParentFile(), output.getName() + ".tmp");
+
+        DataOutputStream stream = null;
+        try {
+            stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 1024 * 1024));
+            stream.writeInt(MAGIC);
+            stream.writeInt(VERSION);
+            stream.writeInt(sourceVocabulary.length);
+            stream.writeInt(targetVocabulary.length);
+            stream.writeLong(entryCount);
+            stream.writeLong(targetVocabularyOffset);
+            stream.writeLong(rowsOffset);
+            stream.writeLong(entriesOffset);
+
+            writeVocabulary(stream, sourceVocabulary);
+            writeVocabulary(stream, targetVocabulary);
+
+            for (long start : rowStarts)
+                stream.writeLong(start);
+        } finally {
+            IOUtils.closeQuietly(stream);
+        }
+
+        // Second pass: fill entries in place, then sort every row by target id
+
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(tmpFile, "rw");
+            raf.setLength(entriesOffset + entryCount * ENTRY_SIZE);
+
+            FileChannel channel = raf.getChannel();
+            long entriesSize = entryCount * ENTRY_SIZE;
+            int chunks = (int) ((entriesSize + CHUNK_SIZE - 1) >>> CHUNK_BITS);
+            MappedByteBuffer[] buffers = new MappedByteBuffer[chunks];
+            for (int i = 0; i < chunks; i++) {
+                long offset = i * CHUNK_SIZE;
+                buffers[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                        entriesOffset + offset, Math.min(CHUNK_SIZE, entriesSize - offset));
+            }
+
+            long[] cursors = new long[sourceVocabulary.length];
+            System.arraycopy(rowStarts, 0, cursors, 0, cursors.length);
+
+            reader = null;
+            try {
+                reader = newReader(model);
+
+                String line;
+                long lineNumber = 0;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+
+                    String[] fields = parse(line, lineNumber, model);
+                    if (fields == null)
+                        continue;
+
+                    int source = sourceIds[sourceWords.get(fields[0])];
+                    int target = targetIds[targetWords.get(fields[1])];
+                    float probability = (float) Math.exp(Double.parseDouble(fields[2]));
+
+                    long position = (cursors[source]++) * ENTRY_SIZE;
+                    ByteBuffer chunk = buffers[(int) (position >>> CHUNK_BITS)];
+                    int offset = (int) (position & (CHUNK_SIZE - 1));
+                    chunk.putInt(offset, target);
+                    chunk.putFloat(offset + 4, probability);
+                }
+            } finally {
+                IOUtils.closeQuietly(reader);
+            }
+
+            for (int source = 0; source < sourceVocabulary.length; source++)
+                sortRow(buffers, rowStarts[source], rowStarts[source + 1]);
+
+            for (MappedByteBuffer buffer : buffers)
+                buffer.force();
+        } finally {
+            IOUtils.closeQuietly(raf);
+        }
+
+        Files.move(tmpFile.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Returns the fields of the entry, or null if the line is blank
+    private static String[] parse(String line, long lineNumber, File model) throws IOException {
+        line = line.trim();
+        if (line.isEmpty())
+            return null;
+
+        String[] fields = line.split("\\s+");
+        if (fields.length != 3)
+            throw new IOException("Invalid entry at line " + lineNumber + " of model " + model + ": " + line);
+
+        try {
+            Double.parseDouble(fields[2]);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid probability at line " + lineNumber + " of model " + model + ": " + fields[2]);
+        }
+
+        return fields;
+    }
+
+    private static BufferedReader newReader(File file) throws IOException {
+        return new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), 1024 * 1024);
+    }
+
+    private static byte[][] sort(HashMap<String, Integer> words) {
+        byte[][] vocabulary = new byte[words.size()][];
+        for (String word : words.keySet())
+            vocabulary[words.get(word)] = word.getBytes(StandardCharsets.UTF_8);
+
+        byte[][] sorted = vocabulary.clone();
+        Arrays.sort(sorted, LexicalTable::compare);
+        return sorted;
+    }
+
+    // Maps insertion ids to sorted ids
+    private static int[] ids(HashMap<String, Integer> words, byte[][] sortedVocabulary) {
+        HashMap<String, Integer> sorted = new HashMap<>(sortedVocabulary.length * 2);
+        for (int i = 0; i < sortedVocabulary.length; i++)
+            sorted.put(new String(sortedVocabulary[i], StandardCharsets.UTF_8), i);
+
+        int[] ids = new int[words.size()];
+        for (Map.Entry<String, Integer> entry : words.entrySet())
+            ids[entry.getValue()] = sorted.get(entry.getKey());
+
+        return ids;
+    }
+
+    private static int compare(byte[] a, byte[] b) {
+        int limit = Math.min(a.length, b.length);
+        for (int i = 0; i < limit; i++) {
+            int x = a[i] & 0xff;
+            int y = b[i] & 0xff;
+
+            if (x != y)
+                return x - y;
+        }
+
+        return a.length - b.length;
+    }
+
+    private static long vocabularySize(byte[][] vocabulary) {
+        long size = 4L * (vocabulary.length + 1);
+        for (byte[] word : vocabulary)
+            size += word.length;
+        return size;
+    }
+
+    private static void writeVocabulary(DataOutputStream stream, byte[][] vocabulary) throws IOException {
+        int offset = 0;
+        stream.writeInt(offset);
+        for (byte[] word : vocabulary) {
+            offset += word.length;
+            stream.writeInt(offset);
+        }
+
+        for (byte[] word : vocabulary)
+            stream.write(word);
+    }
+
+    private static void sortRow(MappedByteBuffer[] buffers, long start, long end) {
+        int size = (int) (end - start);
+        if (size < 2)
+            return;
+
+        long[] row = new long[size];
+        for (int i = 0; i < size; i++) {
+            long position = (start + i) * ENTRY_SIZE;
+            ByteBuffer chunk = buffers[(int) (position >>> CHUNK_BITS)];
+            int offset = (int) (position & (CHUNK_SIZE - 1));
+
+            // Target id in the high bits, so that sorting the longs sorts by id
+            row[i] = ((long) chunk.getInt(offset) << 32) | (chunk.getInt(offset + 4) & 0xFFFFFFFFL);
+        }
+
+        Arrays.sort(row);
+
+        for (int i = 0; i < size; i++) {
+            long position = (start + i) * ENTRY_SIZE;
+            ByteBuffer chunk = buffers[(int) (position >>> CHUNK_BITS)];
+            int offset = (int) (position & (CHUNK_SIZE - 1));
+
+            chunk.putInt(offset, (int) (row[i] >>> 32));
+            chunk.putInt(offset + 4, (int) row[i]);
+        }
+    }
+
+}
@@ -0,0 +1,81 @@
+package eu.modernmt.aligner.fastalign;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Created by davide on 22/06/16.
+ * <p>
+ * A fast_align model trained in text format: the lexical table (model.txt) and the
+ * parameters of the same training run (model.params). Training writes it in place of
+ * the binary model when the "aligner.text_models" option is enabled.
+ */
+class TextModel {
+
+    private static final String TABLE_FILE_EXTENSION = ".txt";
+    private static final String PARAMS_FILE_EXTENSION = ".params";
+
+    private final File table;
+    private final double diagonalTension;
+    private final double nullProbability;
+
+    public static File getTableFile(File model) {
+        return new File(model.getParentFile(), model.getName() + TABLE_FILE_EXTENSION);
+    }
+
+    public static File getParamsFile(File model) {
+        return new File(model.getParentFile(), model.getName() + PARAMS_FILE_EXTENSION);
+    }
+
+    public static TextModel load(File model) throws IOException {
+        File file = getParamsFile(model);
+        Properties params = new Properties();
+
+        InputStream stream = null;
+        try {
+            stream = new FileInputStream(file);
+            params.load(stream);
+        } finally {
+            IOUtils.closeQuietly(stream);
+        }
+
+        return new TextModel(getTableFile(model),
+                getParameter(params, "diagonal_tension", file), getParameter(params, "null_probability", file));
+    }
+
+    private static double getParameter(Properties params, String name, File file) throws IOException {
+        String value = params.getProperty(name);
+        if (value == null)
+            throw new IOException("Missing parameter " + name + " in file " + file);
+
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid value for parameter " + name + " in file " + file + ": " + value);
+        }
+    }
+
+    private TextModel(File table, double diagonalTension, double nullProbability) {
+        this.table = table;
+        this.diagonalTension = diagonalTension;
+        this.nullProbability = nullProbability;
+    }
+
+    public File getTable() {
+        return table;
+    }
+
+    public double getDiagonalTension() {
+        return diagonalTension;
+    }
+
+    public double getNullProbability() {
+        return nullProbability;
+    }
+
+}
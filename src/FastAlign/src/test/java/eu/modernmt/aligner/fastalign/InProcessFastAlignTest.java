@@ -0,0 +1,229 @@
+package eu.modernmt.aligner.fastalign;
+
+import eu.modernmt.aligner.AlignerException;
+import eu.modernmt.io.Paths;
+import eu.modernmt.model.Alignment;
+import eu.modernmt.model.Sentence;
+import eu.modernmt.model.Word;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Created by davide on 22/06/16.
+ */
+public class InProcessFastAlignTest {
+
+    private static final String[][] CORPUS = new String[][]{
+            {"the house", "la casa"},
+            {"the house is small", "la casa è piccola"},
+            {"the small house", "la casa piccola"},
+            {"a house", "una casa"},
+            {"the book", "il libro"},
+            {"a book", "un libro"},
+            {"the book is small", "il libro è piccolo"},
+            {"the small book", "il libro piccolo"},
+            {"the cat is on the table", "il gatto è sul tavolo"},
+            {"the cat", "il gatto"},
+            {"a small cat", "un gatto piccolo"},
+            {"the table is small", "il tavolo è piccolo"},
+    };
+
+    private File folder;
+    private File model;
+
+    @Before
+    public void setup() throws IOException {
+        folder = Files.createTempDirectory("InProcessFastAlignTest").toFile();
+        model = new File(folder, "model.align.fwd");
+    }
+
+    @After
+    public void teardown() throws IOException {
+        FileUtils.deleteDirectory(folder);
+    }
+
+    private void writeModel(String table, String params) throws IOException {
+        FileUtils.write(new File(folder, "model.align.fwd.txt"), table, StandardCharsets.UTF_8);
+        if (params != null)
+            FileUtils.write(new File(folder, "model.align.fwd.params"), params, StandardCharsets.UTF_8);
+    }
+
+    private static Sentence sentence(String text) {
+        String[] tokens = text.split(" ");
+        Word[] words = new Word[tokens.length];
+        for (int i = 0; i < tokens.length; i++)
+            words[i] = new Word(tokens[i], " ");
+
+        return new Sentence(words);
+    }
+
+    @Test(expected = AlignerException.class)
+    public void testEmptyModel() throws AlignerException {
+        try {
+            writeModel("\n", "diagonal_tension=4.0\nnull_probability=0.08\n");
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+
+        new InProcessFastAlign(false, model).load();
+    }
+
+    @Test(expected = AlignerException.class)
+    public void testInvalidEntry() throws AlignerException {
+        try {
+            writeModel("the\tla\t-0.1\nthe la\n", "diagonal_tension=4.0\nnull_probability=0.08\n");
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+
+        new InProcessFastAlign(false, model).load();
+    }
+
+    @Test(expected = AlignerException.class)
+    public void testMissingParameters() throws AlignerException {
+        try {
+            writeModel("the\tla\t-0.1\n", null);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+
+        new InProcessFastAlign(false, model).load();
+    }
+
+    @Test
+    public void testTrainedParameters() throws IOException, AlignerException {
+        // With a strong diagonal prior, "a" is aligned to the word in the same position
+        writeModel("a\tx\t-0.5\na\ty\t-0.6\n<eps>\tx\t-10\n<eps>\ty\t-10\n",
+                "diagonal_tension=20.0\nnull_probability=0.08\n");
+
+        Sentence source = sentence("a a");
+        Sentence target = sentence("x y");
+
+        InProcessFastAlign trained = new InProcessFastAlign(false, model);
+        InProcessFastAlign flat = new InProcessFastAlign(false, model, 0.0, 0.08);
+
+        try {
+            trained.load();
+            flat.load();
+
+            assertEquals(new Alignment(new int[]{0, 1}, new int[]{0, 1}), trained.getAlignments(source, target));
+            assertEquals(new Alignment(new int[]{0, 0}, new int[]{0, 1}), flat.getAlignments(source, target));
+        } finally {
+            IOUtils.closeQuietly(trained);
+            IOUtils.closeQuietly(flat);
+        }
+    }
+
+    // Parity with the fast_align process, only if an MMT installation is available
+
+    private static File getFastAlignBinary() {
+        String home = System.getProperty("mmt.home");
+        if (home == null)
+            return null;
+
+        File binary = Paths.join(new File(home), "opt", "bin", "fastalign-maurobuild", "fast_align");
+        return binary.canExecute() ? binary : null;
+    }
+
+    // Trains a text model, like training does with "aligner.text_models" enabled
+    private static String train(File binary, File corpus, File output, boolean reverse) throws IOException {
+        ArrayList<String> command = new ArrayList<>(Arrays.asList(binary.getAbsolutePath(), "-d", "-v", "-o", "-n", "1"));
+        command.addAll(Arrays.asList("-p", output.getAbsolutePath(), "-i", corpus.getAbsolutePath()));
+        if (reverse)
+            command.add("-r");
+
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.environment().put("LD_LIBRARY_PATH", new File(System.getProperty("mmt.home"), "lib").getAbsolutePath());
+        builder.redirectOutput(ProcessBuilder.Redirect.to(new File(corpus.getParentFile(), "alignments")));
+
+        Process process = builder.start();
+        InputStream stderr = process.getErrorStream();
+
+        try {
+            String log = IOUtils.toString(stderr, StandardCharsets.UTF_8);
+
+            if (process.waitFor() != 0)
+                throw new IOException("fast_align failed: " + log);
+
+            return log;
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        } finally {
+            IOUtils.closeQuietly(stderr);
+        }
+    }
+
+    private static double getTension(String log) {
+        double tension = Double.NaN;
+
+        for (String line : log.split("\n")) {
+            line = line.trim();
+            if (line.startsWith("final tension:"))
+                tension = Double.parseDouble(line.substring("final tension:".length()).trim());
+        }
+
+        assertFalse("Missing final tension in fast_align output", Double.isNaN(tension));
+        return tension;
+    }
+
+    private void testParity(boolean reverse) throws IOException, AlignerException {
+        File binary = getFastAlignBinary();
+        Assume.assumeNotNull(binary);
+
+        File corpus = new File(folder, "corpus");
+        List<String> lines = new ArrayList<>();
+        for (String[] pair : CORPUS)
+            lines.add(pair[0] + " ||| " + pair[1]);
+        FileUtils.writeLines(corpus, "UTF-8", lines);
+
+        // Both aligners load the same model, the process from the text table and the trained parameters
+        String log = train(binary, corpus, new File(folder, "model.align.fwd.txt"), reverse);
+        FileUtils.write(new File(folder, "model.align.fwd.params"),
+                "diagonal_tension=" + getTension(log) + "\nnull_probability=0.08\n", StandardCharsets.UTF_8);
+
+        FastAlign process = new FastAlign(reverse, model, 1);
+        InProcessFastAlign inProcess = new InProcessFastAlign(reverse, model);
+
+        try {
+            process.load();
+            inProcess.load();
+
+            for (String[] pair : CORPUS) {
+                Sentence source = sentence(pair[0]);
+                Sentence target = sentence(pair[1]);
+
+                assertEquals(pair[0] + " ||| " + pair[1],
+                        process.getAlignments(source, target), inProcess.getAlignments(source, target));
+            }
+        } finally {
+            process.close();
+            inProcess.close();
+        }
+    }
+
+    @Test
+    public void testForwardParityWithFastAlign() throws IOException, AlignerException {
+        testParity(false);
+    }
+
+    @Test
+    public void testBackwardParityWithFastAlign() throws IOException, AlignerException {
+        testParity(true);
+    }
+
+}
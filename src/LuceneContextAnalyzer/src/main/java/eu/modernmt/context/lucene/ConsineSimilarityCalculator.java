@@ -21,11 +21,10 @@ import java.util.concurrent.*;
  */
 public class ConsineSimilarityCalculator {
 
-    private static final ConcurrentHashMap<String, IDFTable> IDFTables = new ConcurrentHashMap<>();
-
-    private ExecutorService executor;
+    private ContextScoringExecutor executor;
+    private long deadline = 0L;
     private boolean running = false;
-    private boolean boost = false;
+    private IDFTable idfTable = null;
     private IndexReader indexReader;
     private Analyzer analyzer;
     private String fieldName;
@@ -33,10 +32,10 @@ public class ConsineSimilarityCalculator {
     private ScoreDoc[] scoreDocs;
     private HashMap<Integer, Future<Float>> results;
 
-    public ConsineSimilarityCalculator(IndexReader indexReader, String fieldName) {
+    public ConsineSimilarityCalculator(ContextScoringExecutor executor, IndexReader indexReader, String fieldName) {
+        this.executor = executor;
         this.indexReader = indexReader;
         this.fieldName = fieldName;
-        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
     }
 
     public void setAnalyzer(Analyzer analyzer) {
@@ -52,25 +51,20 @@ public class ConsineSimilarityCalculator {
         this.results = new HashMap<>();
     }
 
-    public void setBoost(boolean boost) {
-        this.boost = boost;
+    /**
+     * Enables TF-IDF weighting of the terms, a null table means raw term frequencies.
+     */
+    public void setIDFTable(IDFTable idfTable) {
+        this.idfTable = idfTable;
     }
 
-    private IDFTable getIDFTable(String fieldName) {
-        IDFTable table = IDFTables.get(fieldName);
-
-        if (table == null) {
-            synchronized (this) {
-                table = IDFTables.get(fieldName);
-
-                if (table == null) {
-                    table = new IDFTable(indexReader, fieldName);
-                    IDFTables.putIfAbsent(fieldName, table);
-                }
-            }
-        }
-
-        return table;
+    /**
+     * Sets the maximum time (in milliseconds) the calculation is allowed to take,
+     * documents not scored before the deadline are cancelled and get similarity 0.
+     * A value less or equal to 0 means no deadline.
+     */
+    public void setTimeout(long timeout) {
+        this.deadline = timeout > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout) : 0L;
     }
 
     public void calculateSimilarity() {
@@ -99,28 +93,72 @@ public class ConsineSimilarityCalculator {
                 return;
         }
 
-        for (Future<Float> result : this.results.values()) {
-            try {
-                result.get();
-            } catch (Throwable e) {
+        try {
+            for (Future<Float> result : this.results.values()) {
+                try {
+                    if (deadline > 0) {
+                        long timeout = deadline - System.nanoTime();
+                        if (timeout <= 0)
+                            break;
+
+                        result.get(timeout, TimeUnit.NANOSECONDS);
+                    } else {
+                        result.get();
+                    }
+                } catch (TimeoutException e) {
+                    break;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (Throwable e) {
+                    // Exception is re-thrown by getSimilarity()
+                }
             }
+        } finally {
+            cancel();
         }
+    }
 
-        executor.shutdown();
+    public void cancel() {
+        if (this.results != null) {
+            for (Future<Float> result : this.results.values())
+                result.cancel(true);
+        }
 
         synchronized (this) {
             running = false;
         }
     }
 
+    /**
+     * Returns true if no document has been cancelled before being scored.
+     */
+    public boolean isComplete() {
+        synchronized (this) {
+            if (running)
+                awaitTermination();
+        }
+
+        for (Future<Float> result : results.values()) {
+            if (result.isCancelled())
+                return false;
+        }
+
+        return true;
+    }
+
     public float getSimilarity(int docId) throws IOException {
         synchronized (this) {
             if (running)
                 awaitTermination();
         }
 
+        Future<Float> result = results.get(docId);
+        if (result.isCancelled())
+            return 0.f;
+
         try {
-            return results.get(docId).get();
+            return result.get();
         } catch (InterruptedException e) {
             throw new IllegalStateException("Execution has been cancelled", e);
         } catch (ExecutionException e) {
@@ -140,7 +178,6 @@ public class ConsineSimilarityCalculator {
         TermsEnum termsEnum = vector.iterator(null);
         HashMap<String, Float> frequencies = new HashMap<>();
 
-        IDFTable idfTable = boost ? getIDFTable(fieldName) : null;
         BytesRef text;
         while ((text = termsEnum.next()) != null) {
             String term = text.utf8ToString();
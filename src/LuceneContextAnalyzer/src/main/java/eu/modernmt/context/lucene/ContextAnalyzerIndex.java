@@ -2,6 +2,7 @@ package eu.modernmt.context.lucene;
 
 import eu.modernmt.context.ContextAnalyzerException;
 import eu.modernmt.context.ContextDocument;
+import eu.modernmt.context.ContextResult;
 import eu.modernmt.context.lucene.analysis.CorpusAnalyzer;
 import eu.modernmt.model.Corpus;
 import org.apache.commons.io.FileUtils;
@@ -29,6 +30,9 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Created by davide on 10/07/15.
@@ -36,17 +40,36 @@ import java.util.List;
 public class ContextAnalyzerIndex implements Closeable, AutoCloseable {
 
     private static final int MIN_RESULT_BATCH = 20;
+    private static final String VECTORS_FILE_EXTENSION = ".vec";
+    private static final long COMMIT_INTERVAL = 60L;
+    private static final long VECTORS_REFRESH_DELAY = 5L;
 
     private final Logger logger = LogManager.getLogger(ContextAnalyzerIndex.class);
 
+    private final ContextScoringExecutor scoringExecutor;
+
     private Directory indexDirectory;
     private Analyzer analyzer;
     private IndexWriter indexWriter;
     private DirectoryReader indexReader;
 
-    public ContextAnalyzerIndex(File indexPath) throws IOException {
+    private final IDFStore idfStore;
+    private final File vectorsPath;
+    private final ConcurrentHashMap<String, DocumentVectors> vectors = new ConcurrentHashMap<>();
+    private final Object vectorsLock = new Object();
+
+    private final ExecutorService indexingExecutor;
+    private final ScheduledExecutorService maintenanceExecutor;
+    private final AtomicBoolean vectorsRefreshScheduled = new AtomicBoolean(false);
+
+    public ContextAnalyzerIndex(File indexPath, ContextScoringExecutor scoringExecutor) throws IOException {
+        this.scoringExecutor = scoringExecutor;
+        this.vectorsPath = new File(indexPath, "vectors");
+
         if (!indexPath.isDirectory())
             FileUtils.forceMkdir(indexPath);
+        if (!vectorsPath.isDirectory())
+            FileUtils.forceMkdir(vectorsPath);
 
         this.indexDirectory = FSDirectory.open(indexPath);
         this.analyzer = new CorpusAnalyzer();
@@ -64,61 +87,244 @@ public class ContextAnalyzerIndex implements Closeable, AutoCloseable {
         });
 
         this.indexWriter = new IndexWriter(this.indexDirectory, indexConfig);
+
+        // Document vectors setup
+        File[] files = vectorsPath.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String filename = file.getName();
+
+                if (filename.endsWith(VECTORS_FILE_EXTENSION)) {
+                    String lang = filename.substring(0, filename.length() - VECTORS_FILE_EXTENSION.length());
+                    this.vectors.put(DocumentBuilder.CONTENT_FIELD_PREFIX + lang, DocumentVectors.open(file));
+                }
+            }
+        }
+
+        // Background tasks setup
+        this.indexingExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "ContextAnalyzerIndex-Indexing");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ContextAnalyzerIndex-Maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maintenanceExecutor.scheduleWithFixedDelay(this::commitIfChanged,
+                COMMIT_INTERVAL, COMMIT_INTERVAL, TimeUnit.SECONDS);
+
+        this.idfStore = new IDFStore(new File(indexPath, "idf"), this.maintenanceExecutor);
+    }
+
+    public Analyzer getAnalyzer() {
+        return analyzer;
     }
 
-    private synchronized IndexReader getIndexReader() throws ContextAnalyzerException {
+    /**
+     * Returns the most recent document vectors of the field, possibly older than the
+     * current index reader if a refresh is pending, or null if they have never been written.
+     */
+    public DocumentVectors getDocumentVectors(String fieldName) {
+        return vectors.get(fieldName);
+    }
+
+    /**
+     * Returns a near-real-time reader that includes all the changes done by the index writer,
+     * committed or not. The caller must release the reader with decRef() when done.
+     */
+    private synchronized DirectoryReader getIndexReader() throws ContextAnalyzerException {
         if (this.indexReader == null) {
             try {
-                this.indexReader = DirectoryReader.open(this.indexDirectory);
+                this.indexReader = DirectoryReader.open(this.indexWriter, true);
             } catch (IOException e) {
                 throw new ContextAnalyzerException("Could not open index directory: " + this.indexDirectory, e);
             }
-
-            this.indexReader.incRef();
         } else {
             DirectoryReader reader;
 
             try {
-                reader = DirectoryReader.openIfChanged(this.indexReader);
+                reader = DirectoryReader.openIfChanged(this.indexReader, this.indexWriter, true);
             } catch (IOException e) {
                 throw new ContextAnalyzerException("Could not open index directory: " + this.indexDirectory, e);
             }
 
             if (reader != null) {
                 try {
-                    this.indexReader.close();
+                    this.indexReader.decRef();
                 } catch (IOException e) {
                     logger.warn("Could not close old indexReader", e);
                 }
 
                 this.indexReader = reader;
-                this.indexReader.incRef();
             }
         }
 
+        this.indexReader.incRef();
         return this.indexReader;
     }
 
+    public long getGeneration() throws ContextAnalyzerException {
+        DirectoryReader reader = this.getIndexReader();
+
+        try {
+            return reader.getVersion();
+        } finally {
+            release(reader);
+        }
+    }
+
+    private static void release(DirectoryReader reader) {
+        try {
+            reader.decRef();
+        } catch (IOException e) {
+            // Ignore it
+        }
+    }
+
+    // Document vectors
+
+    private File getVectorsFile(String fieldName) {
+        Locale lang = DocumentBuilder.getLangOfContentField(fieldName);
+        return new File(vectorsPath, lang.toLanguageTag() + VECTORS_FILE_EXTENSION);
+    }
+
+    private void writeDocumentVectors() throws ContextAnalyzerException {
+        synchronized (vectorsLock) {
+            DirectoryReader reader = this.getIndexReader();
+
+            try {
+                long generation = reader.getVersion();
+
+                for (String fieldName : MultiFields.getIndexedFields(reader)) {
+                    if (!fieldName.startsWith(DocumentBuilder.CONTENT_FIELD_PREFIX))
+                        continue;
+
+                    DocumentVectors current = this.vectors.get(fieldName);
+                    if (current != null && current.getGeneration() == generation)
+                        continue;
+
+                    File file = getVectorsFile(fieldName);
+
+                    try {
+                        IDFTable idfTable = idfStore.refresh(reader, fieldName);
+                        new DocumentVectorsWriter(reader, fieldName, idfTable).write(file);
+                        this.vectors.put(fieldName, DocumentVectors.open(file));
+                    } catch (IOException e) {
+                        throw new ContextAnalyzerException("Unable to write document vectors for field " + fieldName, e);
+                    }
+                }
+            } finally {
+                release(reader);
+            }
+        }
+    }
+
+    private void scheduleVectorsRefresh() {
+        if (vectorsRefreshScheduled.compareAndSet(false, true)) {
+            maintenanceExecutor.schedule(() -> {
+                vectorsRefreshScheduled.set(false);
+
+                try {
+                    writeDocumentVectors();
+                } catch (ContextAnalyzerException e) {
+                    logger.error("Unable to refresh document vectors", e);
+                }
+            }, VECTORS_REFRESH_DELAY, TimeUnit.SECONDS);
+        }
+    }
+
+    private void commitIfChanged() {
+        try {
+            if (this.indexWriter.hasUncommittedChanges())
+                this.indexWriter.commit();
+        } catch (IOException e) {
+            logger.error("Unable to commit changes to context analyzer index", e);
+        }
+    }
+
+    // Index update
+
     public void add(Corpus corpus) throws ContextAnalyzerException {
         this.add(Collections.singleton(corpus));
     }
 
     public void add(Collection<? extends Corpus> corpora) throws ContextAnalyzerException {
-        for (Corpus corpus : corpora) {
-            logger.info("Adding to index document " + corpus);
+        this.index(corpora, false);
+    }
 
-            try {
-                this.indexWriter.addDocument(DocumentBuilder.createDocument(corpus));
-            } catch (IOException e) {
-                throw new ContextAnalyzerException("Failed to add document " + corpus.getName() + " to index", e);
-            }
+    public void update(Corpus corpus) throws ContextAnalyzerException {
+        this.update(Collections.singleton(corpus));
+    }
+
+    /**
+     * Adds the given documents to the index, replacing any document with the same name.
+     */
+    public void update(Collection<? extends Corpus> corpora) throws ContextAnalyzerException {
+        this.index(corpora, true);
+    }
+
+    public void delete(String name) throws ContextAnalyzerException {
+        this.delete(Collections.singleton(name));
+    }
+
+    public void delete(Collection<String> names) throws ContextAnalyzerException {
+        Term[] terms = new Term[names.size()];
+
+        int i = 0;
+        for (String name : names) {
+            logger.info("Deleting from index document " + name);
+            terms[i++] = new Term(DocumentBuilder.DOCUMENT_NAME_FIELD, name);
         }
 
+        try {
+            this.indexWriter.deleteDocuments(terms);
+        } catch (IOException e) {
+            throw new ContextAnalyzerException("Failed to delete documents from index", e);
+        }
+
+        this.scheduleVectorsRefresh();
+    }
+
+    private void index(Collection<? extends Corpus> corpora, boolean update) throws ContextAnalyzerException {
+        ArrayList<Future<Void>> futures = new ArrayList<>(corpora.size());
+        for (Corpus corpus : corpora)
+            futures.add(indexingExecutor.submit(new IndexingTask(corpus, update)));
+
+        try {
+            for (Future<Void> future : futures)
+                future.get();
+        } catch (InterruptedException e) {
+            throw new ContextAnalyzerException("Indexing has been interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof ContextAnalyzerException)
+                throw (ContextAnalyzerException) cause;
+            else if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            else
+                throw new Error("Unexpected exception during indexing", cause);
+        } finally {
+            for (Future<Void> future : futures)
+                future.cancel(true);
+
+            this.scheduleVectorsRefresh();
+        }
+    }
+
+    /**
+     * Commits all pending changes and brings the document vectors up to date.
+     */
+    public void flush() throws ContextAnalyzerException {
         try {
             this.indexWriter.commit();
         } catch (IOException e) {
             throw new ContextAnalyzerException("Unable to commit changes to context analyzer index", e);
         }
+
+        this.writeDocumentVectors();
     }
 
     public void clear() throws ContextAnalyzerException {
@@ -128,10 +334,39 @@ public class ContextAnalyzerIndex implements Closeable, AutoCloseable {
         } catch (IOException e) {
             throw new ContextAnalyzerException("Unable to clear context analyzer index", e);
         }
+
+        synchronized (vectorsLock) {
+            this.vectors.clear();
+
+            try {
+                this.idfStore.clear();
+                FileUtils.cleanDirectory(vectorsPath);
+            } catch (IOException e) {
+                throw new ContextAnalyzerException("Unable to clear document vectors", e);
+            }
+        }
     }
 
     public List<ContextDocument> getSimilarDocuments(Corpus queryDocument, int limit) throws ContextAnalyzerException {
-        IndexReader reader = this.getIndexReader();
+        return getSimilarDocuments(queryDocument, limit, 0L).getDocuments();
+    }
+
+    /**
+     * Returns the documents most similar to the query; if timeout is greater than zero, documents
+     * not scored within timeout milliseconds are cancelled, get a zero similarity and the result
+     * is not complete.
+     */
+    public ContextResult getSimilarDocuments(Corpus queryDocument, int limit, long timeout) throws ContextAnalyzerException {
+        DirectoryReader reader = this.getIndexReader();
+
+        try {
+            return getSimilarDocuments(reader, queryDocument, limit, timeout);
+        } finally {
+            release(reader);
+        }
+    }
+
+    private ContextResult getSimilarDocuments(DirectoryReader reader, Corpus queryDocument, int limit, long timeout) throws ContextAnalyzerException {
         IndexSearcher searcher = new IndexSearcher(reader);
 
         String fieldName = DocumentBuilder.getContentField(queryDocument);
@@ -172,37 +407,43 @@ public class ContextAnalyzerIndex implements Closeable, AutoCloseable {
 
         ScoreDoc[] topDocs = collector.topDocs().scoreDocs;
 
-        // Compute cosine similarity
-        List<ContextDocument> result = new ArrayList<>(topDocs.length);
-
-        ConsineSimilarityCalculator calculator = new ConsineSimilarityCalculator(reader, DocumentBuilder.getContentField(queryDocument));
-        calculator.setAnalyzer(analyzer);
-        calculator.setBoost(true);
-        calculator.setReferenceDocument(DocumentBuilder.createDocument(queryDocument));
-        calculator.setScoreDocs(topDocs);
+        String[] names = new String[topDocs.length];
+        for (int i = 0; i < topDocs.length; i++) {
+            int docId = topDocs[i].doc;
 
-        calculator.calculateSimilarity();
-
-        for (ScoreDoc topDocRef : topDocs) {
-            Document topDoc;
             try {
-                topDoc = searcher.doc(topDocRef.doc);
+                names[i] = searcher.doc(docId).get(DocumentBuilder.DOCUMENT_NAME_FIELD);
             } catch (IOException e) {
-                throw new ContextAnalyzerException("Could not resolve document " + topDocRef.doc + " in index", e);
+                throw new ContextAnalyzerException("Could not resolve document " + docId + " in index", e);
             }
+        }
 
-            String name = topDoc.get(DocumentBuilder.DOCUMENT_NAME_FIELD);
-
-            float similarityScore;
-            try {
-                similarityScore = calculator.getSimilarity(topDocRef.doc);
-            } catch (IOException e) {
-                throw new ContextAnalyzerException("Could not compute cosine similarity for doc " + name, e);
+        // Compute cosine similarity
+        DocumentVectors documentVectors = this.vectors.get(fieldName);
+        if (documentVectors != null && documentVectors.getGeneration() != reader.getVersion())
+            documentVectors = null;
+
+        if (documentVectors != null) {
+            for (String name : names) {
+                if (!documentVectors.contains(name)) {
+                    documentVectors = null;
+                    break;
+                }
             }
-
-            result.add(new ContextDocument(name, similarityScore));
         }
 
+        float[] scores = new float[topDocs.length];
+        boolean complete = true;
+
+        if (documentVectors != null)
+            computeSimilarity(documentVectors, queryDocument, fieldName, names, scores);
+        else
+            complete = computeSimilarity(reader, queryDocument, fieldName, topDocs, names, timeout, scores);
+
+        List<ContextDocument> result = new ArrayList<>(topDocs.length);
+        for (int i = 0; i < topDocs.length; i++)
+            result.add(new ContextDocument(names[i], scores[i]));
+
         // Sort and limit result
         Collections.sort(result);
         Collections.reverse(result);
@@ -210,14 +451,116 @@ public class ContextAnalyzerIndex implements Closeable, AutoCloseable {
         if (result.size() > limit)
             result = new ArrayList<>(result.subList(0, limit));
 
-        return result;
+        return new ContextResult(result, complete);
+    }
+
+    private void computeSimilarity(DocumentVectors documentVectors, Corpus queryDocument, String fieldName,
+                                   String[] names, float[] scores) throws ContextAnalyzerException {
+        DocumentVectors.QueryVector queryVector;
+
+        Reader queryDocumentReader = null;
+        try {
+            queryDocumentReader = queryDocument.getContentReader();
+            queryVector = documentVectors.vectorize(analyzer, fieldName, queryDocumentReader);
+        } catch (IOException e) {
+            throw new ContextAnalyzerException("Could not compute query vector for similar documents query", e);
+        } finally {
+            IOUtils.closeQuietly(queryDocumentReader);
+        }
+
+        for (int i = 0; i < names.length; i++)
+            scores[i] = documentVectors.getSimilarity(queryVector, names[i]);
+    }
+
+    /**
+     * Returns false if some documents have not been scored before the timeout.
+     */
+    private boolean computeSimilarity(DirectoryReader reader, Corpus queryDocument, String fieldName,
+                                      ScoreDoc[] topDocs, String[] names, long timeout, float[] scores) throws ContextAnalyzerException {
+        IDFTable idfTable;
+        try {
+            idfTable = idfStore.get(reader, fieldName);
+        } catch (IOException e) {
+            throw new ContextAnalyzerException("Unable to load IDF table for field " + fieldName, e);
+        }
+
+        ConsineSimilarityCalculator calculator = new ConsineSimilarityCalculator(scoringExecutor, reader, fieldName);
+        calculator.setAnalyzer(analyzer);
+        calculator.setIDFTable(idfTable);
+        calculator.setTimeout(timeout);
+        calculator.setReferenceDocument(DocumentBuilder.createDocument(queryDocument));
+        calculator.setScoreDocs(topDocs);
+
+        try {
+            calculator.calculateSimilarity();
+        } finally {
+            calculator.cancel();
+        }
+
+        if (Thread.currentThread().isInterrupted())
+            throw new ContextAnalyzerException("Context request has been interrupted");
+
+        for (int i = 0; i < topDocs.length; i++) {
+            try {
+                scores[i] = calculator.getSimilarity(topDocs[i].doc);
+            } catch (IOException e) {
+                throw new ContextAnalyzerException("Could not compute cosine similarity for doc " + names[i], e);
+            }
+        }
+
+        return calculator.isComplete();
     }
 
     @Override
     public void close() throws IOException {
+        this.maintenanceExecutor.shutdownNow();
+        this.indexingExecutor.shutdownNow();
+
+        try {
+            this.maintenanceExecutor.awaitTermination(10, TimeUnit.SECONDS);
+            this.indexingExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            this.flush();
+        } catch (ContextAnalyzerException e) {
+            logger.error("Unable to flush context analyzer index", e);
+        }
+
         IOUtils.closeQuietly(this.indexReader);
         IOUtils.closeQuietly(this.indexWriter);
         IOUtils.closeQuietly(this.indexDirectory);
     }
 
+    private class IndexingTask implements Callable<Void> {
+
+        private final Corpus corpus;
+        private final boolean update;
+
+        public IndexingTask(Corpus corpus, boolean update) {
+            this.corpus = corpus;
+            this.update = update;
+        }
+
+        @Override
+        public Void call() throws ContextAnalyzerException {
+            logger.info((update ? "Updating" : "Adding to") + " index document " + corpus);
+
+            Document document = DocumentBuilder.createDocument(corpus);
+
+            try {
+                if (update)
+                    indexWriter.updateDocument(new Term(DocumentBuilder.DOCUMENT_NAME_FIELD, document.get(DocumentBuilder.DOCUMENT_NAME_FIELD)), document);
+                else
+                    indexWriter.addDocument(document);
+            } catch (IOException e) {
+                throw new ContextAnalyzerException("Failed to add document " + corpus.getName() + " to index", e);
+            }
+
+            return null;
+        }
+    }
+
 }
@@ -0,0 +1,150 @@
+package eu.modernmt.context.lucene;
+
+import java.io.Closeable;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Created by davide on 13/06/16.
+ * <p>
+ * Long-lived executor shared by all the context requests of a LuceneAnalyzer: the number of
+ * scoring threads and the length of the pending queue are fixed, when the queue is full
+ * the caller thread runs the task itself.
+ */
+public class ContextScoringExecutor implements Closeable, AutoCloseable {
+
+    private static final int DEFAULT_QUEUE_SIZE_PER_THREAD = 256;
+
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong tasks = new AtomicLong(0);
+    private final AtomicLong cancelledTasks = new AtomicLong(0);
+    private final AtomicLong totalQueueTime = new AtomicLong(0);
+    private final AtomicLong totalExecutionTime = new AtomicLong(0);
+    private final AtomicLong maxExecutionTime = new AtomicLong(0);
+
+    public ContextScoringExecutor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ContextScoringExecutor(int threads) {
+        this(threads, threads * DEFAULT_QUEUE_SIZE_PER_THREAD);
+    }
+
+    public ContextScoringExecutor(int threads, int queueSize) {
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), new ScoringThreadFactory(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public <V> Future<V> submit(Callable<V> task) {
+        InstrumentedTask<V> future = new InstrumentedTask<>(task);
+        executor.execute(future);
+        return future;
+    }
+
+    public int getThreads() {
+        return executor.getMaximumPoolSize();
+    }
+
+    public int getActiveThreads() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public long getTaskCount() {
+        return tasks.get();
+    }
+
+    public long getCancelledTaskCount() {
+        return cancelledTasks.get();
+    }
+
+    public double getAverageQueueTime() {
+        long count = tasks.get();
+        return count == 0 ? 0. : (totalQueueTime.get() / 1e6) / count;
+    }
+
+    public double getAverageExecutionTime() {
+        long count = tasks.get();
+        return count == 0 ? 0. : (totalExecutionTime.get() / 1e6) / count;
+    }
+
+    public double getMaxExecutionTime() {
+        return maxExecutionTime.get() / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ContextScoringExecutor[threads=%d, active=%d, queue=%d, tasks=%d, cancelled=%d, " +
+                        "avgQueueTime=%.2fms, avgExecutionTime=%.2fms, maxExecutionTime=%.2fms]",
+                getThreads(), getActiveThreads(), getQueueDepth(), getTaskCount(), getCancelledTaskCount(),
+                getAverageQueueTime(), getAverageExecutionTime(), getMaxExecutionTime());
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private class InstrumentedTask<V> extends FutureTask<V> {
+
+        private final long creationTime;
+
+        public InstrumentedTask(Callable<V> callable) {
+            super(callable);
+            this.creationTime = System.nanoTime();
+        }
+
+        @Override
+        public void run() {
+            if (isDone())
+                return;
+
+            long begin = System.nanoTime();
+            super.run();
+            long end = System.nanoTime();
+
+            long elapsed = end - begin;
+            totalQueueTime.addAndGet(begin - creationTime);
+            totalExecutionTime.addAndGet(elapsed);
+
+            long max;
+            while ((max = maxExecutionTime.get()) < elapsed && !maxExecutionTime.compareAndSet(max, elapsed)) ;
+
+            tasks.incrementAndGet();
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled)
+                cancelledTasks.incrementAndGet();
+
+            return cancelled;
+        }
+    }
+
+    private static class ScoringThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "ContextScoringThread-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
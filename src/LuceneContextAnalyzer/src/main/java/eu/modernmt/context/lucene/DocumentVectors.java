@@ -0,0 +1,322 @@
+package eu.modernmt.context.lucene;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Created by davide on 14/06/16.
+ * <p>
+ * Memory-mapped, precomputed L2-normalized TF-IDF vectors of the documents of a content field.
+ * Vectors are sparse, sorted arrays of term ordinals with their weights, so the cosine similarity
+ * with a query is a plain dot product that requires no allocation.
+ */
+public class DocumentVectors {
+
+    static final int MAGIC = 0x4d4d5456;
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 32;
+    static final int DOC_TABLE_POINTER_POSITION = 24;
+
+    // Vectors are mapped in a few large windows and sliced, instead of one mapping per document
+    private static final long MAX_WINDOW_SIZE = 1L << 30;
+
+    public static class QueryVector {
+
+        final int[] ordinals;
+        final float[] weights;
+        final int size;
+
+        private QueryVector(int[] ordinals, float[] weights, int size) {
+            this.ordinals = ordinals;
+            this.weights = weights;
+            this.size = size;
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+
+    private final long generation;
+    private final int numDocs;
+    private final int termCount;
+    private final int idfsOffset;
+    private final int termsOffset;
+    private final MappedByteBuffer dictionary;
+    private final String[] names;
+    private final ByteBuffer[] buffers;
+    private final HashMap<String, ByteBuffer> vectors;
+
+    public static DocumentVectors open(File file) throws IOException {
+        RandomAccessFile raf = null;
+
+        try {
+            raf = new RandomAccessFile(file, "r");
+            return new DocumentVectors(raf.getChannel());
+        } finally {
+            IOUtils.closeQuietly(raf);
+        }
+    }
+
+    private DocumentVectors(FileChannel channel) throws IOException {
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+            throw new IOException("Invalid document vectors file");
+
+        this.generation = header.getLong(8);
+        this.numDocs = header.getInt(16);
+        this.termCount = header.getInt(20);
+        long docTableOffset = header.getLong(DOC_TABLE_POINTER_POSITION);
+
+        this.idfsOffset = HEADER_SIZE + 4 * (termCount + 1);
+        this.termsOffset = idfsOffset + 4 * termCount;
+
+        MappedByteBuffer offsets = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + 4L * termCount, 4);
+        long dictionarySize = termsOffset + (long) offsets.getInt(0);
+
+        if (dictionarySize > Integer.MAX_VALUE)
+            throw new IOException("Terms dictionary too large: " + dictionarySize + " bytes");
+
+        this.dictionary = channel.map(FileChannel.MapMode.READ_ONLY, 0, dictionarySize);
+
+        channel.position(docTableOffset);
+        DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+
+        int docCount = input.readInt();
+        this.names = new String[docCount];
+        this.buffers = new ByteBuffer[docCount];
+        this.vectors = new HashMap<>(docCount);
+
+        long[] vectorOffsets = new long[docCount];
+        long[] lengths = new long[docCount];
+
+        for (int i = 0; i < docCount; i++) {
+            this.names[i] = input.readUTF();
+            vectorOffsets[i] = input.readLong();
+            lengths[i] = 8L * input.readInt();
+        }
+
+        // Vectors are written sequentially, a window covers the largest run of vectors that fits in it
+        int first = 0;
+        while (first < docCount) {
+            long windowStart = vectorOffsets[first];
+            long windowEnd = vectorOffsets[first] + lengths[first];
+
+            int last = first + 1;
+            while (last < docCount && vectorOffsets[last] >= windowStart && vectorOffsets[last] + lengths[last] - windowStart <= MAX_WINDOW_SIZE) {
+                windowEnd = Math.max(windowEnd, vectorOffsets[last] + lengths[last]);
+                last++;
+            }
+
+            if (windowEnd - windowStart > Integer.MAX_VALUE)
+                throw new IOException("Document vector too large: " + (windowEnd - windowStart) + " bytes");
+
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowEnd - windowStart);
+
+            for (int i = first; i < last; i++) {
+                ByteBuffer vector = window.duplicate();
+                vector.position((int) (vectorOffsets[i] - windowStart));
+                vector.limit((int) (vectorOffsets[i] - windowStart + lengths[i]));
+
+                this.buffers[i] = vector.slice();
+                this.vectors.put(names[i], this.buffers[i]);
+            }
+
+            first = last;
+        }
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public boolean contains(String name) {
+        return vectors.containsKey(name);
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public int getTermCount() {
+        return termCount;
+    }
+
+    public String getName(int index) {
+        return names[index];
+    }
+
+    /**
+     * Returns the mapped vector of a document: the sorted term ordinals (int)
+     * followed by the corresponding weights (float).
+     */
+    ByteBuffer getVector(int index) {
+        return buffers[index];
+    }
+
+    public int getTermOrdinal(BytesRef term) {
+        int lo = 0;
+        int hi = termCount - 1;
+
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compareTerm(mid, term);
+
+            if (cmp < 0)
+                lo = mid + 1;
+            else if (cmp > 0)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+
+        return -1;
+    }
+
+    private int compareTerm(int ordinal, BytesRef term) {
+        int start = dictionary.getInt(HEADER_SIZE + 4 * ordinal);
+        int end = dictionary.getInt(HEADER_SIZE + 4 * (ordinal + 1));
+        int length = end - start;
+        int limit = Math.min(length, term.length);
+
+        int base = termsOffset + start;
+        for (int i = 0; i < limit; i++) {
+            int a = dictionary.get(base + i) & 0xff;
+            int b = term.bytes[term.offset + i] & 0xff;
+
+            if (a != b)
+                return a - b;
+        }
+
+        return length - term.length;
+    }
+
+    public float getIDF(int ordinal) {
+        return dictionary.getFloat(idfsOffset + 4 * ordinal);
+    }
+
+    public QueryVector vectorize(Analyzer analyzer, String fieldName, Reader reader) throws IOException {
+        int[] ordinals = new int[64];
+        int count = 0;
+        long unknownTerms = 0;
+
+        TokenStream stream = analyzer.tokenStream(fieldName, reader);
+        try {
+            CharTermAttribute termAttribute = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+
+            while (stream.incrementToken()) {
+                int ordinal = getTermOrdinal(new BytesRef(termAttribute));
+
+                if (ordinal < 0) {
+                    unknownTerms++;
+                } else {
+                    ordinals = ArrayUtil.grow(ordinals, count + 1);
+                    ordinals[count++] = ordinal;
+                }
+            }
+
+            stream.end();
+        } finally {
+            IOUtils.closeQuietly(stream);
+        }
+
+        Arrays.sort(ordinals, 0, count);
+
+        // Terms unknown to the index do not contribute to the dot product but still count in the norm
+        double unknownIdf = IDFTable.idf(numDocs, 0);
+        double norm = unknownTerms * unknownIdf * unknownIdf;
+
+        float[] weights = new float[count];
+        int size = 0;
+
+        for (int i = 0; i < count; ) {
+            int ordinal = ordinals[i];
+            int j = i + 1;
+            while (j < count && ordinals[j] == ordinal)
+                j++;
+
+            float weight = IDFTable.tf(j - i) * getIDF(ordinal);
+            ordinals[size] = ordinal;
+            weights[size] = weight;
+            norm += weight * weight;
+
+            size++;
+            i = j;
+        }
+
+        norm = Math.sqrt(norm);
+        for (int i = 0; i < size; i++)
+            weights[i] = (float) (weights[i] / norm);
+
+        return new QueryVector(ordinals, weights, size);
+    }
+
+    public float getSimilarity(QueryVector query, String name) {
+        ByteBuffer vector = vectors.get(name);
+        if (vector == null)
+            return 0.f;
+
+        int size = vector.capacity() >> 3;
+        int weightsOffset = size << 2;
+
+        double dotProduct = 0;
+        int from = 0;
+
+        for (int i = 0; i < query.size && from < size; i++) {
+            int position = search(vector, from, size, query.ordinals[i]);
+
+            if (position >= 0) {
+                dotProduct += query.weights[i] * vector.getFloat(weightsOffset + (position << 2));
+                from = position + 1;
+            } else {
+                from = -position - 1;
+            }
+        }
+
+        float similarity = (float) dotProduct;
+
+        if (Float.isInfinite(similarity) || Float.isNaN(similarity))
+            return 0.f;
+        else
+            return similarity;
+    }
+
+    // Exponential search: the cost depends on the query length, not on the document size
+    private static int search(ByteBuffer vector, int from, int size, int key) {
+        int bound = 1;
+        while (from + bound < size && vector.getInt((from + bound) << 2) < key)
+            bound <<= 1;
+
+        int lo = from + (bound >> 1);
+        int hi = Math.min(from + bound, size - 1);
+
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int value = vector.getInt(mid << 2);
+
+            if (value < key)
+                lo = mid + 1;
+            else if (value > key)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+
+        return -(lo + 1);
+    }
+
+}
@@ -0,0 +1,165 @@
+package eu.modernmt.context.lucene;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Created by davide on 14/06/16.
+ * <p>
+ * Writes the DocumentVectors file of a content field: a snapshot of the field IDFTable,
+ * followed by the L2-normalized TF-IDF vector of every live document in the index.
+ */
+public class DocumentVectorsWriter {
+
+    private static final Set<String> NAME_FIELD_SET = Collections.singleton(DocumentBuilder.DOCUMENT_NAME_FIELD);
+
+    private final IndexReader reader;
+    private final String fieldName;
+    private final IDFTable idfTable;
+
+    public DocumentVectorsWriter(IndexReader reader, String fieldName, IDFTable idfTable) {
+        this.reader = reader;
+        this.fieldName = fieldName;
+        this.idfTable = idfTable;
+    }
+
+    public void write(File file) throws IOException {
+        File tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
+
+        DataOutputStream output = null;
+        long docTableOffset;
+
+        try {
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 1024 * 1024));
+            docTableOffset = write(output);
+        } finally {
+            IOUtils.closeQuietly(output);
+        }
+
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(tmpFile, "rw");
+            raf.seek(DocumentVectors.DOC_TABLE_POINTER_POSITION);
+            raf.writeLong(docTableOffset);
+        } finally {
+            IOUtils.closeQuietly(raf);
+        }
+
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private long write(DataOutputStream output) throws IOException {
+        int termCount = idfTable.size();
+
+        output.writeInt(DocumentVectors.MAGIC);
+        output.writeInt(DocumentVectors.VERSION);
+        output.writeLong(idfTable.getGeneration());
+        output.writeInt(idfTable.getNumDocs());
+        output.writeInt(termCount);
+        output.writeLong(0L); // doc table offset, written at the end
+
+        BytesRef scratch = new BytesRef();
+        long termsLength = 0;
+
+        output.writeInt(0);
+        for (int i = 0; i < termCount; i++) {
+            termsLength += idfTable.getTerm(i, scratch).length;
+            output.writeInt((int) termsLength);
+        }
+
+        for (int i = 0; i < termCount; i++)
+            output.writeFloat(idfTable.getIDF(i));
+
+        for (int i = 0; i < termCount; i++) {
+            idfTable.getTerm(i, scratch);
+            output.write(scratch.bytes, scratch.offset, scratch.length);
+        }
+
+        long position = DocumentVectors.HEADER_SIZE + 4L * (termCount + 1) + 4L * termCount + termsLength;
+
+        // Document vectors
+
+        ArrayList<String> names = new ArrayList<>();
+        ArrayList<long[]> entries = new ArrayList<>();
+
+        int[] ordinals = new int[1024];
+        float[] weights = new float[1024];
+
+        Bits liveDocs = MultiFields.getLiveDocs(reader);
+        for (int docId = 0; docId < reader.maxDoc(); docId++) {
+            if (liveDocs != null && !liveDocs.get(docId))
+                continue;
+
+            Terms vector = reader.getTermVector(docId, fieldName);
+            if (vector == null)
+                continue;
+
+            Document document = reader.document(docId, NAME_FIELD_SET);
+            String name = document.get(DocumentBuilder.DOCUMENT_NAME_FIELD);
+
+            TermsEnum termsEnum = vector.iterator(null);
+            BytesRef term;
+            int size = 0;
+            double norm = 0;
+
+            while ((term = termsEnum.next()) != null) {
+                int ordinal = idfTable.getOrdinal(term);
+                if (ordinal < 0)
+                    continue;
+
+                float weight = IDFTable.tf(termsEnum.totalTermFreq()) * idfTable.getIDF(ordinal);
+
+                ordinals = ArrayUtil.grow(ordinals, size + 1);
+                weights = ArrayUtil.grow(weights, size + 1);
+                ordinals[size] = ordinal;
+                weights[size] = weight;
+                size++;
+
+                norm += weight * weight;
+            }
+
+            if (size == 0)
+                continue;
+
+            // Term vectors and dictionary share the same sort order, ordinals are already sorted
+            norm = Math.sqrt(norm);
+
+            for (int i = 0; i < size; i++)
+                output.writeInt(ordinals[i]);
+            for (int i = 0; i < size; i++)
+                output.writeFloat((float) (weights[i] / norm));
+
+            names.add(name);
+            entries.add(new long[]{position, size});
+            position += 8L * size;
+        }
+
+        // Documents table
+
+        output.writeInt(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            long[] entry = entries.get(i);
+
+            output.writeUTF(names.get(i));
+            output.writeLong(entry[0]);
+            output.writeInt((int) entry[1]);
+        }
+
+        return position;
+    }
+
+}
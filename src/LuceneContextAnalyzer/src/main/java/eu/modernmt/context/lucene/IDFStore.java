@@ -0,0 +1,149 @@
+package eu.modernmt.context.lucene;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.index.DirectoryReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Created by davide on 15/06/16.
+ * <p>
+ * Keeps the IDF table of every content field in sync with the index reader version.
+ * Tables are serialized in the store path, so that they can be reloaded at startup
+ * if the index has not changed in the meantime.
+ * <p>
+ * Queries never wait for a rebuild: when the reader version changes, the previous table
+ * keeps being served while the new one is built in background by the refresh executor.
+ */
+public class IDFStore {
+
+    private static final String IDF_FILE_EXTENSION = ".idf";
+
+    private final Logger logger = LogManager.getLogger(IDFStore.class);
+
+    private final File path;
+    private final Executor refreshExecutor;
+    private final ConcurrentHashMap<String, IDFTable> tables = new ConcurrentHashMap<>();
+    private final Set<String> pendingRefreshes = ConcurrentHashMap.newKeySet();
+
+    public IDFStore(File path, Executor refreshExecutor) throws IOException {
+        this.path = path;
+        this.refreshExecutor = refreshExecutor;
+
+        if (!path.isDirectory())
+            FileUtils.forceMkdir(path);
+    }
+
+    private File getFile(String fieldName) {
+        Locale lang = DocumentBuilder.getLangOfContentField(fieldName);
+        return new File(path, lang.toLanguageTag() + IDF_FILE_EXTENSION);
+    }
+
+    /**
+     * Returns the IDF table of the field, possibly built from a previous reader version:
+     * in that case a background refresh is scheduled. The table is built in the calling
+     * thread only if there is no table at all for the field.
+     */
+    public IDFTable get(DirectoryReader reader, String fieldName) throws IOException {
+        IDFTable table = tables.get(fieldName);
+
+        if (table == null)
+            return refresh(reader, fieldName);
+
+        if (table.getGeneration() != reader.getVersion())
+            scheduleRefresh(reader, fieldName);
+
+        return table;
+    }
+
+    /**
+     * Returns the IDF table of the field for the exact version of the given reader,
+     * building and storing it if necessary.
+     */
+    public IDFTable refresh(DirectoryReader reader, String fieldName) throws IOException {
+        long generation = reader.getVersion();
+
+        IDFTable table = tables.get(fieldName);
+        if (table != null && table.getGeneration() == generation)
+            return table;
+
+        synchronized (this) {
+            table = tables.get(fieldName);
+            if (table != null && table.getGeneration() == generation)
+                return table;
+
+            File file = getFile(fieldName);
+
+            if (file.isFile()) {
+                try {
+                    table = IDFTable.load(file);
+                } catch (IOException e) {
+                    logger.warn("Unable to load IDF table from file " + file, e);
+                    table = null;
+                }
+            }
+
+            if (table == null || table.getGeneration() != generation) {
+                table = IDFTable.build(reader, fieldName);
+
+                try {
+                    table.store(file);
+                } catch (IOException e) {
+                    logger.warn("Unable to store IDF table to file " + file, e);
+                }
+            }
+
+            tables.put(fieldName, table);
+            return table;
+        }
+    }
+
+    private void scheduleRefresh(DirectoryReader reader, String fieldName) {
+        if (!pendingRefreshes.add(fieldName))
+            return;
+
+        // The reader must stay open until the refresh is done
+        if (!reader.tryIncRef()) {
+            pendingRefreshes.remove(fieldName);
+            return;
+        }
+
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    refresh(reader, fieldName);
+                } catch (IOException e) {
+                    logger.warn("Unable to refresh IDF table for field " + fieldName, e);
+                } finally {
+                    pendingRefreshes.remove(fieldName);
+                    release(reader);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingRefreshes.remove(fieldName);
+            release(reader);
+        }
+    }
+
+    private static void release(DirectoryReader reader) {
+        try {
+            reader.decRef();
+        } catch (IOException e) {
+            // Ignore it
+        }
+    }
+
+    public synchronized void clear() throws IOException {
+        tables.clear();
+        FileUtils.cleanDirectory(path);
+    }
+
+}
@@ -1,61 +1,211 @@
 package eu.modernmt.context.lucene;
 
-import org.apache.lucene.index.IndexReader;
-import org.apache.lucene.index.Term;
+import org.apache.commons.io.IOUtils;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BytesRef;
 
-import java.io.IOException;
-import java.util.concurrent.ConcurrentHashMap;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
 
 /**
  * Created by davide on 22/09/15.
+ * <p>
+ * Immutable IDF table of a field, computed in bulk from the terms dictionary of a specific
+ * reader version. Terms are kept sorted so that the ordinal of a term is its position in
+ * the dictionary and IDF lookups are a binary search followed by an array access.
  */
 public class IDFTable {
 
-    private ConcurrentHashMap<String, Float> cache;
-    private IndexReader indexReader;
-    private String fieldId;
-    private int numDocs;
+    private static final int MAGIC = 0x4d4d5449;
+    private static final int VERSION = 1;
 
-    public IDFTable(IndexReader indexReader, String fieldId) {
-        this.indexReader = indexReader;
-        this.fieldId = fieldId;
-        this.numDocs = indexReader.numDocs();
-        this.cache = new ConcurrentHashMap<>();
+    private final long generation;
+    private final int numDocs;
+    private final int[] offsets;
+    private final byte[] terms;
+    private final float[] idfs;
+
+    public static IDFTable build(DirectoryReader reader, String fieldId) throws IOException {
+        int numDocs = reader.numDocs();
+
+        int count = 0;
+        int[] offsets = new int[1024];
+        byte[] bytes = new byte[64 * 1024];
+        float[] idfs = new float[1024];
+
+        Terms terms = MultiFields.getTerms(reader, fieldId);
+        if (terms != null) {
+            TermsEnum termsEnum = terms.iterator(null);
+            BytesRef term;
+
+            while ((term = termsEnum.next()) != null) {
+                int start = offsets[count];
+                int end = start + term.length;
+
+                bytes = ArrayUtil.grow(bytes, end);
+                System.arraycopy(term.bytes, term.offset, bytes, start, term.length);
+
+                idfs = ArrayUtil.grow(idfs, count + 1);
+                idfs[count] = idf(numDocs, termsEnum.docFreq());
+
+                offsets = ArrayUtil.grow(offsets, count + 2);
+                offsets[count + 1] = end;
+
+                count++;
+            }
+        }
+
+        return new IDFTable(reader.getVersion(), numDocs,
+                Arrays.copyOf(offsets, count + 1),
+                Arrays.copyOf(bytes, offsets[count]),
+                Arrays.copyOf(idfs, count));
     }
 
-    public float getTFIDF(String term, int tf) throws IOException {
-        return getTFIDF(new Term(fieldId, term), tf);
+    public static IDFTable load(File file) throws IOException {
+        DataInputStream input = null;
+
+        try {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1024 * 1024));
+
+            if (input.readInt() != MAGIC || input.readInt() != VERSION)
+                throw new IOException("Invalid IDF table file: " + file);
+
+            long generation = input.readLong();
+            int numDocs = input.readInt();
+            int count = input.readInt();
+
+            int[] offsets = new int[count + 1];
+            for (int i = 0; i < offsets.length; i++)
+                offsets[i] = input.readInt();
+
+            float[] idfs = new float[count];
+            for (int i = 0; i < idfs.length; i++)
+                idfs[i] = input.readFloat();
+
+            byte[] terms = new byte[offsets[count]];
+            input.readFully(terms);
+
+            return new IDFTable(generation, numDocs, offsets, terms, idfs);
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
     }
 
-    public float getTFIDF(BytesRef term, int tf) throws IOException {
-        return getTFIDF(new Term(fieldId, term), tf);
+    private IDFTable(long generation, int numDocs, int[] offsets, byte[] terms, float[] idfs) {
+        this.generation = generation;
+        this.numDocs = numDocs;
+        this.offsets = offsets;
+        this.terms = terms;
+        this.idfs = idfs;
     }
 
-    public float getTFIDF(Term term, int tf) throws IOException {
-        String text = term.text();
-        Float idf = this.cache.get(text);
+    public void store(File file) throws IOException {
+        File tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        DataOutputStream output = null;
 
-        if (idf == null) {
-            synchronized (this) {
-                idf = this.cache.get(text);
+        try {
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 1024 * 1024));
 
-                if (idf == null) {
-                    long df = this.indexReader.docFreq(term);
-                    idf = idf(numDocs, df);
-                    this.cache.putIfAbsent(text, idf);
-                }
-            }
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(generation);
+            output.writeInt(numDocs);
+            output.writeInt(idfs.length);
+
+            for (int offset : offsets)
+                output.writeInt(offset);
+            for (float idf : idfs)
+                output.writeFloat(idf);
+            output.write(terms);
+        } finally {
+            IOUtils.closeQuietly(output);
         }
 
-        return tf(tf) * idf;
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public int getNumDocs() {
+        return numDocs;
+    }
+
+    public int size() {
+        return idfs.length;
+    }
+
+    public BytesRef getTerm(int ordinal, BytesRef scratch) {
+        scratch.bytes = terms;
+        scratch.offset = offsets[ordinal];
+        scratch.length = offsets[ordinal + 1] - offsets[ordinal];
+        return scratch;
+    }
+
+    public int getOrdinal(BytesRef term) {
+        int lo = 0;
+        int hi = idfs.length - 1;
+
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compare(mid, term);
+
+            if (cmp < 0)
+                lo = mid + 1;
+            else if (cmp > 0)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+
+        return -1;
+    }
+
+    private int compare(int ordinal, BytesRef term) {
+        int start = offsets[ordinal];
+        int length = offsets[ordinal + 1] - start;
+        int limit = Math.min(length, term.length);
+
+        for (int i = 0; i < limit; i++) {
+            int a = terms[start + i] & 0xff;
+            int b = term.bytes[term.offset + i] & 0xff;
+
+            if (a != b)
+                return a - b;
+        }
+
+        return length - term.length;
+    }
+
+    public float getIDF(int ordinal) {
+        return idfs[ordinal];
+    }
+
+    public float getIDF(BytesRef term) {
+        int ordinal = getOrdinal(term);
+        return ordinal < 0 ? idf(numDocs, 0) : idfs[ordinal];
+    }
+
+    public float getTFIDF(BytesRef term, int tf) {
+        return tf(tf) * getIDF(term);
+    }
+
+    public float getTFIDF(String term, int tf) {
+        return getTFIDF(new BytesRef(term), tf);
     }
 
-    private static float tf(int freq) {
+    static float tf(long freq) {
         return (float) Math.sqrt(freq);
     }
 
-    private static float idf(long numDocs, long docFreq) {
+    static float idf(long numDocs, long docFreq) {
         return (float) (Math.log(numDocs / (double) (docFreq + 1)) + 1.0);
     }
 }
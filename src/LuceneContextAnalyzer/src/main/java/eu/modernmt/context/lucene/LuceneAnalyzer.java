@@ -3,6 +3,7 @@ package eu.modernmt.context.lucene;
 import eu.modernmt.context.ContextAnalyzer;
 import eu.modernmt.context.ContextAnalyzerException;
 import eu.modernmt.context.ContextDocument;
+import eu.modernmt.context.ContextResult;
 import eu.modernmt.model.Corpus;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -10,7 +11,9 @@ import org.apache.logging.log4j.Logger;
 import java.io.File;
 import java.io.IOException;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Created by davide on 09/05/16.
@@ -18,10 +21,16 @@ import java.util.List;
 public class LuceneAnalyzer extends ContextAnalyzer implements AutoCloseable {
 
     private final Logger logger = LogManager.getLogger(ContextAnalyzer.class);
+    protected ContextScoringExecutor scoringExecutor;
     protected ContextAnalyzerIndex index;
 
     public LuceneAnalyzer(File indexPath) throws IOException {
-        this.index = new ContextAnalyzerIndex(indexPath);
+        this.scoringExecutor = new ContextScoringExecutor();
+        this.index = new ContextAnalyzerIndex(indexPath, this.scoringExecutor);
+    }
+
+    public ContextScoringExecutor getScoringExecutor() {
+        return scoringExecutor;
     }
 
     @Override
@@ -31,18 +40,59 @@ public class LuceneAnalyzer extends ContextAnalyzer implements AutoCloseable {
         long now = System.currentTimeMillis();
         this.index.clear();
         this.index.add(documents);
+        this.index.flush();
         long elapsed = (System.currentTimeMillis() - now) / 1000L;
 
         logger.info("ContextAnalyzer index rebuild completed in " + elapsed + "s.");
     }
 
+    @Override
+    public void add(Collection<? extends Corpus> documents) throws ContextAnalyzerException {
+        this.index.add(documents);
+    }
+
+    @Override
+    public void update(Collection<? extends Corpus> documents) throws ContextAnalyzerException {
+        this.index.update(documents);
+    }
+
+    @Override
+    public void delete(Collection<String> names) throws ContextAnalyzerException {
+        this.index.delete(names);
+    }
+
     @Override
     public List<ContextDocument> getContext(Corpus query, int limit) throws ContextAnalyzerException {
-        return this.index.getSimilarDocuments(query, limit);
+        return getContext(query, limit, 0L).getDocuments();
+    }
+
+    @Override
+    public ContextResult getContext(Corpus query, int limit, long timeout) throws ContextAnalyzerException {
+        return this.index.getSimilarDocuments(query, limit, timeout);
+    }
+
+    @Override
+    public long getGeneration() throws ContextAnalyzerException {
+        return this.index.getGeneration();
+    }
+
+    @Override
+    public Map<String, Number> getStatistics() {
+        LinkedHashMap<String, Number> stats = new LinkedHashMap<>();
+        stats.put("scoring_threads", scoringExecutor.getThreads());
+        stats.put("scoring_active", scoringExecutor.getActiveThreads());
+        stats.put("scoring_queued", scoringExecutor.getQueueDepth());
+        stats.put("scoring_tasks", scoringExecutor.getTaskCount());
+        stats.put("scoring_cancelled", scoringExecutor.getCancelledTaskCount());
+        stats.put("scoring_avg_queue_time", scoringExecutor.getAverageQueueTime());
+        stats.put("scoring_avg_execution_time", scoringExecutor.getAverageExecutionTime());
+        stats.put("scoring_max_execution_time", scoringExecutor.getMaxExecutionTime());
+        return stats;
     }
 
     @Override
     public void close() throws IOException {
+        this.scoringExecutor.close();
         this.index.close();
     }
 }
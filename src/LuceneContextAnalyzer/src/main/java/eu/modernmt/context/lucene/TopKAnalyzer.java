@@ -0,0 +1,70 @@
+package eu.modernmt.context.lucene;
+
+import eu.modernmt.context.ContextAnalyzerException;
+import eu.modernmt.context.ContextResult;
+import eu.modernmt.model.Corpus;
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Created by davide on 16/06/16.
+ * <p>
+ * Context analyzer that computes the cosine top-k in a single pass over an inverted
+ * index of the document vectors, instead of re-scoring MoreLikeThis candidates.
+ */
+public class TopKAnalyzer extends LuceneAnalyzer {
+
+    private final ConcurrentHashMap<String, TopKIndex> indexes = new ConcurrentHashMap<>();
+
+    public TopKAnalyzer(File indexPath) throws IOException {
+        super(indexPath);
+    }
+
+    private TopKIndex getTopKIndex(String fieldName, DocumentVectors vectors) {
+        TopKIndex topKIndex = indexes.get(fieldName);
+
+        if (topKIndex == null || topKIndex.getDocumentVectors() != vectors) {
+            synchronized (this) {
+                topKIndex = indexes.get(fieldName);
+
+                if (topKIndex == null || topKIndex.getDocumentVectors() != vectors) {
+                    topKIndex = new TopKIndex(vectors);
+                    indexes.put(fieldName, topKIndex);
+                }
+            }
+        }
+
+        return topKIndex;
+    }
+
+    @Override
+    public ContextResult getContext(Corpus query, int limit, long timeout) throws ContextAnalyzerException {
+        String fieldName = DocumentBuilder.getContentField(query);
+        DocumentVectors vectors = this.index.getDocumentVectors(fieldName);
+
+        // Document vectors not yet written, use the standard approach
+        if (vectors == null)
+            return super.getContext(query, limit, timeout);
+
+        TopKIndex topKIndex = getTopKIndex(fieldName, vectors);
+
+        DocumentVectors.QueryVector queryVector;
+        Reader reader = null;
+
+        try {
+            reader = query.getContentReader();
+            queryVector = vectors.vectorize(this.index.getAnalyzer(), fieldName, reader);
+        } catch (IOException e) {
+            throw new ContextAnalyzerException("Could not compute query vector for similar documents query", e);
+        } finally {
+            IOUtils.closeQuietly(reader);
+        }
+
+        return new ContextResult(topKIndex.search(queryVector, limit), true);
+    }
+
+}
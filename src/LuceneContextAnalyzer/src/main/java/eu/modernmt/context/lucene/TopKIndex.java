@@ -0,0 +1,251 @@
+package eu.modernmt.context.lucene;
+
+import eu.modernmt.context.ContextDocument;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Created by davide on 16/06/16.
+ * <p>
+ * In-memory inverted index over the DocumentVectors of a field: for every term ordinal
+ * it stores the documents containing it, sorted by document index, with their normalized
+ * weights and the maximum weight of the list. Queries compute the exact cosine top-k in a
+ * single document-at-a-time pass with MaxScore pruning.
+ */
+public class TopKIndex {
+
+    private final DocumentVectors vectors;
+    private final int[] starts;
+    private final int[] documents;
+    private final float[] weights;
+    private final float[] maxWeights;
+
+    public TopKIndex(DocumentVectors vectors) {
+        this.vectors = vectors;
+
+        int termCount = vectors.getTermCount();
+        int docCount = vectors.size();
+
+        // Count postings per term
+
+        long total = 0;
+        int[] starts = new int[termCount + 1];
+
+        for (int doc = 0; doc < docCount; doc++) {
+            ByteBuffer vector = vectors.getVector(doc);
+            int size = vector.capacity() >> 3;
+
+            for (int i = 0; i < size; i++)
+                starts[vector.getInt(i << 2) + 1]++;
+
+            total += size;
+        }
+
+        if (total > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Too many postings for an in-memory index: " + total);
+
+        for (int i = 0; i < termCount; i++)
+            starts[i + 1] += starts[i];
+
+        // Fill postings
+
+        this.starts = starts;
+        this.documents = new int[(int) total];
+        this.weights = new float[(int) total];
+        this.maxWeights = new float[termCount];
+
+        int[] positions = Arrays.copyOf(starts, termCount);
+
+        for (int doc = 0; doc < docCount; doc++) {
+            ByteBuffer vector = vectors.getVector(doc);
+            int size = vector.capacity() >> 3;
+            int weightsOffset = size << 2;
+
+            for (int i = 0; i < size; i++) {
+                int ordinal = vector.getInt(i << 2);
+                float weight = vector.getFloat(weightsOffset + (i << 2));
+
+                int position = positions[ordinal]++;
+                this.documents[position] = doc;
+                this.weights[position] = weight;
+
+                if (weight > this.maxWeights[ordinal])
+                    this.maxWeights[ordinal] = weight;
+            }
+        }
+    }
+
+    public DocumentVectors getDocumentVectors() {
+        return vectors;
+    }
+
+    public List<ContextDocument> search(DocumentVectors.QueryVector query, int limit) {
+        int n = query.size;
+        if (n == 0 || limit <= 0)
+            return Collections.emptyList();
+
+        // Query terms sorted by increasing score upper bound
+
+        Integer[] order = new Integer[n];
+        float[] bounds = new float[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+            bounds[i] = query.weights[i] * maxWeights[query.ordinals[i]];
+        }
+        Arrays.sort(order, (a, b) -> Float.compare(bounds[a], bounds[b]));
+
+        int[] cursors = new int[n];
+        int[] ends = new int[n];
+        float[] queryWeights = new float[n];
+        float[] cumulativeBounds = new float[n];
+
+        float cumulative = 0;
+        for (int i = 0; i < n; i++) {
+            int ordinal = query.ordinals[order[i]];
+
+            cursors[i] = starts[ordinal];
+            ends[i] = starts[ordinal + 1];
+            queryWeights[i] = query.weights[order[i]];
+            cumulative += bounds[order[i]];
+            cumulativeBounds[i] = cumulative;
+        }
+
+        // MaxScore document-at-a-time evaluation
+
+        ScoreHeap heap = new ScoreHeap(limit);
+        float threshold = 0.f;
+        int firstEssential = 0;
+
+        while (true) {
+            int doc = Integer.MAX_VALUE;
+            for (int i = firstEssential; i < n; i++) {
+                if (cursors[i] < ends[i] && documents[cursors[i]] < doc)
+                    doc = documents[cursors[i]];
+            }
+
+            if (doc == Integer.MAX_VALUE)
+                break;
+
+            float score = 0.f;
+            for (int i = firstEssential; i < n; i++) {
+                if (cursors[i] < ends[i] && documents[cursors[i]] == doc) {
+                    score += queryWeights[i] * weights[cursors[i]];
+                    cursors[i]++;
+                }
+            }
+
+            for (int i = firstEssential - 1; i >= 0; i--) {
+                if (score + cumulativeBounds[i] <= threshold)
+                    break;
+
+                int position = advance(cursors[i], ends[i], doc);
+                cursors[i] = position;
+
+                if (position < ends[i] && documents[position] == doc)
+                    score += queryWeights[i] * weights[position];
+            }
+
+            if (score > threshold && heap.offer(doc, score) && heap.isFull()) {
+                threshold = heap.minScore();
+
+                while (firstEssential < n && cumulativeBounds[firstEssential] <= threshold)
+                    firstEssential++;
+            }
+        }
+
+        // Collect results
+
+        ArrayList<ContextDocument> result = new ArrayList<>(heap.size);
+        for (int i = 0; i < heap.size; i++)
+            result.add(new ContextDocument(vectors.getName(heap.documents[i]), heap.scores[i]));
+
+        Collections.sort(result);
+        Collections.reverse(result);
+
+        return result;
+    }
+
+    // Returns the first position in [from, to) whose document is greater or equal to doc
+    private int advance(int from, int to, int doc) {
+        int lo = from;
+        int hi = to - 1;
+
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+
+            if (documents[mid] < doc)
+                lo = mid + 1;
+            else
+                hi = mid - 1;
+        }
+
+        return lo;
+    }
+
+    private static class ScoreHeap {
+
+        private final int[] documents;
+        private final float[] scores;
+        private int size = 0;
+
+        public ScoreHeap(int capacity) {
+            this.documents = new int[capacity];
+            this.scores = new float[capacity];
+        }
+
+        public boolean isFull() {
+            return size == scores.length;
+        }
+
+        public float minScore() {
+            return scores[0];
+        }
+
+        public boolean offer(int document, float score) {
+            if (size < scores.length) {
+                int i = size++;
+
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (scores[parent] <= score)
+                        break;
+
+                    documents[i] = documents[parent];
+                    scores[i] = scores[parent];
+                    i = parent;
+                }
+
+                documents[i] = document;
+                scores[i] = score;
+                return true;
+            } else if (score > scores[0]) {
+                int i = 0;
+
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size)
+                        break;
+                    if (child + 1 < size && scores[child + 1] < scores[child])
+                        child++;
+                    if (score <= scores[child])
+                        break;
+
+                    documents[i] = documents[child];
+                    scores[i] = scores[child];
+                    i = child;
+                }
+
+                documents[i] = document;
+                scores[i] = score;
+                return true;
+            } else {
+                return false;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,306 @@
+package eu.modernmt.io;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Created by davide on 30/06/16.
+ * <p>
+ * Line index of a text file: the number of lines ('\n' characters) and the byte offset of
+ * every INTERVAL-th line. Indexes are kept in memory and rebuilt whenever the size or the
+ * modification time of the file change. If a cache directory is set, indexes are also
+ * stored there, so that they are not rebuilt across runs; input directories are never
+ * written.
+ */
+public class LineIndex {
+
+    public static final String EXTENSION = ".idx";
+
+    private static final int MAGIC = 0x4C494458;
+    private static final int VERSION = 2;
+    private static final int INTERVAL = 4096;
+
+    private static final ConcurrentHashMap<File, LineIndex> indexes = new ConcurrentHashMap<>();
+    private static volatile File cacheDirectory = null;
+
+    private final File file;
+    private final long fileLength;
+    private final long fileLastModified;
+    private final long lineCount;
+    private final long[] offsets;
+
+    /**
+     * Sets the directory where indexes are stored across runs;
+     * with null (the default) indexes are kept in memory only.
+     */
+    public static void setCacheDirectory(File directory) {
+        cacheDirectory = directory == null ? null : directory.getAbsoluteFile();
+    }
+
+    /**
+     * Returns the file in the cache directory for the index of the given file,
+     * or null if no cache directory is set.
+     */
+    public static File getCacheFile(File file) {
+        return getCacheFile(file, EXTENSION);
+    }
+
+    /**
+     * Returns the file in the cache directory for an index of the given file with
+     * the given extension, or null if no cache directory is set.
+     */
+    public static File getCacheFile(File file, String extension) {
+        File directory = cacheDirectory;
+        if (directory == null)
+            return null;
+
+        file = file.getAbsoluteFile();
+        return new File(directory, file.getName() + "." + Integer.toHexString(file.getPath().hashCode()) + extension);
+    }
+
+    /**
+     * Returns the index of the given file, building it if there is no up to date
+     * index in memory or in the cache directory.
+     */
+    public static LineIndex get(File file) throws IOException {
+        file = file.getAbsoluteFile();
+
+        LineIndex index = indexes.get(file);
+        if (index != null && index.isUpToDate())
+            return index;
+
+        File cacheFile = getCacheFile(file);
+        index = cacheFile == null ? null : load(file, cacheFile);
+
+        if (index == null) {
+            index = build(file);
+
+            if (cacheFile != null) {
+                try {
+                    FileUtils.forceMkdir(cacheFile.getParentFile());
+                    index.store(cacheFile);
+                } catch (IOException e) {
+                    FileUtils.deleteQuietly(cacheFile);
+                }
+            }
+        }
+
+        indexes.put(file, index);
+        return index;
+    }
+
+    private static LineIndex load(File file, File cacheFile) throws IOException {
+        if (!cacheFile.isFile())
+            return null;
+
+        DataInputStream input = null;
+
+        try {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+
+            if (input.readInt() != MAGIC || input.readInt() != VERSION)
+                return null;
+            if (!file.getPath().equals(input.readUTF()))
+                return null;
+
+            long length = input.readLong();
+            long lastModified = input.readLong();
+            if (length != file.length() || lastModified != file.lastModified())
+                return null;
+            if (input.readInt() != INTERVAL)
+                return null;
+
+            long lineCount = input.readLong();
+            long[] offsets = new long[input.readInt()];
+            for (int i = 0; i < offsets.length; i++)
+                offsets[i] = input.readLong();
+
+            return new LineIndex(file, length, lastModified, lineCount, offsets);
+        } catch (EOFException e) {
+            return null;
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    private void store(File cacheFile) throws IOException {
+        File temp = File.createTempFile(cacheFile.getName() + ".", ".tmp", cacheFile.getParentFile());
+        DataOutputStream output = null;
+
+        try {
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeUTF(file.getPath());
+            output.writeLong(fileLength);
+            output.writeLong(fileLastModified);
+            output.writeInt(INTERVAL);
+            output.writeLong(lineCount);
+            output.writeInt(offsets.length);
+            for (long offset : offsets)
+                output.writeLong(offset);
+        } finally {
+            IOUtils.closeQuietly(output);
+        }
+
+        if (!temp.renameTo(cacheFile)) {
+            FileUtils.deleteQuietly(temp);
+            throw new IOException("Unable to write line index " + cacheFile);
+        }
+    }
+
+    private static LineIndex build(File file) throws IOException {
+        long length = file.length();
+        long lastModified = file.lastModified();
+
+        FileChannel channel = null;
+
+        try {
+            channel = new RandomAccessFile(file, "r").getChannel();
+            long size = channel.size();
+
+            long[] offsets = new long[1024];
+            int count = 1;
+            long lines = 0;
+
+            for (long offset = 0; offset < size; offset += MappedLineReader.WINDOW_SIZE) {
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(MappedLineReader.WINDOW_SIZE, size - offset));
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+                int limit = buffer.limit();
+                int i = 0;
+
+                for (; i + 8 <= limit; i += 8) {
+                    long mask = MappedLineReader.newlines(buffer.getLong(i));
+
+                    while (mask != 0) {
+                        if (++lines % INTERVAL == 0) {
+                            if (count == offsets.length)
+                                offsets = Arrays.copyOf(offsets, count * 2);
+                            offsets[count++] = offset + i + (Long.numberOfTrailingZeros(mask) >>> 3) + 1;
+                        }
+
+                        mask &= mask - 1;
+                    }
+                }
+
+                for (; i < limit; i++) {
+                    if (buffer.get(i) == '\n' && ++lines % INTERVAL == 0) {
+                        if (count == offsets.length)
+                            offsets = Arrays.copyOf(offsets, count * 2);
+                        offsets[count++] = offset + i + 1;
+                    }
+                }
+            }
+
+            return new LineIndex(file, length, lastModified, lines, Arrays.copyOf(offsets, count));
+        } finally {
+            IOUtils.closeQuietly(channel);
+        }
+    }
+
+    private LineIndex(File file, long fileLength, long fileLastModified, long lineCount, long[] offsets) {
+        this.file = file;
+        this.fileLength = fileLength;
+        this.fileLastModified = fileLastModified;
+        this.lineCount = lineCount;
+        this.offsets = offsets;
+    }
+
+    private boolean isUpToDate() {
+        return file.length() == fileLength && file.lastModified() == fileLastModified;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Returns the byte offset at which the given line starts; the offset
+     * of line getLineCount() is the one following the last newline.
+     */
+    public long getOffset(long line) throws IOException {
+        if (line < 0 || line > lineCount)
+            throw new IndexOutOfBoundsException("Invalid line " + line + ", file has " + lineCount + " lines");
+
+        int checkpoint = (int) (line / INTERVAL);
+        long offset = offsets[checkpoint];
+        long remaining = line - ((long) checkpoint) * INTERVAL;
+
+        if (remaining == 0)
+            return offset;
+
+        FileChannel channel = null;
+
+        try {
+            channel = new RandomAccessFile(file, "r").getChannel();
+            long size = channel.size();
+
+            while (offset < size) {
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(MappedLineReader.WINDOW_SIZE, size - offset));
+
+                for (int i = 0; i < buffer.limit(); i++) {
+                    if (buffer.get(i) == '\n' && --remaining == 0)
+                        return offset + i + 1;
+                }
+
+                offset += buffer.limit();
+            }
+
+            throw new IOException("File " + file + " has changed since it was indexed");
+        } finally {
+            IOUtils.closeQuietly(channel);
+        }
+    }
+
+    /**
+     * Returns a reader of the lines from fromLine (inclusive) to toLine (exclusive);
+     * if toLine is getLineCount() the reader includes a last line with no newline.
+     */
+    public MappedLineReader getReader(long fromLine, long toLine) throws IOException {
+        long start = getOffset(fromLine);
+        long end = toLine == lineCount ? -1 : getOffset(toLine);
+
+        return new MappedLineReader(file, start, end);
+    }
+
+    /**
+     * Returns the first lines of at most count consecutive ranges of similar byte size that
+     * cover the whole file, followed by getLineCount(). Ranges start at indexed lines, so that
+     * their offsets are found without reading the file.
+     */
+    public long[] split(int count) {
+        long size = file.length();
+        long[] lines = new long[count + 1];
+        int ranges = 0;
+
+        for (int i = 0; i < count; i++) {
+            long target = (size * i) / count;
+
+            int checkpoint = Arrays.binarySearch(offsets, target);
+            if (checkpoint < 0)
+                checkpoint = Math.max(0, -checkpoint - 2);
+
+            long line = ((long) checkpoint) * INTERVAL;
+            if (ranges == 0 || (line > lines[ranges - 1] && line < lineCount))
+                lines[ranges++] = line;
+        }
+
+        lines[ranges++] = lineCount;
+
+        return Arrays.copyOf(lines, ranges);
+    }
+
+}
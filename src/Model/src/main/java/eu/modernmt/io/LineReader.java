@@ -0,0 +1,22 @@
+package eu.modernmt.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Created by davide on 29/06/16.
+ */
+public interface LineReader extends Closeable {
+
+    /**
+     * Returns a line reader for the given reader, the reader itself
+     * if it is already able to read lines.
+     */
+    static LineReader wrap(Reader reader) {
+        return reader instanceof LineReader ? (LineReader) reader : new UnixLineReader(reader);
+    }
+
+    String readLine() throws IOException;
+
+}
@@ -0,0 +1,227 @@
+package eu.modernmt.io;
+
+import eu.modernmt.constants.Const;
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Created by davide on 29/06/16.
+ * <p>
+ * Line reader over a memory-mapped file. Newlines are searched directly in the mapped bytes,
+ * eight at a time, and only the bytes of a line are decoded when the line is returned.
+ * Lines are split exactly as UnixLineReader does: on '\n', removing a '\r' before it.
+ * <p>
+ * The file is mapped in windows of a fixed size, so that files of any size can be read.
+ */
+public class MappedLineReader extends Reader implements LineReader {
+
+    static final long WINDOW_SIZE = 256L * 1024 * 1024;
+
+    private static final long NEWLINES = 0x0A0A0A0A0A0A0A0AL;
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+    private final FileChannel channel;
+    private final Charset charset;
+    private final long end;
+
+    private long windowStart;
+    private MappedByteBuffer window;
+    private int position;
+    private byte[] bytes = new byte[1024];
+
+    private String pending = null;
+    private int pendingOffset = 0;
+
+    public MappedLineReader(File file) throws IOException {
+        this(file, 0, -1);
+    }
+
+    /**
+     * Reads the bytes of the file from start (inclusive) to end (exclusive);
+     * a negative end means the end of the file.
+     */
+    public MappedLineReader(File file, long start, long end) throws IOException {
+        this.charset = Const.charset.get();
+        this.channel = new RandomAccessFile(file, "r").getChannel();
+
+        try {
+            this.end = end < 0 ? channel.size() : Math.min(end, channel.size());
+            map(Math.min(start, this.end));
+        } catch (IOException e) {
+            IOUtils.closeQuietly(channel);
+            throw e;
+        }
+    }
+
+    public static long countLines(File file) throws IOException {
+        return countLines(file, 0, -1);
+    }
+
+    /**
+     * Counts the newlines between start (inclusive) and end (exclusive),
+     * a negative end means the end of the file.
+     */
+    public static long countLines(File file, long start, long end) throws IOException {
+        FileChannel channel = null;
+
+        try {
+            channel = new RandomAccessFile(file, "r").getChannel();
+            end = end < 0 ? channel.size() : Math.min(end, channel.size());
+
+            long count = 0;
+
+            for (long offset = start; offset < end; offset += WINDOW_SIZE) {
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(WINDOW_SIZE, end - offset));
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+                int limit = buffer.limit();
+                int i = 0;
+
+                for (; i + 8 <= limit; i += 8)
+                    count += Long.bitCount(newlines(buffer.getLong(i)));
+                for (; i < limit; i++) {
+                    if (buffer.get(i) == '\n')
+                        count++;
+                }
+            }
+
+            return count;
+        } finally {
+            IOUtils.closeQuietly(channel);
+        }
+    }
+
+    // Returns the word with the high bit set in every byte that is a newline, and all other bits cleared
+    static long newlines(long word) {
+        long x = word ^ NEWLINES;
+        return ~(((x & LOW_BITS) + LOW_BITS) | x | LOW_BITS);
+    }
+
+    private static int indexOfNewline(ByteBuffer buffer, int from, int to) {
+        int i = from;
+
+        for (; i + 8 <= to; i += 8) {
+            long mask = newlines(buffer.getLong(i));
+            if (mask != 0)
+                return i + (Long.numberOfTrailingZeros(mask) >>> 3);
+        }
+
+        for (; i < to; i++) {
+            if (buffer.get(i) == '\n')
+                return i;
+        }
+
+        return -1;
+    }
+
+    private void map(long offset) throws IOException {
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(WINDOW_SIZE, end - offset));
+        window.order(ByteOrder.LITTLE_ENDIAN);
+        windowStart = offset;
+        position = 0;
+    }
+
+    private void copy(int offset, int length) {
+        if (bytes.length < offset + length) {
+            byte[] copy = new byte[Math.max(bytes.length * 2, offset + length)];
+            System.arraycopy(bytes, 0, copy, 0, offset);
+            bytes = copy;
+        }
+
+        window.position(position);
+        window.get(bytes, offset, length);
+        position += length;
+    }
+
+    // Returns the next line, with its terminator if raw is true
+    private String nextLine(boolean raw) throws IOException {
+        int length = 0;
+
+        while (true) {
+            int limit = window.limit();
+            int newline = indexOfNewline(window, position, limit);
+
+            if (newline >= 0 || windowStart + limit >= end) {
+                int lineEnd = newline >= 0 ? newline + 1 : limit;
+
+                if (length == 0 && lineEnd == position)
+                    return null;
+
+                int count = lineEnd - position;
+                copy(length, count);
+                length += count;
+
+                if (!raw && newline >= 0) {
+                    length--;
+                    if (length > 0 && bytes[length - 1] == '\r')
+                        length--;
+                }
+
+                return new String(bytes, 0, length, charset);
+            }
+
+            // The line continues in the next window
+            int count = limit - position;
+            copy(length, count);
+            length += count;
+
+            map(windowStart + limit);
+        }
+    }
+
+    @Override
+    public String readLine() throws IOException {
+        if (pending != null && pendingOffset < pending.length()) {
+            int length = pending.length();
+
+            if (pending.charAt(length - 1) == '\n') {
+                length--;
+                if (length > pendingOffset && pending.charAt(length - 1) == '\r')
+                    length--;
+            }
+
+            String line = pending.substring(pendingOffset, length);
+            pending = null;
+
+            return line;
+        }
+
+        return nextLine(false);
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+
+        if (pending == null || pendingOffset >= pending.length()) {
+            pending = nextLine(true);
+            pendingOffset = 0;
+
+            if (pending == null)
+                return -1;
+        }
+
+        int count = Math.min(len, pending.length() - pendingOffset);
+        pending.getChars(pendingOffset, pendingOffset + count, cbuf, off);
+        pendingOffset += count;
+
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+}
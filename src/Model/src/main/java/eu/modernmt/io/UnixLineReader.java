@@ -6,7 +6,7 @@ import java.io.Reader;
 /**
  * Created by davide on 24/02/16.
  */
-public class UnixLineReader extends Reader {
+public class UnixLineReader extends Reader implements LineReader {
 
     private Reader reader;
     private char[] buffer;
@@ -32,7 +32,10 @@ public class UnixLineReader extends Reader {
             if (buffer[nextChar] == '\n') {
                 stop = true;
                 nextChar++;
-                if (lastWasCarriageReturn) len--;
+                if (lastWasCarriageReturn)
+                    len--;
+                else if (len == 0 && s.length() > 0 && s.charAt(s.length() - 1) == '\r')
+                    s.setLength(s.length() - 1); // CR at the end of the previous buffer
                 break;
             } else {
                 lastWasCarriageReturn = buffer[nextChar] == '\r';
@@ -46,6 +49,7 @@ public class UnixLineReader extends Reader {
         return stop;
     }
 
+    @Override
     public String readLine() throws IOException {
         if (bufferLen < 0)
             return null;
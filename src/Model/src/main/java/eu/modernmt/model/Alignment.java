@@ -0,0 +1,189 @@
+package eu.modernmt.model;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Created by davide on 24/06/16.
+ * <p>
+ * Word alignment between a source sentence and its translation. Links are packed in a single
+ * long array, each one with the source word index in the high 32 bits and the target word index
+ * in the low 32 bits; links are sorted by source and then by target index and contain no
+ * duplicates, so that the targets of a source word are a contiguous range of links.
+ */
+public class Alignment implements Serializable {
+
+    private final long[] links;
+    private transient int[] sourceIndex = null;
+
+    /**
+     * Builds an alignment from an array of (source, target) pairs; duplicate pairs are merged.
+     */
+    public static Alignment fromPairs(int[][] pairs) {
+        long[] links = new long[pairs.length];
+        for (int i = 0; i < pairs.length; i++)
+            links[i] = pack(pairs[i][0], pairs[i][1]);
+
+        return new Alignment(links, links.length);
+    }
+
+    /**
+     * Builds an alignment from an interleaved array of (source, target) indexes,
+     * the format used across the JNI boundary; duplicate pairs are merged.
+     */
+    public static Alignment fromInterleaved(int[] array) {
+        if (array.length % 2 != 0)
+            throw new IllegalArgumentException("Interleaved alignment has odd length: " + array.length);
+
+        long[] links = new long[array.length / 2];
+        for (int i = 0; i < links.length; i++)
+            links[i] = pack(array[i * 2], array[i * 2 + 1]);
+
+        return new Alignment(links, links.length);
+    }
+
+    public static long pack(int source, int target) {
+        return ((long) source << 32) | (target & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Creates an alignment from the parallel arrays of source and target indexes;
+     * duplicate links are merged.
+     */
+    public Alignment(int[] sources, int[] targets) {
+        this(pack(sources, targets), sources.length);
+    }
+
+    /**
+     * Creates an alignment from the first size packed links of the given array;
+     * the array is sorted in place and may be retained. Duplicate links are merged,
+     * so the size of the alignment can be smaller than the given size.
+     */
+    public Alignment(long[] links, int size) {
+        Arrays.sort(links, 0, size);
+
+        int unique = 0;
+        for (int i = 0; i < size; i++) {
+            if (unique == 0 || links[unique - 1] != links[i])
+                links[unique++] = links[i];
+        }
+
+        this.links = unique == links.length ? links : Arrays.copyOf(links, unique);
+    }
+
+    private static long[] pack(int[] sources, int[] targets) {
+        if (sources.length != targets.length)
+            throw new IllegalArgumentException("Sources and targets have different lengths");
+
+        long[] links = new long[sources.length];
+        for (int i = 0; i < links.length; i++)
+            links[i] = pack(sources[i], targets[i]);
+
+        return links;
+    }
+
+    public int size() {
+        return links.length;
+    }
+
+    public boolean isEmpty() {
+        return links.length == 0;
+    }
+
+    public int getSource(int link) {
+        return (int) (links[link] >>> 32);
+    }
+
+    public int getTarget(int link) {
+        return (int) links[link];
+    }
+
+    /**
+     * Returns the index of the first link of the given source word; the links of the
+     * word end at getLinksEnd(source).
+     */
+    public int getLinksBegin(int source) {
+        int[] index = getSourceIndex();
+        return source + 1 < index.length ? index[source] : links.length;
+    }
+
+    public int getLinksEnd(int source) {
+        int[] index = getSourceIndex();
+        return source + 1 < index.length ? index[source + 1] : links.length;
+    }
+
+    public int[] getTargets(int source) {
+        int begin = getLinksBegin(source);
+        int end = getLinksEnd(source);
+
+        int[] targets = new int[end - begin];
+        for (int i = begin; i < end; i++)
+            targets[i - begin] = (int) links[i];
+
+        return targets;
+    }
+
+    public boolean isSourceAligned(int source) {
+        return getLinksEnd(source) > getLinksBegin(source);
+    }
+
+    private int[] getSourceIndex() {
+        if (sourceIndex == null) {
+            int sources = links.length == 0 ? 0 : getSource(links.length - 1) + 1;
+            int[] index = new int[sources + 1];
+
+            int link = 0;
+            for (int source = 0; source <= sources; source++) {
+                while (link < links.length && getSource(link) < source)
+                    link++;
+                index[source] = link;
+            }
+
+            sourceIndex = index;
+        }
+
+        return sourceIndex;
+    }
+
+    public Alignment invert() {
+        long[] inverted = new long[links.length];
+        for (int i = 0; i < links.length; i++)
+            inverted[i] = pack(getTarget(i), getSource(i));
+
+        return new Alignment(inverted, inverted.length);
+    }
+
+    public int[][] toArray() {
+        int[][] pairs = new int[links.length][];
+        for (int i = 0; i < links.length; i++)
+            pairs[i] = new int[]{getSource(i), getTarget(i)};
+
+        return pairs;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        return Arrays.equals(links, ((Alignment) o).links);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(links);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < links.length; i++) {
+            if (i > 0)
+                builder.append(' ');
+            builder.append(getSource(i)).append('-').append(getTarget(i));
+        }
+
+        return builder.toString();
+    }
+
+}
@@ -1,7 +1,8 @@
 package eu.modernmt.model.impl;
 
 import eu.modernmt.constants.Const;
-import eu.modernmt.io.UnixLineReader;
+import eu.modernmt.io.LineIndex;
+import eu.modernmt.io.MappedLineReader;
 import eu.modernmt.model.BilingualCorpus;
 import eu.modernmt.model.Corpus;
 import org.apache.commons.io.IOUtils;
@@ -14,8 +15,6 @@ import java.util.Locale;
  */
 public class BilingualFileCorpus implements BilingualCorpus {
 
-    private static final int DEFAULT_BUFFER_SIZE = 4096;
-
     private final File source;
     private final File target;
     private final String name;
@@ -57,28 +56,8 @@ public class BilingualFileCorpus implements BilingualCorpus {
     public int getLineCount() throws IOException {
         if (lineCount < 0) {
             synchronized (this) {
-                if (lineCount < 0) {
-                    FileInputStream stream = null;
-
-                    try {
-                        byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
-                        stream = new FileInputStream(this.source);
-
-                        int count = 0;
-                        int size;
-
-                        while ((size = stream.read(buffer)) != -1) {
-                            for (int i = 0; i < size; i++) {
-                                if (buffer[i] == (byte) 0x0A)
-                                    count++;
-                            }
-                        }
-
-                        this.lineCount = count;
-                    } finally {
-                        IOUtils.closeQuietly(stream);
-                    }
-                }
+                if (lineCount < 0)
+                    this.lineCount = (int) LineIndex.get(this.source).getLineCount();
             }
         }
 
@@ -131,15 +110,15 @@ public class BilingualFileCorpus implements BilingualCorpus {
 
     private static class BilingualFilesStringReader implements BilingualStringReader {
 
-        private UnixLineReader sourceReader;
-        private UnixLineReader targetReader;
+        private MappedLineReader sourceReader;
+        private MappedLineReader targetReader;
 
-        private BilingualFilesStringReader(File source, File target) throws FileNotFoundException {
+        private BilingualFilesStringReader(File source, File target) throws IOException {
             boolean success = false;
 
             try {
-                this.sourceReader = new UnixLineReader(new InputStreamReader(new FileInputStream(source), Const.charset.get()));
-                this.targetReader = new UnixLineReader(new InputStreamReader(new FileInputStream(target), Const.charset.get()));
+                this.sourceReader = new MappedLineReader(source);
+                this.targetReader = new MappedLineReader(target);
 
                 success = true;
 
@@ -1,6 +1,7 @@
 package eu.modernmt.model.impl;
 
 import eu.modernmt.constants.Const;
+import eu.modernmt.io.MappedLineReader;
 import eu.modernmt.model.Corpus;
 
 import java.io.*;
@@ -41,6 +42,10 @@ public class FileCorpus implements Corpus {
         this.language = (language == null ? getLangFromFile(file) : language);
     }
 
+    public File getFile() {
+        return file;
+    }
+
     @Override
     public String getName() {
         return name;
@@ -52,8 +57,8 @@ public class FileCorpus implements Corpus {
     }
 
     @Override
-    public Reader getContentReader() throws FileNotFoundException {
-        return new InputStreamReader(new FileInputStream(file), Const.charset.get());
+    public Reader getContentReader() throws IOException {
+        return new MappedLineReader(file);
     }
 
     @Override
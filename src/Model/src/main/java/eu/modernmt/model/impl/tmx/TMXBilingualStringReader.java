@@ -4,9 +4,9 @@ import eu.modernmt.constants.Const;
 import eu.modernmt.model.BilingualCorpus;
 import org.apache.commons.io.IOUtils;
 
-import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -22,7 +22,7 @@ public class TMXBilingualStringReader implements BilingualCorpus.BilingualString
 
     private File tmx;
     private final FileInputStream stream;
-    private final XMLEventReader reader;
+    private final XMLStreamReader reader;
     private final String sourceLanguage;
     private final String targetLanguage;
 
@@ -34,11 +34,11 @@ public class TMXBilingualStringReader implements BilingualCorpus.BilingualString
         XMLInputFactory factory = XMLInputFactory.newInstance();
 
         FileInputStream stream = null;
-        XMLEventReader reader = null;
+        XMLStreamReader reader = null;
 
         try {
             stream = new FileInputStream(tmx);
-            reader = factory.createXMLEventReader(new InputStreamReader(stream, Const.charset.get()));
+            reader = factory.createXMLStreamReader(new InputStreamReader(stream, Const.charset.get()));
         } catch (XMLStreamException e) {
             throw new IOException("Error while creating XMLStreamReader for TMX " + tmx, e);
         } finally {
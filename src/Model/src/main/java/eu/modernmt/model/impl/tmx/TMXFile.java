@@ -12,6 +12,8 @@ import java.util.Locale;
  */
 public class TMXFile implements BilingualCorpus {
 
+    private static final long CHUNK_SIZE = 8L * 1024L * 1024L;
+
     private final File tmx;
     private final String name;
     private final Locale sourceLanguage;
@@ -55,7 +57,7 @@ public class TMXFile implements BilingualCorpus {
         if (lineCount < 0) {
             synchronized (this) {
                 if (lineCount < 0) {
-                    this.lineCount = BilingualCorpus.getLineCount(this);
+                    this.lineCount = (int) TMXIndex.get(tmx).getPairCount();
                 }
             }
         }
@@ -65,7 +67,13 @@ public class TMXFile implements BilingualCorpus {
 
     @Override
     public BilingualStringReader getContentReader() throws IOException {
-        return new TMXBilingualStringReader(tmx, sourceLanguage, targetLanguage);
+        long[] boundaries = TMXIndex.get(tmx).split(CHUNK_SIZE);
+
+        // Small files are not worth the threads
+        if (boundaries.length > 2 && Runtime.getRuntime().availableProcessors() > 1)
+            return new TMXParallelReader(tmx, boundaries, sourceLanguage, targetLanguage);
+        else
+            return new TMXBilingualStringReader(tmx, sourceLanguage, targetLanguage);
     }
 
     @Override
@@ -0,0 +1,237 @@
+package eu.modernmt.model.impl.tmx;
+
+import eu.modernmt.io.LineIndex;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Created by davide on 04/07/16.
+ * <p>
+ * Index of the translation units of a TMX file: the number of units and the byte offset of
+ * every INTERVAL-th one, found with a raw scan of the file for "&lt;tu" start tags. Like a
+ * LineIndex, the index is kept in memory, stored in the LineIndex cache directory if one is set,
+ * and rebuilt whenever the file changes.
+ * The scan does not parse the document: a "&lt;tu" inside a comment or a CDATA section is
+ * counted as a unit, so offsets must only be used to split well-formed TMX files.
+ */
+class TMXIndex {
+
+    private static final String EXTENSION = ".tu" + LineIndex.EXTENSION;
+
+    private static final int MAGIC = 0x544D5849;
+    private static final int VERSION = 2;
+    private static final int INTERVAL = 1024;
+    private static final long WINDOW_SIZE = 256L * 1024L * 1024L;
+
+    private static final ConcurrentHashMap<File, TMXIndex> indexes = new ConcurrentHashMap<>();
+
+    private final File file;
+    private final long fileLength;
+    private final long fileLastModified;
+    private final long pairCount;
+    private final long[] offsets;
+    private final long end;
+
+    /**
+     * Returns the index of the given TMX, building it if there is no up to date
+     * index in memory or in the cache directory.
+     */
+    public static TMXIndex get(File file) throws IOException {
+        file = file.getAbsoluteFile();
+
+        TMXIndex index = indexes.get(file);
+        if (index != null && index.isUpToDate())
+            return index;
+
+        File cacheFile = LineIndex.getCacheFile(file, EXTENSION);
+        index = cacheFile == null ? null : load(file, cacheFile);
+
+        if (index == null) {
+            index = build(file);
+
+            if (cacheFile != null) {
+                try {
+                    FileUtils.forceMkdir(cacheFile.getParentFile());
+                    index.store(cacheFile);
+                } catch (IOException e) {
+                    FileUtils.deleteQuietly(cacheFile);
+                }
+            }
+        }
+
+        indexes.put(file, index);
+        return index;
+    }
+
+    private static TMXIndex load(File file, File cacheFile) throws IOException {
+        if (!cacheFile.isFile())
+            return null;
+
+        DataInputStream input = null;
+
+        try {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+
+            if (input.readInt() != MAGIC || input.readInt() != VERSION)
+                return null;
+            if (!file.getPath().equals(input.readUTF()))
+                return null;
+
+            long length = input.readLong();
+            long lastModified = input.readLong();
+            if (length != file.length() || lastModified != file.lastModified())
+                return null;
+            if (input.readInt() != INTERVAL)
+                return null;
+
+            long pairCount = input.readLong();
+            long end = input.readLong();
+            long[] offsets = new long[input.readInt()];
+            for (int i = 0; i < offsets.length; i++)
+                offsets[i] = input.readLong();
+
+            return new TMXIndex(file, length, lastModified, pairCount, offsets, end);
+        } catch (EOFException e) {
+            return null;
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    private void store(File cacheFile) throws IOException {
+        File temp = File.createTempFile(cacheFile.getName() + ".", ".tmp", cacheFile.getParentFile());
+        DataOutputStream output = null;
+
+        try {
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeUTF(file.getPath());
+            output.writeLong(fileLength);
+            output.writeLong(fileLastModified);
+            output.writeInt(INTERVAL);
+            output.writeLong(pairCount);
+            output.writeLong(end);
+            output.writeInt(offsets.length);
+            for (long offset : offsets)
+                output.writeLong(offset);
+        } finally {
+            IOUtils.closeQuietly(output);
+        }
+
+        if (!temp.renameTo(cacheFile)) {
+            FileUtils.deleteQuietly(temp);
+            throw new IOException("Unable to write TMX index " + cacheFile);
+        }
+    }
+
+    private static TMXIndex build(File file) throws IOException {
+        long length = file.length();
+        long lastModified = file.lastModified();
+
+        FileChannel channel = null;
+
+        try {
+            channel = new RandomAccessFile(file, "r").getChannel();
+            long size = channel.size();
+
+            long[] offsets = new long[1024];
+            int count = 0;
+            long pairs = 0;
+            long end = -1;
+
+            for (long offset = 0; offset < size; offset += WINDOW_SIZE) {
+                // Windows overlap by a few bytes so that tags across two windows are found
+                long windowLength = Math.min(WINDOW_SIZE + 8, size - offset);
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, windowLength);
+
+                int limit = (int) Math.min(WINDOW_SIZE, windowLength);
+
+                for (int i = 0; i < limit; i++) {
+                    if (buffer.get(i) != '<')
+                        continue;
+
+                    if (isTag(buffer, i + 1, false)) {
+                        if (pairs % INTERVAL == 0) {
+                            if (count == offsets.length)
+                                offsets = Arrays.copyOf(offsets, count * 2);
+                            offsets[count++] = offset + i;
+                        }
+
+                        pairs++;
+                    } else if (i + 1 < buffer.limit() && buffer.get(i + 1) == '/' && isTag(buffer, i + 2, true)) {
+                        end = offset + i + 5;
+                    }
+                }
+            }
+
+            return new TMXIndex(file, length, lastModified, pairs, Arrays.copyOf(offsets, count), end);
+        } finally {
+            IOUtils.closeQuietly(channel);
+        }
+    }
+
+    // True if the buffer contains "tu" at the given position followed by '>' or, for a start tag, a whitespace
+    private static boolean isTag(ByteBuffer buffer, int i, boolean closing) {
+        if (i + 2 >= buffer.limit())
+            return false;
+        if (buffer.get(i) != 't' || buffer.get(i + 1) != 'u')
+            return false;
+
+        byte next = buffer.get(i + 2);
+        return next == '>' || (!closing && (next == ' ' || next == '\t' || next == '\n' || next == '\r'));
+    }
+
+    private TMXIndex(File file, long fileLength, long fileLastModified, long pairCount, long[] offsets, long end) {
+        this.file = file;
+        this.fileLength = fileLength;
+        this.fileLastModified = fileLastModified;
+        this.pairCount = pairCount;
+        this.offsets = offsets;
+        this.end = end;
+    }
+
+    private boolean isUpToDate() {
+        return file.length() == fileLength && file.lastModified() == fileLastModified;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getPairCount() {
+        return pairCount;
+    }
+
+    /**
+     * Returns the byte offsets delimiting consecutive ranges of whole translation units of
+     * about chunkSize bytes each: the first offset is the start of the first unit and the
+     * last one is the end of the last unit. An empty array is returned if there are no units.
+     */
+    public long[] split(long chunkSize) {
+        if (pairCount == 0 || end < 0)
+            return new long[0];
+
+        long[] boundaries = new long[offsets.length + 1];
+        int count = 0;
+
+        boundaries[count++] = offsets[0];
+
+        for (int i = 1; i < offsets.length; i++) {
+            if (offsets[i] - boundaries[count - 1] >= chunkSize && offsets[i] < end)
+                boundaries[count++] = offsets[i];
+        }
+
+        boundaries[count++] = end;
+
+        return Arrays.copyOf(boundaries, count);
+    }
+
+}
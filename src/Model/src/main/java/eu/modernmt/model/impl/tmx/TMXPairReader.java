@@ -2,103 +2,117 @@ package eu.modernmt.model.impl.tmx;
 
 import eu.modernmt.model.BilingualCorpus;
 
-import javax.xml.XMLConstants;
-import javax.xml.namespace.QName;
 import javax.xml.stream.Location;
-import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.events.Attribute;
-import javax.xml.stream.events.EndElement;
-import javax.xml.stream.events.StartElement;
-import javax.xml.stream.events.XMLEvent;
-import java.io.StringWriter;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import javax.xml.stream.XMLStreamReader;
 import java.util.Date;
 
 /**
  * Created by davide on 14/03/16.
+ * <p>
+ * Reads translation units from a cursor over a TMX document; elements that are not
+ * needed (properties, notes, unknown elements) are skipped without being parsed.
  */
 class TMXPairReader {
 
-    private final SimpleDateFormat dateFormat = new SimpleDateFormat("YYYYMMdd'T'HHmmss'Z'");
     private static final String XML_NAMESPACE = "http://www.w3.org/XML/1998/namespace";
+
+    private final StringBuilder buffer = new StringBuilder(1024);
     private boolean decodeSegments = true;
 
-    private BilingualCorpus.StringPair wrap(XMLEvent event, String source, String target, Date timestamp) throws XMLStreamException {
+    public boolean isDecodeSegments() {
+        return decodeSegments;
+    }
+
+    public void setDecodeSegments(boolean decodeSegments) {
+        this.decodeSegments = decodeSegments;
+    }
+
+    private BilingualCorpus.StringPair wrap(XMLStreamReader reader, String source, String target, Date timestamp) throws XMLStreamException {
         if (source == null)
-            throw new XMLStreamException(format("Missing source sentence", event));
+            throw new XMLStreamException(format("Missing source sentence", reader));
 
         if (target == null)
-            throw new XMLStreamException(format("Missing target sentence", event));
+            throw new XMLStreamException(format("Missing target sentence", reader));
 
-        return new BilingualCorpus.StringPair(source.replace('\n', ' '), target.replace('\n', ' '), timestamp);
+        return new BilingualCorpus.StringPair(source, target, timestamp);
     }
 
-    public BilingualCorpus.StringPair read(XMLEventReader reader, String sourceLanguage, String targetLanguage) throws XMLStreamException {
+    /**
+     * Reads the document up to the header, or to the first translation unit if
+     * the document has no header, in order to load the header settings.
+     */
+    public void readHeader(XMLStreamReader reader) throws XMLStreamException {
         while (reader.hasNext()) {
-            XMLEvent event = reader.nextEvent();
-
-            switch (event.getEventType()) {
-                case XMLStreamConstants.START_ELEMENT:
-                    StartElement element = event.asStartElement();
-                    String name = getLocalName(element);
-                    if ("header".equals(name)) {
-                        readHeader(reader, element);
-                    } else if ("tu".equals(name)) {
-                        return readTu(reader, element, sourceLanguage, targetLanguage);
-                    }
+            if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                String name = reader.getLocalName();
+
+                if ("header".equals(name)) {
+                    readHeaderAttributes(reader);
+                    return;
+                } else if ("body".equals(name) || "tu".equals(name)) {
+                    return;
+                }
+            }
+        }
+    }
 
-                    break;
+    public BilingualCorpus.StringPair read(XMLStreamReader reader, String sourceLanguage, String targetLanguage) throws XMLStreamException {
+        while (reader.hasNext()) {
+            if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                String name = reader.getLocalName();
+
+                if ("header".equals(name)) {
+                    readHeaderAttributes(reader);
+                    skipElement(reader);
+                } else if ("tu".equals(name)) {
+                    return readTu(reader, sourceLanguage, targetLanguage);
+                }
             }
         }
 
         return null;
     }
 
-    private void readHeader(XMLEventReader reader, StartElement header) throws XMLStreamException {
-        String datatype = getAttributeValue(header, null, "datatype");
+    void readHeaderAttributes(XMLStreamReader reader) {
+        String datatype = reader.getAttributeValue(null, "datatype");
         datatype = datatype == null ? "unknown" : datatype.toLowerCase();
 
         if ("xml".equals(datatype))
             decodeSegments = false;
     }
 
-    private BilingualCorpus.StringPair readTu(XMLEventReader reader, StartElement tu, String sourceLanguage, String targetLanguage) throws XMLStreamException {
+    private BilingualCorpus.StringPair readTu(XMLStreamReader reader, String sourceLanguage, String targetLanguage) throws XMLStreamException {
         Date timestamp = null;
 
-        String date = getAttributeValue(tu, null, "changedate");
+        String date = reader.getAttributeValue(null, "changedate");
         if (date == null)
-            date = getAttributeValue(tu, null, "creationdate");
+            date = reader.getAttributeValue(null, "creationdate");
 
         if (date != null) {
-            try {
-                timestamp = dateFormat.parse(date);
-            } catch (ParseException | NumberFormatException e) {
-                throw new XMLStreamException(format("Invalid date '" + date + "'", tu), e);
-            }
+            long time = parseDate(date);
+            if (time == Long.MIN_VALUE)
+                throw new XMLStreamException(format("Invalid date '" + date + "'", reader));
+
+            timestamp = new Date(time);
         }
 
         String source = null;
         String target = null;
 
         while (reader.hasNext()) {
-            XMLEvent event = reader.nextEvent();
-
-            switch (event.getEventType()) {
+            switch (reader.next()) {
                 case XMLStreamConstants.START_ELEMENT:
-                    StartElement element = event.asStartElement();
-
-                    if ("tuv".equals(getLocalName(element))) {
-                        String lang = getAttributeValue(element, XML_NAMESPACE, "lang");
+                    if ("tuv".equals(reader.getLocalName())) {
+                        String lang = reader.getAttributeValue(XML_NAMESPACE, "lang");
                         if (lang == null)
-                            lang = getAttributeValue(element, null, "lang");
+                            lang = reader.getAttributeValue(null, "lang");
 
-                        String text = readTuv(reader, element);
+                        String text = readTuv(reader);
 
                         if (lang == null) {
-                            throw new XMLStreamException(format("Missing language for 'tuv'", event));
+                            throw new XMLStreamException(format("Missing language for 'tuv'", reader));
                         } else if (lang.startsWith(sourceLanguage)) {
                             source = text;
                         } else if (lang.startsWith(targetLanguage)) {
@@ -106,97 +120,231 @@ class TMXPairReader {
                         } else {
                             throw new XMLStreamException("Invalid language code found: " + lang);
                         }
+                    } else {
+                        skipElement(reader);
                     }
                     break;
                 case XMLStreamConstants.END_ELEMENT:
-                    if ("tu".equals(getLocalName(event.asEndElement()))) {
-                        return wrap(event, source, target, timestamp);
-                    }
-                    break;
+                    // Nested elements are always consumed entirely, this is the end of the 'tu'
+                    return wrap(reader, source, target, timestamp);
             }
         }
 
-        throw new XMLStreamException(format("Missing closing tag for 'tuv' element", tu));
+        throw new XMLStreamException(format("Missing closing tag for 'tu' element", reader));
     }
 
-    private String readTuv(XMLEventReader reader, StartElement tuv) throws XMLStreamException {
-        while (reader.hasNext()) {
-            XMLEvent event = reader.nextEvent();
+    private String readTuv(XMLStreamReader reader) throws XMLStreamException {
+        String text = null;
 
-            switch (event.getEventType()) {
+        while (reader.hasNext()) {
+            switch (reader.next()) {
                 case XMLStreamConstants.START_ELEMENT:
-                    StartElement element = event.asStartElement();
-
-                    if ("seg".equals(getLocalName(element))) {
-                        return readSegment(reader, element);
-                    }
+                    if (text == null && "seg".equals(reader.getLocalName()))
+                        text = readSegment(reader);
+                    else
+                        skipElement(reader);
                     break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (text == null)
+                        throw new XMLStreamException(format("Missing 'seg' inside 'tuv' element", reader));
+
+                    return text;
             }
         }
 
-        throw new XMLStreamException(format("Missing 'seg' inside 'tuv' element", tuv));
+        throw new XMLStreamException(format("Missing closing tag for 'tuv' element", reader));
     }
 
-    private String readSegment(XMLEventReader reader, StartElement seg) throws XMLStreamException {
-        StringWriter buffer = new StringWriter(1024);
+    // Newlines are replaced with spaces, so that a segment is always a single line
+    private String readSegment(XMLStreamReader reader) throws XMLStreamException {
+        buffer.setLength(0);
 
-        StringWriter lastXMLTagWriter = new StringWriter(128);
-        String pendingElementName = null;
+        boolean pendingTag = false;
+        int depth = 0;
 
         while (reader.hasNext()) {
-            XMLEvent event = reader.nextEvent();
-
-            if (event.isEndElement() && "seg".equals(getLocalName(event.asEndElement()))) {
-                return buffer.toString();
-            }
+            int event = reader.next();
 
-            if (pendingElementName != null) {
-                String tag = lastXMLTagWriter.toString();
-                lastXMLTagWriter.getBuffer().setLength(0);
+            // An element with no content is written as an empty tag
+            if (pendingTag) {
+                pendingTag = false;
 
-                if (event.isEndElement() && pendingElementName.equals(getLocalName(event.asEndElement()))) {
-                    tag = tag.substring(0, tag.length() - 1) + "/>";
-                    buffer.append(tag);
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    buffer.setCharAt(buffer.length() - 1, '/');
+                    buffer.append('>');
+                    depth--;
                     continue;
-                } else {
-                    buffer.append(tag);
                 }
             }
 
-            if (event.isStartElement()) {
-                event.writeAsEncodedUnicode(lastXMLTagWriter);
-                pendingElementName = getLocalName(event.asStartElement());
-            } else {
-                if (decodeSegments && event.isCharacters()) {
-                    buffer.append(event.asCharacters().getData());
-                } else {
-                    event.writeAsEncodedUnicode(buffer);
-                }
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT:
+                    appendStartTag(reader);
+                    pendingTag = true;
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (depth == 0)
+                        return buffer.toString();
+
+                    buffer.append("</");
+                    appendName(reader.getPrefix(), reader.getLocalName());
+                    buffer.append('>');
+                    depth--;
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    appendText(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength(), !decodeSegments);
+                    break;
+                case XMLStreamConstants.COMMENT:
+                    buffer.append("<!--");
+                    appendText(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength(), false);
+                    buffer.append("-->");
+                    break;
+                case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                    buffer.append("<?").append(reader.getPITarget()).append(' ');
+                    appendText(reader.getPIData(), false);
+                    buffer.append("?>");
+                    break;
             }
         }
 
-        throw new XMLStreamException(format("Missing closing tag for 'seg' element", seg));
+        throw new XMLStreamException(format("Missing closing tag for 'seg' element", reader));
+    }
+
+    private void appendStartTag(XMLStreamReader reader) {
+        buffer.append('<');
+        appendName(reader.getPrefix(), reader.getLocalName());
+
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            buffer.append(' ');
+            appendName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i));
+            buffer.append("=\"");
+            appendText(reader.getAttributeValue(i), true);
+            buffer.append('"');
+        }
+
+        buffer.append('>');
+    }
+
+    private void appendName(String prefix, String localName) {
+        if (prefix != null && !prefix.isEmpty())
+            buffer.append(prefix).append(':');
+        buffer.append(localName);
+    }
+
+    private void appendText(String text, boolean encode) {
+        appendText(text.toCharArray(), 0, text.length(), encode);
+    }
+
+    private void appendText(char[] text, int start, int length, boolean encode) {
+        int end = start + length;
+
+        for (int i = start; i < end; i++) {
+            char c = text[i];
+
+            switch (c) {
+                case '\n':
+                    buffer.append(' ');
+                    break;
+                case '&':
+                    buffer.append(encode ? "&amp;" : "&");
+                    break;
+                case '<':
+                    buffer.append(encode ? "&lt;" : "<");
+                    break;
+                case '>':
+                    buffer.append(encode ? "&gt;" : ">");
+                    break;
+                case '"':
+                    buffer.append(encode ? "&quot;" : "\"");
+                    break;
+                default:
+                    buffer.append(c);
+                    break;
+            }
+        }
     }
 
     // Utils
 
-    private static final String format(String message, XMLEvent event) {
-        Location location = event == null ? null : event.getLocation();
-        return location == null ? message : (message + " at line " + location.getLineNumber());
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+
+        while (depth > 0 && reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    break;
+            }
+        }
     }
 
-    private static final String getLocalName(StartElement element) {
-        return element.getName().getLocalPart();
+    /**
+     * Parses a TMX date (YYYYMMDDThhmmssZ, always UTC) returning the time
+     * in milliseconds, or Long.MIN_VALUE if the date is not valid.
+     */
+    static long parseDate(String date) {
+        if (date.length() != 16 || date.charAt(8) != 'T' || date.charAt(15) != 'Z')
+            return Long.MIN_VALUE;
+
+        int year = parseDigits(date, 0, 4);
+        int month = parseDigits(date, 4, 6);
+        int day = parseDigits(date, 6, 8);
+        int hours = parseDigits(date, 9, 11);
+        int minutes = parseDigits(date, 11, 13);
+        int seconds = parseDigits(date, 13, 15);
+
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > getDaysInMonth(year, month) ||
+                hours < 0 || hours > 23 || minutes < 0 || minutes > 59 || seconds < 0 || seconds > 59)
+            return Long.MIN_VALUE;
+
+        // Days from civil date, with the year starting in March
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yoe = y - era * 400;
+        int doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        long days = era * 146097L + doe - 719468L;
+
+        return ((days * 24 + hours) * 60 + minutes) * 60000L + seconds * 1000L;
     }
 
-    private static final String getLocalName(EndElement element) {
-        return element.getName().getLocalPart();
+    private static int getDaysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
     }
 
-    private static final String getAttributeValue(StartElement element, String namespaceURI, String localPart) {
-        QName name = new QName(namespaceURI == null ? XMLConstants.NULL_NS_URI : namespaceURI, localPart);
-        Attribute attribute = element.getAttributeByName(name);
-        return attribute == null ? null : attribute.getValue();
+    private static int parseDigits(String string, int start, int end) {
+        int value = 0;
+
+        for (int i = start; i < end; i++) {
+            char c = string.charAt(i);
+            if (c < '0' || c > '9')
+                return -1;
+
+            value = value * 10 + (c - '0');
+        }
+
+        return value;
+    }
+
+    private static String format(String message, XMLStreamReader reader) {
+        Location location = reader.getLocation();
+        return location == null ? message : (message + " at line " + location.getLineNumber());
     }
 
 }
@@ -0,0 +1,288 @@
+package eu.modernmt.model.impl.tmx;
+
+import eu.modernmt.constants.Const;
+import eu.modernmt.model.BilingualCorpus;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Created by davide on 04/07/16.
+ * <p>
+ * Reads a TMX split in ranges of whole translation units (see TMXIndex): every range is
+ * parsed on its own by a pool of threads, while pairs are returned in the original order.
+ * The pool is shared by all the readers, and so is a limit on the bytes of the ranges
+ * parsed but not yet consumed; a reader can always have at least one range in flight.
+ */
+class TMXParallelReader implements BilingualCorpus.BilingualStringReader {
+
+    private static final byte[] CHUNK_END = "</tmx-chunk>".getBytes(StandardCharsets.UTF_8);
+
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    private static final long MAX_IN_FLIGHT_BYTES = Runtime.getRuntime().maxMemory() / 16;
+
+    private static final ExecutorService executor = Executors.newFixedThreadPool(THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "TMXParallelReader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final AtomicLong inFlightBytes = new AtomicLong(0);
+
+    private static class Chunk {
+
+        private final Future<List<BilingualCorpus.StringPair>> future;
+        private final long bytes;
+
+        private Chunk(Future<List<BilingualCorpus.StringPair>> future, long bytes) {
+            this.future = future;
+            this.bytes = bytes;
+        }
+
+    }
+
+    private final File tmx;
+    private final long[] boundaries;
+    private final String sourceLanguage;
+    private final String targetLanguage;
+
+    private boolean decodeSegments = true;
+    private byte[] chunkStart;
+
+    private final ArrayDeque<Chunk> pending = new ArrayDeque<>();
+    private final int windowSize = THREADS * 2;
+    private int nextChunk = 0;
+
+    private Iterator<BilingualCorpus.StringPair> current = null;
+    private long currentBytes = 0;
+
+    public TMXParallelReader(File tmx, long[] boundaries, Locale sourceLanguage, Locale targetLanguage) throws IOException {
+        this.tmx = tmx;
+        this.boundaries = boundaries;
+        this.sourceLanguage = sourceLanguage.toLanguageTag().substring(0, 2).toLowerCase();
+        this.targetLanguage = targetLanguage.toLanguageTag().substring(0, 2).toLowerCase();
+
+        readHeader();
+        submitChunks();
+    }
+
+    /**
+     * Reads the header settings and the namespace declarations of the root and body
+     * elements, which are declared again in the element wrapping every range.
+     */
+    private void readHeader() throws IOException {
+        TMXPairReader pairReader = new TMXPairReader();
+        LinkedHashMap<String, String> namespaces = new LinkedHashMap<>();
+
+        InputStream stream = null;
+        XMLStreamReader reader = null;
+
+        try {
+            stream = new FileInputStream(tmx);
+            reader = XMLInputFactory.newInstance().createXMLStreamReader(new InputStreamReader(stream, Const.charset.get()));
+
+            boolean root = true;
+
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT)
+                    continue;
+
+                String name = reader.getLocalName();
+
+                if (root || "body".equals(name)) {
+                    for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                        String prefix = reader.getNamespacePrefix(i);
+                        namespaces.put(prefix == null ? "" : prefix, reader.getNamespaceURI(i));
+                    }
+                }
+
+                if ("header".equals(name))
+                    pairReader.readHeaderAttributes(reader);
+                else if ("body".equals(name) || "tu".equals(name))
+                    break;
+
+                root = false;
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Invalid TMX " + tmx, e);
+        } finally {
+            closeQuietly(reader);
+            IOUtils.closeQuietly(stream);
+        }
+
+        StringBuilder wrapper = new StringBuilder("<tmx-chunk");
+        for (Map.Entry<String, String> namespace : namespaces.entrySet())
+            appendNamespace(wrapper, namespace.getKey(), namespace.getValue());
+        wrapper.append('>');
+
+        this.decodeSegments = pairReader.isDecodeSegments();
+        this.chunkStart = wrapper.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void appendNamespace(StringBuilder wrapper, String prefix, String uri) {
+        wrapper.append(" xmlns");
+        if (!prefix.isEmpty())
+            wrapper.append(':').append(prefix);
+        wrapper.append("=\"");
+
+        if (uri != null) {
+            for (int i = 0; i < uri.length(); i++) {
+                char c = uri.charAt(i);
+
+                if (c == '&')
+                    wrapper.append("&amp;");
+                else if (c == '<')
+                    wrapper.append("&lt;");
+                else if (c == '"')
+                    wrapper.append("&quot;");
+                else
+                    wrapper.append(c);
+            }
+        }
+
+        wrapper.append('"');
+    }
+
+    private void submitChunks() {
+        while (nextChunk + 1 < boundaries.length && pending.size() < windowSize) {
+            long start = boundaries[nextChunk];
+            long end = boundaries[nextChunk + 1];
+            long bytes = end - start;
+
+            if (pending.isEmpty())
+                inFlightBytes.addAndGet(bytes);
+            else if (!tryAcquire(bytes))
+                break;
+
+            nextChunk++;
+
+            pending.add(new Chunk(executor.submit(() -> readChunk(start, end)), bytes));
+        }
+    }
+
+    private static boolean tryAcquire(long bytes) {
+        while (true) {
+            long current = inFlightBytes.get();
+            if (current + bytes > MAX_IN_FLIGHT_BYTES)
+                return false;
+
+            if (inFlightBytes.compareAndSet(current, current + bytes))
+                return true;
+        }
+    }
+
+    private List<BilingualCorpus.StringPair> readChunk(long start, long end) throws IOException {
+        TMXPairReader pairReader = new TMXPairReader();
+        pairReader.setDecodeSegments(decodeSegments);
+
+        ArrayList<BilingualCorpus.StringPair> pairs = new ArrayList<>();
+
+        FileInputStream file = null;
+        XMLStreamReader reader = null;
+
+        try {
+            file = new FileInputStream(tmx);
+            file.getChannel().position(start);
+
+            InputStream stream = new SequenceInputStream(new SequenceInputStream(
+                    new ByteArrayInputStream(chunkStart),
+                    new BufferedInputStream(new BoundedInputStream(file, end - start), 64 * 1024)),
+                    new ByteArrayInputStream(CHUNK_END));
+
+            reader = XMLInputFactory.newInstance().createXMLStreamReader(new InputStreamReader(stream, Const.charset.get()));
+
+            BilingualCorpus.StringPair pair;
+            while ((pair = pairReader.read(reader, sourceLanguage, targetLanguage)) != null)
+                pairs.add(pair);
+        } catch (XMLStreamException e) {
+            throw new IOException("Invalid TMX " + tmx + " in range starting at byte " + start, e);
+        } finally {
+            closeQuietly(reader);
+            IOUtils.closeQuietly(file);
+        }
+
+        return pairs;
+    }
+
+    @Override
+    public BilingualCorpus.StringPair read() throws IOException {
+        while (current == null || !current.hasNext()) {
+            inFlightBytes.addAndGet(-currentBytes);
+            currentBytes = 0;
+            current = null;
+
+            Chunk chunk = pending.poll();
+            if (chunk == null)
+                return null;
+
+            // Pairs of a range are in flight until they have all been returned
+            currentBytes = chunk.bytes;
+            submitChunks();
+
+            current = get(chunk.future).iterator();
+        }
+
+        return current.next();
+    }
+
+    private static List<BilingualCorpus.StringPair> get(Future<List<BilingualCorpus.StringPair>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading TMX");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            else if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            else
+                throw new Error("Unexpected exception", cause);
+        }
+    }
+
+    private static void closeQuietly(XMLStreamReader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                // Ignore it
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Chunk chunk : pending) {
+            chunk.future.cancel(true);
+            inFlightBytes.addAndGet(-chunk.bytes);
+        }
+
+        pending.clear();
+        nextChunk = boundaries.length;
+
+        inFlightBytes.addAndGet(-currentBytes);
+        currentBytes = 0;
+        current = null;
+    }
+
+}
@@ -0,0 +1,101 @@
+package eu.modernmt.io;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class LineIndexTest {
+
+    private File folder;
+    private File input;
+    private File cache;
+
+    @Before
+    public void setup() throws IOException {
+        folder = Files.createTempDirectory("LineIndexTest").toFile();
+        input = new File(folder, "input");
+        cache = new File(folder, "cache");
+
+        assertTrue(input.mkdir());
+    }
+
+    @After
+    public void teardown() throws IOException {
+        LineIndex.setCacheDirectory(null);
+        FileUtils.deleteDirectory(folder);
+    }
+
+    private static File write(File file, int lines) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < lines; i++)
+            content.append("line ").append(i).append('\n');
+
+        FileUtils.write(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    @Test
+    public void testInMemoryByDefault() throws IOException {
+        File file = write(new File(input, "corpus.en"), 10000);
+
+        LineIndex index = LineIndex.get(file);
+
+        assertEquals(10000, index.getLineCount());
+        assertNull(LineIndex.getCacheFile(file));
+        assertArrayEquals(new String[]{"corpus.en"}, input.list());
+        assertSame(index, LineIndex.get(file));
+    }
+
+    @Test
+    public void testCacheDirectory() throws IOException {
+        File file = write(new File(input, "corpus.en"), 10000);
+
+        LineIndex.setCacheDirectory(cache);
+        LineIndex index = LineIndex.get(file);
+
+        File cacheFile = LineIndex.getCacheFile(file);
+        assertNotNull(cacheFile);
+        assertTrue(cacheFile.isFile());
+        assertEquals(cache.getAbsoluteFile(), cacheFile.getParentFile());
+        assertArrayEquals(new String[]{"corpus.en"}, input.list());
+
+        assertEquals(10000, index.getLineCount());
+        assertEquals(FileUtils.readFileToString(file, StandardCharsets.UTF_8).indexOf("line 9000\n"), index.getOffset(9000));
+    }
+
+    @Test
+    public void testSameNameInDifferentDirectories() throws IOException {
+        File a = write(new File(input, "corpus.en"), 10);
+        File otherInput = new File(folder, "other");
+        assertTrue(otherInput.mkdir());
+        File b = write(new File(otherInput, "corpus.en"), 20);
+
+        LineIndex.setCacheDirectory(cache);
+
+        assertNotEquals(LineIndex.getCacheFile(a), LineIndex.getCacheFile(b));
+        assertEquals(10, LineIndex.get(a).getLineCount());
+        assertEquals(20, LineIndex.get(b).getLineCount());
+    }
+
+    @Test
+    public void testRebuiltWhenFileChanges() throws IOException {
+        File file = write(new File(input, "corpus.en"), 100);
+
+        LineIndex.setCacheDirectory(cache);
+        assertEquals(100, LineIndex.get(file).getLineCount());
+
+        write(file, 200);
+        assertTrue(file.setLastModified(file.lastModified() + 2000));
+
+        assertEquals(200, LineIndex.get(file).getLineCount());
+    }
+
+}
@@ -0,0 +1,103 @@
+package eu.modernmt.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AlignmentTest {
+
+    @Test
+    public void testFromInterleaved() {
+        Alignment alignment = Alignment.fromInterleaved(new int[]{2, 1, 0, 0, 1, 2, 0, 1});
+
+        assertEquals(4, alignment.size());
+        assertArrayEquals(new int[][]{{0, 0}, {0, 1}, {1, 2}, {2, 1}}, alignment.toArray());
+        assertEquals(Alignment.fromPairs(new int[][]{{0, 0}, {0, 1}, {1, 2}, {2, 1}}), alignment);
+    }
+
+    @Test
+    public void testFromInterleavedEmpty() {
+        Alignment alignment = Alignment.fromInterleaved(new int[0]);
+
+        assertTrue(alignment.isEmpty());
+        assertEquals("", alignment.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromInterleavedOddLength() {
+        Alignment.fromInterleaved(new int[]{0, 0, 1});
+    }
+
+    @Test
+    public void testLinksRange() {
+        Alignment alignment = Alignment.fromPairs(new int[][]{{0, 1}, {0, 0}, {2, 2}});
+
+        assertEquals(0, alignment.getLinksBegin(0));
+        assertEquals(2, alignment.getLinksEnd(0));
+        assertArrayEquals(new int[]{0, 1}, alignment.getTargets(0));
+
+        // Unaligned word between aligned ones
+        assertEquals(alignment.getLinksBegin(1), alignment.getLinksEnd(1));
+        assertFalse(alignment.isSourceAligned(1));
+        assertArrayEquals(new int[0], alignment.getTargets(1));
+
+        assertEquals(2, alignment.getLinksBegin(2));
+        assertEquals(3, alignment.getLinksEnd(2));
+        assertTrue(alignment.isSourceAligned(2));
+    }
+
+    @Test
+    public void testLinksRangePastTheEnd() {
+        Alignment alignment = Alignment.fromPairs(new int[][]{{0, 0}, {1, 1}});
+
+        for (int source = 2; source < 5; source++) {
+            assertEquals(alignment.size(), alignment.getLinksBegin(source));
+            assertEquals(alignment.size(), alignment.getLinksEnd(source));
+            assertFalse(alignment.isSourceAligned(source));
+            assertArrayEquals(new int[0], alignment.getTargets(source));
+        }
+    }
+
+    @Test
+    public void testLinksRangeOfEmptyAlignment() {
+        Alignment alignment = new Alignment(new int[0], new int[0]);
+
+        assertEquals(0, alignment.getLinksBegin(0));
+        assertEquals(0, alignment.getLinksEnd(0));
+        assertFalse(alignment.isSourceAligned(0));
+    }
+
+    @Test
+    public void testInvert() {
+        Alignment alignment = Alignment.fromPairs(new int[][]{{0, 2}, {1, 0}, {1, 1}, {3, 1}});
+        Alignment inverted = alignment.invert();
+
+        assertArrayEquals(new int[][]{{0, 1}, {1, 1}, {1, 3}, {2, 0}}, inverted.toArray());
+        assertArrayEquals(new int[]{1, 3}, inverted.getTargets(1));
+        assertEquals(alignment, inverted.invert());
+    }
+
+    @Test
+    public void testDuplicatesAreMerged() {
+        Alignment alignment = new Alignment(new int[]{1, 0, 1, 0, 1}, new int[]{1, 0, 1, 0, 2});
+
+        assertEquals(3, alignment.size());
+        assertArrayEquals(new int[][]{{0, 0}, {1, 1}, {1, 2}}, alignment.toArray());
+        assertArrayEquals(new int[]{1, 2}, alignment.getTargets(1));
+    }
+
+    @Test
+    public void testPackedConstructorUsesOnlySizeLinks() {
+        long[] links = new long[]{Alignment.pack(1, 0), Alignment.pack(0, 0), Alignment.pack(1, 0), Alignment.pack(5, 5)};
+        Alignment alignment = new Alignment(links, 3);
+
+        assertEquals(2, alignment.size());
+        assertEquals("0-0 1-0", alignment.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDifferentLengths() {
+        new Alignment(new int[]{0, 1}, new int[]{0});
+    }
+
+}
@@ -0,0 +1,72 @@
+package eu.modernmt.model.impl.tmx;
+
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class TMXPairReaderTest {
+
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("uuuuMMdd'T'HHmmss'Z'")
+            .withResolverStyle(ResolverStyle.STRICT);
+
+    private static long parseWithJavaTime(String date) {
+        try {
+            return LocalDateTime.parse(date, FORMAT).toInstant(ZoneOffset.UTC).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private static void assertParsed(String date) {
+        assertEquals(date, parseWithJavaTime(date), TMXPairReader.parseDate(date));
+    }
+
+    @Test
+    public void testKnownDates() {
+        assertEquals(0L, TMXPairReader.parseDate("19700101T000000Z"));
+        assertEquals(1451606400000L, TMXPairReader.parseDate("20160101T000000Z"));
+        assertEquals(1467331199000L, TMXPairReader.parseDate("20160630T235959Z"));
+    }
+
+    @Test
+    public void testAllDaysOfSpecialYears() {
+        int[] years = new int[]{0, 1, 4, 100, 399, 400, 1600, 1900, 1969, 1970, 2000, 2015, 2016, 2100, 9999};
+
+        for (int year : years) {
+            for (int month = 0; month <= 13; month++) {
+                for (int day = 0; day <= 32; day++)
+                    assertParsed(String.format("%04d%02d%02dT123456Z", year, month, day));
+            }
+        }
+    }
+
+    @Test
+    public void testRandomDates() {
+        Random random = new Random(1);
+
+        for (int i = 0; i < 100000; i++) {
+            String date = String.format("%04d%02d%02dT%02d%02d%02dZ", random.nextInt(10000), 1 + random.nextInt(12),
+                    1 + random.nextInt(31), random.nextInt(25), random.nextInt(61), random.nextInt(61));
+            assertParsed(date);
+        }
+    }
+
+    @Test
+    public void testInvalidFormats() {
+        String[] dates = new String[]{
+                "", "20160101", "20160101T000000", "20160101T000000z", "20160101 000000Z",
+                "2016-01-01T00:00:00Z", "2016010aT000000Z", "20160101T0000000Z", "+2016101T000000Z",
+        };
+
+        for (String date : dates)
+            assertEquals(date, Long.MIN_VALUE, TMXPairReader.parseDate(date));
+    }
+
+}
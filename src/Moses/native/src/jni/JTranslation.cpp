@@ -8,10 +8,10 @@
 #define JHypothesisClass JTranslationClass"$Hypothesis"
 
 JTranslation::JTranslation(JNIEnv *jvm) : _class(jvm->FindClass(JTranslationClass)) {
-    constructor = jvm->GetMethodID(_class, "<init>", "(Ljava/lang/String;[L" JHypothesisClass ";[[I)V");
+    constructor = jvm->GetMethodID(_class, "<init>", "(Ljava/lang/String;[L" JHypothesisClass ";[I)V");
 }
 
-jobject JTranslation::create(JNIEnv *jvm, std::string &text, jobjectArray nbestList, jobjectArray alignment) {
+jobject JTranslation::create(JNIEnv *jvm, std::string &text, jobjectArray nbestList, jintArray alignment) {
     jstring jtext = jvm->NewStringUTF(text.c_str());
     jobject jtranslation = jvm->NewObject(_class, constructor, jtext, nbestList, alignment);
     jvm->DeleteLocalRef(jtext);
@@ -19,21 +19,19 @@ jobject JTranslation::create(JNIEnv *jvm, std::string &text, jobjectArray nbestL
     return jtranslation;
 }
 
-jobjectArray JTranslation::getAlignment(JNIEnv *jvm, std::vector<std::pair<size_t, size_t>> alignment) {
-    jclass intArrayClass = jvm->FindClass("[I");
-    jobjectArray result = jvm->NewObjectArray(alignment.size(), intArrayClass, NULL);
+jintArray JTranslation::getAlignment(JNIEnv *jvm, std::vector<std::pair<size_t, size_t>> alignment) {
+    // Interleaved (source, target) pairs, copied with a single JNI call
+    std::vector<jint> buffer(alignment.size() * 2);
 
     for (size_t i = 0; i < alignment.size(); ++i) {
-        std::pair<size_t, size_t> pair = alignment[i];
-
-        jintArray jPair = jvm->NewIntArray(2);
-        jint jintPair[] = {(jint)pair.first, (jint)pair.second};
-        jvm->SetIntArrayRegion(jPair, 0, 2, jintPair);
-
-        jvm->SetObjectArrayElement(result, i, jPair);
-        jvm->DeleteLocalRef(jPair);
+        buffer[i * 2] = (jint) alignment[i].first;
+        buffer[i * 2 + 1] = (jint) alignment[i].second;
     }
 
+    jintArray result = jvm->NewIntArray((jsize) buffer.size());
+    if (!buffer.empty())
+        jvm->SetIntArrayRegion(result, 0, (jsize) buffer.size(), buffer.data());
+
     return result;
 }
 
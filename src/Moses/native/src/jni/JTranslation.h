@@ -17,9 +17,9 @@ public:
 
     JTranslation(JNIEnv *);
 
-    jobjectArray getAlignment(JNIEnv *, std::vector <std::pair<size_t, size_t>>);
+    jintArray getAlignment(JNIEnv *, std::vector <std::pair<size_t, size_t>>);
 
-    jobject create(JNIEnv *jvm, std::string &text, jobjectArray nbestList, jobjectArray alignment);
+    jobject create(JNIEnv *jvm, std::string &text, jobjectArray nbestList, jintArray alignment);
 };
 
 class JHypothesis {
@@ -180,7 +180,7 @@ JNIEXPORT jobject JNICALL Java_eu_modernmt_decoder_moses_MosesDecoder_translate(
 
     JTranslation Translation(jvm);
 
-    jobjectArray jAlignment = Translation.getAlignment(jvm, translation.alignment);
+    jintArray jAlignment = Translation.getAlignment(jvm, translation.alignment);
     jobject jtranslation = Translation.create(jvm, translation.text, hypothesesArray, jAlignment);
 
     jvm->DeleteLocalRef(jAlignment);
@@ -2,6 +2,7 @@ package eu.modernmt.decoder.moses;
 
 import eu.modernmt.decoder.DecoderTranslation;
 import eu.modernmt.decoder.TranslationHypothesis;
+import eu.modernmt.model.Alignment;
 import eu.modernmt.model.Sentence;
 import eu.modernmt.model.Word;
 
@@ -68,9 +69,9 @@ class TranslationXObject {
 
     public String text;
     public Hypothesis[] nbestList;
-    public int[][] alignment;
+    public int[] alignment;
 
-    public TranslationXObject(String text, Hypothesis[] nbestList, int[][] alignment) {
+    public TranslationXObject(String text, Hypothesis[] nbestList, int[] alignment) {
         this.text = text;
         this.nbestList = nbestList;
         this.alignment = alignment;
@@ -84,7 +85,8 @@ class TranslationXObject {
             words[i] = new Word(pieces[i], i < pieces.length - 1 ? " " : null);
         }
 
-        DecoderTranslation translation = new DecoderTranslation(words, source, alignment);
+        DecoderTranslation translation = new DecoderTranslation(words, source,
+                alignment == null ? null : Alignment.fromInterleaved(alignment));
 
         if (nbestList != null && nbestList.length > 0) {
             List<TranslationHypothesis> nbest = new ArrayList<>(nbestList.length);
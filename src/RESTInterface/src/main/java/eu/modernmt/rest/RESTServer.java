@@ -3,12 +3,15 @@ package eu.modernmt.rest;
 import eu.modernmt.constants.Const;
 import eu.modernmt.rest.framework.JSONSerializer;
 import eu.modernmt.rest.framework.routing.RouterServlet;
+import eu.modernmt.rest.model.BatchTranslationResponse;
 import eu.modernmt.rest.model.TranslationResponse;
+import eu.modernmt.rest.serializers.BatchTranslationResponseSerializer;
 import eu.modernmt.rest.serializers.TranslationResponseSerializer;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.LineIterator;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.servlet.ServletHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
 
 import javax.servlet.ServletException;
 import java.io.File;
@@ -23,6 +26,7 @@ public class RESTServer {
 
     static {
         JSONSerializer.registerCustomSerializer(TranslationResponse.class, new TranslationResponseSerializer());
+        JSONSerializer.registerCustomSerializer(BatchTranslationResponse.class, new BatchTranslationResponseSerializer());
     }
 
     private Server jettyServer;
@@ -31,7 +35,8 @@ public class RESTServer {
         this.jettyServer = new Server(port);
 
         ServletHandler handler = new ServletHandler();
-        handler.addServletWithMapping(Router.class, "/*");
+        ServletHolder router = handler.addServletWithMapping(Router.class, "/*");
+        router.setAsyncSupported(true);
         jettyServer.setHandler(handler);
     }
 
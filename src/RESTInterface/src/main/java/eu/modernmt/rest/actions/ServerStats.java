@@ -1,6 +1,10 @@
 package eu.modernmt.rest.actions;
 
 import com.google.gson.JsonObject;
+import eu.modernmt.core.cluster.ContextCache;
+import eu.modernmt.core.facade.ModernMT;
+import eu.modernmt.decoder.cache.TranslationCache;
+import eu.modernmt.processing.framework.concurrent.ProcessingScheduler;
 import eu.modernmt.rest.framework.HttpMethod;
 import eu.modernmt.rest.framework.Parameters;
 import eu.modernmt.rest.framework.RESTRequest;
@@ -10,6 +14,7 @@ import org.apache.commons.io.IOUtils;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Map;
 import java.util.Properties;
 
 /**
@@ -49,6 +54,45 @@ public class ServerStats extends JSONObjectAction {
         result.addProperty("version", sysprop.getProperty("version"));
         result.addProperty("build", sysprop.getProperty("build"));
 
+        ContextCache contextCache = ModernMT.context.getCache();
+        if (contextCache != null) {
+            JsonObject cache = new JsonObject();
+            cache.addProperty("size", contextCache.size());
+            cache.addProperty("hits", contextCache.getHits());
+            cache.addProperty("misses", contextCache.getMisses());
+            cache.addProperty("evictions", contextCache.getEvictions());
+            result.add("context_cache", cache);
+        }
+
+        Map<String, Number> contextStats = ModernMT.context.getStatistics();
+        if (!contextStats.isEmpty()) {
+            JsonObject context = new JsonObject();
+            for (Map.Entry<String, Number> entry : contextStats.entrySet())
+                context.addProperty(entry.getKey(), entry.getValue());
+            result.add("context_analyzer", context);
+        }
+
+        TranslationCache translationCache = ModernMT.decoder.getTranslationCache();
+        if (translationCache != null) {
+            JsonObject cache = new JsonObject();
+            cache.addProperty("size", translationCache.getEntryCount());
+            cache.addProperty("bytes", translationCache.getSize());
+            cache.addProperty("off_heap_bytes", translationCache.getOffHeapSize());
+            cache.addProperty("hits", translationCache.getHits());
+            cache.addProperty("misses", translationCache.getMisses());
+            cache.addProperty("evictions", translationCache.getEvictions());
+            result.add("translation_cache", cache);
+        }
+
+        ProcessingScheduler scheduler = ProcessingScheduler.getInstance();
+        JsonObject processing = new JsonObject();
+        processing.addProperty("threads", scheduler.getThreads());
+        processing.addProperty("active", scheduler.getActiveCount());
+        processing.addProperty("queued", scheduler.getQueuedCount());
+        processing.addProperty("completed", scheduler.getCompletedCount());
+        processing.addProperty("pipelines", scheduler.getExecutorCount());
+        result.add("processing", processing);
+
         return result;
     }
 
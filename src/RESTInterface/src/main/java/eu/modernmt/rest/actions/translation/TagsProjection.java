@@ -20,7 +20,7 @@ import java.util.Locale;
 @Route(aliases = "tags-projection", method = HttpMethod.GET)
 public class TagsProjection extends ObjectAction<Object> {
 
-    private static class ProjectedTranslation {
+    static class ProjectedTranslation {
 
         final String translation;
 
@@ -29,7 +29,7 @@ public class TagsProjection extends ObjectAction<Object> {
         }
     }
 
-    private static class ExhaustiveProjectedTranslation extends ProjectedTranslation {
+    static class ExhaustiveProjectedTranslation extends ProjectedTranslation {
 
         final String[] sourceToken;
         final String[] targetToken;
@@ -57,11 +57,15 @@ public class TagsProjection extends ObjectAction<Object> {
             taggedTranslation = ModernMT.tags.project(params.sentence, params.translation, params.sourceLanguage, params.targetLanguage);
         }
 
+        return toProjectedTranslation(taggedTranslation, params.showDetails);
+    }
+
+    static ProjectedTranslation toProjectedTranslation(Translation taggedTranslation, boolean showDetails) {
         ProjectedTranslation result;
-        if (params.showDetails) {
+        if (showDetails) {
             String[] sourceToken = stringifyTokens(taggedTranslation.getSource().getWords());
             String[] targetToken = stringifyTokens(taggedTranslation.getWords());
-            int[][] alignments = taggedTranslation.getAlignment();
+            int[][] alignments = taggedTranslation.getAlignment().toArray();
             result = new ExhaustiveProjectedTranslation(taggedTranslation.toString(), sourceToken, targetToken,
                     alignments);
         } else {
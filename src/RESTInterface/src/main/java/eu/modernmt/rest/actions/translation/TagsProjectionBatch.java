@@ -0,0 +1,94 @@
+package eu.modernmt.rest.actions.translation;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import eu.modernmt.aligner.symal.SymmetrizationStrategy;
+import eu.modernmt.core.facade.ModernMT;
+import eu.modernmt.core.facade.exceptions.validation.LanguagePairNotSupportedException;
+import eu.modernmt.decoder.TranslationException;
+import eu.modernmt.model.Translation;
+import eu.modernmt.rest.framework.HttpMethod;
+import eu.modernmt.rest.framework.Parameters;
+import eu.modernmt.rest.framework.RESTRequest;
+import eu.modernmt.rest.framework.actions.ObjectAction;
+import eu.modernmt.rest.framework.routing.Route;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Created by davide on 23/06/16.
+ */
+@Route(aliases = "tags-projection/batch", method = HttpMethod.POST)
+public class TagsProjectionBatch extends ObjectAction<Object> {
+
+    @Override
+    protected Object execute(RESTRequest req, Parameters _params) throws TranslationException, LanguagePairNotSupportedException {
+        Params params = (Params) _params;
+
+        ModernMT.tags.isLanguagesSupported(params.sourceLanguage, params.targetLanguage);
+
+        List<Translation> taggedTranslations = ModernMT.tags.project(params.sentences, params.translations,
+                params.sourceLanguage, params.targetLanguage, params.symmetrizationStrategy);
+
+        ArrayList<TagsProjection.ProjectedTranslation> result = new ArrayList<>(taggedTranslations.size());
+        for (Translation taggedTranslation : taggedTranslations)
+            result.add(TagsProjection.toProjectedTranslation(taggedTranslation, params.showDetails));
+
+        return result;
+    }
+
+    @Override
+    protected Parameters getParameters(RESTRequest req) throws Parameters.ParameterParsingException {
+        return new Params(req);
+    }
+
+    public static class Params extends Parameters {
+
+        public final List<String> sentences;
+        public final List<String> translations;
+        public final SymmetrizationStrategy symmetrizationStrategy;
+        public final boolean showDetails;
+        public final Locale sourceLanguage;
+        public final Locale targetLanguage;
+
+        public Params(RESTRequest req) throws ParameterParsingException {
+            super(req);
+            this.showDetails = getBoolean("d", false);
+
+            String symmetrizationStrategy = getString("symmetrization", false, null);
+            if (symmetrizationStrategy != null) {
+                try {
+                    this.symmetrizationStrategy = SymmetrizationStrategy.forName(symmetrizationStrategy);
+                } catch (IllegalArgumentException e) {
+                    throw new ParameterParsingException("symmetrization", symmetrizationStrategy);
+                }
+            } else {
+                this.symmetrizationStrategy = null;
+            }
+
+            this.sourceLanguage = Locale.forLanguageTag(getString("sl", false));
+            this.targetLanguage = Locale.forLanguageTag(getString("tl", false));
+
+            JsonArray array = req.getJSONArray();
+            if (array == null)
+                throw new ParameterParsingException();
+
+            this.sentences = new ArrayList<>(array.size());
+            this.translations = new ArrayList<>(array.size());
+
+            try {
+                for (JsonElement element : array) {
+                    JsonObject pair = element.getAsJsonObject();
+                    this.sentences.add(pair.get("s").getAsString());
+                    this.translations.add(pair.get("t").getAsString());
+                }
+            } catch (JsonParseException | IllegalStateException | UnsupportedOperationException | NullPointerException e) {
+                throw new ParameterParsingException(e);
+            }
+        }
+    }
+}
@@ -2,45 +2,52 @@ package eu.modernmt.rest.actions.translation;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonParseException;
-import eu.modernmt.context.ContextAnalyzerException;
 import eu.modernmt.context.ContextDocument;
 import eu.modernmt.core.facade.ModernMT;
-import eu.modernmt.decoder.TranslationException;
+import eu.modernmt.decoder.DecoderTranslation;
 import eu.modernmt.rest.framework.HttpMethod;
 import eu.modernmt.rest.framework.Parameters;
 import eu.modernmt.rest.framework.RESTRequest;
-import eu.modernmt.rest.framework.actions.ObjectAction;
+import eu.modernmt.rest.framework.actions.AsyncObjectAction;
 import eu.modernmt.rest.framework.routing.Route;
 import eu.modernmt.rest.model.TranslationResponse;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Created by davide on 17/12/15.
  */
 @Route(aliases = "translate", method = HttpMethod.GET)
-public class Translate extends ObjectAction<TranslationResponse> {
+public class Translate extends AsyncObjectAction<TranslationResponse> {
 
     @Override
-    protected TranslationResponse execute(RESTRequest req, Parameters _params) throws ContextAnalyzerException, TranslationException {
+    protected CompletableFuture<TranslationResponse> execute(RESTRequest req, Parameters _params) {
         Params params = (Params) _params;
 
         TranslationResponse result = new TranslationResponse();
         result.processing = params.textProcessing;
 
+        CompletableFuture<DecoderTranslation> translation;
+
         if (params.sessionId > 0) {
             result.session = params.sessionId;
-            result.translation = ModernMT.decoder.translate(params.query, params.sessionId, params.textProcessing, params.nbest);
+            translation = ModernMT.decoder.translateAsync(params.query, params.sessionId, params.textProcessing, params.nbest);
         } else if (params.context != null) {
-            result.translation = ModernMT.decoder.translate(params.query, params.context, params.textProcessing, params.nbest);
+            translation = ModernMT.decoder.translateAsync(params.query, params.context, params.textProcessing, params.nbest);
         } else if (params.contextString != null) {
-            result.context = ModernMT.context.get(params.contextString, params.contextLimit);
-            result.translation = ModernMT.decoder.translate(params.query, result.context, params.textProcessing, params.nbest);
+            translation = ModernMT.context.getAsync(params.contextString, params.contextLimit).thenCompose(context -> {
+                result.context = context;
+                return ModernMT.decoder.translateAsync(params.query, context, params.textProcessing, params.nbest);
+            });
         } else {
-            result.translation = ModernMT.decoder.translate(params.query, params.textProcessing, params.nbest);
+            translation = ModernMT.decoder.translateAsync(params.query, params.textProcessing, params.nbest);
         }
 
-        return result;
+        return translation.thenApply(value -> {
+            result.translation = value;
+            return result;
+        });
     }
 
     @Override
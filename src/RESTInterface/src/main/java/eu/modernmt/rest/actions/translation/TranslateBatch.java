@@ -0,0 +1,109 @@
+package eu.modernmt.rest.actions.translation;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import eu.modernmt.context.ContextAnalyzerException;
+import eu.modernmt.context.ContextDocument;
+import eu.modernmt.core.facade.ModernMT;
+import eu.modernmt.decoder.TranslationException;
+import eu.modernmt.rest.framework.HttpMethod;
+import eu.modernmt.rest.framework.Parameters;
+import eu.modernmt.rest.framework.RESTRequest;
+import eu.modernmt.rest.framework.actions.ObjectAction;
+import eu.modernmt.rest.framework.routing.Route;
+import eu.modernmt.rest.model.BatchTranslationResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Created by davide on 10/06/16.
+ */
+@Route(aliases = "translate/batch", method = HttpMethod.POST)
+public class TranslateBatch extends ObjectAction<BatchTranslationResponse> {
+
+    @Override
+    protected BatchTranslationResponse execute(RESTRequest req, Parameters _params) throws ContextAnalyzerException, TranslationException {
+        Params params = (Params) _params;
+
+        BatchTranslationResponse result = new BatchTranslationResponse();
+        result.processing = params.textProcessing;
+
+        if (params.sessionId > 0) {
+            result.session = params.sessionId;
+            result.translations = ModernMT.decoder.translate(params.queries, params.sessionId, params.textProcessing, params.nbest);
+        } else if (params.context != null) {
+            result.translations = ModernMT.decoder.translate(params.queries, params.context, params.textProcessing, params.nbest);
+        } else if (params.contextString != null) {
+            result.context = ModernMT.context.get(params.contextString, params.contextLimit);
+            result.translations = ModernMT.decoder.translate(params.queries, result.context, params.textProcessing, params.nbest);
+        } else {
+            result.translations = ModernMT.decoder.translate(params.queries, params.textProcessing, params.nbest);
+        }
+
+        return result;
+    }
+
+    @Override
+    protected Parameters getParameters(RESTRequest req) throws Parameters.ParameterParsingException {
+        return new Params(req);
+    }
+
+    public static class Params extends Parameters {
+
+        public final List<String> queries;
+        public final long sessionId;
+        public final List<ContextDocument> context;
+        public final String contextString;
+        public final int contextLimit;
+        public final boolean textProcessing;
+        public final int nbest;
+
+        public Params(RESTRequest req) throws ParameterParsingException {
+            super(req);
+
+            textProcessing = getBoolean("processing", true);
+            sessionId = getLong("session", 0L);
+            contextLimit = getInt("context_limit", 10);
+            nbest = getInt("nbest", 0);
+
+            JsonArray array = req.getJSONArray();
+            if (array == null)
+                throw new ParameterParsingException();
+
+            try {
+                queries = parseQueries(array);
+            } catch (JsonParseException | IllegalStateException | UnsupportedOperationException e) {
+                throw new ParameterParsingException(e);
+            }
+
+            if (sessionId == 0) {
+                JsonArray json = getJSONArray("context_array", null);
+
+                if (json != null) {
+                    try {
+                        context = CreateTranslationSession.parseContext(json);
+                    } catch (JsonParseException e) {
+                        throw new ParameterParsingException("context_array", json.toString(), e);
+                    }
+                    contextString = null;
+                } else {
+                    context = null;
+                    contextString = getString("context", false, null);
+                }
+            } else {
+                context = null;
+                contextString = null;
+            }
+        }
+
+        private static List<String> parseQueries(JsonArray array) {
+            ArrayList<String> queries = new ArrayList<>(array.size());
+            for (JsonElement e : array)
+                queries.add(e.getAsString());
+
+            return queries;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package eu.modernmt.rest.framework.actions;
+
+import eu.modernmt.rest.framework.RESTRequest;
+import eu.modernmt.rest.framework.RESTResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Created by davide on 13/06/16.
+ * <p>
+ * An Action that does not block the calling thread: the returned future is
+ * completed once the response has been written. The response is written by
+ * a task submitted to the given executor.
+ */
+public interface AsyncAction extends Action {
+
+    CompletableFuture<Void> executeAsync(RESTRequest request, RESTResponse response, Executor executor);
+
+}
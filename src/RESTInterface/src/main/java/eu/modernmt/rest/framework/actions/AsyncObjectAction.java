@@ -0,0 +1,68 @@
+package eu.modernmt.rest.framework.actions;
+
+import eu.modernmt.rest.framework.Parameters;
+import eu.modernmt.rest.framework.RESTRequest;
+import eu.modernmt.rest.framework.RESTResponse;
+
+import java.lang.reflect.ParameterizedType;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Created by davide on 13/06/16.
+ */
+public abstract class AsyncObjectAction<M> extends JSONAction implements AsyncAction {
+
+    @Override
+    public final CompletableFuture<Void> executeAsync(RESTRequest req, RESTResponse resp, Executor executor) {
+        Parameters params;
+        CompletableFuture<M> future;
+
+        try {
+            params = getParameters(req);
+            future = execute(req, params);
+        } catch (Throwable e) {
+            onException(e, resp);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return future.handleAsync((object, error) -> {
+            try {
+                if (error != null)
+                    throw unwrap(error);
+
+                output(req, resp, params, wrap(object));
+            } catch (Throwable e) {
+                onException(e, resp);
+            }
+
+            return null;
+        }, executor);
+    }
+
+    @Override
+    protected final ObjectActionResult getResult(RESTRequest req, Parameters params) throws Throwable {
+        try {
+            return wrap(execute(req, params).get());
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private ObjectActionResult wrap(M object) {
+        Class<M> objectClass = (Class<M>) ((ParameterizedType) getClass().getGenericSuperclass()).getActualTypeArguments()[0];
+        return object == null ? null : new ObjectActionResult<>(object, objectClass);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null)
+            error = error.getCause();
+        return error;
+    }
+
+    protected abstract CompletableFuture<M> execute(RESTRequest req, Parameters params) throws Throwable;
+
+}
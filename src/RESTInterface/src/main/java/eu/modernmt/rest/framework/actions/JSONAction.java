@@ -19,6 +19,14 @@ public abstract class JSONAction implements Action {
     public final void execute(RESTRequest req, RESTResponse resp) {
         try {
             unsecureExecute(req, resp);
+        } catch (Throwable e) {
+            onException(e, resp);
+        }
+    }
+
+    protected final void onException(Throwable throwable, RESTResponse resp) {
+        try {
+            throw throwable;
         } catch (TemplateException e) {
             if (logger.isDebugEnabled())
                 logger.debug("Template exception while executing action " + this, e);
@@ -50,7 +58,10 @@ public abstract class JSONAction implements Action {
     protected final void unsecureExecute(RESTRequest req, RESTResponse resp) throws Throwable {
         Parameters params = getParameters(req);
         JSONActionResult result = getResult(req, params);
+        output(req, resp, params, result);
+    }
 
+    protected final void output(RESTRequest req, RESTResponse resp, Parameters params, JSONActionResult result) throws Throwable {
         if (result == null) {
             resp.resourceNotFound();
         } else {
@@ -5,9 +5,13 @@ import eu.modernmt.rest.framework.HttpMethod;
 import eu.modernmt.rest.framework.RESTRequest;
 import eu.modernmt.rest.framework.RESTResponse;
 import eu.modernmt.rest.framework.actions.Action;
+import eu.modernmt.rest.framework.actions.AsyncAction;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -16,10 +20,13 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.UnsupportedEncodingException;
 import java.util.Collection;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public abstract class RouterServlet extends HttpServlet {
 
     private static final String DEFAULT_ENCODING = "UTF-8";
+    private static final long ASYNC_TIMEOUT = 5L * 60L * 1000L;
 
     protected final Logger logger = LogManager.getLogger(getClass());
     private RouteTree routes;
@@ -91,6 +98,8 @@ public abstract class RouterServlet extends HttpServlet {
             logger.info(log.toString());
         }
 
+        boolean async = false;
+
         try {
             Class<? extends Action> actionClass = restRequest.getActionClass();
 
@@ -102,36 +111,103 @@ public abstract class RouterServlet extends HttpServlet {
                 if (logger.isDebugEnabled())
                     logger.debug("Executing REST action " + action);
 
-                action.execute(restRequest, restResponse);
+                if (action instanceof AsyncAction && req.isAsyncSupported()) {
+                    AsyncContext context = req.startAsync();
+                    async = true;
+
+                    executeAsync((AsyncAction) action, context, restRequest, restResponse, logUUID);
+                } else {
+                    action.execute(restRequest, restResponse);
+                }
             }
         } catch (Throwable e) {
             logger.error("Unexpected exceptions", e);
             restResponse.unexpectedError(e);
         } finally {
-            if (logger.isInfoEnabled()) {
-                StringBuilder log = new StringBuilder();
-                log.append("REST Response (");
-                log.append(logUUID);
-                log.append("): ");
-                log.append(restResponse.getHttpStatus());
-
-                if (logger.isDebugEnabled()) {
-                    JsonElement json = restResponse.getContent();
-
-                    if (json != null) {
-                        String content = json.toString();
-                        if (content.length() > 200)
-                            content = content.substring(0, 199) + "[...]";
-
-                        log.append(' ');
-                        log.append(content);
-                    }
+            if (!async)
+                logResponse(logUUID, restResponse);
+        }
+
+    }
+
+    private void executeAsync(AsyncAction action, AsyncContext context, RESTRequest restRequest, RESTResponse restResponse, String logUUID) {
+        AtomicBoolean completed = new AtomicBoolean(false);
+
+        context.setTimeout(ASYNC_TIMEOUT);
+        context.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                if (completed.compareAndSet(false, true)) {
+                    logger.warn("REST request (" + logUUID + ") timed out after " + ASYNC_TIMEOUT + "ms");
+                    restResponse.unavailable();
+                    logResponse(logUUID, restResponse);
+                    context.complete();
+                }
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                if (completed.compareAndSet(false, true)) {
+                    logger.error("Unexpected exceptions", event.getThrowable());
+                    logResponse(logUUID, restResponse);
+                    context.complete();
                 }
+            }
 
-                logger.info(log.toString());
+            @Override
+            public void onStartAsync(AsyncEvent event) {
             }
+        });
+
+        CompletableFuture<Void> future;
+        try {
+            future = action.executeAsync(restRequest, restResponse, context::start);
+        } catch (Throwable e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
         }
 
+        future.whenComplete((aVoid, error) -> {
+            if (!completed.compareAndSet(false, true))
+                return;
+
+            if (error != null) {
+                logger.error("Unexpected exceptions", error);
+                restResponse.unexpectedError(error);
+            }
+
+            logResponse(logUUID, restResponse);
+            context.complete();
+        });
+    }
+
+    private void logResponse(String logUUID, RESTResponse restResponse) {
+        if (logger.isInfoEnabled()) {
+            StringBuilder log = new StringBuilder();
+            log.append("REST Response (");
+            log.append(logUUID);
+            log.append("): ");
+            log.append(restResponse.getHttpStatus());
+
+            if (logger.isDebugEnabled()) {
+                JsonElement json = restResponse.getContent();
+
+                if (json != null) {
+                    String content = json.toString();
+                    if (content.length() > 200)
+                        content = content.substring(0, 199) + "[...]";
+
+                    log.append(' ');
+                    log.append(content);
+                }
+            }
+
+            logger.info(log.toString());
+        }
     }
 
 }
@@ -0,0 +1,18 @@
+package eu.modernmt.rest.model;
+
+import eu.modernmt.context.ContextDocument;
+import eu.modernmt.decoder.DecoderTranslation;
+
+import java.util.List;
+
+/**
+ * Created by davide on 10/06/16.
+ */
+public class BatchTranslationResponse {
+
+    public List<DecoderTranslation> translations = null;
+    public List<ContextDocument> context = null;
+    public long session = 0;
+    public boolean processing = true;
+
+}
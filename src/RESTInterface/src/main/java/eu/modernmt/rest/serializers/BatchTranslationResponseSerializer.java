@@ -0,0 +1,36 @@
+package eu.modernmt.rest.serializers;
+
+import com.google.gson.*;
+import eu.modernmt.context.ContextDocument;
+import eu.modernmt.decoder.DecoderTranslation;
+import eu.modernmt.rest.model.BatchTranslationResponse;
+
+import java.lang.reflect.Type;
+
+/**
+ * Created by davide on 10/06/16.
+ */
+public class BatchTranslationResponseSerializer implements JsonSerializer<BatchTranslationResponse> {
+
+    @Override
+    public JsonElement serialize(BatchTranslationResponse src, Type typeOfSrc, JsonSerializationContext context) {
+        JsonObject json = new JsonObject();
+
+        JsonArray translations = new JsonArray();
+        for (DecoderTranslation translation : src.translations)
+            translations.add(TranslationResponseSerializer.serialize(translation, context, src.processing));
+        json.add("translations", translations);
+
+        if (src.session > 0L)
+            json.addProperty("session", src.session);
+
+        if (src.context != null) {
+            JsonArray array = new JsonArray();
+            for (ContextDocument document : src.context)
+                array.add(context.serialize(document));
+            json.add("context", array);
+        }
+
+        return json;
+    }
+}
@@ -2,6 +2,7 @@ package eu.modernmt.rest.serializers;
 
 import com.google.gson.*;
 import eu.modernmt.context.ContextDocument;
+import eu.modernmt.decoder.DecoderTranslation;
 import eu.modernmt.decoder.TranslationHypothesis;
 import eu.modernmt.processing.util.TokensOutputter;
 import eu.modernmt.rest.model.TranslationResponse;
@@ -16,21 +17,11 @@ public class TranslationResponseSerializer implements JsonSerializer<Translation
 
     @Override
     public JsonElement serialize(TranslationResponse src, Type typeOfSrc, JsonSerializationContext context) {
-        JsonObject json = new JsonObject();
-        json.addProperty("translation", src.processing ? src.translation.toString() : TokensOutputter.toString(src.translation, false, true));
-        json.addProperty("decodingTime", src.translation.getElapsedTime());
+        JsonObject json = serialize(src.translation, context, src.processing);
 
         if (src.session > 0L)
             json.addProperty("session", src.session);
 
-        List<TranslationHypothesis> nbest = src.translation.getNbest();
-        if (nbest != null) {
-            JsonArray array = new JsonArray();
-            for (TranslationHypothesis hypothesis : nbest)
-                array.add(TranslationHypothesisSerializer.serialize(hypothesis, context, src.processing));
-            json.add("nbest", array);
-        }
-
         if (src.context != null) {
             JsonArray array = new JsonArray();
             for (ContextDocument document : src.context)
@@ -40,4 +31,20 @@ public class TranslationResponseSerializer implements JsonSerializer<Translation
 
         return json;
     }
+
+    public static JsonObject serialize(DecoderTranslation translation, JsonSerializationContext context, boolean processing) {
+        JsonObject json = new JsonObject();
+        json.addProperty("translation", processing ? translation.toString() : TokensOutputter.toString(translation, false, true));
+        json.addProperty("decodingTime", translation.getElapsedTime());
+
+        List<TranslationHypothesis> nbest = translation.getNbest();
+        if (nbest != null) {
+            JsonArray array = new JsonArray();
+            for (TranslationHypothesis hypothesis : nbest)
+                array.add(TranslationHypothesisSerializer.serialize(hypothesis, context, processing));
+            json.add("nbest", array);
+        }
+
+        return json;
+    }
 }
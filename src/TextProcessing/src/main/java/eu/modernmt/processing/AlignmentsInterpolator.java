@@ -1,5 +1,6 @@
 package eu.modernmt.processing;
 
+import eu.modernmt.model.Alignment;
 import eu.modernmt.model.Translation;
 import eu.modernmt.processing.framework.LanguageNotSupportedException;
 import eu.modernmt.processing.framework.ProcessingException;
@@ -21,37 +22,30 @@ public class AlignmentsInterpolator extends TextProcessor<Translation, Translati
         if (translation.hasAlignment()) {
             int numberOfSourceTokens = translation.getSource().getWords().length;
             int numberOfTranslationTokens = translation.getWords().length;
-            int[][] interpolatedAlignments = interpolateAlignments(translation.getAlignment(), numberOfSourceTokens,
+            Alignment interpolatedAlignments = interpolateAlignments(translation.getAlignment(), numberOfSourceTokens,
                     numberOfTranslationTokens);
             translation.setAlignment(interpolatedAlignments);
         }
         return translation;
     }
 
-    public static int[][] interpolateAlignments(int[][] alignments, int numberOfSourceTokens, int numberOfTargetTokens) {
-        alignments = Arrays.copyOf(alignments, alignments.length + 1);
-        alignments[alignments.length - 1] = new int[]{numberOfSourceTokens, numberOfTargetTokens};
-        ArrayList<int[]> interpolatedAlignments = new ArrayList<>(alignments.length);
-        Arrays.sort(alignments, new Comparator<int[]>() {
-            @Override
-            public int compare(int[] a1, int[] a2) {
-                int c = a1[0] - a2[0];
-                if (c == 0) {
-                    c = a1[1] - a2[1];
-                }
-                return c;
-            }
-        });
+    public static Alignment interpolateAlignments(Alignment alignments, int numberOfSourceTokens, int numberOfTargetTokens) {
+        // Links are already sorted, the last iteration processes the (numberOfSourceTokens, numberOfTargetTokens) sentinel
+        int size = alignments.size();
+        long[] interpolatedAlignments = new long[size + 16];
+        int count = 0;
+
         BitSet targetCoveredTokens = new BitSet(numberOfTargetTokens);
-        for (int[] alignment : alignments) {
-            targetCoveredTokens.set(alignment[1]);
+        for (int i = 0; i < size; i++) {
+            targetCoveredTokens.set(alignments.getTarget(i));
         }
+        targetCoveredTokens.set(numberOfTargetTokens);
+
         int prevSourceIndex = -1;
         int prevTargetIndex = -1;
-        for (int alignmentIndex = 0; alignmentIndex < alignments.length; alignmentIndex++) {
-            int[] alignment = alignments[alignmentIndex];
-            int sourceIndex = alignment[0];
-            int targetIndex = alignment[1];
+        for (int alignmentIndex = 0; alignmentIndex <= size; alignmentIndex++) {
+            int sourceIndex = alignmentIndex < size ? alignments.getSource(alignmentIndex) : numberOfSourceTokens;
+            int targetIndex = alignmentIndex < size ? alignments.getTarget(alignmentIndex) : numberOfTargetTokens;
             int sourceDiff = sourceIndex - prevSourceIndex;
             int targetDiff = targetIndex - prevTargetIndex;
             if (sourceDiff > 1 || Math.abs(targetDiff) > 1) {
@@ -67,29 +61,37 @@ public class AlignmentsInterpolator extends TextProcessor<Translation, Translati
                 if (monotoneBlock) {
                     if (sourceDiff == 0) {
                         for (int t = minTarget + 1; t < maxTarget; t++) {
-                            interpolatedAlignments.add(new int[]{sourceIndex, t});
+                            interpolatedAlignments = add(interpolatedAlignments, count++, sourceIndex, t);
                         }
                     } else if (targetDiff == 0) {
                         for (int s = prevSourceIndex + 1; s < sourceIndex; s++) {
-                            interpolatedAlignments.add(new int[]{s, targetIndex});
+                            interpolatedAlignments = add(interpolatedAlignments, count++, s, targetIndex);
                         }
                     } else {
                         for (int s = prevSourceIndex + 1; s < sourceIndex; s++) {
                             for (int t = minTarget + 1; t < maxTarget; t++) {
-                                interpolatedAlignments.add(new int[]{s, t});
+                                interpolatedAlignments = add(interpolatedAlignments, count++, s, t);
                             }
                         }
                     }
                 }
             }
             if (sourceIndex < numberOfSourceTokens && targetIndex < numberOfTargetTokens) {
-                interpolatedAlignments.add(alignment);
+                interpolatedAlignments = add(interpolatedAlignments, count++, sourceIndex, targetIndex);
             }
             prevSourceIndex = sourceIndex;
             prevTargetIndex = targetIndex;
         }
-        int[][] result = new int[interpolatedAlignments.size()][];
-        return interpolatedAlignments.toArray(result);
+
+        return new Alignment(interpolatedAlignments, count);
+    }
+
+    private static long[] add(long[] array, int index, int source, int target) {
+        if (index == array.length)
+            array = Arrays.copyOf(array, array.length * 2);
+
+        array[index] = Alignment.pack(source, target);
+        return array;
     }
 
 }
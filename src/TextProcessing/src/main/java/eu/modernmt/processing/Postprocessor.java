@@ -63,6 +63,14 @@ public class Postprocessor implements Closeable {
         this.executor.process(input, null);
     }
 
+    /**
+     * If enabled, single-item calls are processed in the calling thread
+     * instead of being handed off to the processing threads.
+     */
+    public void setCallerRuns(boolean callerRuns) {
+        this.executor.setCallerRuns(callerRuns);
+    }
+
     @Override
     public void close() {
         this.executor.shutdown();
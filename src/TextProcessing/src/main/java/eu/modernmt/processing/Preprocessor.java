@@ -86,6 +86,29 @@ public class Preprocessor implements Closeable {
         this.executor.process(input, output, metadata);
     }
 
+    public void setBatchSize(int batchSize) {
+        this.executor.setBatchSize(batchSize);
+    }
+
+    public long getProcessedCount() {
+        return this.executor.getProcessedCount();
+    }
+
+    /**
+     * Returns the number of sentences per second processed by batch and stream calls.
+     */
+    public double getThroughput() {
+        return this.executor.getThroughput();
+    }
+
+    /**
+     * If enabled, single-item calls are processed in the calling thread
+     * instead of being handed off to the processing threads.
+     */
+    public void setCallerRuns(boolean callerRuns) {
+        this.executor.setCallerRuns(callerRuns);
+    }
+
     @Override
     public void close() {
         this.executor.shutdown();
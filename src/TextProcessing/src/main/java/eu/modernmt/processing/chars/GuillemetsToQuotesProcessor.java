@@ -1,5 +1,6 @@
 package eu.modernmt.processing.chars;
 
+import eu.modernmt.model.Alignment;
 import eu.modernmt.model.Translation;
 import eu.modernmt.model.Word;
 import eu.modernmt.processing.framework.LanguageNotSupportedException;
@@ -24,9 +25,11 @@ public class GuillemetsToQuotesProcessor extends TextProcessor<Translation, Tran
         Word[] target = translation.getWords();
 
         if (translation.hasAlignment()) {
-            for (int[] pair : translation.getAlignment()) {
-                Word sourceWord = source[pair[0]];
-                Word targetWord = target[pair[1]];
+            Alignment alignment = translation.getAlignment();
+
+            for (int i = 0; i < alignment.size(); i++) {
+                Word sourceWord = source[alignment.getSource(i)];
+                Word targetWord = target[alignment.getTarget(i)];
 
                 if (targetWord.hasText())
                     continue;
@@ -1,7 +1,7 @@
 package eu.modernmt.processing.framework;
 
 import eu.modernmt.constants.Const;
-import eu.modernmt.io.UnixLineReader;
+import eu.modernmt.io.LineReader;
 
 import java.io.*;
 
@@ -19,7 +19,7 @@ public interface PipelineInputStream<V> extends Closeable {
     static PipelineInputStream<String> fromReader(final Reader _reader) {
         return new PipelineInputStream<String>() {
 
-            private UnixLineReader reader = new UnixLineReader(_reader);
+            private LineReader reader = LineReader.wrap(_reader);
 
             @Override
             public void close() throws IOException {
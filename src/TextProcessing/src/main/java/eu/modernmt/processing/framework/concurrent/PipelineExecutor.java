@@ -8,9 +8,22 @@ import java.util.concurrent.*;
 
 /**
  * Created by davide on 31/05/16.
+ * <p>
+ * Tasks run in the node-wide ProcessingScheduler; the threads parameter limits how many
+ * of them run concurrently for this executor.
+ * <p>
+ * When caller-runs is enabled, single-item calls are processed inline in the calling
+ * thread with a pipeline borrowed from the buffer, skipping the thread pool handoff;
+ * collections and streams are always processed by the pool.
+ * <p>
+ * Collections and streams are split in micro-batches, each one processed by a single
+ * pipeline instance; the executor keeps track of the processed items in order to report
+ * its throughput.
  */
 public class PipelineExecutor<P, R> {
 
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
     private final ExecutorService executor;
     private final Queue<ProcessingPipeline<P, R>> pipelineBuffer;
 
@@ -18,9 +31,16 @@ public class PipelineExecutor<P, R> {
     private final Locale target;
     private final PipelineBuilder<P, R> builder;
     private final int threads;
+    private volatile boolean callerRuns = false;
+    private volatile int batchSize = DEFAULT_BATCH_SIZE;
+
+    private long processedCount = 0;
+    private long busyTime = 0;
+    private long busySince = 0;
+    private int activeJobs = 0;
 
     public PipelineExecutor(Locale source, Locale target, PipelineBuilder<P, R> builder, int threads) {
-        this.executor = Executors.newFixedThreadPool(threads);
+        this.executor = ProcessingScheduler.getInstance().newExecutor(threads);
         this.pipelineBuffer = new ConcurrentLinkedQueue<>();
 
         this.source = source;
@@ -45,11 +65,63 @@ public class PipelineExecutor<P, R> {
         return threads;
     }
 
+    public boolean isCallerRuns() {
+        return callerRuns;
+    }
+
+    public void setCallerRuns(boolean callerRuns) {
+        this.callerRuns = callerRuns;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Invalid batch size: " + batchSize);
+
+        this.batchSize = batchSize;
+    }
+
+    public synchronized long getProcessedCount() {
+        return processedCount;
+    }
+
+    /**
+     * Returns the number of items processed per second by collection and stream
+     * jobs, measured over the time in which at least one job was running.
+     */
+    public synchronized double getThroughput() {
+        long time = busyTime;
+        if (activeJobs > 0)
+            time += System.nanoTime() - busySince;
+
+        return time > 0 ? (processedCount * 1e9) / time : 0;
+    }
+
+    synchronized void onJobStarted() {
+        if (activeJobs++ == 0)
+            busySince = System.nanoTime();
+    }
+
+    synchronized void onJobFinished() {
+        if (--activeJobs == 0)
+            busyTime += System.nanoTime() - busySince;
+    }
+
+    synchronized void onProcessed(int count) {
+        processedCount += count;
+    }
+
     public R process(P value) throws ProcessingException {
         return process(value, null);
     }
 
     public R process(P value, Map<String, Object> metadata) throws ProcessingException {
+        if (callerRuns)
+            return new Task(value, metadata).call();
+
         try {
             return submit(value, metadata).get();
         } catch (ExecutionException e) {
@@ -86,10 +158,8 @@ public class PipelineExecutor<P, R> {
         if (metadata != null)
             job.setMetadata(metadata);
 
-        job.start();
-
         try {
-            job.join();
+            job.run();
         } catch (InterruptedException e) {
             // Ignore it
         }
@@ -99,6 +169,10 @@ public class PipelineExecutor<P, R> {
         return this.executor.submit(new Task(param, metadata));
     }
 
+    Future<List<R>> submitBatch(List<P> batch, Map<String, Object> metadata) {
+        return this.executor.submit(new Batch(batch, metadata));
+    }
+
     private ProcessingPipeline<P, R> getPipeline() throws ProcessingException {
         ProcessingPipeline<P, R> instance = pipelineBuffer.poll();
 
@@ -135,4 +209,33 @@ public class PipelineExecutor<P, R> {
             }
         }
     }
+
+    private class Batch implements Callable<List<R>> {
+
+        private final List<P> params;
+        private final Map<String, Object> metadata;
+
+        private Batch(List<P> params, Map<String, Object> metadata) {
+            this.params = params;
+            this.metadata = metadata;
+        }
+
+        @Override
+        public List<R> call() throws ProcessingException {
+            ArrayList<R> result = new ArrayList<>(params.size());
+            ProcessingPipeline<P, R> pipeline = getPipeline();
+
+            try {
+                for (P param : params) {
+                    Map<String, Object> metadata = (this.metadata == null) ? new HashMap<>() : new HashMap<>(this.metadata);
+                    result.add(pipeline.call(param, metadata));
+                }
+            } finally {
+                releasePipeline(pipeline);
+            }
+
+            return result;
+        }
+    }
+
 }
@@ -5,199 +5,118 @@ import eu.modernmt.processing.framework.PipelineOutputStream;
 import eu.modernmt.processing.framework.ProcessingException;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
 /**
  * Created by davide on 31/05/16.
+ * <p>
+ * A job is driven entirely by the calling thread: it reads the input, submits it to the
+ * executor pool in micro-batches and writes the results in input order. At most a fixed
+ * number of batches is in flight at any time; once the window is full the job waits for
+ * the oldest one before reading more input.
+ * <p>
+ * Batches start with a single item and double in size up to the executor batch size, so
+ * that short inputs are still spread across all the processing threads.
  */
 class ProcessingJob<P, R> {
 
-    private static final Object POISON_PILL = new Object();
-
-    private PipelineExecutor<P, R> executor;
+    private final PipelineExecutor<P, R> executor;
+    private final PipelineInputStream<P> input;
+    private final PipelineOutputStream<R> output;
+    private final int windowSize;
     private Map<String, Object> metadata = null;
-    private PipelineInputStream<P> input;
-    private PipelineOutputStream<R> output;
-
-    private BlockingQueue<Object> inputQueue;
-    private BlockingQueue<Object> outputQueue;
-
-    private final Collector collector = new Collector();
-    private final Submitter submitter = new Submitter();
-    private final Outputter outputter = new Outputter();
-
-    private Throwable error = null;
+    private boolean eof = false;
 
     ProcessingJob(PipelineExecutor<P, R> executor, PipelineInputStream<P> input, PipelineOutputStream<R> output) {
         this.executor = executor;
         this.input = input;
         this.output = output;
-
-        int size = Math.max(50, executor.getThreads() * 2);
-        this.inputQueue = new ArrayBlockingQueue<>(size);
-        this.outputQueue = new ArrayBlockingQueue<>(size);
+        this.windowSize = Math.max(4, executor.getThreads() * 2);
     }
 
     public void setMetadata(Map<String, Object> metadata) {
         this.metadata = metadata;
     }
 
-    public void start() {
-        this.collector.start();
-        this.submitter.start();
-        this.outputter.start();
-    }
+    public void run() throws InterruptedException, ProcessingException {
+        ArrayDeque<Future<List<R>>> pending = new ArrayDeque<>(windowSize);
+        int maxBatchSize = executor.getBatchSize();
+        int batchSize = 1;
 
-    public void stop() {
-        collector.terminate();
+        executor.onJobStarted();
 
         try {
-            // The POISON_PILL could be added twice, but this is not a problem.
-            // On the contrary the clear() call could have removed the POISON_PILL
-            // added by the Collector thread.
-            inputQueue.clear();
-            inputQueue.put(POISON_PILL);
-        } catch (InterruptedException e) {
-            // Ignore
-        } finally {
-            outputQueue.clear();
-        }
-    }
-
-    private void signalException(Throwable exception) {
-        this.error = exception;
-        this.stop();
-    }
-
-    public void join() throws InterruptedException, ProcessingException {
-        this.collector.join();
-        this.submitter.join();
-        this.outputter.join();
-
-        if (error != null) {
-            if (error instanceof ExecutionException)
-                error = error.getCause();
-
-            if (error instanceof InterruptedException)
-                throw (InterruptedException) error;
-            else if (error instanceof ProcessingException)
-                throw (ProcessingException) error;
-            else if (error instanceof RuntimeException)
-                throw (RuntimeException) error;
-            else
-                throw new Error("Unexpected exception", error);
-        }
-    }
-
-    private class Collector extends Thread {
-
-        private boolean terminated = false;
+            List<P> batch;
 
-        public void terminate() {
-            terminated = true;
-        }
+            while (!(batch = next(batchSize)).isEmpty()) {
+                pending.add(executor.submitBatch(batch, metadata));
+                batchSize = Math.min(maxBatchSize, batchSize * 2);
 
-        private P next() {
-            try {
-                return input.read();
-            } catch (IOException e) {
-                signalException(new ProcessingException("Unable to read from PipelineInputStream", e));
-                return null;
+                // Flush completed results as soon as possible
+                while (!pending.isEmpty() && (pending.size() >= windowSize || pending.peek().isDone()))
+                    write(pending.poll());
             }
-        }
 
-        @Override
-        public void run() {
-            P param;
-
-            while (!terminated && (param = next()) != null) {
-                try {
-                    inputQueue.put(param);
-                } catch (InterruptedException e) {
-                    signalException(e);
-                    break;
-                }
-            }
+            while (!pending.isEmpty())
+                write(pending.poll());
+        } finally {
+            for (Future<List<R>> future : pending)
+                future.cancel(true);
 
-            try {
-                inputQueue.put(POISON_PILL);
-            } catch (InterruptedException e) {
-                // Ignore
-            }
+            executor.onJobFinished();
         }
-
     }
 
-    private class Submitter extends Thread {
+    private List<P> next(int size) throws ProcessingException {
+        ArrayList<P> batch = new ArrayList<>(size);
 
-        @SuppressWarnings("unchecked")
-        private P next() {
-            try {
-                Object result = inputQueue.take();
-                return result == POISON_PILL ? null : (P) result;
-            } catch (InterruptedException e) {
-                return null;
-            }
-        }
-
-        @Override
-        public void run() {
-            P param;
-
-            while ((param = next()) != null) {
-                Future<R> future = executor.submit(param, metadata);
-                try {
-                    outputQueue.put(future);
-                } catch (InterruptedException e) {
-                    signalException(e);
-                    break;
-                }
-            }
+        try {
+            while (!eof && batch.size() < size) {
+                P param = input.read();
 
-            try {
-                outputQueue.put(POISON_PILL);
-            } catch (InterruptedException e) {
-                // Ignore
+                if (param == null)
+                    eof = true;
+                else
+                    batch.add(param);
             }
+        } catch (IOException e) {
+            throw new ProcessingException("Unable to read from PipelineInputStream", e);
         }
 
+        return batch;
     }
 
-    private class Outputter extends Thread {
+    private void write(Future<List<R>> future) throws InterruptedException, ProcessingException {
+        List<R> values;
 
-        @SuppressWarnings("unchecked")
-        private Future<R> next() throws InterruptedException {
-            Object result = outputQueue.take();
-            if (result == POISON_PILL)
-                return null;
+        try {
+            values = future.get();
+        } catch (ExecutionException e) {
+            Throwable error = e.getCause();
 
-            return ((Future<R>) result);
+            if (error instanceof ProcessingException)
+                throw (ProcessingException) error;
+            else if (error instanceof RuntimeException)
+                throw (RuntimeException) error;
+            else
+                throw new Error("Unexpected exception", error);
         }
 
-        @Override
-        public void run() {
-            Future<R> result;
+        executor.onProcessed(values.size());
 
+        if (output != null) {
             try {
-                while ((result = next()) != null) {
-                    R value = result.get();
-                    if (output != null)
-                        output.write(value);
-                }
-            } catch (InterruptedException e) {
-                // break
-            } catch (ExecutionException e) {
-                signalException(e);
-                // break
+                for (R value : values)
+                    output.write(value);
             } catch (IOException e) {
-                signalException(new ProcessingException("Unable to write to PipelineOutputStream", e));
+                throw new ProcessingException("Unable to write to PipelineOutputStream", e);
             }
         }
-
     }
 
 }
@@ -0,0 +1,288 @@
+package eu.modernmt.processing.framework.concurrent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by davide on 27/06/16.
+ * <p>
+ * Node-wide pool of processing threads shared by all the PipelineExecutors. Every executor
+ * gets its own task queue and the scheduler threads serve the queues in round-robin, so
+ * that a long training job cannot starve the interactive pipelines. Each executor can
+ * also be limited to a maximum number of concurrently running tasks.
+ */
+public class ProcessingScheduler {
+
+    private static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+
+    private static ProcessingScheduler instance = null;
+
+    public static synchronized ProcessingScheduler getInstance() {
+        if (instance == null)
+            instance = new ProcessingScheduler(DEFAULT_THREADS);
+
+        return instance;
+    }
+
+    private final ArrayDeque<Executor> ready = new ArrayDeque<>();
+
+    private int threads;
+    private int liveThreads = 0;
+    private int activeCount = 0;
+    private int queuedCount = 0;
+    private int executorCount = 0;
+    private long completedCount = 0;
+    private int nextThreadId = 0;
+    private int terminationWaiters = 0;
+
+    ProcessingScheduler(int threads) {
+        setThreads(threads);
+    }
+
+    /**
+     * Sets the total number of processing threads of this node. The pool grows
+     * immediately, while exceeding threads exit as soon as they are idle.
+     */
+    public synchronized void setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+
+        this.threads = threads;
+
+        while (liveThreads < threads) {
+            Thread thread = new Thread(this::work, "ProcessingScheduler-Worker-" + (nextThreadId++));
+            thread.setDaemon(true);
+            thread.start();
+
+            liveThreads++;
+        }
+
+        notifyAll();
+    }
+
+    public synchronized int getThreads() {
+        return threads;
+    }
+
+    public synchronized int getActiveCount() {
+        return activeCount;
+    }
+
+    public synchronized int getQueuedCount() {
+        return queuedCount;
+    }
+
+    public synchronized long getCompletedCount() {
+        return completedCount;
+    }
+
+    public synchronized int getExecutorCount() {
+        return executorCount;
+    }
+
+    /**
+     * Creates a new executor whose tasks run in this scheduler threads;
+     * at most maxConcurrency of them run at the same time.
+     */
+    public synchronized Executor newExecutor(int maxConcurrency) {
+        executorCount++;
+        return new Executor(Math.max(1, maxConcurrency));
+    }
+
+    private void work() {
+        while (true) {
+            Executor executor;
+            Runnable task;
+
+            synchronized (this) {
+                while (ready.isEmpty() && liveThreads <= threads) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // Ignore, workers are stopped by decreasing the threads
+                    }
+                }
+
+                if (liveThreads > threads) {
+                    liveThreads--;
+
+                    // Pass on a notification this thread may have consumed
+                    if (!ready.isEmpty())
+                        notifyAll();
+
+                    return;
+                }
+
+                executor = ready.poll();
+                executor.scheduled = false;
+                task = executor.queue.poll();
+                queuedCount--;
+                executor.running++;
+                activeCount++;
+
+                schedule(executor);
+            }
+
+            // A task cancelled with cancel(true) can leave the interrupt flag set
+            // after it completes, it must not leak into the next task
+            Thread.interrupted();
+
+            try {
+                task.run();
+            } catch (Throwable e) {
+                // Tasks are FutureTasks, they never throw
+            }
+
+            synchronized (this) {
+                executor.running--;
+                activeCount--;
+                completedCount++;
+
+                schedule(executor);
+
+                if (executor.isTerminated())
+                    onTerminated(executor);
+            }
+        }
+    }
+
+    // Must be called holding the scheduler lock
+    private void schedule(Executor executor) {
+        if (!executor.scheduled && !executor.queue.isEmpty() && executor.running < executor.maxConcurrency) {
+            executor.scheduled = true;
+            ready.add(executor);
+
+            // Threads waiting for termination share the monitor with the workers
+            if (terminationWaiters > 0)
+                notifyAll();
+            else
+                notify();
+        }
+    }
+
+    // Must be called holding the scheduler lock
+    private void onTerminated(Executor executor) {
+        if (!executor.terminated) {
+            executor.terminated = true;
+            executorCount--;
+        }
+
+        notifyAll();
+    }
+
+    public class Executor extends AbstractExecutorService {
+
+        private final int maxConcurrency;
+        private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+        private int running = 0;
+        private boolean scheduled = false;
+        private boolean shutdown = false;
+        private boolean terminated = false;
+
+        private Executor(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            synchronized (ProcessingScheduler.this) {
+                if (shutdown)
+                    throw new RejectedExecutionException("Executor has been shut down");
+
+                queue.add(command);
+                queuedCount++;
+                schedule(this);
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            synchronized (ProcessingScheduler.this) {
+                shutdown = true;
+
+                if (isTerminated())
+                    onTerminated(this);
+            }
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            synchronized (ProcessingScheduler.this) {
+                shutdown = true;
+
+                ArrayList<Runnable> pending = new ArrayList<>(queue);
+                queue.clear();
+                queuedCount -= pending.size();
+
+                if (scheduled) {
+                    ready.remove(this);
+                    scheduled = false;
+                }
+
+                if (isTerminated())
+                    onTerminated(this);
+
+                return pending;
+            }
+        }
+
+        @Override
+        public boolean isShutdown() {
+            synchronized (ProcessingScheduler.this) {
+                return shutdown;
+            }
+        }
+
+        @Override
+        public boolean isTerminated() {
+            synchronized (ProcessingScheduler.this) {
+                return shutdown && running == 0 && queue.isEmpty();
+            }
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+            synchronized (ProcessingScheduler.this) {
+                terminationWaiters++;
+
+                try {
+                    while (!isTerminated()) {
+                        long millis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                        if (millis <= 0)
+                            return false;
+
+                        ProcessingScheduler.this.wait(millis);
+                    }
+
+                    return true;
+                } finally {
+                    terminationWaiters--;
+                }
+            }
+        }
+
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        public int getQueuedCount() {
+            synchronized (ProcessingScheduler.this) {
+                return queue.size();
+            }
+        }
+
+        public int getActiveCount() {
+            synchronized (ProcessingScheduler.this) {
+                return running;
+            }
+        }
+
+    }
+
+}
@@ -41,7 +41,7 @@ public class XMLEditableString {
 
     private String originalString;
     private StringBuilder currentString;
-    private Deque<Operation> changeLog;
+    private List<List<Operation>> changeLog;
     private List<TokenHook> tokens;
     private List<TokenHook> xml;
     private Editor editor;
@@ -51,7 +51,7 @@ public class XMLEditableString {
     protected XMLEditableString(String originalString) {
         this.originalString = originalString;
         this.currentString = new StringBuilder(originalString);
-        this.changeLog = new LinkedList<>();
+        this.changeLog = new ArrayList<>();
         this.tokens = new ArrayList<>();
         this.xml = new ArrayList<>();
         this.editor = new Editor(this);
@@ -74,104 +74,142 @@ public class XMLEditableString {
         return this.currentString.toString();
     }
 
+    /**
+     * Applies a batch of operations produced by an Editor: operations are sorted and do not
+     * overlap, and every start index already accounts for the previous operations of the batch.
+     * The string is rebuilt with a single pass and the batch is saved in the change log
+     * in order to remap the token positions at compile time.
+     */
     protected void applyOperations(Collection<Operation> operations) throws InvalidOperationException {
-        applyOperations(operations, true);
-    }
-
-    protected void applyOperations(Collection<Operation> operations, boolean save) throws InvalidOperationException {
         if (this.compiled) {
             throw new IllegalStateException("XMLEditableString already compiled");
         }
-        for (Operation operation : operations) {
-            int operationEndIndex = operation.startIndex + operation.length;
-            operation.originalString = this.currentString.substring(operation.startIndex, operationEndIndex);
-
-            int delta = operation.lengthNewString - operation.length;
-            if (delta != 0) {
-                for (TokenHook hook : this.tokens) {
-                    int hookLastEditedIndex = hook.startIndex + hook.length - 1;
-                    if (hook.startIndex >= operationEndIndex) {
-                        hook.startIndex += delta;
-                    } else if (hook.startIndex > operation.startIndex) {
-                        throw new InvalidOperationException(operation, hook);
-                    } else if (hook.startIndex == operation.startIndex && operation.length > hook.length) {
-                        throw new InvalidOperationException(operation, hook);
-                    } else if (hook.startIndex == operation.startIndex && operation.length < hook.length) {
-                        hook.length += delta;
-                    } else if (hook.startIndex == operation.startIndex) {
-                        hook.length = operation.lengthNewString;
-                    } else if (hookLastEditedIndex >= operationEndIndex) {
-                        hook.length += delta;
-                    } else if (hookLastEditedIndex >= operation.startIndex) {
-                        throw new InvalidOperationException(operation, hook);
-                    } else if (hookLastEditedIndex < operation.startIndex) {
-                        //Do nothing
-                    } else {
-                        throw new InvalidOperationException(operation, hook, "Unexpected situation");
-                    }
-                }
-            }
 
-            if (TokenHook.TokenType.XML.equals(operation.tokenType)) {
-                for (TokenHook hook : this.xml) {
-                    int hookLastEditedIndex = hook.startIndex + hook.length - 1;
-                    if (hook.startIndex >= operationEndIndex) {
-                        hook.startIndex += delta;
-                    } else if (hook.startIndex > operation.startIndex) {
-                        throw new InvalidOperationException(operation, hook);
-                    } else if (hook.startIndex == operation.startIndex && operation.length > hook.length) {
-                        throw new InvalidOperationException(operation, hook);
-                    } else if (hook.startIndex == operation.startIndex && operation.length < hook.length) {
-                        hook.length += delta;
-                    } else if (hook.startIndex == operation.startIndex) {
-                        hook.length = operation.lengthNewString;
-                    } else if (hookLastEditedIndex >= operationEndIndex) {
-                        hook.length += delta;
-                    } else if (hookLastEditedIndex >= operation.startIndex) {
-                        throw new InvalidOperationException(operation, hook);
-                    } else if (hookLastEditedIndex < operation.startIndex) {
-                        //Do nothing
-                    } else {
-                        throw new InvalidOperationException(operation, hook, "Unexpected situation");
-                    }
+        ArrayList<Operation> batch = new ArrayList<>(operations);
+
+        // XML hooks are created by the Builder with a single commit, this only
+        // happens if tags are set on a string with existing tags
+        if (!this.xml.isEmpty()) {
+            for (Operation operation : batch) {
+                if (TokenHook.TokenType.XML.equals(operation.tokenType)) {
+                    for (TokenHook hook : this.xml)
+                        remap(hook, operation);
                 }
             }
+        }
 
+        StringBuilder string = null;
+        int length = this.currentString.length();
+        int lastIndex = 0;
+        int delta = 0;
+
+        for (Operation operation : batch) {
             if (!TokenHook.TokenType.Word.equals(operation.tokenType)) {
-                this.currentString.replace(operation.startIndex, operationEndIndex, operation.newString);
+                int startIndex = operation.startIndex - delta;
+                int endIndex = startIndex + operation.length;
+
+                if (startIndex < lastIndex || endIndex > length)
+                    throw new StringIndexOutOfBoundsException("Invalid operation " + operation);
+
+                if (string == null)
+                    string = new StringBuilder(length + 16);
+
+                operation.originalString = this.currentString.substring(startIndex, endIndex);
+                string.append(this.currentString, lastIndex, startIndex);
+                string.append(operation.newString);
+
+                lastIndex = endIndex;
+                delta += operation.lengthNewString - operation.length;
             }
 
-            if (save) {
-                if (operation.tokenType != null) {
-                    if (TokenHook.TokenType.XML.equals(operation.tokenType)) {
-                        TokenHook hook = new TokenHook(operation.startIndex, operation.lengthNewString,
-                                operation.tokenType);
-                        this.xml.add(hook);
-                    } else {
-                        if (this.tokenMask == null) {
-                            this.tokenMask = new TokenMask(this.currentString.length());
-                        }
-
-                        this.tokenMask.setToken(operation.startIndex, operation.lengthNewString);
-                    }
+            if (TokenHook.TokenType.XML.equals(operation.tokenType)) {
+                this.xml.add(new TokenHook(operation.startIndex, operation.lengthNewString, operation.tokenType));
+            } else if (TokenHook.TokenType.Word.equals(operation.tokenType)) {
+                if (this.tokenMask == null) {
+                    this.tokenMask = new TokenMask(length + delta);
                 }
 
-                this.changeLog.push(operation);
+                this.tokenMask.setToken(operation.startIndex, operation.lengthNewString);
             }
         }
+
+        if (string != null) {
+            string.append(this.currentString, lastIndex, length);
+            this.currentString = string;
+        }
+
+        this.changeLog.add(batch);
     }
 
-    private void reverseChangeLog() throws InvalidOperationException {
-        Deque<Operation> operations = new LinkedList<>(this.changeLog);
-        while (!operations.isEmpty()) {
-            Operation operation = operations.pop();
-            if (!TokenHook.TokenType.Word.equals(operation.tokenType)) {
-                Operation inverse = operation.getInverse();
-                Collection<Operation> c = new LinkedList<>();
-                c.add(inverse);
-                this.applyOperations(c, false);
+    /**
+     * Maps the given hooks, sorted by start index and not overlapping, back through the
+     * inverse of a batch of operations. Hooks following an operation are shifted lazily:
+     * every hook is stored relative to the accumulated delta at the moment it joins the
+     * tail of the hooks following all the processed operations, so that every batch costs
+     * O(hooks + operations).
+     */
+    private static void reverse(List<TokenHook> hooks, List<Operation> batch, TokenHook.TokenType type)
+            throws InvalidOperationException {
+        int tail = hooks.size();
+        int delta = 0;
+
+        for (int k = batch.size() - 1; k >= 0; k--) {
+            Operation operation = batch.get(k);
+
+            if (type == null ? TokenHook.TokenType.Word.equals(operation.tokenType) : !type.equals(operation.tokenType))
+                continue;
+
+            Operation inverse = operation.getInverse();
+            int inverseDelta = inverse.lengthNewString - inverse.length;
+            int inverseEndIndex = inverse.startIndex + inverse.length;
+
+            if (type == null && inverseDelta == 0)
+                continue;
+
+            while (tail > 0 && hooks.get(tail - 1).startIndex >= inverseEndIndex) {
+                tail--;
+                hooks.get(tail).startIndex -= delta;
             }
+
+            for (int i = tail - 1; i >= 0; i--) {
+                if (!remap(hooks.get(i), inverse))
+                    break;
+            }
+
+            delta += inverseDelta;
+        }
+
+        for (int i = tail; i < hooks.size(); i++)
+            hooks.get(i).startIndex += delta;
+    }
+
+    /**
+     * Updates the hook for the given operation, returns false if the hook entirely precedes it.
+     */
+    private static boolean remap(TokenHook hook, Operation operation) throws InvalidOperationException {
+        int operationEndIndex = operation.startIndex + operation.length;
+        int delta = operation.lengthNewString - operation.length;
+        int hookLastEditedIndex = hook.startIndex + hook.length - 1;
+
+        if (hook.startIndex >= operationEndIndex) {
+            hook.startIndex += delta;
+        } else if (hook.startIndex > operation.startIndex) {
+            throw new InvalidOperationException(operation, hook);
+        } else if (hook.startIndex == operation.startIndex && operation.length > hook.length) {
+            throw new InvalidOperationException(operation, hook);
+        } else if (hook.startIndex == operation.startIndex && operation.length < hook.length) {
+            hook.length += delta;
+        } else if (hook.startIndex == operation.startIndex) {
+            hook.length = operation.lengthNewString;
+        } else if (hookLastEditedIndex >= operationEndIndex) {
+            hook.length += delta;
+        } else if (hookLastEditedIndex >= operation.startIndex) {
+            throw new InvalidOperationException(operation, hook);
+        } else {
+            return false;
         }
+
+        return true;
     }
 
     public List<TokenHook> compile() throws InvalidOperationException {
@@ -189,7 +227,15 @@ public class XMLEditableString {
             }
         }
 
-        this.reverseChangeLog();
+        for (int i = this.changeLog.size() - 1; i >= 0; i--) {
+            List<Operation> batch = this.changeLog.get(i);
+            reverse(this.tokens, batch, null);
+            reverse(this.xml, batch, TokenHook.TokenType.XML);
+        }
+
+        // Reverting all the operations restores the original string
+        this.currentString = new StringBuilder(this.originalString);
+        this.changeLog = null;
         this.compiled = true;
 
         ArrayList<TokenHook> hooks = new ArrayList<>(this.tokens.size() + this.xml.size());
@@ -231,7 +277,7 @@ public class XMLEditableString {
         }
 
         protected void init() {
-            this.changeLog = new LinkedList<>();
+            this.changeLog = new ArrayList<>();
             this.lastEditedIndex = -1;
             this.deltaIndexes = 0;
             this.inUse = true;
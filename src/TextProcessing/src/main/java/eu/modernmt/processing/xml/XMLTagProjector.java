@@ -80,7 +80,7 @@ public class XMLTagProjector extends TextProcessor<Translation, Translation> {
         Tag[] sourceTags = translation.getSource().getTags();
         Token[] sourceWord = translation.getSource().getWords();
         Token[] targetTokens = translation.getWords();
-        int[][] alignments = translation.getAlignment();
+        Alignment alignments = translation.getAlignment();
         List<ExtendedTag> translationTags = new ArrayList<>(sourceTags.length);
         Map<Integer, Integer> closing2opening = new HashMap<>();
 
@@ -112,11 +112,12 @@ public class XMLTagProjector extends TextProcessor<Translation, Translation> {
                 int maxPos = -1;
 
                 //Check if they contain some aligned words
-                for (int[] align : alignments) {
-                    if (align[0] >= sourcePosition && align[0] < closePosition) {
-                        minPos = Math.min(minPos, align[1]);
-                        maxPos = Math.max(maxPos, align[1]);
-                    }
+                int begin = alignments.getLinksBegin(sourcePosition);
+                int end = alignments.getLinksBegin(closePosition);
+                for (int i = begin; i < end; i++) {
+                    int target = alignments.getTarget(i);
+                    minPos = Math.min(minPos, target);
+                    maxPos = Math.max(maxPos, target);
                 }
 
                 //If they contain no aligned words, treat the current tag as a self-closing tag
@@ -148,18 +149,20 @@ public class XMLTagProjector extends TextProcessor<Translation, Translation> {
                 sourceRightToken.clear();
                 //Words that are at the left of the tag in the source sentence, should be at left of the mapped tag
                 //in the translation. Some reasoning for those that are at the right.
-                for (int[] align : alignments) {
+                for (int i = 0; i < alignments.size(); i++) {
+                    int target = alignments.getTarget(i);
+
                     //If the word is at the left of the current tag
-                    if (align[0] < sourcePosition) {
-                        if (!sourceRightToken.contains(align[1])) {
+                    if (alignments.getSource(i) < sourcePosition) {
+                        if (!sourceRightToken.contains(target)) {
                             //Remember that it should be at the left also in the translation
-                            sourceLeftToken.add(align[1]);
+                            sourceLeftToken.add(target);
                         }
                     } else {
                         //It the word is at the right of the current tag
-                        if (!sourceLeftToken.contains(align[1])) {
+                        if (!sourceLeftToken.contains(target)) {
                             //Remember that it should be at the right also in the translation
-                            sourceRightToken.add(align[1]);
+                            sourceRightToken.add(target);
                         }
                     }
                 }
@@ -310,11 +313,12 @@ public class XMLTagProjector extends TextProcessor<Translation, Translation> {
 
     }
 
-    private static int[][] computeExtendedAlignments(List<ExtendedTag> extendedTags, Translation translation) {
+    private static Alignment computeExtendedAlignments(List<ExtendedTag> extendedTags, Translation translation) {
 
         //Change words indexes in the alignments including the tags positions in the source
-        int[][] wordsAlignments = translation.getAlignment();
-        int[][] newWordsAlignments = new int[wordsAlignments.length + extendedTags.size()][2];
+        Alignment wordsAlignments = translation.getAlignment();
+        int[] sources = new int[wordsAlignments.size() + extendedTags.size()];
+        int[] targets = new int[sources.length];
 
         int alignmentIndex, tokenIndex, wordIndex, tagCount, newAlignmentsIndex;
         alignmentIndex = tokenIndex = wordIndex = tagCount = newAlignmentsIndex = 0;
@@ -322,9 +326,10 @@ public class XMLTagProjector extends TextProcessor<Translation, Translation> {
             if (token instanceof Tag) {
                 tagCount++;
             } else {
-                while (alignmentIndex < wordsAlignments.length && wordsAlignments[alignmentIndex][0] == wordIndex) {
-                    newWordsAlignments[newAlignmentsIndex++] = new int[]{wordsAlignments[alignmentIndex][0] + tagCount,
-                            wordsAlignments[alignmentIndex][1]};
+                while (alignmentIndex < wordsAlignments.size() && wordsAlignments.getSource(alignmentIndex) == wordIndex) {
+                    sources[newAlignmentsIndex] = wordsAlignments.getSource(alignmentIndex) + tagCount;
+                    targets[newAlignmentsIndex] = wordsAlignments.getTarget(alignmentIndex);
+                    newAlignmentsIndex++;
                     alignmentIndex++;
                 }
                 wordIndex++;
@@ -343,32 +348,22 @@ public class XMLTagProjector extends TextProcessor<Translation, Translation> {
             }
             tokenIndex++;
         }
-        for (int[] alignment : newWordsAlignments) {
-            Integer newPosition = oldPosition2newPosition.get(alignment[1]);
-            if (alignment != null && newPosition != null) {
-                alignment[1] = newPosition;
+        for (int i = 0; i < newAlignmentsIndex; i++) {
+            Integer newPosition = oldPosition2newPosition.get(targets[i]);
+            if (newPosition != null) {
+                targets[i] = newPosition;
             }
         }
 
         //Add alignments among tags
         for (ExtendedTag tag : extendedTags) {
-            System.out.println((tag.sourcePosition + " " + tag.sourceTagIndex) + " " + tag.targetPosition + " " + tag.targetTagIndex);
-            newWordsAlignments[newAlignmentsIndex++] = new int[]{tag.sourcePosition + tag.sourceTagIndex, tag.targetPosition + tag.targetTagIndex};
+            sources[newAlignmentsIndex] = tag.sourcePosition + tag.sourceTagIndex;
+            targets[newAlignmentsIndex] = tag.targetPosition + tag.targetTagIndex;
+            newAlignmentsIndex++;
         }
 
-        //Sort the alignments
-        Arrays.sort(newWordsAlignments, new Comparator<int[]>() {
-            @Override
-            public int compare(int[] a1, int[] a2) {
-                int c = a1[0] - a2[0];
-                if (c == 0) {
-                    c = a1[1] - a2[1];
-                }
-                return c;
-            }
-        });
-
-        return newWordsAlignments;
+        //Alignment sorts the links
+        return new Alignment(Arrays.copyOf(sources, newAlignmentsIndex), Arrays.copyOf(targets, newAlignmentsIndex));
     }
 
     public static void main(String[] args) throws Throwable {
@@ -389,13 +384,13 @@ public class XMLTagProjector extends TextProcessor<Translation, Translation> {
                 new Word("a", " "),
                 new Word("*99***1#", null),
                 new Word(".", null)
-        }, source, new int[][]{
+        }, source, Alignment.fromPairs(new int[][]{
                 {1, 1},
                 {1, 2},
                 {2, 0},
                 {3, 3},
                 {4, 4}
-        });
+        }));
 
 
         System.out.println("SRC:                     " + source);
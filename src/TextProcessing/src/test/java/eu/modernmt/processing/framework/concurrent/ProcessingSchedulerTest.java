@@ -0,0 +1,184 @@
+package eu.modernmt.processing.framework.concurrent;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ProcessingSchedulerTest {
+
+    private static final long TIMEOUT = 10;
+
+    @Test
+    public void testRoundRobinBetweenExecutors() throws Throwable {
+        ProcessingScheduler scheduler = new ProcessingScheduler(1);
+        ProcessingScheduler.Executor a = scheduler.newExecutor(4);
+        ProcessingScheduler.Executor b = scheduler.newExecutor(4);
+
+        // Keep the only thread busy until both queues are full
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        a.submit(() -> {
+            started.countDown();
+            gate.await();
+            return null;
+        });
+
+        assertTrue(started.await(TIMEOUT, TimeUnit.SECONDS));
+
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 5; i++)
+            a.submit(() -> order.add("a"));
+        for (int i = 0; i < 5; i++)
+            b.submit(() -> order.add("b"));
+
+        gate.countDown();
+
+        a.shutdown();
+        b.shutdown();
+        assertTrue(a.awaitTermination(TIMEOUT, TimeUnit.SECONDS));
+        assertTrue(b.awaitTermination(TIMEOUT, TimeUnit.SECONDS));
+
+        assertEquals(new ArrayList<>(Arrays.asList("a", "b", "a", "b", "a", "b", "a", "b", "a", "b")), order);
+    }
+
+    @Test
+    public void testConcurrencyCap() throws Throwable {
+        ProcessingScheduler scheduler = new ProcessingScheduler(6);
+        ProcessingScheduler.Executor executor = scheduler.newExecutor(2);
+
+        AtomicInteger running = new AtomicInteger(0);
+        AtomicInteger maxRunning = new AtomicInteger(0);
+
+        ArrayList<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(executor.submit(() -> {
+                int current = running.incrementAndGet();
+                maxRunning.accumulateAndGet(current, Math::max);
+
+                Thread.sleep(10);
+
+                running.decrementAndGet();
+                return null;
+            }));
+        }
+
+        for (Future<?> future : futures)
+            future.get(TIMEOUT, TimeUnit.SECONDS);
+
+        // Counters are updated after the future completes
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(TIMEOUT, TimeUnit.SECONDS));
+
+        assertEquals(2, maxRunning.get());
+        assertEquals(0, executor.getActiveCount());
+        assertEquals(0, executor.getQueuedCount());
+    }
+
+    @Test
+    public void testShutdownRunsQueuedTasks() throws Throwable {
+        ProcessingScheduler scheduler = new ProcessingScheduler(1);
+        ProcessingScheduler.Executor executor = scheduler.newExecutor(1);
+
+        AtomicInteger completed = new AtomicInteger(0);
+        for (int i = 0; i < 10; i++)
+            executor.execute(completed::incrementAndGet);
+
+        executor.shutdown();
+        assertTrue(executor.isShutdown());
+
+        try {
+            executor.execute(completed::incrementAndGet);
+            fail("Task accepted after shutdown");
+        } catch (RejectedExecutionException e) {
+            // Expected
+        }
+
+        assertTrue(executor.awaitTermination(TIMEOUT, TimeUnit.SECONDS));
+        assertTrue(executor.isTerminated());
+        assertEquals(10, completed.get());
+    }
+
+    @Test
+    public void testShutdownNowReturnsQueuedTasks() throws Throwable {
+        ProcessingScheduler scheduler = new ProcessingScheduler(1);
+        ProcessingScheduler.Executor executor = scheduler.newExecutor(1);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                // Ignore it
+            }
+        });
+
+        assertTrue(started.await(TIMEOUT, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 3; i++)
+            executor.execute(() -> fail("Task run after shutdownNow"));
+
+        List<Runnable> pending = executor.shutdownNow();
+        assertEquals(3, pending.size());
+        assertEquals(0, executor.getQueuedCount());
+        assertFalse(executor.isTerminated());
+
+        gate.countDown();
+        assertTrue(executor.awaitTermination(TIMEOUT, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testAwaitTerminationTimeout() throws Throwable {
+        ProcessingScheduler scheduler = new ProcessingScheduler(2);
+        ProcessingScheduler.Executor executor = scheduler.newExecutor(1);
+
+        CountDownLatch gate = new CountDownLatch(1);
+        executor.submit(() -> {
+            gate.await();
+            return null;
+        });
+
+        executor.shutdown();
+        assertFalse(executor.awaitTermination(50, TimeUnit.MILLISECONDS));
+        assertFalse(executor.isTerminated());
+
+        gate.countDown();
+        assertTrue(executor.awaitTermination(TIMEOUT, TimeUnit.SECONDS));
+        assertEquals(0, scheduler.getExecutorCount());
+    }
+
+    @Test
+    public void testCancelledTaskDoesNotInterruptNextTask() throws Throwable {
+        ProcessingScheduler scheduler = new ProcessingScheduler(1);
+        ProcessingScheduler.Executor executor = scheduler.newExecutor(1);
+
+        // The task ignores interruptions, so the flag is still set when it completes
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean release = new AtomicBoolean(false);
+        Future<?> cancelled = executor.submit(() -> {
+            started.countDown();
+            while (!release.get())
+                Thread.yield();
+        });
+
+        assertTrue(started.await(TIMEOUT, TimeUnit.SECONDS));
+
+        // Queued before the cancelled task completes, so that the thread picks it up immediately
+        Future<Boolean> next = executor.submit(() -> Thread.currentThread().isInterrupted());
+
+        assertTrue(cancelled.cancel(true));
+        release.set(true);
+
+        assertFalse(next.get(TIMEOUT, TimeUnit.SECONDS));
+    }
+
+}
@@ -0,0 +1,306 @@
+package eu.modernmt.processing.framework.string;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class XMLEditableStringTest {
+
+    private static final int TRIALS = 2000;
+    private static final String[] TAGS = new String[]{"<b>", "</b>", "<br/>", "<a href=\"x\">"};
+
+    private enum EditType {
+        REPLACE, DELETE, INSERT, WORD
+    }
+
+    private static class Edit {
+
+        private final EditType type;
+        private final int startIndex;
+        private final int length;
+        private final String string;
+
+        public Edit(EditType type, int startIndex, int length, String string) {
+            this.type = type;
+            this.startIndex = startIndex;
+            this.length = length;
+            this.string = string;
+        }
+
+        @Override
+        public String toString() {
+            return type + "(" + startIndex + ", " + length + ", '" + string + "')";
+        }
+    }
+
+    // Random input
+
+    private static String randomText(Random random, int maxLength) {
+        StringBuilder text = new StringBuilder();
+        int length = random.nextInt(maxLength + 1);
+
+        for (int i = 0; i < length; i++)
+            text.append(random.nextInt(4) == 0 ? ' ' : (char) ('a' + random.nextInt(3)));
+
+        return text.toString();
+    }
+
+    private static List<Edit> randomEdits(Random random, int length) {
+        List<Edit> edits = new ArrayList<>();
+        int cursor = 0;
+
+        while (random.nextInt(6) > 0) {
+            int startIndex = cursor + random.nextInt(4);
+            if (startIndex > length)
+                break;
+
+            int available = length - startIndex;
+            EditType type = EditType.values()[random.nextInt(EditType.values().length)];
+
+            if (available == 0 && (type == EditType.WORD || type == EditType.DELETE))
+                type = EditType.INSERT;
+
+            Edit edit;
+            switch (type) {
+                case REPLACE:
+                    edit = new Edit(type, startIndex, random.nextInt(Math.min(4, available) + 1), randomText(random, 3));
+                    break;
+                case DELETE:
+                    edit = new Edit(type, startIndex, 1 + random.nextInt(Math.min(3, available)), null);
+                    break;
+                case INSERT:
+                    edit = new Edit(type, startIndex, 0, randomText(random, 3));
+                    break;
+                default:
+                    edit = new Edit(type, startIndex, 1 + random.nextInt(Math.min(5, available)), null);
+                    break;
+            }
+
+            edits.add(edit);
+            cursor = startIndex + edit.length;
+        }
+
+        return edits;
+    }
+
+    // Edits application, the two implementations share no types
+
+    private static void apply(XMLEditableString.Editor editor, Edit edit) throws InvalidOperationException {
+        switch (edit.type) {
+            case REPLACE:
+                editor.replace(edit.startIndex, edit.length, edit.string);
+                break;
+            case DELETE:
+                editor.delete(edit.startIndex, edit.length);
+                break;
+            case INSERT:
+                editor.insert(edit.startIndex, edit.string);
+                break;
+            case WORD:
+                editor.setWord(edit.startIndex, edit.length);
+                break;
+        }
+    }
+
+    private static void apply(LegacyXMLEditableString.Editor editor, Edit edit) throws InvalidOperationException {
+        switch (edit.type) {
+            case REPLACE:
+                editor.replace(edit.startIndex, edit.length, edit.string);
+                break;
+            case DELETE:
+                editor.delete(edit.startIndex, edit.length);
+                break;
+            case INSERT:
+                editor.insert(edit.startIndex, edit.string);
+                break;
+            case WORD:
+                editor.setWord(edit.startIndex, edit.length);
+                break;
+        }
+    }
+
+    private static String commit(XMLEditableString string, List<Edit> edits) {
+        try {
+            XMLEditableString.Editor editor = string.getEditor();
+            for (Edit edit : edits)
+                apply(editor, edit);
+            editor.commitChanges();
+            return null;
+        } catch (InvalidOperationException | RuntimeException e) {
+            return e.getClass().getName();
+        }
+    }
+
+    private static String commit(LegacyXMLEditableString string, List<Edit> edits) {
+        try {
+            LegacyXMLEditableString.Editor editor = string.getEditor();
+            for (Edit edit : edits)
+                apply(editor, edit);
+            editor.commitChanges();
+            return null;
+        } catch (InvalidOperationException | RuntimeException e) {
+            return e.getClass().getName();
+        }
+    }
+
+    private static List<String> toStrings(List<TokenHook> hooks) {
+        List<String> result = new ArrayList<>(hooks.size());
+        for (TokenHook hook : hooks)
+            result.add(hook.getTokenType() + ":" + hook.getStartIndex() + ":" + hook.getLength() + ":" + hook.getProcessedString());
+        return result;
+    }
+
+    private static List<String> compile(XMLEditableString string) {
+        try {
+            return toStrings(string.compile());
+        } catch (InvalidOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static List<String> compile(LegacyXMLEditableString string) {
+        try {
+            return toStrings(string.compile());
+        } catch (InvalidOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void testEquivalence(long seed) throws InvalidOperationException {
+        Random random = new Random(seed);
+        String message = "seed " + seed;
+
+        XMLEditableString.Builder builder = new XMLEditableString.Builder();
+        LegacyXMLEditableString.Builder legacyBuilder = new LegacyXMLEditableString.Builder();
+
+        int parts = random.nextInt(6);
+        for (int i = 0; i < parts; i++) {
+            if (random.nextInt(3) == 0) {
+                String tag = TAGS[random.nextInt(TAGS.length)];
+                builder.appendXMLTag(tag);
+                legacyBuilder.appendXMLTag(tag);
+            } else {
+                String text = randomText(random, 8);
+                builder.append(text);
+                legacyBuilder.append(text);
+            }
+        }
+
+        XMLEditableString string = builder.create();
+        LegacyXMLEditableString legacy = legacyBuilder.create();
+        assertEquals(message, legacy.toString(), string.toString());
+
+        int commits = random.nextInt(5);
+        for (int i = 0; i < commits; i++) {
+            List<Edit> edits = randomEdits(random, string.toString().length());
+            String error = commit(string, edits);
+
+            assertEquals(message + ", edits " + edits, commit(legacy, edits), error);
+
+            // The state of a string after a failed commit is undefined
+            if (error != null)
+                return;
+
+            assertEquals(message + ", edits " + edits, legacy.toString(), string.toString());
+        }
+
+        List<String> hooks = compile(string);
+        assertEquals(message, compile(legacy), hooks);
+
+        if (hooks == null)
+            return;
+
+        assertEquals(message, string.getOriginalString(), string.toString());
+        assertEquals(message, legacy.toString(), string.toString());
+        assertEquals(message, legacy.getOriginalString(), string.getOriginalString());
+    }
+
+    @Test
+    public void testEquivalenceWithLegacyImplementation() throws InvalidOperationException {
+        for (long seed = 0; seed < TRIALS; seed++)
+            testEquivalence(seed);
+    }
+
+    @Test
+    public void testTokenizedXML() throws InvalidOperationException {
+        XMLEditableString string = new XMLEditableString.Builder()
+                .append("Hello ").appendXMLTag("<b>").append("world").appendXMLTag("</b>").append("!")
+                .create();
+        assertEquals("Hello  world !", string.toString());
+
+        XMLEditableString.Editor editor = string.getEditor();
+        editor.replace(7, 5, "World");
+        editor.commitChanges();
+
+        editor = string.getEditor();
+        editor.setWord(0, 5);
+        editor.setWord(7, 5);
+        editor.setWord(13, 1);
+        editor.commitChanges();
+
+        List<String> hooks = toStrings(string.compile());
+        assertEquals("[Word:0:5:Hello, XML:6:3:null, Word:9:5:World, XML:14:4:null, Word:18:1:!]", hooks.toString());
+        assertEquals("Hello <b>world</b>!", string.toString());
+    }
+
+    // Linearity, a timing benchmark to be run by hand
+
+    private static long time(int words) throws InvalidOperationException {
+        XMLEditableString.Builder builder = new XMLEditableString.Builder();
+        for (int i = 0; i < words; i++) {
+            if (i % 10 == 0)
+                builder.appendXMLTag("<b>");
+            builder.append("word").append(' ');
+        }
+
+        long begin = System.nanoTime();
+
+        XMLEditableString string = builder.create();
+
+        // Every word changes length, then it is set as a token
+        XMLEditableString.Editor editor = string.getEditor();
+        String current = string.toString();
+        for (int i = current.indexOf("word"); i >= 0; i = current.indexOf("word", i + 4))
+            editor.replace(i, 4, "words");
+        editor.commitChanges();
+
+        editor = string.getEditor();
+        current = string.toString();
+        for (int i = current.indexOf("words"); i >= 0; i = current.indexOf("words", i + 5))
+            editor.setWord(i, 5);
+        editor.commitChanges();
+
+        List<TokenHook> hooks = string.compile();
+        assertEquals(words + (words + 9) / 10, hooks.size());
+
+        return System.nanoTime() - begin;
+    }
+
+    private static long bestTime(int words) throws InvalidOperationException {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++)
+            best = Math.min(best, time(words));
+        return best;
+    }
+
+    @Ignore("Timing benchmark, unreliable on loaded machines")
+    @Test
+    public void testLinearCompile() throws InvalidOperationException {
+        final int words = 20000;
+
+        // Warm up
+        bestTime(words);
+
+        long small = bestTime(words);
+        long large = bestTime(words * 4);
+
+        // Linear growth is 4x, the previous quadratic implementation grew by 16x
+        assertTrue("Compile time grew from " + small + "ns to " + large + "ns", large < small * 10);
+    }
+
+}
@@ -1,5 +1,6 @@
 package eu.modernmt.processing.tags;
 
+import eu.modernmt.model.Alignment;
 import eu.modernmt.model.Sentence;
 import eu.modernmt.model.Tag;
 import eu.modernmt.model.Translation;
@@ -27,11 +28,11 @@ public class TagMapperTest {
                 new Word("ciao", " "),
                 new Word("mondo", null),
                 new Word("!", null),
-        }, source, new int[][]{
+        }, source, Alignment.fromPairs(new int[][]{
                 {0, 0},
                 {1, 1},
                 {2, 2},
-        });
+        }));
 
         new XMLTagProjector().call(translation, null);
 
@@ -58,11 +59,11 @@ public class TagMapperTest {
                 new Word("mondo", " "),
                 new Word("ciao", null),
                 new Word("!", null),
-        }, source, new int[][]{
+        }, source, Alignment.fromPairs(new int[][]{
                 {0, 1},
                 {1, 0},
                 {2, 2},
-        });
+        }));
 
         new XMLTagProjector().call(translation, null);
 
@@ -92,13 +93,13 @@ public class TagMapperTest {
                 new Word("un", " "),
                 new Word("tag", " "),
                 new Word("empty", " "),
-        }, source, new int[][]{
+        }, source, Alignment.fromPairs(new int[][]{
                 {0, 0},
                 {1, 1},
                 {2, 1},
                 {3, 4},
                 {4, 3},
-        });
+        }));
 
         new XMLTagProjector().call(translation, null);
 
@@ -124,11 +125,11 @@ public class TagMapperTest {
                 new Word("ciao", " "),
                 new Word("mondo", null),
                 new Word("!", null),
-        }, source, new int[][]{
+        }, source, Alignment.fromPairs(new int[][]{
                 {0, 0},
                 {1, 1},
                 {2, 2},
-        });
+        }));
 
         new XMLTagProjector().call(translation, null);
 
@@ -156,11 +157,11 @@ public class TagMapperTest {
                 new Word("mondo", " "),
                 new Word("ciao", null),
                 new Word("!", null),
-        }, source, new int[][]{
+        }, source, Alignment.fromPairs(new int[][]{
                 {0, 1},
                 {1, 0},
                 {2, 2},
-        });
+        }));
 
         new XMLTagProjector().call(translation, null);
         //System.out.println(translation.getSource().toString());
@@ -189,13 +190,13 @@ public class TagMapperTest {
                 new Word("un", " "),
                 new Word("tag", " "),
                 new Word("malformato", " "),
-        }, source, new int[][]{
+        }, source, Alignment.fromPairs(new int[][]{
                 {0, 0},
                 {1, 1},
                 {2, 2},
                 {3, 4},
                 {4, 3},
-        });
+        }));
 
         new XMLTagProjector().call(translation, null);
 
@@ -223,13 +224,13 @@ public class TagMapperTest {
                 new Word("un", " "),
                 new Word("tag", " "),
                 new Word("malformato", " "),
-        }, source, new int[][]{
+        }, source, Alignment.fromPairs(new int[][]{
                 {0, 0},
                 {1, 1},
                 {2, 2},
                 {3, 4},
                 {4, 3},
-        });
+        }));
 
         new XMLTagProjector().call(translation, null);
 
@@ -258,12 +259,12 @@ public class TagMapperTest {
                 new Word("con", " "),
                 new Word("tag", " "),
                 new Word("innestati", null),
-        }, source, new int[][]{
+        }, source, Alignment.fromPairs(new int[][]{
                 {0, 0},
                 {1, 1},
                 {2, 3},
                 {3, 2},
-        });
+        }));
 
         new XMLTagProjector().call(translation, null);
 
@@ -294,12 +295,12 @@ public class TagMapperTest {
                 new Word("con", " "),
                 new Word("commenti", " "),
                 new Word("XML", " "),
-        }, source, new int[][]{
+        }, source, Alignment.fromPairs(new int[][]{
                 {0, 0},
                 {1, 1},
                 {2, 3},
                 {3, 2},
-        });
+        }));
 
         new XMLTagProjector().call(translation, null);
 
@@ -328,12 +329,12 @@ public class TagMapperTest {
                 new Word("con", " "),
                 new Word("commenti", " "),
                 new Word("XML", " "),
-        }, source, new int[][]{
+        }, source, Alignment.fromPairs(new int[][]{
                 {0, 0},
                 {1, 1},
                 {2, 3},
                 {3, 2},
-        });
+        }));
 
         new XMLTagProjector().call(translation, null);
 
@@ -362,12 +363,12 @@ public class TagMapperTest {
                 new Word("è", " "),
                 new Word("un", " "),
                 new Word("esempio", null),
-        }, source, new int[][]{
+        }, source, Alignment.fromPairs(new int[][]{
                 {0, 0},
                 {1, 1},
                 {2, 2},
                 {3, 3},
-        });
+        }));
 
         new XMLTagProjector().call(translation, null);
 
@@ -389,9 +390,9 @@ public class TagMapperTest {
 
         Translation translation = new Translation(new Word[]{
                 new Word("Prova", null),
-        }, source, new int[][]{
+        }, source, Alignment.fromPairs(new int[][]{
                 {0, 0}
-        });
+        }));
 
         new XMLTagProjector().call(translation, null);
 